@@ -0,0 +1,57 @@
+// Runs the benchmarks at each thread count and writes every result into one JSON file,
+// so results can be compared between builds. Started by the benchmark profile: mvn -Pbenchmark verify
+
+package poll.benchmark;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * This method will run the benchmarks.
+     *
+     * @param args The pattern of the benchmarks to run, the comma separated thread counts, the result file,
+     *             then any JMH options, such as -f 1 -wi 1 -i 3 for a quick run.
+     * @throws Exception The error, if a benchmark fails or the results can't be written.
+     */
+    public static void main(String[] args) throws Exception {
+        String include = args.length > 0 ? args[0] : ".*";
+        int[] threads = Arrays.stream((args.length > 1 ? args[1] : "1,4,16,64").split(","))
+                .mapToInt(count -> Integer.parseInt(count.trim()))
+                .toArray();
+        File result = new File(args.length > 2 ? args[2] : "target/jmh-result.json");
+        CommandLineOptions jmhOptions = new CommandLineOptions(Arrays.copyOfRange(args, Math.min(3, args.length), args.length));
+
+        List<RunResult> results = new ArrayList<>();
+        for (int count : threads) {
+            Options options = new OptionsBuilder()
+                    .parent(jmhOptions)
+                    .include(include)
+                    .threads(count)
+                    .build();
+            results.addAll(new Runner(options).run());
+        }
+
+        result.getAbsoluteFile().getParentFile().mkdirs();
+        try (PrintStream out = new PrintStream(result, StandardCharsets.UTF_8)) {
+            ResultFormatFactory.getInstance(ResultFormatType.JSON, out).writeOut(results);
+        }
+        System.out.println("Results written to " + result.getAbsolutePath());
+    }
+}
@@ -0,0 +1,99 @@
+// Benchmarks a vote through the controller: binding the JSON body and voting, then the same through
+// Spring's dispatcher with its message converters, without a network or the security filters.
+
+package poll.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import poll.controller.PollController;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollServiceImpl;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ControllerBenchmark {
+
+    private static final TypeReference<Map<String, Member>> SIGNED_VOTE = new TypeReference<>() {
+    };
+
+    @Param({"10000"})
+    public int members;
+
+    private ObjectMapper objectMapper;
+    private PollController controller;
+    private MockMvc mockMvc;
+    // Member -> candidate -> the signed vote's JSON body.
+    private byte[][][] bodies;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        PollServiceImpl pollService = PollFixture.pollService("object", 3, 0);
+        controller = PollFixture.controller(pollService, objectMapper, members);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        Candidate[] candidates = pollService.getAllCandidates().toArray(new Candidate[0]);
+        bodies = new byte[members][candidates.length][];
+        for (int i = 0; i < members; i++) {
+            Member member = new Member(PollFixture.membershipId(i), PollFixture.name(i), 18 + i % 70,
+                    PollFixture.REGIONS[i % PollFixture.REGIONS.length]);
+            for (int c = 0; c < candidates.length; c++) {
+                bodies[i][c] = objectMapper.writeValueAsBytes(Map.of(candidates[c].getCommonName(), member));
+            }
+            // Register the member and warm the membership cache, as a returning voter would find it.
+            controller.makeVote(objectMapper.readValue(bodies[i][0], SIGNED_VOTE), null);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Voter {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+    }
+
+    private byte[] nextBody(Voter voter) {
+        byte[][] memberBodies = bodies[voter.random.nextInt(bodies.length)];
+        return memberBodies[voter.random.nextInt(memberBodies.length)];
+    }
+
+    @Benchmark
+    public ResponseEntity<Void> bindAndVote(Voter voter) throws IOException {
+        return controller.makeVote(objectMapper.readValue(nextBody(voter), SIGNED_VOTE), null);
+    }
+
+    @Benchmark
+    public int dispatchVote(Voter voter) throws Exception {
+        return mockMvc.perform(put("/birds/vote").contentType(MediaType.APPLICATION_JSON).content(nextBody(voter)))
+                .andReturn()
+                .getResponse()
+                .getStatus();
+    }
+}
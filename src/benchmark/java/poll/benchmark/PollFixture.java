@@ -0,0 +1,84 @@
+// Builds a poll service and controller with candidates and members for the benchmarks,
+// wired by hand rather than by Spring so nothing else runs in the background.
+
+package poll.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import poll.controller.CandidateListCache;
+import poll.controller.PollController;
+import poll.demographics.DemographicTally;
+import poll.idempotency.IdempotencyCache;
+import poll.journal.VoteJournal;
+import poll.membership.MembershipCache;
+import poll.membership.StubMembershipRegistry;
+import poll.metrics.PollMetrics;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.pipeline.DirectVoteExecutor;
+import poll.ratelimit.VoteRateLimiter;
+import poll.search.CandidateSearchIndex;
+import poll.service.CompactMemberStore;
+import poll.service.ObjectMemberStore;
+import poll.service.PollServiceImpl;
+import poll.stream.TallyBroadcaster;
+
+final class PollFixture {
+
+    static final String[] REGIONS = {"Highlands", "Fife", "Glasgow City", "City of Edinburgh", "Orkney Islands"};
+
+    private PollFixture() {
+    }
+
+    static String membershipId(int i) {
+        return "SAWB" + (10_000_000 + i);
+    }
+
+    static String name(int i) {
+        return "Member " + i;
+    }
+
+    /**
+     * This method will create an open poll with candidates and registered members who haven't voted.
+     *
+     * @param memberStore The member store to use, object or compact.
+     * @param candidates The number of candidates.
+     * @param members The number of members.
+     * @return The poll service.
+     */
+    static PollServiceImpl pollService(String memberStore, int candidates, int members) {
+        PollServiceImpl pollService = new PollServiceImpl(
+                memberStore.equals("compact") ? new CompactMemberStore(false) : new ObjectMemberStore());
+        for (int i = 0; i < candidates; i++) {
+            pollService.addCandidate(new Candidate("Species " + i, "Bird " + i, "The description of bird " + i + "."));
+        }
+        for (int i = 0; i < members; i++) {
+            pollService.addMember(new Member(membershipId(i), name(i), 18 + i % 70, REGIONS[i % REGIONS.length]));
+        }
+        pollService.setPollOpen(true);
+        return pollService;
+    }
+
+    /**
+     * This method will create a controller over a poll service, with the listeners the application registers,
+     * a stub membership registry that knows every member, and no rate limit, as the benchmarks vote far faster.
+     *
+     * @param pollService The poll service.
+     * @param objectMapper The JSON mapper.
+     * @param members The number of members to register with the stub.
+     * @return The controller.
+     */
+    static PollController controller(PollServiceImpl pollService, ObjectMapper objectMapper, int members) {
+        StubMembershipRegistry registry = new StubMembershipRegistry("", 0);
+        for (int i = 0; i < members; i++) {
+            registry.register(membershipId(i), name(i));
+        }
+        MembershipCache membershipCache = new MembershipCache(registry, members * 2, 3_600_000, 60_000, 5_000, 4, 1024);
+        return new PollController(pollService, new DirectVoteExecutor(pollService), objectMapper,
+                new CandidateListCache(pollService, objectMapper), new CandidateSearchIndex(pollService),
+                new TallyBroadcaster(pollService, objectMapper, 100, 16, 1, 60_000, 5_000),
+                new DemographicTally(pollService, 64), membershipCache, new VoteRateLimiter(false, 10, 20, 1024),
+                new IdempotencyCache(300_000, 100_000, 3_000), new PollMetrics(pollService,
+                new StaticListableBeanFactory().getBeanProvider(VoteJournal.class)));
+    }
+}
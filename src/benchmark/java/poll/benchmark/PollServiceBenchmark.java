@@ -0,0 +1,101 @@
+// Benchmarks the poll service's vote transitions and candidate listing, including the contended cases
+// of every thread voting for one candidate, and of every thread flipping one member's vote.
+
+package poll.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import poll.model.Candidate;
+import poll.service.PollServiceImpl;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PollServiceBenchmark {
+
+    @Param({"object", "compact"})
+    public String memberStore;
+
+    @Param({"100000"})
+    public int members;
+
+    @Param({"3"})
+    public int candidateCount;
+
+    private PollServiceImpl pollService;
+    private Candidate[] candidates;
+    private String[] membershipIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pollService = PollFixture.pollService(memberStore, candidateCount, members);
+        candidates = pollService.getAllCandidates().toArray(new Candidate[0]);
+        membershipIds = new String[members];
+        for (int i = 0; i < members; i++) {
+            membershipIds[i] = PollFixture.membershipId(i);
+        }
+    }
+
+    // Each thread picks its own members and candidates.
+    @State(Scope.Thread)
+    public static class Voter {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+        private boolean flip;
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    @Benchmark
+    public boolean makeVote(Voter voter) {
+        return pollService.makeVote(membershipIds[voter.next(members)], candidates[voter.next(candidates.length)]);
+    }
+
+    // Votes first, so there is always a vote to retract. Measures the pair.
+    @Benchmark
+    public boolean voteThenRetract(Voter voter) {
+        String membershipId = membershipIds[voter.next(members)];
+        pollService.makeVote(membershipId, candidates[voter.next(candidates.length)]);
+        return pollService.retractVote(membershipId);
+    }
+
+    @Benchmark
+    public List<Candidate> getAllCandidates() {
+        return pollService.getAllCandidates();
+    }
+
+    // Many members voting for, then retracting from, the same candidate, so every thread updates one counter.
+    @Benchmark
+    public boolean sameCandidate(Voter voter) {
+        String membershipId = membershipIds[voter.next(members)];
+        if (!pollService.makeVote(membershipId, candidates[0])) {
+            return pollService.retractVote(membershipId);
+        }
+        return true;
+    }
+
+    // One member flipping between two candidates on every thread, so every thread waits on one lock.
+    @Benchmark
+    public boolean flipOneMember(Voter voter) {
+        voter.flip = !voter.flip;
+        return pollService.makeVote(membershipIds[0], candidates[voter.flip ? 0 : 1]);
+    }
+}
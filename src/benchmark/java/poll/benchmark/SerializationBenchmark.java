@@ -0,0 +1,99 @@
+// Benchmarks writing the candidate list: the view writers and cached list used now, against the
+// per-request MappingJacksonValue filter the controller used to build in getMappingJacksonValue.
+
+package poll.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import poll.controller.CandidateListCache;
+import poll.model.Candidate;
+import poll.service.PollServiceImpl;
+import poll.view.View;
+import poll.view.ViewWriter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"3", "50"})
+    public int candidateCount;
+
+    private ObjectMapper objectMapper;
+    // A mapper with the filter annotation Candidate used to carry, added as a mix-in.
+    private ObjectMapper filteringMapper;
+    private PollServiceImpl pollService;
+    private CandidateListCache candidateListCache;
+
+    @JsonFilter("candidateFilter")
+    private abstract static class FilteredCandidate {
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        filteringMapper = Jackson2ObjectMapperBuilder.json().mixIn(Candidate.class, FilteredCandidate.class).build();
+        pollService = PollFixture.pollService("object", candidateCount, 0);
+        candidateListCache = new CandidateListCache(pollService, objectMapper);
+    }
+
+    // The filter was built on every request, then applied by Spring's Jackson converter.
+    @Benchmark
+    public byte[] mappingJacksonValuePublic() throws IOException {
+        SimpleBeanPropertyFilter simpleBeanPropertyFilter = SimpleBeanPropertyFilter.serializeAllExcept("voteCount");
+        FilterProvider filterProvider = new SimpleFilterProvider().addFilter("candidateFilter", simpleBeanPropertyFilter);
+        MappingJacksonValue mappingJacksonValue = new MappingJacksonValue(pollService.getAllCandidates());
+        mappingJacksonValue.setFilters(filterProvider);
+        return filteringMapper.writer(mappingJacksonValue.getFilters()).writeValueAsBytes(mappingJacksonValue.getValue());
+    }
+
+    @Benchmark
+    public byte[] viewWriterPublic() throws IOException {
+        return write(pollService.getAllCandidates(), View.PUBLIC);
+    }
+
+    @Benchmark
+    public byte[] viewWriterAdmin() throws IOException {
+        return write(pollService.getAllCandidates(), View.ADMIN);
+    }
+
+    @Benchmark
+    public byte[] cachedPublicList() {
+        return candidateListCache.get().getBody();
+    }
+
+    private byte[] write(List<Candidate> data, View view) throws IOException {
+        ByteArrayBuilder bytes = new ByteArrayBuilder();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(bytes, JsonEncoding.UTF8)) {
+            ViewWriter.write(generator, data, view);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,92 @@
+// Benchmarks the two execution modes against each other: votes applied directly on each thread under the
+// striped member locks, and votes handed to the single applier thread through the ring buffer.
+// Run across thread counts, e.g. -Djmh.include=VotePipeline -Djmh.threads=1,4,16,64.
+
+package poll.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import poll.model.Candidate;
+import poll.pipeline.DirectVoteExecutor;
+import poll.pipeline.VoteExecutor;
+import poll.pipeline.VotePipeline;
+import poll.service.PollServiceImpl;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VotePipelineBenchmark {
+
+    @Param({"direct", "pipeline"})
+    public String executionMode;
+
+    @Param({"100000"})
+    public int members;
+
+    @Param({"3"})
+    public int candidateCount;
+
+    private VoteExecutor voteExecutor;
+    private Candidate[] candidates;
+    private String[] membershipIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PollServiceImpl pollService = PollFixture.pollService("object", candidateCount, members);
+        voteExecutor = executionMode.equals("pipeline")
+                ? new VotePipeline(pollService, 4096, 256)
+                : new DirectVoteExecutor(pollService);
+        candidates = pollService.getAllCandidates().toArray(new Candidate[0]);
+        membershipIds = new String[members];
+        for (int i = 0; i < members; i++) {
+            membershipIds[i] = PollFixture.membershipId(i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if (voteExecutor instanceof VotePipeline) {
+            ((VotePipeline) voteExecutor).close();
+        }
+    }
+
+    // Each thread picks its own members and candidates.
+    @State(Scope.Thread)
+    public static class Voter {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+        private boolean flip;
+
+        int next(int bound) {
+            return random.nextInt(bound);
+        }
+    }
+
+    @Benchmark
+    public boolean makeVote(Voter voter) {
+        return voteExecutor.makeVote(membershipIds[voter.next(members)], candidates[voter.next(candidates.length)]);
+    }
+
+    // One member flipping between two candidates on every thread, the worst case for the member locks.
+    @Benchmark
+    public boolean flipOneMember(Voter voter) {
+        voter.flip = !voter.flip;
+        return voteExecutor.makeVote(membershipIds[0], candidates[voter.flip ? 0 : 1]);
+    }
+}
@@ -0,0 +1,159 @@
+// Measures what holding many idle connections costs a locally started PollApplication, to compare the servlet
+// stack with the reactive one. Opens the given number of tally streams at once, keeps them open, and reads the
+// server's thread count and resident memory from /proc before and after, so it only runs on Linux.
+//
+// Start the application on either stack, then point the tool at its process:
+//   java -jar target/poll-0.0.1-SNAPSHOT.jar --spring.main.web-application-type=reactive
+//   mvn -Pbenchmark test-compile exec:exec@footprint -Dfootprint.args="--pid 1234 --connections 10000"
+
+package poll.load;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+public final class ConnectionFootprint {
+
+    private static final int CONNECT_TIMEOUT_MS = 5_000;
+
+    private ConnectionFootprint() {
+    }
+
+    /**
+     * This method will open the connections, hold them while the server settles, and print its footprint.
+     *
+     * @param args The options, as --name value pairs; see Options.
+     * @throws Exception If the server cannot be reached or its process cannot be read.
+     */
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        URI base = URI.create(options.baseUrl);
+        String credentials = Base64.getEncoder().encodeToString(
+                (options.user + ":" + options.password).getBytes(StandardCharsets.UTF_8));
+        byte[] request = ("GET /birds-enriched/stream HTTP/1.1\r\nHost: " + base.getAuthority()
+                + "\r\nAccept: text/event-stream\r\nAuthorization: Basic " + credentials + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+
+        Footprint before = Footprint.of(options.pid);
+        System.out.printf("before:  %s%n", before);
+
+        // One selector drains every stream, so the client holds thousands of connections on a single thread.
+        Selector selector = Selector.open();
+        List<SocketChannel> channels = new ArrayList<>(options.connections);
+        InetSocketAddress address = new InetSocketAddress(base.getHost(), base.getPort());
+        for (int i = 0; i < options.connections; i++) {
+            SocketChannel channel = SocketChannel.open();
+            try {
+                channel.socket().connect(address, CONNECT_TIMEOUT_MS);
+            } catch (IOException exception) {
+                // The server has stopped accepting, as Tomcat does past server.tomcat.max-connections.
+                System.out.printf("refused: connection %d, %s%n", i + 1, exception.getMessage());
+                channel.close();
+                break;
+            }
+            channel.write(ByteBuffer.wrap(request));
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+            channels.add(channel);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+        int streaming = 0;
+        long deadline = System.currentTimeMillis() + options.holdMs;
+        while (System.currentTimeMillis() < deadline) {
+            selector.select(100);
+            for (SelectionKey key : selector.selectedKeys()) {
+                buffer.clear();
+                if (((SocketChannel) key.channel()).read(buffer) < 0) {
+                    key.cancel();
+                } else if (key.attachment() == null) {
+                    key.attach(Boolean.TRUE);
+                    streaming++;
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+
+        Footprint after = Footprint.of(options.pid);
+        System.out.printf("after:   %s%n", after);
+        int opened = Math.max(channels.size(), 1);
+        System.out.printf("streams: %d of %d answered, %.1f KiB and %.3f threads per connection%n",
+                streaming, options.connections, (after.rssKiB - before.rssKiB) / (double) opened,
+                (after.threads - before.threads) / (double) opened);
+
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+        selector.close();
+    }
+
+    private static final class Footprint {
+
+        final int threads;
+        final long rssKiB;
+
+        Footprint(int threads, long rssKiB) {
+            this.threads = threads;
+            this.rssKiB = rssKiB;
+        }
+
+        static Footprint of(long pid) throws IOException {
+            int threads = 0;
+            long rssKiB = 0;
+            for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+                if (line.startsWith("Threads:")) {
+                    threads = Integer.parseInt(line.substring(8).trim());
+                } else if (line.startsWith("VmRSS:")) {
+                    rssKiB = Long.parseLong(line.substring(6).replace("kB", "").trim());
+                }
+            }
+            return new Footprint(threads, rssKiB);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d threads, %.1f MiB resident", threads, rssKiB / 1024.0);
+        }
+    }
+
+    // The command line options, each given as --name value.
+    private static final class Options {
+
+        String baseUrl = "http://localhost:8080";
+        long pid;
+        int connections = 10_000;
+        long holdMs = 10_000;
+        String user = "username";
+        String password = "password";
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--base-url": options.baseUrl = value; break;
+                    case "--pid": options.pid = Long.parseLong(value); break;
+                    case "--connections": options.connections = Integer.parseInt(value); break;
+                    case "--hold": options.holdMs = LoadGenerator.Options.parseDuration(value); break;
+                    case "--user": options.user = value; break;
+                    case "--password": options.password = value; break;
+                    default: throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (options.pid == 0) {
+                throw new IllegalArgumentException("The --pid of the application is required");
+            }
+            return options;
+        }
+    }
+}
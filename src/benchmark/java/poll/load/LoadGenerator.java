@@ -0,0 +1,419 @@
+// An end-to-end load generator for a locally started PollApplication, going through the embedded Tomcat,
+// the security filter chain and the controller. Requests are sent at a target rate on a fixed schedule
+// (an open model), whether or not earlier ones have finished, and each latency is measured from when the
+// request was due to be sent, so a stalled server shows up in the latencies instead of hiding them.
+//
+// Start the application against the built-in registry stand-in, then run the generator:
+//   java -jar target/poll-0.0.1-SNAPSHOT.jar --poll.membership.registry-url=http://localhost:8099/sawb/member/
+//   mvn -Pbenchmark test-compile exec:exec@load -Dload.args="--rate 500 --duration 30s"
+
+package poll.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import poll.metrics.LatencyHistogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class LoadGenerator {
+
+    private static final String MEMBER_PREFIX = "LOAD";
+    private static final String[] REGIONS = {"Highlands", "Fife", "Glasgow City", "City of Edinburgh", "Orkney Islands"};
+    private static final Pattern CSRF_TOKEN = Pattern.compile("name=\"_csrf\" content=\"([^\"]+)\"");
+    private static final Pattern CSRF_HEADER = Pattern.compile("name=\"_csrf_header\" content=\"([^\"]+)\"");
+
+    // The members the registry stand-in knows about.
+    private static volatile int registeredMembers;
+
+    // The kinds of request in a mix.
+    enum Operation {
+        LIST, VOTE, CHANGE, RETRACT, TALLY
+    }
+
+    private final Options options;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String authorization;
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private final Stats total = new Stats();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder skipped = new LongAdder();
+
+    private List<String> candidates;
+    // Only touched by the scheduling thread.
+    private int nextNewMember;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private LoadGenerator(Options options, ExecutorService executor) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString(
+                (options.user + ":" + options.password).getBytes(StandardCharsets.UTF_8));
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    /**
+     * This method will run the load generator.
+     *
+     * @param args The options, as --name value pairs; see Options.
+     * @throws Exception The error, if the application can't be reached or set up.
+     */
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        registeredMembers = options.members;
+
+        StubRegistryServer registry = null;
+        if (options.registryPort >= 0) {
+            registry = new StubRegistryServer(options.registryPort, options.registryLatencyMs);
+            System.out.println("Membership registry stand-in at " + registry.url());
+            System.out.println("Start the application with --poll.membership.registry-url=" + registry.url());
+        }
+        if (options.registryOnly) {
+            System.out.println("Serving the registry stand-in only; stop with Ctrl-C.");
+            Thread.currentThread().join();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(options.clientThreads, runnable -> {
+            Thread thread = new Thread(runnable, "load-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            LoadGenerator generator = new LoadGenerator(options, executor);
+            generator.prepare();
+            generator.run();
+            generator.report(registry);
+        } finally {
+            executor.shutdownNow();
+            if (registry != null) {
+                registry.close();
+            }
+        }
+    }
+
+    static int memberIndex(String membershipId) {
+        if (!membershipId.startsWith(MEMBER_PREFIX)) {
+            return -1;
+        }
+        try {
+            int index = Integer.parseInt(membershipId.substring(MEMBER_PREFIX.length()));
+            return index >= 0 && index < registeredMembers ? index : -1;
+        } catch (NumberFormatException exception) {
+            return -1;
+        }
+    }
+
+    static String memberName(int index) {
+        return "Load Member " + index;
+    }
+
+    /**
+     * This method will fetch the candidates and open the poll, logging in as the administrator.
+     *
+     * @throws Exception The error, if the application can't be reached or refuses.
+     */
+    private void prepare() throws Exception {
+        HttpResponse<String> list = client.send(
+                HttpRequest.newBuilder(uri("/birds")).GET().build(), HttpResponse.BodyHandlers.ofString());
+        candidates = new ArrayList<>();
+        for (JsonNode candidate : objectMapper.readTree(list.body())) {
+            candidates.add(candidate.get("commonName").asText());
+        }
+        if (candidates.size() < 2) {
+            throw new IllegalStateException("The poll needs at least two candidates to change votes between");
+        }
+
+        // The admin page carries the CSRF token the session needs to change the poll's status.
+        HttpResponse<String> page = client.send(HttpRequest.newBuilder(uri("/"))
+                .header("Authorization", authorization).GET().build(), HttpResponse.BodyHandlers.ofString());
+        Matcher token = CSRF_TOKEN.matcher(page.body());
+        Matcher header = CSRF_HEADER.matcher(page.body());
+        if (!token.find() || !header.find()) {
+            throw new IllegalStateException("No CSRF token on the admin page, status " + page.statusCode());
+        }
+        HttpResponse<Void> open = client.send(HttpRequest.newBuilder(uri("/poll"))
+                .header("Authorization", authorization)
+                .header(header.group(1), token.group(1))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("true"))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        if (open.statusCode() != 202) {
+            throw new IllegalStateException("Couldn't open the poll, status " + open.statusCode());
+        }
+        System.out.printf("Candidates %s, poll open. Sending %.0f requests/s (%s arrivals) for %ds after %ds of warm-up.%n",
+                candidates, options.rate, options.poisson ? "Poisson" : "uniform",
+                options.durationMs / 1000, options.warmupMs / 1000);
+    }
+
+    /**
+     * This method will send requests on schedule until the warm-up and measured time have passed,
+     * then wait for the last responses.
+     *
+     * @throws InterruptedException The error, if interrupted while waiting.
+     */
+    private void run() throws InterruptedException {
+        double intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.MILLISECONDS.toNanos(options.warmupMs);
+        long end = measureFrom + TimeUnit.MILLISECONDS.toNanos(options.durationMs);
+
+        double due = start;
+        while (due < end) {
+            long intended = (long) due;
+            long now;
+            while ((now = System.nanoTime()) < intended) {
+                LockSupport.parkNanos(intended - now);
+            }
+            send(intended, intended >= measureFrom);
+            due += options.poisson ? -Math.log(1 - random.nextDouble()) * intervalNanos : intervalNanos;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void send(long intended, boolean measured) {
+        if (inFlight.get() >= options.maxInFlight) {
+            // The client itself can't keep up; count it rather than queue without bound.
+            if (measured) {
+                skipped.increment();
+            }
+            return;
+        }
+        Operation operation = options.pick(random.nextDouble());
+        HttpRequest request = request(operation);
+        Stats operationStats = stats.get(operation);
+        inFlight.incrementAndGet();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            inFlight.decrementAndGet();
+            if (!measured) {
+                return;
+            }
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+            int status = response == null ? -1 : response.statusCode();
+            operationStats.record(micros, status);
+            total.record(micros, status);
+        });
+    }
+
+    private HttpRequest request(Operation operation) {
+        // Votes and retractions need a member who has voted; until there is one, send a first vote.
+        if ((operation == Operation.CHANGE || operation == Operation.RETRACT) && nextNewMember == 0) {
+            operation = Operation.VOTE;
+        }
+        // Once every member has voted, a first vote becomes a change of vote.
+        if (operation == Operation.VOTE && nextNewMember == options.members) {
+            operation = Operation.CHANGE;
+        }
+        switch (operation) {
+            case LIST:
+                return HttpRequest.newBuilder(uri("/birds")).GET().build();
+            case TALLY:
+                return HttpRequest.newBuilder(uri("/birds-enriched")).header("Authorization", authorization).GET().build();
+            case RETRACT:
+                return HttpRequest.newBuilder(uri("/birds/vote"))
+                        .header("Content-Type", "text/plain")
+                        .method("DELETE", HttpRequest.BodyPublishers.ofString(MEMBER_PREFIX + random.nextInt(nextNewMember)))
+                        .build();
+            case VOTE:
+                return vote(nextNewMember++);
+            default:
+                return vote(random.nextInt(nextNewMember));
+        }
+    }
+
+    private HttpRequest vote(int member) {
+        String candidate = candidates.get(random.nextInt(candidates.size()));
+        String body = "{\"" + candidate + "\":{\"membershipId\":\"" + MEMBER_PREFIX + member + "\",\"name\":\""
+                + memberName(member) + "\",\"age\":" + (18 + member % 70) + ",\"regionOfScotland\":\""
+                + REGIONS[member % REGIONS.length] + "\"}}";
+        return HttpRequest.newBuilder(uri("/birds/vote"))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create(options.baseUrl + path);
+    }
+
+    private void report(StubRegistryServer registry) throws IOException {
+        double seconds = options.durationMs / 1000.0;
+        System.out.printf("%n%-8s %9s %10s %9s %9s %9s %9s %9s  %s%n",
+                "request", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "statuses");
+        Map<String, Object> results = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            results.put(operation.name().toLowerCase(), stats.get(operation).print(operation.name().toLowerCase(), seconds));
+        }
+        results.put("all", total.print("all", seconds));
+        System.out.printf("Target %.0f req/s, %d requests skipped by the client, %d registry lookups.%n",
+                options.rate, skipped.sum(), registry == null ? 0 : registry.lookups());
+
+        if (options.json != null) {
+            Map<String, Object> document = new LinkedHashMap<>();
+            document.put("targetRate", options.rate);
+            document.put("durationSeconds", seconds);
+            document.put("arrivals", options.poisson ? "poisson" : "uniform");
+            document.put("mix", options.mix);
+            document.put("skipped", skipped.sum());
+            document.put("results", results);
+            File file = new File(options.json);
+            file.getAbsoluteFile().getParentFile().mkdirs();
+            objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, document);
+            System.out.println("Results written to " + file.getAbsolutePath());
+        }
+    }
+
+    // The latencies and statuses of one kind of request.
+    private static final class Stats {
+        private final LatencyHistogram latencies = new LatencyHistogram(11);
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(long micros, int status) {
+            latencies.record(micros);
+            statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+        }
+
+        Map<String, Object> print(String name, double seconds) {
+            long count = latencies.count();
+            Map<String, Long> statusCounts = new TreeMap<>();
+            // -1 stands for a request that failed without a response.
+            statuses.forEach((status, counter) -> statusCounts.put(status < 0 ? "error" : status.toString(), counter.sum()));
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("count", count);
+            result.put("throughput", count / seconds);
+            result.put("p50Ms", latencies.valueAtPercentile(50) / 1000.0);
+            result.put("p90Ms", latencies.valueAtPercentile(90) / 1000.0);
+            result.put("p99Ms", latencies.valueAtPercentile(99) / 1000.0);
+            result.put("p999Ms", latencies.valueAtPercentile(99.9) / 1000.0);
+            result.put("maxMs", latencies.max() / 1000.0);
+            result.put("statuses", statusCounts);
+            System.out.printf("%-8s %9d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n", name, count, count / seconds,
+                    result.get("p50Ms"), result.get("p90Ms"), result.get("p99Ms"), result.get("p999Ms"),
+                    result.get("maxMs"), statusCounts);
+            return result;
+        }
+    }
+
+    // The command line options, each given as --name value.
+    static final class Options {
+        String baseUrl = "http://localhost:8080";
+        double rate = 200;
+        long durationMs = 30_000;
+        long warmupMs = 5_000;
+        boolean poisson = true;
+        String mix = "list=40,vote=20,change=20,retract=5,tally=15";
+        int members = 100_000;
+        int maxInFlight = 10_000;
+        int clientThreads = 8;
+        int registryPort = 8099;
+        long registryLatencyMs = 0;
+        boolean registryOnly = false;
+        String user = "username";
+        String password = "password";
+        String json = null;
+
+        private final double[] cumulativeWeights = new double[Operation.values().length];
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i + 1 < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--base-url": options.baseUrl = value; break;
+                    case "--rate": options.rate = Double.parseDouble(value); break;
+                    case "--duration": options.durationMs = parseDuration(value); break;
+                    case "--warmup": options.warmupMs = parseDuration(value); break;
+                    case "--arrivals": options.poisson = value.equals("poisson"); break;
+                    case "--mix": options.mix = value; break;
+                    case "--members": options.members = Integer.parseInt(value); break;
+                    case "--max-in-flight": options.maxInFlight = Integer.parseInt(value); break;
+                    case "--client-threads": options.clientThreads = Integer.parseInt(value); break;
+                    case "--registry-port": options.registryPort = Integer.parseInt(value); break;
+                    case "--registry-latency-ms": options.registryLatencyMs = Long.parseLong(value); break;
+                    case "--registry-only": options.registryOnly = Boolean.parseBoolean(value); break;
+                    case "--user": options.user = value; break;
+                    case "--password": options.password = value; break;
+                    case "--json": options.json = value; break;
+                    default: throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            options.parseMix();
+            return options;
+        }
+
+        // Parses weights such as list=40,vote=20, which needn't add up to 100.
+        private void parseMix() {
+            double[] weights = new double[cumulativeWeights.length];
+            for (String entry : mix.split(",")) {
+                String[] parts = entry.trim().split("=");
+                weights[Operation.valueOf(parts[0].trim().toUpperCase()).ordinal()] = Double.parseDouble(parts[1]);
+            }
+            double sum = 0;
+            for (double weight : weights) {
+                sum += weight;
+            }
+            double running = 0;
+            for (int i = 0; i < weights.length; i++) {
+                running += weights[i] / sum;
+                cumulativeWeights[i] = running;
+            }
+        }
+
+        Operation pick(double uniform) {
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (uniform < cumulativeWeights[i]) {
+                    return Operation.values()[i];
+                }
+            }
+            return Operation.LIST;
+        }
+
+        static long parseDuration(String value) {
+            if (value.endsWith("ms")) {
+                return Long.parseLong(value.substring(0, value.length() - 2));
+            }
+            if (value.endsWith("s")) {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            if (value.endsWith("m")) {
+                return TimeUnit.MINUTES.toMillis(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            return Long.parseLong(value);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+// A stand-in for the society's membership registry, so load tests run offline.
+// Answers GET <path><membershipId> like the real registry: members generated by the load generator are
+// found, anyone else gets 404. Start the application with
+// --poll.membership.registry-url=http://localhost:<port>/sawb/member/ to use it.
+
+package poll.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+final class StubRegistryServer implements AutoCloseable {
+
+    static final String PATH = "/sawb/member/";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMs;
+    private final LongAdder lookups = new LongAdder();
+
+    /**
+     * This constructor will start the stub registry.
+     *
+     * @param port The port to listen on.
+     * @param latencyMs The time each lookup takes, to act like the remote registry.
+     * @throws IOException The error, if the port can't be bound.
+     */
+    StubRegistryServer(int port, long latencyMs) throws IOException {
+        this.latencyMs = latencyMs;
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        executor = Executors.newFixedThreadPool(16, runnable -> {
+            Thread thread = new Thread(runnable, "stub-registry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext(PATH, this::handle);
+        server.start();
+    }
+
+    String url() {
+        return "http://localhost:" + server.getAddress().getPort() + PATH;
+    }
+
+    long lookups() {
+        return lookups.sum();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        lookups.increment();
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        String membershipId = URLDecoder.decode(
+                exchange.getRequestURI().getRawPath().substring(PATH.length()), StandardCharsets.UTF_8);
+        int index = LoadGenerator.memberIndex(membershipId);
+        byte[] body;
+        int status;
+        if (index >= 0) {
+            status = 200;
+            body = ("{\"member\":{\"membershipId\":\"" + membershipId + "\",\"name\":\""
+                    + LoadGenerator.memberName(index) + "\"}}").getBytes(StandardCharsets.UTF_8);
+        } else {
+            status = 404;
+            body = "{\"error\":\"Not found\"}".getBytes(StandardCharsets.UTF_8);
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
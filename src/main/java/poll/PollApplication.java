@@ -4,14 +4,20 @@
 
 package poll;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import poll.electorate.ElectorateImporter;
+import poll.journal.TallySnapshotter;
+import poll.journal.VoteJournal;
 import poll.model.Candidate;
 import poll.service.PollService;
 
 @SpringBootApplication
+@EnableScheduling
 public class PollApplication {
 
     // The details of the candidates for the poll.
@@ -43,20 +49,47 @@ public class PollApplication {
     // The fact that initDB() requires a PollService argument tells Spring
     // to auto-configure and pass a PollService instance, which initDB()
     // amends by adding more Poll instances.
+    // When the vote journal is enabled, the latest snapshot and the journal after it
+    // are then loaded to restore the votes made before the last shutdown.
+    // The initial candidates aren't journaled, so one removed in an earlier run is removed again by the restore.
+    // Finally the electorate in poll.import.file, if any, is imported, skipping members already restored.
     @Bean
-    public CommandLineRunner initDB(PollService pollService) {
+    public CommandLineRunner initDB(PollService pollService, ObjectProvider<VoteJournal> voteJournal,
+                                    ObjectProvider<TallySnapshotter> tallySnapshotter,
+                                    ElectorateImporter electorateImporter) {
         return (args) -> {
             // Add all the candidates to the poll service.
-            for (String[] candidate : candidateDetails) {
-                String scientificName = candidate[0];
-                String commonName = candidate[1];
-                String description = candidate[2];
-
-                pollService.addCandidate(
-                        new Candidate(scientificName, commonName, description)
-                );
+            VoteJournal journal = voteJournal.getIfAvailable();
+            if (journal == null) {
+                addCandidates(pollService);
+            } else {
+                journal.withoutAppending(() -> {
+                    addCandidates(pollService);
+                    return null;
+                });
             }
+
+            // Restore from the snapshots and journal, if there are any, on top of the initial candidates.
+            TallySnapshotter snapshotter = tallySnapshotter.getIfAvailable();
+            if (snapshotter != null) {
+                snapshotter.restore();
+            }
+
+            electorateImporter.importStartupFile();
         };
     }
 
+    // Adds the initial candidates to the poll service.
+    private static void addCandidates(PollService pollService) {
+        for (String[] candidate : candidateDetails) {
+            String scientificName = candidate[0];
+            String commonName = candidate[1];
+            String description = candidate[2];
+
+            pollService.addCandidate(
+                    new Candidate(scientificName, commonName, description)
+            );
+        }
+    }
+
 }
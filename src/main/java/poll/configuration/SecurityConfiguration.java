@@ -1,12 +1,16 @@
 package poll.configuration;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
 
     /**
@@ -16,7 +20,9 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
      */
     @Override
     public void configure(WebSecurity webSecurity) {
-        webSecurity.ignoring().antMatchers("/birds", "/birds/vote", "/voter");
+        // The error page is ignored too, so the public endpoints can report why a request failed.
+        webSecurity.ignoring().antMatchers("/birds", "/birds/page", "/birds/search", "/birds/vote", "/birds/vote/batch", "/voter", "/error",
+                "/polls/*/birds", "/polls/*/birds/vote");
     }
 
     /**
@@ -28,6 +34,8 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
     @Override
     public void configure(HttpSecurity httpSecurity) throws Exception {
         httpSecurity.httpBasic().and().authorizeRequests().anyRequest().authenticated().and().formLogin();
+        // Other nodes send their batches with HTTP Basic and no session, so there is no cookie to forge.
+        httpSecurity.csrf().ignoringAntMatchers("/replication");
     }
 
     /**
@@ -38,6 +46,10 @@ public class SecurityConfiguration extends WebSecurityConfigurerAdapter {
      */
     @Override
     protected void configure(AuthenticationManagerBuilder authenticationManagerBuilder) throws Exception {
-        authenticationManagerBuilder.inMemoryAuthentication().withUser("username").password("{noop}password").roles("USER");
+        // Only the lookup is handed over, so the {noop} password is not upgraded to BCrypt on the first login,
+        // which would cost every authenticated request tens of milliseconds of hashing.
+        InMemoryUserDetailsManager users = new InMemoryUserDetailsManager(
+                User.withUsername("username").password("{noop}password").roles("USER").build());
+        authenticationManagerBuilder.userDetailsService(users::loadUserByUsername);
     }
 }
@@ -1,12 +1,30 @@
 package poll.configuration;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.ViewControllerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import poll.view.ViewHttpMessageConverter;
+
+import java.util.List;
 
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class WebConfiguration implements WebMvcConfigurer {
 
+    private final ObjectMapper objectMapper;
+
+    /**
+     * This constructor will set up the web configuration with the JSON mapper configured by Spring.
+     *
+     * @param objectMapper The JSON mapper, whose factory the view converter shares.
+     */
+    public WebConfiguration(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
     /**
      * This method will create a mapping between URL endpoints and view names.
      *
@@ -19,4 +37,14 @@ public class WebConfiguration implements WebMvcConfigurer {
         registry.addViewController("/static/javascript/admin.js").setViewName("../static/javascript/admin.js");
         registry.addViewController("/static/javascript/voter.js").setViewName("../static/javascript/voter.js");
     }
+
+    /**
+     * This method will add the converter that writes view responses, ahead of the default converters.
+     *
+     * @param converters The list of converters to extend.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new ViewHttpMessageConverter(objectMapper.getFactory()));
+    }
 }
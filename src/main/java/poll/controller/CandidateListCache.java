@@ -0,0 +1,86 @@
+// A cache of the public candidate list, already serialized, living in the controller sub-package.
+// The list only changes when a candidate is added or removed, as the public view hides voteCount.
+
+package poll.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import poll.service.PollService;
+import poll.view.View;
+import poll.view.ViewWriter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+@Component
+public class CandidateListCache {
+
+    // Tells apart the catalog versions of different runs of the application, which all start from 0.
+    private final String bootId = UUID.randomUUID().toString().substring(0, 8);
+
+    private final PollService pollService;
+    private final JsonFactory jsonFactory;
+
+    private volatile CachedList cached;
+
+    /**
+     * This constructor will set up the cache for a poll service's candidates.
+     *
+     * @param pollService The Poll Service object holding the candidates.
+     * @param objectMapper The JSON mapper configured by Spring.
+     */
+    public CandidateListCache(PollService pollService, ObjectMapper objectMapper) {
+        this.pollService = pollService;
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * This method will get the public candidate list, serializing it again only if the candidates changed.
+     *
+     * @return The cached list, with its UTF-8 JSON body and strong entity tag.
+     */
+    public CachedList get() {
+        // Read the version before the candidates, so a change made in between makes this entry stale.
+        long version = pollService.getCatalogVersion();
+        CachedList current = cached;
+        if (current != null && current.version == version) {
+            return current;
+        }
+
+        ByteArrayBuilder body = new ByteArrayBuilder();
+        try (JsonGenerator generator = jsonFactory.createGenerator(body, JsonEncoding.UTF8)) {
+            ViewWriter.write(generator, pollService.getAllCandidates(), View.PUBLIC);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        current = new CachedList(version, body.toByteArray(), "\"" + bootId + "-" + version + "\"");
+        cached = current;
+        return current;
+    }
+
+    // A serialized candidate list and the catalog version it was built from.
+    public static class CachedList {
+        private final long version;
+        private final byte[] body;
+        private final String eTag;
+
+        private CachedList(long version, byte[] body, String eTag) {
+            this.version = version;
+            this.body = body;
+            this.eTag = eTag;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+// The REST controller that imports an electorate of members in bulk, living in the controller sub-package.
+// Protected like the administrator's endpoints. The request body is streamed into the importer as it arrives.
+
+package poll.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import poll.electorate.ElectorateImport;
+import poll.electorate.ElectorateImportReport;
+import poll.electorate.ElectorateImporter;
+import poll.electorate.ImportFormat;
+import poll.exception.Error;
+import poll.metrics.PollMetrics;
+
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ElectorateController {
+
+    // Endpoints
+    private final String IMPORT_PATH = "/members/import";
+
+    private final ElectorateImporter electorateImporter;
+    // Counts requests turned away, by error.
+    private final PollMetrics pollMetrics;
+
+    /**
+     * This constructor will set up the importer that this controller hands electorates to.
+     *
+     * @param electorateImporter The importer of electorates.
+     * @param pollMetrics The metrics of the poll service and its endpoints.
+     */
+    public ElectorateController(ElectorateImporter electorateImporter, PollMetrics pollMetrics) {
+        this.electorateImporter = electorateImporter;
+        this.pollMetrics = pollMetrics;
+    }
+
+    /**
+     * This method will import the members in the request body, answering once every row has been added or
+     * rejected. Its progress can be followed meanwhile with a GET of the same path.
+     *
+     * @param body The request body, one member a line.
+     * @param contentType The content type of the body, text/csv or application/x-ndjson.
+     * @param contentLength The size of the body, if the client gave it.
+     * @return The report of the import, with 422 if it failed part way.
+     */
+    @PostMapping(IMPORT_PATH)
+    public ResponseEntity<ElectorateImportReport> importMembers(
+            InputStream body,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength) {
+        // Guard Clauses
+        ImportFormat format = ImportFormat.fromContentType(contentType);
+        if (format == null) {
+            pollMetrics.recordRejection(Error.UNSUPPORTED_IMPORT_FORMAT);
+            throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                    Error.UNSUPPORTED_IMPORT_FORMAT.toString());
+        }
+
+        ElectorateImport electorateImport = electorateImporter.importStream(body, format, "request body",
+                contentLength == null ? -1 : contentLength);
+        HttpStatus status = electorateImport.getStatus() == ElectorateImport.Status.COMPLETED
+                ? HttpStatus.OK : HttpStatus.UNPROCESSABLE_ENTITY;
+        return new ResponseEntity<>(electorateImport.report(), status);
+    }
+
+    /**
+     * This method will get the progress of the imports, running and recently finished.
+     *
+     * @return The reports, oldest first.
+     */
+    @GetMapping(IMPORT_PATH)
+    public List<ElectorateImportReport> getImports() {
+        return electorateImporter.getImports();
+    }
+}
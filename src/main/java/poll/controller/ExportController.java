@@ -0,0 +1,239 @@
+// The REST controller that exports the results of the poll, living in the controller sub-package.
+// Protected like the administrator's endpoints. Exports are written straight to the response as the stores are
+// scanned, gzipped on the fly when the client accepts it, and journal and snapshot files are handed to Tomcat
+// to send with sendfile, so their bytes are copied from the page cache to the socket by the kernel.
+
+package poll.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import poll.exception.Error;
+import poll.export.ExportFile;
+import poll.export.ExportFormat;
+import poll.export.ResultsExporter;
+import poll.metrics.PollMetrics;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class ExportController {
+
+    // Endpoints
+    private final String BALLOTS_PATH = "/export/ballots";
+    private final String TALLIES_PATH = "/export/tallies";
+    private final String FILES_PATH = "/export/files";
+    private final String FILE_PATH = "/export/files/{name}";
+
+    // The request attributes Tomcat reads to send a file with sendfile once the handler returns.
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+    private final ResultsExporter resultsExporter;
+    // Counts requests turned away, by error.
+    private final PollMetrics pollMetrics;
+
+    /**
+     * This constructor will set up the exporter that this controller streams results from.
+     *
+     * @param resultsExporter The exporter of the poll's results.
+     * @param pollMetrics The metrics of the poll service and its endpoints.
+     */
+    public ExportController(ResultsExporter resultsExporter, PollMetrics pollMetrics) {
+        this.resultsExporter = resultsExporter;
+        this.pollMetrics = pollMetrics;
+    }
+
+    /**
+     * This method will stream every member's ballot, as it was when the request arrived.
+     *
+     * @param format The format of the rows, csv or ndjson.
+     * @param acceptEncoding The encodings the client accepts; the rows are gzipped if it includes gzip.
+     * @param response The response the rows are written to.
+     * @throws IOException The error, if the response can't be written to.
+     */
+    @GetMapping(BALLOTS_PATH)
+    public void exportBallots(@RequestParam(defaultValue = "ndjson") String format,
+                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                              HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = parseFormat(format);
+        try (OutputStream output = openExport(response, "ballots", exportFormat, acceptEncoding)) {
+            resultsExporter.exportBallots(output, exportFormat);
+        }
+    }
+
+    /**
+     * This method will stream each candidate's tally, counted from the ballots as they were when the
+     * request arrived.
+     *
+     * @param format The format of the rows, csv or ndjson.
+     * @param acceptEncoding The encodings the client accepts; the rows are gzipped if it includes gzip.
+     * @param response The response the rows are written to.
+     * @throws IOException The error, if the response can't be written to.
+     */
+    @GetMapping(TALLIES_PATH)
+    public void exportTallies(@RequestParam(defaultValue = "ndjson") String format,
+                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                              HttpServletResponse response) throws IOException {
+        ExportFormat exportFormat = parseFormat(format);
+        try (OutputStream output = openExport(response, "tallies", exportFormat, acceptEncoding)) {
+            resultsExporter.exportTallies(output, exportFormat);
+        }
+    }
+
+    /**
+     * This method will list the journal segments and snapshots that can be downloaded.
+     *
+     * @return The files, oldest first, or none if the journal isn't enabled.
+     * @throws IOException The error, if the journal directory can't be listed.
+     */
+    @GetMapping(FILES_PATH)
+    public List<ExportFile> listFiles() throws IOException {
+        return resultsExporter.listFiles();
+    }
+
+    /**
+     * This method will send a journal segment or snapshot file as it is on disk.
+     *
+     * @param name The name of the file, as listed.
+     * @param request The request, which carries the file to Tomcat when it can use sendfile.
+     * @param response The response the file is written to otherwise.
+     * @throws IOException The error, if the file can't be read or the response written to.
+     */
+    @GetMapping(FILE_PATH)
+    public void downloadFile(@PathVariable String name, HttpServletRequest request,
+                             HttpServletResponse response) throws IOException {
+        Path path = resultsExporter.findFile(name);
+        if (path == null) {
+            throw reject(HttpStatus.NOT_FOUND, Error.EXPORT_FILE_NON_EXISTENT);
+        }
+
+        // A new snapshot may have deleted the file since it was listed.
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException exception) {
+            throw reject(HttpStatus.NOT_FOUND, Error.EXPORT_FILE_NON_EXISTENT);
+        }
+        try (channel) {
+            long size = channel.size();
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(size);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "\"");
+
+            if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+                request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+                request.setAttribute(SENDFILE_START, 0L);
+                request.setAttribute(SENDFILE_END, size);
+                return;
+            }
+
+            // Without sendfile, the file is still transferred without being read into the heap.
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                long transferred = channel.transferTo(position, size - position, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+            }
+        }
+    }
+
+    /**
+     * This method will set the headers of an export and open the stream its rows are written to.
+     *
+     * @param response The response being exported to.
+     * @param name The name of the export, used for its file name.
+     * @param format The format of the rows.
+     * @param acceptEncoding The encodings the client accepts.
+     * @return The stream to write the rows to, gzipped if the client accepts it.
+     * @throws IOException The error, if the response can't be written to.
+     */
+    private OutputStream openExport(HttpServletResponse response, String name, ExportFormat format,
+                                    String acceptEncoding) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + name + format.getExtension() + "\"");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (!acceptsGzip(acceptEncoding)) {
+            return response.getOutputStream();
+        }
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return new GZIPOutputStream(response.getOutputStream(), GZIP_BUFFER_SIZE);
+    }
+
+    /**
+     * This method will check whether a client accepts gzip, i.e. its Accept-Encoding names gzip or * with
+     * a weight other than zero.
+     *
+     * @param acceptEncoding The value of the Accept-Encoding header, which may be null.
+     * @return The boolean value true if the response can be gzipped, otherwise it will return false.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!name.equals("gzip") && !name.equals("x-gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().replace(" ", "");
+                refused |= parameter.matches("[qQ]=0(\\.0{0,3})?");
+            }
+            if (!refused) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ExportFormat parseFormat(String format) {
+        ExportFormat exportFormat = ExportFormat.fromName(format);
+        if (exportFormat == null) {
+            throw reject(HttpStatus.BAD_REQUEST, Error.UNSUPPORTED_EXPORT_FORMAT);
+        }
+        return exportFormat;
+    }
+
+    /**
+     * This method will count a request turned away, and create the exception that turns it away.
+     *
+     * @param status The HTTP status to respond with.
+     * @param error The error describing why.
+     * @return The exception to throw.
+     */
+    private ResponseStatusException reject(HttpStatus status, Error error) {
+        pollMetrics.recordRejection(error);
+        return new ResponseStatusException(status, error.toString());
+    }
+}
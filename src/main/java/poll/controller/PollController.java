@@ -4,56 +4,162 @@
 
 package poll.controller;
 
-import com.fasterxml.jackson.databind.ser.FilterProvider;
-import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
-import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import poll.demographics.DemographicBreakdown;
+import poll.demographics.DemographicTally;
 import poll.exception.Error;
+import poll.idempotency.IdempotencyCache;
+import poll.idempotency.IdempotencyStats;
+import poll.membership.MembershipCache;
+import poll.membership.MembershipCacheStats;
+import poll.metrics.PollMetrics;
+import poll.metrics.PollMetricsReport;
+import poll.metrics.VoteRatesReport;
 import poll.model.Candidate;
+import poll.pipeline.VoteExecutor;
 import poll.model.Member;
+import poll.ratelimit.VoteRateLimiter;
+import poll.ratelimit.VoteRateLimiterStats;
+import poll.search.CandidateSearchIndex;
+import poll.search.CandidateSearchResults;
 import poll.service.PollService;
+import poll.stream.TallyBroadcaster;
+import poll.view.View;
+import poll.view.ViewResponse;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @CrossOrigin
 public class PollController {
 
     // Endpoints
     private final String ROOT_PATH = "/birds";
     private final String ROOT_PATH_UNRESTRICTED = ROOT_PATH + "-enriched";
+    private final String PAGE_PATH = ROOT_PATH + "/page";
+    private final String RANKED_PATH = ROOT_PATH_UNRESTRICTED + "/ranked";
+    private final String SEARCH_PATH = ROOT_PATH + "/search";
     private final String VOTE_PATH = ROOT_PATH + "/vote";
+    private final String BATCH_VOTE_PATH = VOTE_PATH + "/batch";
     private final String REMOVE_BIRD_PATH = ROOT_PATH + "/remove";
     private final String POLL_PATH = "/poll";
+    private final String TALLY_STREAM_PATH = ROOT_PATH_UNRESTRICTED + "/stream";
+    private final String DEMOGRAPHICS_PATH = ROOT_PATH_UNRESTRICTED + "/demographics";
+    private final String MEMBERSHIP_CACHE_PATH = "/membership/cache";
+    private final String METRICS_PATH = "/metrics";
+    private final String VOTE_RATES_PATH = METRICS_PATH + "/candidates";
+    private final String RATE_LIMIT_PATH = "/rate-limit";
+    private final String IDEMPOTENCY_PATH = "/idempotency";
+
+    // Headers
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    // The number of votes in a batch whose members are verified together, then applied as one update of the
+    // poll service.
+    private static final int BATCH_CHUNK_SIZE = 1024;
+    // The most candidates returned in one page; larger limits are cut down to it.
+    private static final int MAX_PAGE_SIZE = 1000;
+    // The longest search accepted, so a query can't make the index do unbounded work.
+    private static final int MAX_QUERY_LENGTH = 256;
 
     // The PollController depends on the PollService, so it needs to keep a reference to it.
     private final PollService pollService;
+    // Applies votes and retractions, directly or through the vote pipeline.
+    private final VoteExecutor voteExecutor;
+    // The shared JSON mapper, used to stream through batches of votes.
+    private final ObjectMapper objectMapper;
+    // The public candidate list, serialized once per change to the candidates.
+    private final CandidateListCache candidateListCache;
+    // Finds candidates by their names and descriptions.
+    private final CandidateSearchIndex candidateSearchIndex;
+    // Pushes live tallies to administrators.
+    private final TallyBroadcaster tallyBroadcaster;
+    // The votes broken down by region and age band.
+    private final DemographicTally demographicTally;
+    // Checks new votes against the membership registry.
+    private final MembershipCache membershipCache;
+    // Turns away members voting too fast.
+    private final VoteRateLimiter voteRateLimiter;
+    // Remembers the responses to votes sent with an idempotency key, for their retries.
+    private final IdempotencyCache idempotencyCache;
+    // Counts requests turned away, by error.
+    private final PollMetrics pollMetrics;
+    // Checks the members and candidates sent, turning requests away as every vote endpoint does.
+    private final VoteValidator voteValidator;
 
     /**
      * This constructor will set up the PollService that this controller will manipulate.
      *
      * @param pollService The Poll Service object that will compute requests.
+     * @param voteExecutor The executor that applies votes and retractions to the poll service.
+     * @param objectMapper The JSON mapper configured by Spring.
+     * @param candidateListCache The cache of the public candidate list.
+     * @param candidateSearchIndex The search index over the candidates.
+     * @param tallyBroadcaster The broadcaster of live tallies.
+     * @param demographicTally The breakdown of the votes by region and age band.
+     * @param membershipCache The cache of membership registry lookups.
+     * @param voteRateLimiter The limiter of how fast each member can vote.
+     * @param idempotencyCache The cache of responses to votes sent with an idempotency key.
+     * @param pollMetrics The metrics of the poll service and its endpoints.
      */
-    public PollController(PollService pollService) {
+    public PollController(PollService pollService, VoteExecutor voteExecutor, ObjectMapper objectMapper,
+                          CandidateListCache candidateListCache, CandidateSearchIndex candidateSearchIndex,
+                          TallyBroadcaster tallyBroadcaster, DemographicTally demographicTally,
+                          MembershipCache membershipCache, VoteRateLimiter voteRateLimiter,
+                          IdempotencyCache idempotencyCache, PollMetrics pollMetrics) {
         this.pollService = pollService;
+        this.voteExecutor = voteExecutor;
+        this.objectMapper = objectMapper;
+        this.candidateListCache = candidateListCache;
+        this.candidateSearchIndex = candidateSearchIndex;
+        this.tallyBroadcaster = tallyBroadcaster;
+        this.demographicTally = demographicTally;
+        this.membershipCache = membershipCache;
+        this.voteRateLimiter = voteRateLimiter;
+        this.idempotencyCache = idempotencyCache;
+        this.pollMetrics = pollMetrics;
+        this.voteValidator = new VoteValidator(membershipCache, pollMetrics);
     }
 
     /**
-     * This method will get all the candidates with the voteCount attribute redacted.
+     * This method will get all the candidates with the voteCount attribute redacted. The response carries
+     * an entity tag, so a client sending it back in If-None-Match gets 304 until a candidate is added or removed.
      *
      * @return The list of candidates without the attribute voteCount.
      */
     @GetMapping(ROOT_PATH)
-    public MappingJacksonValue getAllCandidates() {
-        // Change the filter to apply voteCount if not admin otherwise none!
-        // If a normal member is making the request revoke voteCount attribute, otherwise show all attributes.
-        String filter = "voteCount";
-        return getMappingJacksonValue(filter, pollService.getAllCandidates());
+    public ResponseEntity<byte[]> getAllCandidates() {
+        CandidateListCache.CachedList candidates = candidateListCache.get();
+        // Spring answers 304 itself when the request's If-None-Match matches the entity tag.
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(candidates.getETag())
+                .body(candidates.getBody());
     }
 
     /**
@@ -64,13 +170,163 @@ public class PollController {
      * @return The list of all candidates, or all redacted candidates if not authenticated.
      */
     @GetMapping(ROOT_PATH_UNRESTRICTED)
-    public MappingJacksonValue getAllCandidates(Authentication authentication) {
+    public Object getAllCandidates(Authentication authentication) {
         // If a normal member is making the request revoke voteCount attribute, otherwise show all attributes.
-        String filter = "voteCount";
         if (authentication != null && authentication.isAuthenticated()) {
-            filter = null;
+            return new ViewResponse(View.ADMIN, pollService.getAllCandidates());
+        }
+        return getAllCandidates();
+    }
+
+    /**
+     * This method will get a page of the candidates in alphabetical order, with the voteCount attribute redacted.
+     * The number of candidates is given in the X-Total-Count header, and the next page is linked in the Link
+     * header while there is one.
+     *
+     * @param after The common name the page starts after, to page with a cursor.
+     * @param offset The number of candidates to skip, to page by position.
+     * @param limit The most candidates to return, up to 1000.
+     * @return The candidates in the page without the attribute voteCount.
+     */
+    @GetMapping(PAGE_PATH)
+    public ResponseEntity<ViewResponse> getCandidatePage(@RequestParam(required = false) String after,
+                                                         @RequestParam(defaultValue = "0") int offset,
+                                                         @RequestParam(defaultValue = "50") int limit) {
+        int size = pageSize(offset, limit);
+        // Ask for one more than fits, to tell whether there is a next page.
+        List<Candidate> page = pollService.getCandidatePage(after, offset, size + 1);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(pollService.countCandidates()));
+        if (page.size() > size) {
+            page = page.subList(0, size);
+            String cursor = URLEncoder.encode(page.get(size - 1).getCommonName(), StandardCharsets.UTF_8);
+            response.header(HttpHeaders.LINK, nextLink(PAGE_PATH + "?after=" + cursor + "&limit=" + size));
+        }
+        return response.body(new ViewResponse(View.PUBLIC, page));
+    }
+
+    /**
+     * This method will search the candidates' names and descriptions, with the voteCount attribute redacted.
+     * The number of matching candidates is given in the X-Total-Count header, and the next page is linked in the
+     * Link header while there is one.
+     *
+     * @param query The text searched for; each word must match, as a whole word, the start of one, or with a typo.
+     * @param offset The number of matching candidates to skip, from the best match.
+     * @param limit The most candidates to return, up to 1000.
+     * @return The matching candidates in the page, best match first, without the attribute voteCount.
+     */
+    @GetMapping(SEARCH_PATH)
+    public ResponseEntity<ViewResponse> searchCandidates(@RequestParam("q") String query,
+                                                         @RequestParam(defaultValue = "0") int offset,
+                                                         @RequestParam(defaultValue = "20") int limit) {
+        int size = pageSize(offset, limit);
+        if (query.length() > MAX_QUERY_LENGTH) {
+            throw voteValidator.reject(HttpStatus.BAD_REQUEST, Error.INVALID_SEARCH);
         }
-        return getMappingJacksonValue(filter, pollService.getAllCandidates());
+        CandidateSearchResults results = candidateSearchIndex.search(query, offset, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(results.getTotal()));
+        if ((long) offset + size < results.getTotal()) {
+            String next = SEARCH_PATH + "?q=" + URLEncoder.encode(query, StandardCharsets.UTF_8)
+                    + "&offset=" + (offset + size) + "&limit=" + size;
+            response.header(HttpHeaders.LINK, nextLink(next));
+        }
+        return response.body(new ViewResponse(View.PUBLIC, results.getCandidates()));
+    }
+
+    /**
+     * This method will get a page of the candidates ranked by their votes, most first, so a limit alone gives
+     * the top candidates. The number of candidates is given in the X-Total-Count header, and the next page is
+     * linked in the Link header while there is one.
+     *
+     * @param offset The number of candidates to skip, from the most voted for.
+     * @param limit The most candidates to return, up to 1000.
+     * @return The candidates in the page, with the votes they were ranked by.
+     */
+    @GetMapping(RANKED_PATH)
+    public ResponseEntity<ViewResponse> getRankedCandidates(@RequestParam(defaultValue = "0") int offset,
+                                                            @RequestParam(defaultValue = "10") int limit) {
+        int size = pageSize(offset, limit);
+        List<Candidate> page = pollService.getRankedCandidates(offset, size);
+        int total = pollService.countCandidates();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().header(TOTAL_COUNT_HEADER, String.valueOf(total));
+        if ((long) offset + size < total) {
+            response.header(HttpHeaders.LINK, nextLink(RANKED_PATH + "?offset=" + (offset + size) + "&limit=" + size));
+        }
+        return response.body(new ViewResponse(View.ADMIN, page));
+    }
+
+    /**
+     * This method will stream the tallies to an administrator as Server-Sent Events. The first event is
+     * a full "tally" of every candidate, followed by "delta" events holding only the counts that changed.
+     *
+     * @return The emitter that holds the connection open.
+     */
+    @GetMapping(value = TALLY_STREAM_PATH, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTallies() {
+        return tallyBroadcaster.subscribe();
+    }
+
+    /**
+     * This method will get each candidate's votes broken down by region and by age band, as two matrices
+     * with a row for every candidate.
+     *
+     * @return The breakdown of the votes.
+     */
+    @GetMapping(DEMOGRAPHICS_PATH)
+    public DemographicBreakdown getDemographics() {
+        return demographicTally.getBreakdown();
+    }
+
+    /**
+     * This method will get the counters of the membership cache.
+     *
+     * @return The hits, misses and registry calls of the cache so far.
+     */
+    @GetMapping(MEMBERSHIP_CACHE_PATH)
+    public MembershipCacheStats getMembershipCacheStats() {
+        return membershipCache.getStats();
+    }
+
+    /**
+     * This method will get the metrics of the poll service and its endpoints.
+     *
+     * @return The vote rates, rejections, store sizes, lock contention and endpoint latencies so far.
+     */
+    @GetMapping(METRICS_PATH)
+    public PollMetricsReport getMetrics() {
+        return pollMetrics.getReport();
+    }
+
+    /**
+     * This method will get how fast each candidate gained and lost votes over the last second, minute and
+     * fifteen minutes, with a count for each second of the last minute and each minute of the last fifteen.
+     *
+     * @return The first votes, changes and retractions of each candidate.
+     */
+    @GetMapping(VOTE_RATES_PATH)
+    public VoteRatesReport getVoteRates() {
+        return pollMetrics.getVoteRates();
+    }
+
+    /**
+     * This method will get the counters of the vote rate limiter.
+     *
+     * @return The limits, the buckets in use and the requests admitted and turned away so far.
+     */
+    @GetMapping(RATE_LIMIT_PATH)
+    public VoteRateLimiterStats getRateLimitStats() {
+        return voteRateLimiter.getStats();
+    }
+
+    /**
+     * This method will get the counters of the idempotency cache.
+     *
+     * @return The keys held, claimed and replayed, and the generations rotated so far.
+     */
+    @GetMapping(IDEMPOTENCY_PATH)
+    public IdempotencyStats getIdempotencyStats() {
+        return idempotencyCache.getStats();
     }
 
     /**
@@ -93,72 +349,146 @@ public class PollController {
      * @return The redacted version (no voteCount attribute) of the associated candidate.
      */
     @GetMapping(VOTE_PATH + "/{membershipId}")
-    public MappingJacksonValue getVote(@PathVariable String membershipId) {
+    public ViewResponse getVote(@PathVariable String membershipId) {
         // Guard Clauses
-        validateMember(pollService.getMember(membershipId), false);
+        voteValidator.validateMember(pollService, pollService.getMember(membershipId), false);
 
         Candidate candidate = pollService.getMember(membershipId).getCandidateVotedFor();
         if (candidate == null) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, Error.NO_CANDIDATE_VOTE.toString());
+            throw voteValidator.reject(HttpStatus.NOT_FOUND, Error.NO_CANDIDATE_VOTE);
         }
 
-        return getMappingJacksonValue("voteCount", candidate);
+        return new ViewResponse(View.PUBLIC, candidate);
     }
 
     /**
-     * This method will store a vote for a specified member and candidate in the poll service.
+     * This method will store a vote for a specified member and candidate in the poll service. A vote sent again
+     * with the same idempotency key is answered as the first was, without being applied again or counted against
+     * the member's rate.
      *
      * @param signedVote The JSON value with the Candidate commonName as the key, and the Member object as the value.
+     * @param idempotencyKey The key the client identifies the vote by across retries, if any.
      * @return The response object to indicate the status of the request.
      */
     @PutMapping(VOTE_PATH)
-    public ResponseEntity<Void> makeVote(@RequestBody Map<String, Member> signedVote) {
+    public ResponseEntity<Void> makeVote(@RequestBody Map<String, Member> signedVote,
+                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false)
+                                                 String idempotencyKey) {
         // Separate the data into parsable variables.
         String commonName = signedVote.keySet().stream().findFirst().orElse(null);
         Member member = signedVote.values().stream().findFirst().orElse(null);
+        String membershipId = member == null ? null : member.getMembershipId();
+
+        // Guard Clauses
+        return idempotent(idempotencyKey, membershipId, "vote " + commonName, () -> {
+            checkRate(membershipId);
+            voteValidator.validateMember(pollService, member, true);
+            Candidate newVote = voteValidator.getCandidate(pollService, commonName);
 
+            // If the votes are the same, the poll service won't modify.
+            if (!voteExecutor.makeVote(membershipId, newVote)) {
+                return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+            }
+            return new ResponseEntity<>(HttpStatus.ACCEPTED);
+        });
+    }
+
+    /**
+     * This method will store a batch of votes, streamed as a JSON array of signed votes in the same format
+     * as a single vote. Signed votes are read in chunks: the members of a chunk are checked against the
+     * membership registry together, and the valid votes are then applied to the poll service at once.
+     * If the body turns out to be malformed part way through, the votes read before it are still applied, and
+     * the response is a 400 carrying their statuses, so the client knows which of its votes were counted.
+     *
+     * @param body The request body, a JSON array of objects with the Candidate commonName as the key, and the
+     *             Member object as the value.
+     * @return The HTTP status code for each signed vote, in the order they were sent.
+     * @throws IOException The error, if the request body can't be read.
+     */
+    @PutMapping(BATCH_VOTE_PATH)
+    public ResponseEntity<int[]> makeVotes(InputStream body) throws IOException {
         // Guard Clauses
-        validateMember(member, true);
-        if (!pollService.hasCandidate(commonName)) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, Error.CANDIDATE_NON_EXISTENT.toString());
+        if (!pollService.isPollOpen()) {
+            throw voteValidator.reject(HttpStatus.FORBIDDEN, Error.POLL_CLOSED);
         }
 
-        // Gather objects
-        Member voter = pollService.getMember(member.getMembershipId());
-        Candidate lastVote = voter.getCandidateVotedFor();
-        Candidate newVote = pollService.getCandidate(commonName);
+        List<Integer> statuses = new ArrayList<>();
+        // The signed votes read but not yet verified, and where their statuses go.
+        List<PendingVote> pending = new ArrayList<>(BATCH_CHUNK_SIZE);
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw voteValidator.reject(HttpStatus.BAD_REQUEST, Error.INVALID_MEMBER);
+            }
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                // Anything but another signed vote makes the rest of the batch unreadable.
+                if (token != JsonToken.START_OBJECT) {
+                    throw new JsonParseException(parser, "Expected a signed vote, found " + token);
+                }
+                // Separate the data into parsable variables, skipping anything past the first entry.
+                String commonName = null;
+                Member member = null;
+                if (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    commonName = parser.getCurrentName();
+                    parser.nextToken();
+                    member = parser.readValueAs(Member.class);
+                    while (parser.nextToken() != JsonToken.END_OBJECT) {
+                        parser.nextToken();
+                        parser.skipChildren();
+                    }
+                }
+
+                int status = HttpStatus.ACCEPTED.value();
+                try {
+                    checkRate(member == null ? null : member.getMembershipId());
+                    voteValidator.checkMember(pollService, member);
+                    // Start the registry lookup now, so the lookups of a chunk are made side by side.
+                    pending.add(new PendingVote(statuses.size(), commonName, member,
+                            membershipCache.verifyAsync(member.getMembershipId(), member.getName())));
+                } catch (ResponseStatusException exception) {
+                    status = exception.getRawStatusCode();
+                }
+                statuses.add(status);
 
-        // If the votes are the same, don't modify.
-        if (newVote.equals(lastVote)) {
-            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+                if (pending.size() == BATCH_CHUNK_SIZE) {
+                    applyVotes(pending, statuses);
+                }
+            }
+        } catch (JsonProcessingException exception) {
+            // Keep the votes read before the malformed one, and tell the client which they were.
+            applyVotes(pending, statuses);
+            pollMetrics.recordRejection(Error.INVALID_MEMBER);
+            return ResponseEntity.badRequest().body(toArray(statuses));
         }
+        applyVotes(pending, statuses);
 
-        pollService.makeVote(voter, lastVote, newVote);
-        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+        return ResponseEntity.ok(toArray(statuses));
     }
 
     /**
-     * This method will retract a vote for a specified member.
+     * This method will retract a vote for a specified member. A retraction sent again with the same idempotency
+     * key is answered as the first was, without being applied again or counted against the member's rate.
      *
      * @param membershipId The identifier of the member to retract the vote for.
+     * @param idempotencyKey The key the client identifies the retraction by across retries, if any.
      * @return The response object to indicate the status of the request.
      */
     @DeleteMapping(VOTE_PATH)
-    public ResponseEntity<Void> retractVote(@RequestBody String membershipId) {
+    public ResponseEntity<Void> retractVote(@RequestBody String membershipId,
+                                            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false)
+                                                    String idempotencyKey) {
         // Guard Clauses
-        validateMember(pollService.getMember(membershipId), false);
-
-        // Gather objects
-        Member voter = pollService.getMember(membershipId);
-        Candidate lastVote = voter.getCandidateVotedFor();
+        return idempotent(idempotencyKey, membershipId, "retract", () -> {
+            checkRate(membershipId);
+            voteValidator.validateMember(pollService, pollService.getMember(membershipId), false);
 
-        // If there is no vote to retract, don't modify.
-        if (lastVote == null) {
-            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
-        }
-
-        pollService.retractVote(voter, lastVote);
-        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+            // If there is no vote to retract, the poll service won't modify.
+            if (!voteExecutor.retractVote(membershipId)) {
+                return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+            }
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        });
     }
 
     /**
@@ -170,70 +500,156 @@ public class PollController {
     @DeleteMapping(REMOVE_BIRD_PATH)
     public ResponseEntity<Void> removeCandidate(@RequestBody String commonName) {
         // Guard Clauses
-        if (!isStringValid(commonName)) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, Error.INVALID_CANDIDATE.toString());
-        }
-        if (!pollService.hasCandidate(commonName)) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, Error.CANDIDATE_NON_EXISTENT.toString());
-        }
+        voteValidator.checkCommonName(commonName);
+        voteValidator.getCandidate(pollService, commonName);
 
         pollService.removeCandidate(commonName);
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
     /**
-     * This method will check if a string is valid, i.e. it is not null,
-     * and it is not empty regardless of whitespace.
+     * This method will turn a request away if the member is voting too fast, before the poll service is touched.
      *
-     * @param string The string to test.
-     * @return The boolean value true if it is valid, otherwise it will return false.
+     * @param membershipId The membership identifier of the member making the request, which may be null for
+     *                     validation to reject.
      */
-    public boolean isStringValid(String string) {
-        return string != null && !string.trim().isEmpty();
+    private void checkRate(String membershipId) {
+        if (membershipId != null && !voteRateLimiter.tryAcquire(membershipId)) {
+            throw voteValidator.reject(HttpStatus.TOO_MANY_REQUESTS, Error.RATE_LIMITED);
+        }
     }
 
     /**
-     * This method will validate a given member and throw an error if appropriate. No need to return anything here,
-     * as if it isn't valid, a ResponseStatusException will be thrown.
+     * This method will make a request once per idempotency key. The first request with a key is made and its
+     * response remembered if it succeeds; a retry gets the same response, waiting for it if the first is still
+     * being made, and a retry of a request that failed is made again.
      *
-     * @param member The member to validate.
-     * @param addMember If the member is valid, but is not stored in the database, this boolean value determines if it
-     *                  should be added into the poll service.
+     * @param idempotencyKey The key sent by the client, or null to just make the request.
+     * @param membershipId The membership identifier of the member making the request, whose keys are their own.
+     * @param fingerprint What the request asks for, so a key reused for something else is turned away.
+     * @param request The request to make.
+     * @return The response to the request, or to the first request with the key.
      */
-    private void validateMember(Member member, boolean addMember) {
-        if (!pollService.isPollOpen()) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, Error.POLL_CLOSED.toString());
-        }
-        if (member == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, Error.MEMBER_NON_EXISTENT.toString());
+    private ResponseEntity<Void> idempotent(String idempotencyKey, String membershipId, String fingerprint,
+                                            Supplier<ResponseEntity<Void>> request) {
+        if (idempotencyKey == null || membershipId == null) {
+            return request.get();
         }
-        if (!isStringValid(member.getMembershipId())) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, Error.INVALID_MEMBER.toString());
+        if (!IdempotencyCache.isValidKey(idempotencyKey)) {
+            throw voteValidator.reject(HttpStatus.BAD_REQUEST, Error.INVALID_IDEMPOTENCY_KEY);
         }
-        if (!pollService.hasMember(member.getMembershipId())) {
-            if (addMember) {
-                pollService.addMember(member);
-                return;
+        // Keys are made of visible characters, so the last space ends the membershipId.
+        String key = membershipId + ' ' + idempotencyKey;
+        while (true) {
+            IdempotencyCache.Request mine = new IdempotencyCache.Request(fingerprint);
+            IdempotencyCache.Request original = idempotencyCache.claim(key, mine);
+            if (original == null) {
+                ResponseEntity<Void> response;
+                try {
+                    response = request.get();
+                } catch (RuntimeException exception) {
+                    idempotencyCache.abandon(key, mine);
+                    throw exception;
+                }
+                idempotencyCache.complete(mine, response.getStatusCodeValue());
+                return response;
+            }
+
+            if (!original.getFingerprint().equals(fingerprint)) {
+                throw voteValidator.reject(HttpStatus.UNPROCESSABLE_ENTITY, Error.IDEMPOTENCY_KEY_REUSED);
             }
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, Error.MEMBER_NON_EXISTENT.toString());
+            Integer status;
+            try {
+                status = idempotencyCache.await(original).get();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw voteValidator.reject(HttpStatus.CONFLICT, Error.REQUEST_IN_PROGRESS);
+            } catch (ExecutionException exception) {
+                throw voteValidator.reject(HttpStatus.CONFLICT, Error.REQUEST_IN_PROGRESS);
+            }
+            if (status != null) {
+                return ResponseEntity.status(status).header(IDEMPOTENT_REPLAYED_HEADER, "true").build();
+            }
+            // The first request failed, so make this one.
         }
     }
 
     /**
-     * This method will filter out a specified filter from a given data object.
+     * This method will check the position and size of a page asked for.
      *
-     * @param filter The filter attribute to apply.
-     * @param data The data to be filtered.
-     * @return The filtered object as a MappingJacksonValue.
+     * @param offset The number of candidates to skip.
+     * @param limit The most candidates to return.
+     * @return The number of candidates to return, cut down to the largest page.
      */
-    private MappingJacksonValue getMappingJacksonValue(String filter, Object data) {
-        SimpleBeanPropertyFilter simpleBeanPropertyFilter = SimpleBeanPropertyFilter.serializeAllExcept(filter);
-        FilterProvider filterProvider = new SimpleFilterProvider().addFilter("candidateFilter", simpleBeanPropertyFilter);
+    private int pageSize(int offset, int limit) {
+        if (offset < 0 || limit < 1) {
+            throw voteValidator.reject(HttpStatus.BAD_REQUEST, Error.INVALID_PAGE);
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
 
-        MappingJacksonValue mappingJacksonValue = new MappingJacksonValue(data);
-        mappingJacksonValue.setFilters(filterProvider);
+    private static String nextLink(String uri) {
+        return "<" + uri + ">; rel=\"next\"";
+    }
 
-        return mappingJacksonValue;
+    /**
+     * This method will apply a chunk of signed votes from a batch once their members are verified, and record
+     * which ones were turned away or weren't modified.
+     *
+     * @param pending The signed votes read, whose members are being verified, cleared once applied.
+     * @param statuses The statuses of the whole batch so far.
+     */
+    private void applyVotes(List<PendingVote> pending, List<Integer> statuses) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<String> membershipIds = new ArrayList<>(pending.size());
+        List<Candidate> newVotes = new ArrayList<>(pending.size());
+        List<Integer> positions = new ArrayList<>(pending.size());
+        for (PendingVote vote : pending) {
+            try {
+                // Each lookup gives up on its own after the membership wait, so none blocks for long.
+                voteValidator.admitMember(pollService, vote.member, vote.verdict.join());
+                Candidate newVote = voteValidator.getCandidate(pollService, vote.commonName);
+                membershipIds.add(vote.member.getMembershipId());
+                newVotes.add(newVote);
+                positions.add(vote.position);
+            } catch (ResponseStatusException exception) {
+                statuses.set(vote.position, exception.getRawStatusCode());
+            }
+        }
+        pending.clear();
+        if (membershipIds.isEmpty()) {
+            return;
+        }
+
+        boolean[] changed = voteExecutor.makeVotes(membershipIds, newVotes);
+        for (int i = 0; i < changed.length; i++) {
+            // If the votes are the same, the poll service didn't modify.
+            if (!changed[i]) {
+                statuses.set(positions.get(i), HttpStatus.NOT_MODIFIED.value());
+            }
+        }
+    }
+
+    private static int[] toArray(List<Integer> statuses) {
+        return statuses.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // A signed vote from a batch, waiting for the membership registry's verdict on its member.
+    private static class PendingVote {
+        private final int position;
+        private final String commonName;
+        private final Member member;
+        private final CompletableFuture<MembershipCache.Verdict> verdict;
+
+        private PendingVote(int position, String commonName, Member member,
+                            CompletableFuture<MembershipCache.Verdict> verdict) {
+            this.position = position;
+            this.commonName = commonName;
+            this.member = member;
+            this.verdict = verdict;
+        }
     }
 
 }
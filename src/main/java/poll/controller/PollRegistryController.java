@@ -0,0 +1,231 @@
+// The REST controller for the polls of the poll registry, living in the controller sub-package.
+// Each poll has the main poll's endpoints under /polls/{pollId}, and the administrator creates,
+// lists and removes them. Votes go straight to the poll's own Poll Service.
+
+package poll.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import poll.exception.Error;
+import poll.membership.MembershipCache;
+import poll.metrics.PollMetrics;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.registry.PollRegistry;
+import poll.registry.PollSummary;
+import poll.service.PollService;
+import poll.view.View;
+import poll.view.ViewResponse;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@CrossOrigin
+public class PollRegistryController {
+
+    // Endpoints
+    private final String POLLS_PATH = "/polls";
+    private final String POLL_ROOT_PATH = POLLS_PATH + "/{pollId}";
+    private final String ROOT_PATH = POLL_ROOT_PATH + "/birds";
+    private final String ROOT_PATH_UNRESTRICTED = ROOT_PATH + "-enriched";
+    private final String VOTE_PATH = ROOT_PATH + "/vote";
+    private final String POLL_PATH = POLL_ROOT_PATH + "/poll";
+
+    private final PollRegistry pollRegistry;
+    // Checks the members and candidates sent, turning requests away as the main poll's endpoints do.
+    private final VoteValidator voteValidator;
+
+    /**
+     * This constructor will set up the registry that this controller will manipulate.
+     *
+     * @param pollRegistry The registry of the polls.
+     * @param membershipCache The cache of membership registry lookups.
+     * @param pollMetrics The metrics of the poll service and its endpoints.
+     */
+    public PollRegistryController(PollRegistry pollRegistry, MembershipCache membershipCache,
+                                  PollMetrics pollMetrics) {
+        this.pollRegistry = pollRegistry;
+        this.voteValidator = new VoteValidator(membershipCache, pollMetrics);
+    }
+
+    /**
+     * This method will get a summary of every poll.
+     *
+     * @return The identifier, openness, and number of candidates and members of each poll.
+     */
+    @GetMapping(POLLS_PATH)
+    public List<PollSummary> getPolls() {
+        return pollRegistry.getSummaries();
+    }
+
+    /**
+     * This method will create a closed poll.
+     *
+     * @param pollId The identifier of the poll.
+     * @param candidates The candidates of the poll, each with a distinct common name.
+     * @return The response object to indicate the status of the request.
+     */
+    @PutMapping(POLL_ROOT_PATH)
+    public ResponseEntity<Void> createPoll(@PathVariable String pollId, @RequestBody List<Candidate> candidates) {
+        // Guard Clauses
+        if (!PollRegistry.isValidPollId(pollId)) {
+            throw voteValidator.reject(HttpStatus.BAD_REQUEST, Error.INVALID_POLL);
+        }
+        Set<String> commonNames = new HashSet<>();
+        for (Candidate candidate : candidates) {
+            voteValidator.checkCommonName(candidate == null ? null : candidate.getCommonName());
+            if (!commonNames.add(candidate.getCommonName())) {
+                throw voteValidator.reject(HttpStatus.BAD_REQUEST, Error.CANDIDATE_ALREADY_EXISTS);
+            }
+        }
+
+        try {
+            pollRegistry.create(pollId, candidates);
+        } catch (RuntimeException exception) {
+            if (Error.POLL_LIMIT_REACHED.toString().equals(exception.getMessage())) {
+                throw voteValidator.reject(HttpStatus.INSUFFICIENT_STORAGE, Error.POLL_LIMIT_REACHED);
+            }
+            if (Error.POLL_ALREADY_EXISTS.toString().equals(exception.getMessage())) {
+                throw voteValidator.reject(HttpStatus.CONFLICT, Error.POLL_ALREADY_EXISTS);
+            }
+            throw exception;
+        }
+        return new ResponseEntity<>(HttpStatus.CREATED);
+    }
+
+    /**
+     * This method will remove a poll, with its members and votes.
+     *
+     * @param pollId The identifier of the poll.
+     * @return The response object to indicate the status of the request.
+     */
+    @DeleteMapping(POLL_ROOT_PATH)
+    public ResponseEntity<Void> removePoll(@PathVariable String pollId) {
+        if (!pollRegistry.remove(pollId)) {
+            throw voteValidator.reject(HttpStatus.NOT_FOUND, Error.POLL_NON_EXISTENT);
+        }
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    /**
+     * This method will get all the candidates of a poll with the voteCount attribute redacted.
+     *
+     * @param pollId The identifier of the poll.
+     * @return The list of candidates without the attribute voteCount.
+     */
+    @GetMapping(ROOT_PATH)
+    public ViewResponse getAllCandidates(@PathVariable String pollId) {
+        return new ViewResponse(View.PUBLIC, getPoll(pollId).getAllCandidates());
+    }
+
+    /**
+     * This method will get all the candidates of a poll fully populated, for an administrator.
+     *
+     * @param pollId The identifier of the poll.
+     * @return The list of all candidates.
+     */
+    @GetMapping(ROOT_PATH_UNRESTRICTED)
+    public ViewResponse getAllCandidatesEnriched(@PathVariable String pollId) {
+        return new ViewResponse(View.ADMIN, getPoll(pollId).getAllCandidates());
+    }
+
+    /**
+     * This method will set the status of a poll.
+     *
+     * @param pollId The identifier of the poll.
+     * @param status The boolean value, indicating if the poll is open or not.
+     * @return The response object to indicate the status of the request.
+     */
+    @PostMapping(POLL_PATH)
+    public ResponseEntity<Void> setPollStatus(@PathVariable String pollId, @RequestBody boolean status) {
+        getPoll(pollId).setPollOpen(status);
+
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * This method will get the vote for a specified membershipId in a poll.
+     *
+     * @param pollId The identifier of the poll.
+     * @param membershipId The identifier of the member to get the vote for.
+     * @return The redacted version (no voteCount attribute) of the associated candidate.
+     */
+    @GetMapping(VOTE_PATH + "/{membershipId}")
+    public ViewResponse getVote(@PathVariable String pollId, @PathVariable String membershipId) {
+        PollService poll = getPoll(pollId);
+        // Guard Clauses
+        voteValidator.validateMember(poll, poll.getMember(membershipId), false);
+
+        Candidate candidate = poll.getMember(membershipId).getCandidateVotedFor();
+        if (candidate == null) {
+            throw voteValidator.reject(HttpStatus.NOT_FOUND, Error.NO_CANDIDATE_VOTE);
+        }
+
+        return new ViewResponse(View.PUBLIC, candidate);
+    }
+
+    /**
+     * This method will store a vote for a specified member and candidate in a poll.
+     *
+     * @param pollId The identifier of the poll.
+     * @param signedVote The JSON value with the Candidate commonName as the key, and the Member object as the value.
+     * @return The response object to indicate the status of the request.
+     */
+    @PutMapping(VOTE_PATH)
+    public ResponseEntity<Void> makeVote(@PathVariable String pollId, @RequestBody Map<String, Member> signedVote) {
+        PollService poll = getPoll(pollId);
+        // Separate the data into parsable variables.
+        String commonName = signedVote.keySet().stream().findFirst().orElse(null);
+        Member member = signedVote.values().stream().findFirst().orElse(null);
+
+        // Guard Clauses
+        voteValidator.validateMember(poll, member, true);
+        Candidate newVote = voteValidator.getCandidate(poll, commonName);
+
+        // If the votes are the same, the poll service won't modify.
+        if (!poll.makeVote(member.getMembershipId(), newVote)) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * This method will retract a vote for a specified member in a poll.
+     *
+     * @param pollId The identifier of the poll.
+     * @param membershipId The identifier of the member to retract the vote for.
+     * @return The response object to indicate the status of the request.
+     */
+    @DeleteMapping(VOTE_PATH)
+    public ResponseEntity<Void> retractVote(@PathVariable String pollId, @RequestBody String membershipId) {
+        PollService poll = getPoll(pollId);
+        // Guard Clauses
+        voteValidator.validateMember(poll, poll.getMember(membershipId), false);
+
+        // If there is no vote to retract, the poll service won't modify.
+        if (!poll.retractVote(membershipId)) {
+            return new ResponseEntity<>(HttpStatus.NOT_MODIFIED);
+        }
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * This method will get a poll, or turn the request away if there is no such poll.
+     *
+     * @param pollId The identifier of the poll.
+     * @return The poll's Poll Service.
+     */
+    private PollService getPoll(String pollId) {
+        PollService poll = pollRegistry.get(pollId);
+        if (poll == null) {
+            throw voteValidator.reject(HttpStatus.NOT_FOUND, Error.POLL_NON_EXISTENT);
+        }
+        return poll;
+    }
+}
@@ -0,0 +1,72 @@
+// The REST controller that receives batches of votes from the other nodes, living in the controller sub-package.
+// Only present with poll.replication.enabled=true, and protected like the administrator's endpoints.
+
+package poll.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import poll.exception.Error;
+import poll.metrics.PollMetrics;
+import poll.replication.ReplicationStats;
+import poll.replication.VoteReplicator;
+
+import java.io.IOException;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "poll.replication.enabled", havingValue = "true")
+public class ReplicationController {
+
+    // Endpoints
+    private final String REPLICATION_PATH = "/replication";
+
+    private final VoteReplicator voteReplicator;
+    // Counts requests turned away, by error.
+    private final PollMetrics pollMetrics;
+
+    /**
+     * This constructor will set up the replicator that this controller hands batches to.
+     *
+     * @param voteReplicator The replicator of this node's votes.
+     * @param pollMetrics The metrics of the poll service and its endpoints.
+     */
+    public ReplicationController(VoteReplicator voteReplicator, PollMetrics pollMetrics) {
+        this.voteReplicator = voteReplicator;
+        this.pollMetrics = pollMetrics;
+    }
+
+    /**
+     * This method will merge a batch of votes sent by another node.
+     *
+     * @param batch The compressed batch.
+     * @return The response object to indicate the status of the request.
+     */
+    @PostMapping(value = REPLICATION_PATH, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> receive(@RequestBody byte[] batch) {
+        try {
+            voteReplicator.receive(batch);
+        } catch (IOException exception) {
+            pollMetrics.recordRejection(Error.INVALID_REPLICATION_BATCH);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, Error.INVALID_REPLICATION_BATCH.toString());
+        }
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    /**
+     * This method will get the counters of the replication.
+     *
+     * @return The clock, ballots, batches and bytes sent and received so far, and the replicated tallies.
+     */
+    @GetMapping(REPLICATION_PATH)
+    public ReplicationStats getStats() {
+        return voteReplicator.getStats();
+    }
+}
@@ -0,0 +1,148 @@
+// The checks made on the members and candidates sent to a poll, living in the controller sub-package.
+// Shared by every controller taking votes, whether for the main poll or one in the poll registry,
+// so each endpoint turns a request away with the same status and counts it under the same error.
+
+package poll.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import poll.exception.Error;
+import poll.membership.MembershipCache;
+import poll.metrics.PollMetrics;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollService;
+
+public class VoteValidator {
+
+    // Checks new members against the membership registry.
+    private final MembershipCache membershipCache;
+    // Counts requests turned away, by error.
+    private final PollMetrics pollMetrics;
+
+    /**
+     * This constructor will set up the checks made for a controller.
+     *
+     * @param membershipCache The cache of membership registry lookups.
+     * @param pollMetrics The metrics of the poll service and its endpoints.
+     */
+    public VoteValidator(MembershipCache membershipCache, PollMetrics pollMetrics) {
+        this.membershipCache = membershipCache;
+        this.pollMetrics = pollMetrics;
+    }
+
+    /**
+     * This method will check if a string is valid, i.e. it is not null,
+     * and it is not empty regardless of whitespace.
+     *
+     * @param string The string to test.
+     * @return The boolean value true if it is valid, otherwise it will return false.
+     */
+    public static boolean isStringValid(String string) {
+        return string != null && !string.trim().isEmpty();
+    }
+
+    /**
+     * This method will validate a given member of a poll and throw an error if appropriate. No need to return
+     * anything here, as if it isn't valid, a ResponseStatusException will be thrown.
+     *
+     * @param poll The Poll Service object the member is voting in.
+     * @param member The member to validate.
+     * @param addMember If the member is valid, but is not stored in the poll, this boolean value determines if it
+     *                  should be added into the poll. Members sent by a client are checked against the
+     *                  membership registry first.
+     */
+    public void validateMember(PollService poll, Member member, boolean addMember) {
+        checkMember(poll, member);
+        admitMember(poll, member,
+                addMember ? membershipCache.verify(member.getMembershipId(), member.getName()) : null);
+    }
+
+    /**
+     * This method will check a member is in the correct format while the poll is open, before the membership
+     * registry is asked about them.
+     *
+     * @param poll The Poll Service object the member is voting in.
+     * @param member The member to check.
+     */
+    public void checkMember(PollService poll, Member member) {
+        if (!poll.isPollOpen()) {
+            throw reject(HttpStatus.FORBIDDEN, Error.POLL_CLOSED);
+        }
+        if (member == null) {
+            throw reject(HttpStatus.BAD_REQUEST, Error.MEMBER_NON_EXISTENT);
+        }
+        if (!isStringValid(member.getMembershipId())) {
+            throw reject(HttpStatus.BAD_REQUEST, Error.INVALID_MEMBER);
+        }
+    }
+
+    /**
+     * This method will turn a checked member away if the membership registry didn't vouch for them, and
+     * otherwise make sure they are in the poll.
+     *
+     * @param poll The Poll Service object the member is voting in.
+     * @param member The member, already checked to be in the correct format.
+     * @param verdict The membership registry's verdict on the member, or null if a member sent by a client
+     *                isn't being added, in which case they must already be in the poll.
+     */
+    public void admitMember(PollService poll, Member member, MembershipCache.Verdict verdict) {
+        boolean addMember = verdict != null;
+        if (addMember) {
+            switch (verdict) {
+                case NOT_REGISTERED:
+                    throw reject(HttpStatus.FORBIDDEN, Error.MEMBER_NOT_REGISTERED);
+                case UNAVAILABLE:
+                    throw reject(HttpStatus.SERVICE_UNAVAILABLE, Error.MEMBERSHIP_UNAVAILABLE);
+                default:
+                    break;
+            }
+        }
+        if (!poll.hasMember(member.getMembershipId())) {
+            if (addMember) {
+                poll.addMember(member);
+                return;
+            }
+            throw reject(HttpStatus.NOT_FOUND, Error.MEMBER_NON_EXISTENT);
+        }
+    }
+
+    /**
+     * This method will get the candidate being voted for, fetched once so a concurrent removal can't slip
+     * between a check and the vote.
+     *
+     * @param poll The Poll Service object holding the candidate.
+     * @param commonName The common name of the candidate.
+     * @return The candidate.
+     */
+    public Candidate getCandidate(PollService poll, String commonName) {
+        Candidate candidate = poll.getCandidate(commonName);
+        if (candidate == null) {
+            throw reject(HttpStatus.NOT_FOUND, Error.CANDIDATE_NON_EXISTENT);
+        }
+        return candidate;
+    }
+
+    /**
+     * This method will check a common name sent by a client, before the candidate it names is looked for.
+     *
+     * @param commonName The common name of the candidate.
+     */
+    public void checkCommonName(String commonName) {
+        if (!isStringValid(commonName)) {
+            throw reject(HttpStatus.BAD_REQUEST, Error.INVALID_CANDIDATE);
+        }
+    }
+
+    /**
+     * This method will count a request turned away, and create the exception that turns it away.
+     *
+     * @param status The HTTP status to respond with.
+     * @param error The error describing why.
+     * @return The exception to throw.
+     */
+    public ResponseStatusException reject(HttpStatus status, Error error) {
+        pollMetrics.recordRejection(error);
+        return new ResponseStatusException(status, error.toString());
+    }
+}
@@ -0,0 +1,52 @@
+// The age bands the demographic breakdown groups members into, living in the demographics sub-package.
+
+package poll.demographics;
+
+public enum AgeBand {
+    UNDER_18("Under 18"),
+    FROM_18_TO_24("18-24"),
+    FROM_25_TO_34("25-34"),
+    FROM_35_TO_44("35-44"),
+    FROM_45_TO_54("45-54"),
+    FROM_55_TO_64("55-64"),
+    OVER_64("65+"),
+    UNKNOWN("Unknown");
+
+    private static final AgeBand[] BANDS = values();
+
+    private final String label;
+
+    /**
+     * This constructor will create a new age band with a label.
+     *
+     * @param label The label the band is shown with.
+     */
+    AgeBand(String label) {
+        this.label = label;
+    }
+
+    /**
+     * This method will find the band an age falls in. Members registered without an age are in UNKNOWN.
+     *
+     * @param age The age of the member.
+     * @return The band the age falls in.
+     */
+    public static AgeBand of(int age) {
+        if (age <= 0) {
+            return UNKNOWN;
+        }
+        if (age < 18) {
+            return UNDER_18;
+        }
+        if (age < 25) {
+            return FROM_18_TO_24;
+        }
+        // The remaining bands are ten years wide.
+        return BANDS[Math.min(FROM_25_TO_34.ordinal() + (age - 25) / 10, OVER_64.ordinal())];
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,46 @@
+// The votes of each candidate broken down by region and age band, living in the demographics sub-package.
+
+package poll.demographics;
+
+import java.util.List;
+import java.util.Map;
+
+public class DemographicBreakdown {
+
+    private final List<String> regions;
+    private final List<String> ageBands;
+    private final Map<String, Map<String, Long>> byRegion;
+    private final Map<String, Map<String, Long>> byAgeBand;
+
+    /**
+     * This constructor will create a breakdown with all the attributes.
+     *
+     * @param regions   The regions, in the order of each row of byRegion.
+     * @param ageBands  The age bands, in the order of each row of byAgeBand.
+     * @param byRegion  The votes for each candidate, by their commonName, in each region.
+     * @param byAgeBand The votes for each candidate, by their commonName, in each age band.
+     */
+    public DemographicBreakdown(List<String> regions, List<String> ageBands, Map<String, Map<String, Long>> byRegion,
+                                Map<String, Map<String, Long>> byAgeBand) {
+        this.regions = regions;
+        this.ageBands = ageBands;
+        this.byRegion = byRegion;
+        this.byAgeBand = byAgeBand;
+    }
+
+    public List<String> getRegions() {
+        return regions;
+    }
+
+    public List<String> getAgeBands() {
+        return ageBands;
+    }
+
+    public Map<String, Map<String, Long>> getByRegion() {
+        return byRegion;
+    }
+
+    public Map<String, Map<String, Long>> getByAgeBand() {
+        return byAgeBand;
+    }
+}
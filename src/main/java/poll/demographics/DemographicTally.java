@@ -0,0 +1,182 @@
+// Keeps each candidate's votes broken down by region and age band, living in the demographics sub-package.
+// The breakdown is updated as votes are made, moved and retracted, so reading it never scans the members.
+// A region is admitted or sent to Other once and for all, so moving or retracting a vote always takes it from
+// the cell it was counted in.
+
+package poll.demographics;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollListener;
+import poll.service.PollService;
+import poll.service.PollSnapshot;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class DemographicTally implements PollListener {
+
+    // The region members are counted in when they didn't give one, or once the distinct regions run out.
+    static final String UNKNOWN_REGION = "Unknown";
+    static final String OTHER_REGION = "Other";
+
+    private final PollService pollService;
+    private final int maxRegions;
+
+    // The regions seen so far. Regions are free text, so they are capped to keep the breakdown bounded.
+    // Only added to while holding the map's lock, so a region turned away is never admitted later.
+    private final Map<String, String> regions = new ConcurrentHashMap<>();
+    // Set once the regions run out, which they never stop doing.
+    private volatile boolean regionsFull;
+    // Each candidate's cells, keyed by the candidate object so a removed and re-added candidate starts afresh.
+    private final Map<Candidate, Cells> cellsByCandidate = new ConcurrentHashMap<>();
+
+    /**
+     * This constructor will set up the breakdown from the votes already made and start listening to the poll
+     * service. It is created before the poll is restored, so no votes are made while it counts them.
+     *
+     * @param pollService The Poll Service object whose votes are broken down.
+     * @param maxRegions The number of distinct regions counted, before the rest are counted as Other.
+     */
+    public DemographicTally(PollService pollService, @Value("${poll.demographics.max-regions:64}") int maxRegions) {
+        this.pollService = pollService;
+        this.maxRegions = maxRegions;
+        regions.put(UNKNOWN_REGION, UNKNOWN_REGION);
+        for (Candidate candidate : pollService.getAllCandidates()) {
+            onCandidateAdded(candidate);
+        }
+        try (PollSnapshot snapshot = pollService.openSnapshot()) {
+            snapshot.forEachBallot((member, vote) -> {
+                if (vote != null) {
+                    add(vote, regionOf(member), AgeBand.of(member.getAge()), 1);
+                }
+            });
+        }
+        pollService.addListener(this);
+    }
+
+    @Override
+    public void onCandidateAdded(Candidate candidate) {
+        cellsByCandidate.putIfAbsent(candidate, new Cells());
+    }
+
+    @Override
+    public void onCandidateRemoved(Candidate candidate) {
+        cellsByCandidate.remove(candidate);
+    }
+
+    @Override
+    public void onVote(Member voter, Candidate lastVote, Candidate newVote) {
+        String region = regionOf(voter);
+        AgeBand ageBand = AgeBand.of(voter.getAge());
+        if (lastVote != null) {
+            add(lastVote, region, ageBand, -1);
+        }
+        add(newVote, region, ageBand, 1);
+    }
+
+    @Override
+    public void onRetract(Member voter, Candidate lastVote) {
+        add(lastVote, regionOf(voter), AgeBand.of(voter.getAge()), -1);
+    }
+
+    /**
+     * This method will get the breakdown of every candidate's votes. Each matrix has a row for every
+     * candidate and a column for every region or age band, including those without votes.
+     *
+     * @return The breakdown of the votes by region and by age band.
+     */
+    public DemographicBreakdown getBreakdown() {
+        List<String> regionColumns = new ArrayList<>(new TreeSet<>(regions.values()));
+        List<String> ageBandColumns = new ArrayList<>();
+        for (AgeBand ageBand : AgeBand.values()) {
+            ageBandColumns.add(ageBand.toString());
+        }
+
+        Map<String, Map<String, Long>> byRegion = new LinkedHashMap<>();
+        Map<String, Map<String, Long>> byAgeBand = new LinkedHashMap<>();
+        for (Candidate candidate : pollService.getAllCandidates()) {
+            Cells cells = cellsByCandidate.get(candidate);
+            Map<String, Long> regionRow = new LinkedHashMap<>();
+            for (String region : regionColumns) {
+                LongAdder cell = cells == null ? null : cells.byRegion.get(region);
+                regionRow.put(region, cell == null ? 0 : cell.sum());
+            }
+            Map<String, Long> ageBandRow = new LinkedHashMap<>();
+            for (AgeBand ageBand : AgeBand.values()) {
+                ageBandRow.put(ageBand.toString(), cells == null ? 0 : cells.byAgeBand[ageBand.ordinal()].sum());
+            }
+            byRegion.put(candidate.getCommonName(), regionRow);
+            byAgeBand.put(candidate.getCommonName(), ageBandRow);
+        }
+        return new DemographicBreakdown(regionColumns, ageBandColumns, byRegion, byAgeBand);
+    }
+
+    private void add(Candidate candidate, String region, AgeBand ageBand, int delta) {
+        // A vote for a candidate that has since been removed has nothing left to count against.
+        Cells cells = cellsByCandidate.get(candidate);
+        if (cells == null) {
+            return;
+        }
+        LongAdder cell = cells.byRegion.get(region);
+        if (cell == null) {
+            cell = cells.byRegion.computeIfAbsent(region, key -> new LongAdder());
+        }
+        cell.add(delta);
+        cells.byAgeBand[ageBand.ordinal()].add(delta);
+    }
+
+    /**
+     * This method will find the region a member's votes are counted in, sharing one copy of each region's name.
+     * The answer for a region never changes, so a vote is taken away from the cell it was added to.
+     *
+     * @param member The member voting.
+     * @return The region the member's votes are counted in.
+     */
+    private String regionOf(Member member) {
+        String region = member.getRegionOfScotland();
+        if (region == null || region.trim().isEmpty()) {
+            return UNKNOWN_REGION;
+        }
+        String known = regions.get(region);
+        if (known != null) {
+            return known;
+        }
+        if (regionsFull) {
+            return OTHER_REGION;
+        }
+        synchronized (regions) {
+            known = regions.get(region);
+            if (known != null) {
+                return known;
+            }
+            if (regions.size() >= maxRegions) {
+                regions.put(OTHER_REGION, OTHER_REGION);
+                regionsFull = true;
+                return OTHER_REGION;
+            }
+            regions.put(region, region);
+            return region;
+        }
+    }
+
+    // The counts of one candidate's votes in each region and age band.
+    private static class Cells {
+        private final Map<String, LongAdder> byRegion = new ConcurrentHashMap<>();
+        private final LongAdder[] byAgeBand = new LongAdder[AgeBand.values().length];
+
+        private Cells() {
+            for (int i = 0; i < byAgeBand.length; i++) {
+                byAgeBand[i] = new LongAdder();
+            }
+        }
+    }
+}
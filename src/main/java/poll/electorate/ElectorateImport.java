@@ -0,0 +1,111 @@
+// One import of an electorate, counting its progress as it runs, living in the electorate sub-package.
+// The counters are updated by every thread parsing the import's chunks, so they are LongAdders.
+
+package poll.electorate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ElectorateImport {
+
+    // The rows rejected that are kept to report, so a file of bad rows doesn't fill the heap with errors.
+    private static final int MAX_ERRORS = 10;
+
+    // Whether an import is still being made.
+    public enum Status {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final long id;
+    private final String source;
+    private final ImportFormat format;
+    private final long totalBytes;
+    private final long startNanos = System.nanoTime();
+
+    final LongAdder bytesRead = new LongAdder();
+    final LongAdder rows = new LongAdder();
+    final LongAdder added = new LongAdder();
+    final LongAdder duplicates = new LongAdder();
+    final LongAdder rejected = new LongAdder();
+
+    // Guarded by this.
+    private final List<String> errors = new ArrayList<>();
+    private volatile Status status = Status.RUNNING;
+    private volatile long endNanos;
+
+    /**
+     * This constructor will create an import that is running.
+     *
+     * @param id The identifier of the import.
+     * @param source Where the members are read from.
+     * @param format The format of the members.
+     * @param totalBytes The size of the source, or -1 if it isn't known.
+     */
+    ElectorateImport(long id, String source, ImportFormat format, long totalBytes) {
+        this.id = id;
+        this.source = source;
+        this.format = format;
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * This method will record a row that couldn't be parsed into a member.
+     *
+     * @param line The line number of the row.
+     * @param reason Why the row was rejected.
+     */
+    void reject(long line, String reason) {
+        rejected.increment();
+        synchronized (this) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add("Line " + line + ": " + reason);
+            }
+        }
+    }
+
+    /**
+     * This method will record that the import has finished.
+     *
+     * @param failure Why the import failed, or null if it completed.
+     */
+    void finish(String failure) {
+        if (failure != null) {
+            synchronized (this) {
+                errors.add(failure);
+            }
+        }
+        endNanos = System.nanoTime();
+        status = failure == null ? Status.COMPLETED : Status.FAILED;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * This method will get the progress of the import.
+     *
+     * @return The counters so far.
+     */
+    public ElectorateImportReport report() {
+        Status current = status;
+        long elapsedNanos = (current == Status.RUNNING ? System.nanoTime() : endNanos) - startNanos;
+        long parsed = rows.sum();
+        List<String> reported;
+        synchronized (this) {
+            reported = new ArrayList<>(errors);
+        }
+        return new ElectorateImportReport(id, source, format, current, bytesRead.sum(), totalBytes, parsed,
+                added.sum(), duplicates.sum(), rejected.sum(),
+                elapsedNanos == 0 ? 0 : parsed * 1e9 / elapsedNanos,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), reported);
+    }
+}
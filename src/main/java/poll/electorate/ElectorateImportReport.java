@@ -0,0 +1,109 @@
+// The progress of an electorate import at one moment, living in the electorate sub-package.
+
+package poll.electorate;
+
+import java.util.List;
+
+public class ElectorateImportReport {
+
+    private final long id;
+    private final String source;
+    private final ImportFormat format;
+    private final ElectorateImport.Status status;
+    private final long bytesRead;
+    private final long totalBytes;
+    private final long rows;
+    private final long added;
+    private final long duplicates;
+    private final long rejected;
+    private final double rowsPerSecond;
+    private final long elapsedMs;
+    private final List<String> errors;
+
+    /**
+     * This constructor will create the report with all the attributes.
+     *
+     * @param id            The identifier of the import.
+     * @param source        Where the members are read from.
+     * @param format        The format of the members.
+     * @param status        Whether the import is running, completed or failed.
+     * @param bytesRead     The bytes read so far.
+     * @param totalBytes    The size of the source, or -1 if it isn't known.
+     * @param rows          The rows parsed so far.
+     * @param added         The members added to the poll service.
+     * @param duplicates    The rows whose member already existed, or appeared earlier in the source.
+     * @param rejected      The rows that couldn't be parsed into a member.
+     * @param rowsPerSecond The rows parsed a second, on average.
+     * @param elapsedMs     The time the import has taken so far.
+     * @param errors        The first few rows rejected, and why the import failed if it did.
+     */
+    public ElectorateImportReport(long id, String source, ImportFormat format, ElectorateImport.Status status,
+                                  long bytesRead, long totalBytes, long rows, long added, long duplicates,
+                                  long rejected, double rowsPerSecond, long elapsedMs, List<String> errors) {
+        this.id = id;
+        this.source = source;
+        this.format = format;
+        this.status = status;
+        this.bytesRead = bytesRead;
+        this.totalBytes = totalBytes;
+        this.rows = rows;
+        this.added = added;
+        this.duplicates = duplicates;
+        this.rejected = rejected;
+        this.rowsPerSecond = rowsPerSecond;
+        this.elapsedMs = elapsedMs;
+        this.errors = errors;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public ImportFormat getFormat() {
+        return format;
+    }
+
+    public ElectorateImport.Status getStatus() {
+        return status;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getAdded() {
+        return added;
+    }
+
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -0,0 +1,380 @@
+// Imports an electorate of members into the poll service in bulk, living in the electorate sub-package.
+// Members are otherwise only added by their first vote, so a poll with a known electorate can load it
+// before it opens instead of registering each member in the busiest minutes of voting.
+//
+// The source is read on the calling thread into fixed-size chunks, each cut at its last line break, and the
+// chunks are parsed and added on a pool of threads. Only a few chunks are held at once, so a file of tens of
+// millions of rows is never held in memory. Members that already exist, or appear twice, are counted and
+// skipped. An import can be run at startup from poll.import.file, or at any time by the administrator.
+
+package poll.electorate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import poll.model.Member;
+import poll.service.PollService;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Component
+public class ElectorateImporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ElectorateImporter.class);
+
+    // The finished imports kept to report.
+    private static final int MAX_FINISHED_IMPORTS = 16;
+    private static final long PROGRESS_LOG_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final PollService pollService;
+    private final ObjectReader jsonReader;
+    private final int threads;
+    private final int chunkSize;
+    private final String startupFile;
+    private final ExecutorService parsers;
+
+    private final AtomicLong nextId = new AtomicLong(1);
+    // Key -> the import's id, value -> the import, oldest first.
+    private final Map<Long, ElectorateImport> imports = new ConcurrentSkipListMap<>();
+
+    /**
+     * This constructor will set up the importer and its pool of parsers.
+     *
+     * @param pollService The Poll Service object the members are added to.
+     * @param objectMapper The JSON mapper configured by Spring.
+     * @param threads The number of chunks parsed at once, or 0 for one per processor.
+     * @param chunkSize The size in bytes of each chunk, which is also the longest a row can be.
+     * @param startupFile The file imported at startup, or blank for none.
+     */
+    public ElectorateImporter(PollService pollService, ObjectMapper objectMapper,
+                              @Value("${poll.import.threads:0}") int threads,
+                              @Value("${poll.import.chunk-size:1048576}") int chunkSize,
+                              @Value("${poll.import.file:}") String startupFile) {
+        this.pollService = pollService;
+        this.jsonReader = objectMapper.readerFor(JsonNode.class);
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = chunkSize;
+        this.startupFile = startupFile;
+        this.parsers = Executors.newFixedThreadPool(this.threads, runnable -> {
+            Thread thread = new Thread(runnable, "electorate-parser");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * This method will import the file given by poll.import.file, if there is one. Called once at startup.
+     *
+     * @return The import, or null if there is no file to import.
+     * @throws IOException The error, if the file can't be read.
+     */
+    public ElectorateImport importStartupFile() throws IOException {
+        if (startupFile.isBlank()) {
+            return null;
+        }
+        ElectorateImport electorateImport = importFile(Paths.get(startupFile));
+        if (electorateImport.getStatus() == ElectorateImport.Status.FAILED) {
+            throw new IOException("The import of " + startupFile + " failed: " + electorateImport.report().getErrors());
+        }
+        return electorateImport;
+    }
+
+    /**
+     * This method will import a file, in the format given by its extension.
+     *
+     * @param path The path of the file.
+     * @return The import, once it has finished.
+     * @throws IOException The error, if the file can't be opened or its format isn't known.
+     */
+    public ElectorateImport importFile(Path path) throws IOException {
+        ImportFormat format = ImportFormat.fromFileName(path.getFileName().toString());
+        if (format == null) {
+            throw new IOException("Unknown format of " + path + ", use .csv, .ndjson or .jsonl");
+        }
+        try (InputStream input = Files.newInputStream(path)) {
+            return importStream(input, format, path.toString(), Files.size(path));
+        }
+    }
+
+    /**
+     * This method will import the members in a stream, returning once every row has been added or rejected.
+     * A failure to read the stream fails the import, keeping the members already added.
+     *
+     * @param input The stream of members, which the caller closes.
+     * @param format The format of the members.
+     * @param source Where the members are read from, for the report.
+     * @param totalBytes The size of the stream, or -1 if it isn't known.
+     * @return The import, once it has finished.
+     */
+    public ElectorateImport importStream(InputStream input, ImportFormat format, String source, long totalBytes) {
+        ElectorateImport electorateImport = new ElectorateImport(nextId.getAndIncrement(), source, format, totalBytes);
+        imports.put(electorateImport.getId(), electorateImport);
+        LOGGER.info("Importing members from {}", source);
+
+        // Each chunk in flight holds its buffer, so this bounds the memory an import takes.
+        int maxInFlight = threads * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicReference<String> failure = new AtomicReference<>();
+        try {
+            byte[] buffer = new byte[chunkSize];
+            int filled = 0;
+            long line = 1;
+            long lastLog = System.nanoTime();
+            while (failure.get() == null) {
+                int read = input.read(buffer, filled, buffer.length - filled);
+                if (read > 0) {
+                    filled += read;
+                    electorateImport.bytesRead.add(read);
+                }
+                if (read < 0 || filled == buffer.length) {
+                    // Hand over the complete lines, and carry the rest over to the next chunk.
+                    int end = read < 0 ? filled : lastLineBreak(buffer, filled) + 1;
+                    if (end == 0 && filled > 0) {
+                        throw new IOException("Line " + line + " is longer than " + chunkSize + " bytes");
+                    }
+                    byte[] next = new byte[chunkSize];
+                    System.arraycopy(buffer, end, next, 0, filled - end);
+                    if (end > 0) {
+                        inFlight.acquire();
+                        byte[] chunk = buffer;
+                        long firstLine = line;
+                        parsers.execute(() -> {
+                            try {
+                                parse(chunk, end, firstLine, format, electorateImport);
+                            } catch (RuntimeException exception) {
+                                // Such as a member store that is full, which the next chunk would run into too.
+                                failure.compareAndSet(null, String.valueOf(exception));
+                            } finally {
+                                inFlight.release();
+                            }
+                        });
+                        line += countLineBreaks(chunk, end);
+                    }
+                    buffer = next;
+                    filled -= end;
+                }
+                if (read < 0) {
+                    break;
+                }
+                if (System.nanoTime() - lastLog > PROGRESS_LOG_NANOS) {
+                    lastLog = System.nanoTime();
+                    ElectorateImportReport report = electorateImport.report();
+                    LOGGER.info("Imported {} rows from {}, {} added", report.getRows(), source, report.getAdded());
+                }
+            }
+        } catch (IOException exception) {
+            failure.compareAndSet(null, exception.getMessage());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, "Interrupted");
+        }
+
+        // Let the chunks already handed over finish, whether or not the rest could be read.
+        inFlight.acquireUninterruptibly(maxInFlight);
+        electorateImport.finish(failure.get());
+        ElectorateImportReport report = electorateImport.report();
+        LOGGER.info("{} import from {}: {} rows, {} added, {} duplicates, {} rejected in {} ms", report.getStatus(),
+                source, report.getRows(), report.getAdded(), report.getDuplicates(), report.getRejected(),
+                report.getElapsedMs());
+        forgetOldImports();
+        return electorateImport;
+    }
+
+    /**
+     * This method will parse a chunk of whole lines, and add each member to the poll service.
+     *
+     * @param chunk The bytes of the chunk.
+     * @param length The number of bytes in the chunk.
+     * @param firstLine The line number of the chunk's first line.
+     * @param format The format of the lines.
+     * @param electorateImport The import the chunk belongs to.
+     */
+    private void parse(byte[] chunk, int length, long firstLine, ImportFormat format,
+                       ElectorateImport electorateImport) {
+        long line = firstLine;
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            while (end < length && chunk[end] != '\n') {
+                end++;
+            }
+            int lineEnd = end > start && chunk[end - 1] == '\r' ? end - 1 : end;
+            if (lineEnd > start) {
+                Member member = format == ImportFormat.CSV
+                        ? parseCsv(chunk, start, lineEnd, line, electorateImport)
+                        : parseJson(chunk, start, lineEnd, line, electorateImport);
+                if (member != null) {
+                    electorateImport.rows.increment();
+                    if (pollService.addMember(member)) {
+                        electorateImport.added.increment();
+                    } else {
+                        electorateImport.duplicates.increment();
+                    }
+                }
+            }
+            start = end + 1;
+            line++;
+        }
+    }
+
+    private Member parseCsv(byte[] chunk, int start, int end, long line, ElectorateImport electorateImport) {
+        List<String> fields = splitCsv(new String(chunk, start, end - start, StandardCharsets.UTF_8));
+        if (fields == null) {
+            electorateImport.reject(line, "Unterminated quoted field");
+            return null;
+        }
+        // Skip the header row.
+        if (line == 1 && fields.get(0).equalsIgnoreCase("membershipId")) {
+            return null;
+        }
+        if (fields.size() < 2 || fields.size() > 4) {
+            electorateImport.reject(line, "Expected membershipId,name,age,regionOfScotland");
+            return null;
+        }
+        int age = 0;
+        if (fields.size() > 2 && !fields.get(2).isBlank()) {
+            try {
+                age = Integer.parseInt(fields.get(2).trim());
+            } catch (NumberFormatException exception) {
+                electorateImport.reject(line, "The age isn't a number");
+                return null;
+            }
+        }
+        String region = fields.size() > 3 && !fields.get(3).isBlank() ? fields.get(3) : null;
+        return member(fields.get(0), fields.get(1), age, region, line, electorateImport);
+    }
+
+    private Member parseJson(byte[] chunk, int start, int end, long line, ElectorateImport electorateImport) {
+        JsonNode node;
+        try {
+            node = jsonReader.readValue(chunk, start, end - start);
+        } catch (IOException exception) {
+            electorateImport.reject(line, "Malformed JSON");
+            return null;
+        }
+        if (!node.isObject() || (node.has("age") && !node.get("age").canConvertToInt())) {
+            electorateImport.reject(line, "Expected an object with membershipId, name, age and regionOfScotland");
+            return null;
+        }
+        // Only the member's details are taken, never a vote.
+        return member(node.path("membershipId").asText(null), node.path("name").asText(null),
+                node.path("age").asInt(0), node.path("regionOfScotland").asText(null), line, electorateImport);
+    }
+
+    private Member member(String membershipId, String name, int age, String region, long line,
+                          ElectorateImport electorateImport) {
+        if (membershipId == null || membershipId.trim().isEmpty() || name == null || name.trim().isEmpty()) {
+            electorateImport.reject(line, "The membershipId and name are required");
+            return null;
+        }
+        return new Member(membershipId, name, age, region);
+    }
+
+    /**
+     * This method will split a CSV row into its fields. A quoted field may hold commas and doubled quotes, but
+     * not line breaks, as chunks are cut at any line break.
+     *
+     * @param row The row.
+     * @return The fields, or null if a quoted field isn't closed.
+     */
+    static List<String> splitCsv(String row) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < row.length(); i++) {
+            char c = row.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < row.length() && row.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static int lastLineBreak(byte[] buffer, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buffer[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long countLineBreaks(byte[] buffer, int length) {
+        long count = 0;
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Keeps every running import, and the latest of those finished.
+    private void forgetOldImports() {
+        List<Long> finished = new ArrayList<>();
+        imports.forEach((id, electorateImport) -> {
+            if (electorateImport.getStatus() != ElectorateImport.Status.RUNNING) {
+                finished.add(id);
+            }
+        });
+        for (int i = 0; i < finished.size() - MAX_FINISHED_IMPORTS; i++) {
+            imports.remove(finished.get(i));
+        }
+    }
+
+    /**
+     * This method will get the progress of the imports, running and recently finished.
+     *
+     * @return The reports, oldest first.
+     */
+    public List<ElectorateImportReport> getImports() {
+        List<ElectorateImportReport> reports = new ArrayList<>();
+        for (ElectorateImport electorateImport : imports.values()) {
+            reports.add(electorateImport.report());
+        }
+        return reports;
+    }
+
+    @PreDestroy
+    public void close() {
+        parsers.shutdownNow();
+    }
+}
@@ -0,0 +1,52 @@
+// The formats an electorate can be imported from, living in the electorate sub-package.
+// Both hold one member per line, so a file can be cut into chunks at any line break and parsed in parallel.
+
+package poll.electorate;
+
+import java.util.Locale;
+
+public enum ImportFormat {
+    // membershipId,name,age,regionOfScotland with an optional header row, and fields quoted as in RFC 4180.
+    CSV,
+    // One JSON object a line, with the same fields as a member sent with a vote.
+    NDJSON;
+
+    /**
+     * This method will pick the format of a request body from its content type.
+     *
+     * @param contentType The content type of the request, which may be null.
+     * @return The format, or null if the content type isn't one of them.
+     */
+    public static ImportFormat fromContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String mediaType = contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        switch (mediaType) {
+            case "text/csv":
+                return CSV;
+            case "application/x-ndjson":
+            case "application/jsonl":
+                return NDJSON;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * This method will pick the format of a file from its extension.
+     *
+     * @param fileName The name of the file.
+     * @return The format, or null if the extension isn't one of them.
+     */
+    public static ImportFormat fromFileName(String fileName) {
+        String lowerCase = fileName.toLowerCase(Locale.ROOT);
+        if (lowerCase.endsWith(".csv")) {
+            return CSV;
+        }
+        if (lowerCase.endsWith(".ndjson") || lowerCase.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        return null;
+    }
+}
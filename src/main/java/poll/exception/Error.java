@@ -6,8 +6,24 @@ public enum Error {
     CANDIDATE_ALREADY_EXISTS("This candidate already exists."),
     CANDIDATE_NON_EXISTENT("This candidate does not exist."),
     MEMBER_NON_EXISTENT("This member does not exist, trying voting to register."),
+    MEMBER_NOT_REGISTERED("This member is not registered with the society, check the membership identifier and name."),
+    MEMBERSHIP_UNAVAILABLE("The membership registry can't be reached right now, try again later."),
     NO_CANDIDATE_VOTE("This member has not registered a vote."),
-    POLL_CLOSED("The poll is currently closed. This action cannot be performed.");
+    POLL_CLOSED("The poll is currently closed. This action cannot be performed."),
+    RATE_LIMITED("Too many requests for this member, try again shortly."),
+    INVALID_IDEMPOTENCY_KEY("The idempotency key is invalid, use up to 255 visible ASCII characters."),
+    IDEMPOTENCY_KEY_REUSED("This idempotency key was already used for a different request."),
+    REQUEST_IN_PROGRESS("A request with this idempotency key is still being processed, try again shortly."),
+    INVALID_POLL("The poll identifier is invalid, use up to 64 letters, digits, dashes and underscores."),
+    POLL_ALREADY_EXISTS("This poll already exists."),
+    POLL_NON_EXISTENT("This poll does not exist."),
+    POLL_LIMIT_REACHED("No more polls can be created on this server, remove one first."),
+    UNSUPPORTED_IMPORT_FORMAT("The electorate must be sent as text/csv or application/x-ndjson."),
+    INVALID_REPLICATION_BATCH("The replication batch is malformed, or from an incompatible version."),
+    UNSUPPORTED_EXPORT_FORMAT("The results can be exported as csv or ndjson."),
+    EXPORT_FILE_NON_EXISTENT("This journal or snapshot file does not exist."),
+    INVALID_PAGE("The page is invalid, use an offset of 0 or more and a limit of 1 or more."),
+    INVALID_SEARCH("The search is invalid, use up to 256 characters.");
 
     private final String description;
 
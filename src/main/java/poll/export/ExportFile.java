@@ -0,0 +1,41 @@
+// A journal or snapshot file that can be downloaded, living in the export sub-package.
+
+package poll.export;
+
+public class ExportFile {
+
+    // What a file holds.
+    public enum Kind {
+        JOURNAL_SEGMENT,
+        SNAPSHOT
+    }
+
+    private final String name;
+    private final Kind kind;
+    private final long size;
+
+    /**
+     * This constructor will describe a file.
+     *
+     * @param name The name of the file in the journal directory.
+     * @param kind What the file holds.
+     * @param size The size of the file in bytes.
+     */
+    public ExportFile(String name, Kind kind, long size) {
+        this.name = name;
+        this.kind = kind;
+        this.size = size;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getSize() {
+        return size;
+    }
+}
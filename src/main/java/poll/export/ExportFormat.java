@@ -0,0 +1,47 @@
+// The formats the results can be exported in, living in the export sub-package.
+
+package poll.export;
+
+import java.util.Locale;
+
+public enum ExportFormat {
+    CSV("text/csv;charset=UTF-8", ".csv"),
+    NDJSON("application/x-ndjson", ".ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    ExportFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * This method will find the format with the given name, ignoring case.
+     *
+     * @param name The name of the format, csv or ndjson.
+     * @return The format, or null if there is no format with that name.
+     */
+    public static ExportFormat fromName(String name) {
+        if (name == null) {
+            return null;
+        }
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "csv":
+                return CSV;
+            case "ndjson":
+            case "jsonl":
+                return NDJSON;
+            default:
+                return null;
+        }
+    }
+}
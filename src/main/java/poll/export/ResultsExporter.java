@@ -0,0 +1,323 @@
+// Exports the ballots and tallies of the poll, living in the export sub-package.
+// Each export reads a snapshot of the poll, so it is consistent without voting being paused, and rows are
+// written as the member store is scanned, so an export of any size needs only a few buffers of memory.
+// Ballots are spooled to a temporary file and sent from there, as every vote changed while a snapshot is
+// open is copied into it: the snapshot is closed once the scan is done, not once a slow client has read it.
+// The tallies are counted from the snapshot's ballots rather than read from the candidates, whose counters
+// keep moving while the scan runs.
+
+package poll.export;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import poll.journal.TallySnapshotter;
+import poll.journal.VoteJournal;
+import poll.model.Candidate;
+import poll.service.PollService;
+import poll.service.PollSnapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class ResultsExporter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String[] BALLOT_COLUMNS = {"membershipId", "candidate", "regionOfScotland", "age"};
+    private static final String[] TALLY_COLUMNS = {"scientificName", "commonName", "votes"};
+
+    private final PollService pollService;
+    private final JsonFactory jsonFactory;
+    // Only available when poll.journal.enabled=true.
+    private final ObjectProvider<VoteJournal> voteJournal;
+    private final ObjectProvider<TallySnapshotter> tallySnapshotter;
+
+    /**
+     * This constructor will set up the exports of a poll.
+     *
+     * @param pollService The Poll Service object whose results are exported.
+     * @param objectMapper The mapper whose factory writes NDJSON rows.
+     * @param voteJournal The journal whose segment files can be downloaded, if it is enabled.
+     * @param tallySnapshotter The snapshotter whose snapshot files can be downloaded, if it is enabled.
+     */
+    public ResultsExporter(PollService pollService, ObjectMapper objectMapper,
+                           ObjectProvider<VoteJournal> voteJournal,
+                           ObjectProvider<TallySnapshotter> tallySnapshotter) {
+        this.pollService = pollService;
+        this.jsonFactory = objectMapper.getFactory();
+        this.voteJournal = voteJournal;
+        this.tallySnapshotter = tallySnapshotter;
+    }
+
+    /**
+     * This method will write every member's ballot, as it was when the export started, one a row.
+     * Members without a vote are left out.
+     *
+     * @param output The stream to write to, which is flushed but left open.
+     * @param format The format of the rows.
+     * @return The number of ballots written.
+     * @throws IOException The error, if the stream can't be written to.
+     */
+    public long exportBallots(OutputStream output, ExportFormat format) throws IOException {
+        Path spool = Files.createTempFile("ballots-", ".export");
+        try {
+            long ballots;
+            try (OutputStream file = new BufferedOutputStream(Files.newOutputStream(spool), BUFFER_SIZE)) {
+                ballots = writeBallots(file, format);
+            }
+            Files.copy(spool, output);
+            output.flush();
+            return ballots;
+        } finally {
+            Files.deleteIfExists(spool);
+        }
+    }
+
+    private long writeBallots(OutputStream output, ExportFormat format) throws IOException {
+        try (PollSnapshot snapshot = pollService.openSnapshot();
+             RowWriter rows = rowWriter(output, format, BALLOT_COLUMNS)) {
+            Map<Candidate, Boolean> candidates = candidatesOf(snapshot);
+            long[] ballots = {0};
+            scan(snapshot, (member, vote) -> {
+                // A vote for a candidate removed since the snapshot opened is left out.
+                if (vote != null && candidates.containsKey(vote)) {
+                    rows.row(member.getMembershipId(), vote.getCommonName(), member.getRegionOfScotland(),
+                            member.getAge());
+                    ballots[0]++;
+                }
+            });
+            return ballots[0];
+        }
+    }
+
+    /**
+     * This method will write each candidate's tally, counted from the ballots as they were when the export
+     * started, one a row.
+     *
+     * @param output The stream to write to, which is flushed but left open.
+     * @param format The format of the rows.
+     * @return The number of candidates written.
+     * @throws IOException The error, if the stream can't be written to.
+     */
+    public long exportTallies(OutputStream output, ExportFormat format) throws IOException {
+        List<Candidate> candidates;
+        long[] tallies;
+        try (PollSnapshot snapshot = pollService.openSnapshot()) {
+            candidates = snapshot.getCandidates();
+            Map<Candidate, Integer> indexes = new IdentityHashMap<>();
+            for (Candidate candidate : candidates) {
+                indexes.put(candidate, indexes.size());
+            }
+            tallies = new long[candidates.size()];
+            snapshot.forEachBallot((member, vote) -> {
+                Integer index = vote == null ? null : indexes.get(vote);
+                if (index != null) {
+                    tallies[index]++;
+                }
+            });
+        }
+        try (RowWriter rows = rowWriter(output, format, TALLY_COLUMNS)) {
+            for (int i = 0; i < candidates.size(); i++) {
+                Candidate candidate = candidates.get(i);
+                rows.row(candidate.getScientificName(), candidate.getCommonName(), tallies[i]);
+            }
+        }
+        return candidates.size();
+    }
+
+    /**
+     * This method will list the journal segments and snapshots on disk, oldest first. The newest segment
+     * is still being appended to.
+     *
+     * @return The files, or an empty list if the journal isn't enabled.
+     * @throws IOException The error, if the journal directory can't be listed.
+     */
+    public List<ExportFile> listFiles() throws IOException {
+        List<ExportFile> files = new ArrayList<>();
+        VoteJournal journal = voteJournal.getIfAvailable();
+        if (journal != null) {
+            for (Path path : journal.listSegments()) {
+                addFile(files, path, ExportFile.Kind.JOURNAL_SEGMENT);
+            }
+        }
+        TallySnapshotter snapshotter = tallySnapshotter.getIfAvailable();
+        if (snapshotter != null) {
+            for (Path path : snapshotter.listSnapshots()) {
+                addFile(files, path, ExportFile.Kind.SNAPSHOT);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * This method will find a journal segment or snapshot on disk by name. Only the files listed can be
+     * found, so a name can't reach outside the journal directory.
+     *
+     * @param name The name of the file.
+     * @return The path of the file, or null if there is no such file.
+     * @throws IOException The error, if the journal directory can't be listed.
+     */
+    public Path findFile(String name) throws IOException {
+        VoteJournal journal = voteJournal.getIfAvailable();
+        List<Path> paths = new ArrayList<>(journal == null ? List.of() : journal.listSegments());
+        TallySnapshotter snapshotter = tallySnapshotter.getIfAvailable();
+        paths.addAll(snapshotter == null ? List.of() : snapshotter.listSnapshots());
+        for (Path path : paths) {
+            if (path.getFileName().toString().equals(name)) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    private static void addFile(List<ExportFile> files, Path path, ExportFile.Kind kind) throws IOException {
+        try {
+            files.add(new ExportFile(path.getFileName().toString(), kind, Files.size(path)));
+        } catch (NoSuchFileException exception) {
+            // Deleted by a snapshot since the directory was listed.
+        }
+    }
+
+    private static Map<Candidate, Boolean> candidatesOf(PollSnapshot snapshot) {
+        Map<Candidate, Boolean> candidates = new IdentityHashMap<>();
+        for (Candidate candidate : snapshot.getCandidates()) {
+            candidates.put(candidate, Boolean.TRUE);
+        }
+        return candidates;
+    }
+
+    /**
+     * This method will scan a snapshot's ballots, stopping at the first write that fails, as the client
+     * has most likely gone away.
+     *
+     * @param snapshot The snapshot to scan.
+     * @param consumer The consumer of each member and their vote, which may throw an UncheckedIOException.
+     * @throws IOException The error thrown by the consumer.
+     */
+    private static void scan(PollSnapshot snapshot, PollSnapshot.BallotConsumer consumer) throws IOException {
+        try {
+            snapshot.forEachBallot(consumer);
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+    }
+
+    private RowWriter rowWriter(OutputStream output, ExportFormat format, String[] columns) throws IOException {
+        return format == ExportFormat.CSV ? new CsvRowWriter(output, columns) : new NdjsonRowWriter(output, columns);
+    }
+
+    // Writes rows of values, which are strings, numbers or null. Closing flushes without closing the stream.
+    private interface RowWriter extends AutoCloseable {
+        void row(Object... values);
+
+        @Override
+        void close() throws IOException;
+    }
+
+    // RFC 4180 rows with a header, quoting only the values that need it.
+    private static class CsvRowWriter implements RowWriter {
+        private final Writer writer;
+
+        private CsvRowWriter(OutputStream output, String[] columns) throws IOException {
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), BUFFER_SIZE);
+            writeRow(columns);
+        }
+
+        @Override
+        public void row(Object... values) {
+            try {
+                writeRow(values);
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+
+        private void writeRow(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                if (values[i] != null) {
+                    writeField(values[i].toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(String value) throws IOException {
+            boolean quoted = false;
+            for (int i = 0; i < value.length() && !quoted; i++) {
+                char c = value.charAt(i);
+                quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+            }
+            if (!quoted) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.flush();
+        }
+    }
+
+    // A JSON object a line, keyed by the column names; null values are left out.
+    private class NdjsonRowWriter implements RowWriter {
+        private final JsonGenerator generator;
+        private final String[] columns;
+
+        private NdjsonRowWriter(OutputStream output, String[] columns) throws IOException {
+            this.generator = jsonFactory.createGenerator(output, JsonEncoding.UTF8)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Rows are ended with a newline rather than separated by the default space.
+            generator.setRootValueSeparator(null);
+            this.columns = columns;
+        }
+
+        @Override
+        public void row(Object... values) {
+            try {
+                generator.writeStartObject();
+                for (int i = 0; i < values.length; i++) {
+                    Object value = values[i];
+                    if (value instanceof Number) {
+                        generator.writeNumberField(columns[i], ((Number) value).longValue());
+                    } else if (value != null) {
+                        generator.writeStringField(columns[i], value.toString());
+                    }
+                }
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.close();
+        }
+    }
+}
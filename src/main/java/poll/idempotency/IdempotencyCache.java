@@ -0,0 +1,231 @@
+// Remembers the outcome of requests sent with an idempotency key, living in the idempotency sub-package.
+// A client retrying a vote sends the same key again, and gets the first request's response instead of the
+// vote being applied a second time, which could undo a change of vote made in between.
+//
+// Keys are kept in two generations of maps. New keys go into the current one; when the window has passed,
+// or it holds as many keys as allowed, the previous generation is dropped whole and the current one takes its
+// place. So a key is remembered for at least the window unless keys arrive faster than the cache can hold,
+// at most twice the allowed keys are held, and nothing is ever scanned or evicted one at a time. Each key is
+// claimed with a putIfAbsent, so requests only wait on others with the same key. Only requests that succeed
+// are remembered; a retry of one that failed is made again.
+
+package poll.idempotency;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+@Component
+public class IdempotencyCache {
+
+    // The longest an idempotency key can be, as in the IETF draft for the header.
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final long windowMs;
+    private final int maxKeys;
+    private final long waitMs;
+    private final LongSupplier clock;
+
+    private volatile Generations generations;
+
+    private final LongAdder claims = new LongAdder();
+    private final LongAdder replays = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder earlyRotations = new LongAdder();
+
+    /**
+     * This constructor will create the cache from configuration.
+     *
+     * @param windowMs The time a key is remembered for, at least.
+     * @param maxKeys The number of keys held in each generation.
+     * @param waitMs The time a retry waits for the first request with its key to finish.
+     */
+    @Autowired
+    public IdempotencyCache(@Value("${poll.idempotency.window-ms:300000}") long windowMs,
+                            @Value("${poll.idempotency.max-keys:100000}") int maxKeys,
+                            @Value("${poll.idempotency.wait-ms:3000}") long waitMs) {
+        this(windowMs, maxKeys, waitMs, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    /**
+     * This constructor will create the cache following the given clock.
+     *
+     * @param windowMs The time a key is remembered for, at least.
+     * @param maxKeys The number of keys held in each generation.
+     * @param waitMs The time a retry waits for the first request with its key to finish.
+     * @param clock The source of the time in milliseconds.
+     */
+    IdempotencyCache(long windowMs, int maxKeys, long waitMs, LongSupplier clock) {
+        this.windowMs = windowMs;
+        this.maxKeys = maxKeys;
+        this.waitMs = waitMs;
+        this.clock = clock;
+        this.generations = new Generations(new Generation(), new Generation(), clock.getAsLong());
+    }
+
+    /**
+     * This method will check an idempotency key sent by a client is valid, i.e. it is up to 255 visible ASCII
+     * characters.
+     *
+     * @param key The idempotency key.
+     * @return The boolean value true if it is valid, otherwise it will return false.
+     */
+    public static boolean isValidKey(String key) {
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) <= ' ' || key.charAt(i) > '~') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This method will claim a key for a request, unless a request with the key has been seen already.
+     * The caller that claims the key must call complete once the request succeeds, or abandon if it fails,
+     * so a retry can try again.
+     *
+     * @param key The idempotency key, scoped as the caller sees fit.
+     * @param request The request being made with the key.
+     * @return The original request with the key, or null if the caller has claimed it.
+     */
+    public Request claim(String key, Request request) {
+        Generations current = rotateIfDue();
+        Request original = current.previous.requests.get(key);
+        if (original == null) {
+            original = current.current.requests.putIfAbsent(key, request);
+            if (original == null) {
+                claims.increment();
+                if (current.current.size.incrementAndGet() >= maxKeys) {
+                    rotate(current, true);
+                }
+                return null;
+            }
+        }
+        replays.increment();
+        return original;
+    }
+
+    /**
+     * This method will record the response to a request whose key the caller claimed.
+     *
+     * @param request The request that claimed the key.
+     * @param status The HTTP status code of the response.
+     */
+    public void complete(Request request, int status) {
+        request.status.complete(status);
+    }
+
+    /**
+     * This method will wait for the first request with a key to finish.
+     *
+     * @param original The first request with the key.
+     * @return The status code of its response, null if it failed, or completed exceptionally with a
+     *         TimeoutException if it is still being made once the wait runs out.
+     */
+    public CompletableFuture<Integer> await(Request original) {
+        return original.status.copy().orTimeout(waitMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This method will forget a key whose request failed, and let anyone waiting on it try again. A request
+     * that has already completed stays remembered.
+     *
+     * @param key The idempotency key.
+     * @param request The request that claimed the key.
+     */
+    public void abandon(String key, Request request) {
+        if (request.status.isDone()) {
+            return;
+        }
+        Generations current = generations;
+        current.current.requests.remove(key, request);
+        current.previous.requests.remove(key, request);
+        request.status.complete(null);
+    }
+
+    private Generations rotateIfDue() {
+        Generations current = generations;
+        if (clock.getAsLong() - current.startedAt >= windowMs) {
+            return rotate(current, false);
+        }
+        return current;
+    }
+
+    // Drops the previous generation, unless another thread has rotated since the caller looked.
+    private synchronized Generations rotate(Generations seen, boolean early) {
+        if (generations != seen) {
+            return generations;
+        }
+        // A request claimed but not yet completed in the dropped generation still completes for those waiting.
+        generations = new Generations(new Generation(), seen.current, clock.getAsLong());
+        rotations.increment();
+        if (early) {
+            earlyRotations.increment();
+        }
+        return generations;
+    }
+
+    /**
+     * This method will get the counters of the cache.
+     *
+     * @return The keys held, claimed and replayed, and the generations rotated so far.
+     */
+    public IdempotencyStats getStats() {
+        Generations current = generations;
+        return new IdempotencyStats(current.current.requests.size() + current.previous.requests.size(),
+                claims.sum(), replays.sum(), rotations.sum(), earlyRotations.sum());
+    }
+
+    // A request sent with a key.
+    public static class Request {
+        private final String fingerprint;
+        // Completed with the response's status code, or null if the request failed.
+        private final CompletableFuture<Integer> status = new CompletableFuture<>();
+
+        /**
+         * This constructor will create a request.
+         *
+         * @param fingerprint What the request asks for, to tell a retry from another request reusing the key.
+         */
+        public Request(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public CompletableFuture<Integer> getStatus() {
+            return status;
+        }
+    }
+
+    private static class Generation {
+        private final Map<String, Request> requests = new ConcurrentHashMap<>();
+        private final AtomicInteger size = new AtomicInteger();
+    }
+
+    // Swapped whole, so the current and previous generations are always seen together.
+    private static class Generations {
+        private final Generation current;
+        private final Generation previous;
+        private final long startedAt;
+
+        private Generations(Generation current, Generation previous, long startedAt) {
+            this.current = current;
+            this.previous = previous;
+            this.startedAt = startedAt;
+        }
+    }
+}
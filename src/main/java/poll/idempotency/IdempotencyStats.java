@@ -0,0 +1,49 @@
+// The counters of the idempotency cache, living in the idempotency sub-package.
+
+package poll.idempotency;
+
+public class IdempotencyStats {
+
+    private final int keys;
+    private final long claims;
+    private final long replays;
+    private final long rotations;
+    private final long earlyRotations;
+
+    /**
+     * This constructor will create the counters with all the attributes.
+     *
+     * @param keys           The number of keys held in both generations.
+     * @param claims         The requests that were the first with their key.
+     * @param replays        The requests answered with, or waiting on, the first request with their key.
+     * @param rotations      The times the previous generation was dropped.
+     * @param earlyRotations The rotations made before the window had passed, as the generation was full.
+     */
+    public IdempotencyStats(int keys, long claims, long replays, long rotations, long earlyRotations) {
+        this.keys = keys;
+        this.claims = claims;
+        this.replays = replays;
+        this.rotations = rotations;
+        this.earlyRotations = earlyRotations;
+    }
+
+    public int getKeys() {
+        return keys;
+    }
+
+    public long getClaims() {
+        return claims;
+    }
+
+    public long getReplays() {
+        return replays;
+    }
+
+    public long getRotations() {
+        return rotations;
+    }
+
+    public long getEarlyRotations() {
+        return earlyRotations;
+    }
+}
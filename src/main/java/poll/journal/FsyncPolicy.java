@@ -0,0 +1,11 @@
+package poll.journal;
+
+public enum FsyncPolicy {
+    // Every append waits until it is forced to disk. Appends waiting at the same time share one force.
+    ALWAYS,
+    // A background thread forces the journal to disk on a fixed interval.
+    INTERVAL,
+    // The journal is never forced, so the operating system decides when pages reach the disk.
+    // Records still survive the application crashing, but not the machine.
+    NONE
+}
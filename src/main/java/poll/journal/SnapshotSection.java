@@ -0,0 +1,22 @@
+// State kept alongside the poll that is saved in its snapshots, living in the journal sub-package.
+// Any bean implementing it is written into each snapshot under its name, after the members, and read back
+// when the snapshot is restored, before the journal after it is replayed.
+
+package poll.journal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+public interface SnapshotSection {
+
+    // The name the section is stored under, unique among the sections. A snapshot section that no bean
+    // reads any more is skipped.
+    String getSectionName();
+
+    // Called while the snapshot is written. Changes journaled afterwards are replayed over what was written.
+    void writeSection(DataOutputStream output) throws IOException;
+
+    // Called once the snapshot's members are restored, with the stream holding what writeSection wrote.
+    void readSection(DataInputStream input) throws IOException;
+}
@@ -0,0 +1,595 @@
+// Periodic snapshots of the poll, living in the journal sub-package.
+// A snapshot records the candidates, their tallies and every member's vote, so that startup only
+// has to replay the journal written after it. Only created when poll.journal.enabled=true.
+
+package poll.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollService;
+import poll.service.PollSnapshot;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+@Component
+@ConditionalOnProperty(name = "poll.journal.enabled", havingValue = "true")
+public class TallySnapshotter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TallySnapshotter.class);
+
+    // File layout:
+    //   header:  int MAGIC, int VERSION, long journalPosition, long createdAt, boolean pollOpen
+    //   candidates: int count, then each candidate's scientificName, commonName and description
+    //   member groups, each of up to GROUP_SIZE members stored column by column:
+    //     int size, then membershipIds, names, regions, ages (int) and votes (int candidate index, -1 for none)
+    //   int 0 to end the groups
+    //   tallies: a long per candidate, in candidate order
+    //   sections, each true, then its name and its contents in chunks of int size and bytes, ending with size 0
+    //   false to end the sections
+    //   trailer: long member count, then the CRC32 of everything before it as a long
+    private static final int MAGIC = 0x504f4c4c;
+    private static final int VERSION = 1;
+    private static final int GROUP_SIZE = 65_536;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    // The number of snapshots to keep, so an older one can be used if the newest turns out unreadable.
+    private static final int SNAPSHOTS_KEPT = 2;
+
+    private final PollService pollService;
+    private final VoteJournal voteJournal;
+    private final ObjectProvider<SnapshotSection> sections;
+    private final Path directory;
+
+    // The journal position of the last snapshot written, so an idle poll isn't snapshotted again.
+    private volatile long lastSnapshotPosition = -1;
+
+    /**
+     * This constructor will set up the snapshots of a poll, stored alongside its journal.
+     *
+     * @param pollService The Poll Service object to snapshot.
+     * @param voteJournal The journal whose tail is replayed after a snapshot is loaded.
+     * @param sections The state saved alongside the poll in each snapshot.
+     * @param directory The directory holding the journal and snapshot files.
+     */
+    public TallySnapshotter(PollService pollService, VoteJournal voteJournal, ObjectProvider<SnapshotSection> sections,
+                            @Value("${poll.journal.directory:journal}") String directory) {
+        this.pollService = pollService;
+        this.voteJournal = voteJournal;
+        this.sections = sections;
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * This method will write a snapshot on a fixed schedule, if anything was journaled since the last one.
+     */
+    @Scheduled(fixedDelayString = "${poll.snapshot.interval-ms:60000}",
+            initialDelayString = "${poll.snapshot.interval-ms:60000}")
+    public void scheduledSnapshot() {
+        if (voteJournal.position() == lastSnapshotPosition) {
+            return;
+        }
+        try {
+            writeSnapshot();
+        } catch (IOException exception) {
+            logger.error("Could not write a poll snapshot", exception);
+        }
+    }
+
+    /**
+     * This method will write a snapshot of the poll, then delete older snapshots and journal segments
+     * it makes unnecessary. Voting continues while it is written.
+     *
+     * @return The path of the snapshot file.
+     * @throws IOException The error, if the snapshot can't be written.
+     */
+    public synchronized Path writeSnapshot() throws IOException {
+        long start = System.nanoTime();
+        // Take the journal position before opening the snapshot. Any change the snapshot misses is
+        // then journaled after this position, and replaying a change it already holds does nothing.
+        long position = voteJournal.position();
+        Path path = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, position, SNAPSHOT_SUFFIX));
+        Path temporary = directory.resolve(path.getFileName() + ".tmp");
+
+        long members;
+        try (PollSnapshot snapshot = pollService.openSnapshot();
+             CheckedOutputStream checked = new CheckedOutputStream(
+                     new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE), new CRC32());
+             DataOutputStream output = new DataOutputStream(checked)) {
+            members = write(snapshot, position, output);
+            output.writeLong(checked.getChecksum().getValue());
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lastSnapshotPosition = position;
+
+        logger.info("Wrote a snapshot of {} members at journal position {} in {} ms", members, position,
+                (System.nanoTime() - start) / 1_000_000);
+        deleteOldFiles();
+        return path;
+    }
+
+    /**
+     * This method will rebuild the poll from the newest readable snapshot, then replay the journal after it.
+     * With no snapshot, the whole journal is replayed.
+     *
+     * @return The number of members restored from the snapshot.
+     * @throws IOException The error, if the journal can't be read.
+     */
+    public long restore() throws IOException {
+        List<Path> snapshots = listSnapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path path = snapshots.get(i);
+            if (!isIntact(path)) {
+                logger.warn("Skipping damaged snapshot {}", path);
+                continue;
+            }
+
+            long start = System.nanoTime();
+            long[] positionAndMembers = voteJournal.withoutAppending(() -> read(path));
+            long loaded = System.nanoTime();
+            long records = voteJournal.replay(pollService, positionAndMembers[0]);
+            lastSnapshotPosition = positionAndMembers[0];
+
+            logger.info("Restored {} members from snapshot in {} ms, then replayed {} journal records in {} ms",
+                    positionAndMembers[1], (loaded - start) / 1_000_000, records,
+                    (System.nanoTime() - loaded) / 1_000_000);
+            return positionAndMembers[1];
+        }
+
+        long start = System.nanoTime();
+        long records = voteJournal.replay(pollService);
+        logger.info("Replayed {} journal records in {} ms", records, (System.nanoTime() - start) / 1_000_000);
+        return 0;
+    }
+
+    /**
+     * This method will write a snapshot's contents.
+     *
+     * @param snapshot The open snapshot of the poll.
+     * @param position The journal position the snapshot was taken at.
+     * @param output The stream to write to.
+     * @return The number of members written.
+     * @throws IOException The error, if the stream can't be written.
+     */
+    private long write(PollSnapshot snapshot, long position, DataOutputStream output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(position);
+        output.writeLong(System.currentTimeMillis());
+        output.writeBoolean(snapshot.isPollOpen());
+
+        List<Candidate> candidates = snapshot.getCandidates();
+        Map<Candidate, Integer> indexes = new IdentityHashMap<>();
+        output.writeInt(candidates.size());
+        for (Candidate candidate : candidates) {
+            indexes.put(candidate, indexes.size());
+            writeString(output, candidate.getScientificName());
+            writeString(output, candidate.getCommonName());
+            writeString(output, candidate.getDescription());
+        }
+
+        MemberGroup group = new MemberGroup();
+        long[] tallies = new long[candidates.size()];
+        long[] members = {0};
+        IOException[] failure = {null};
+        snapshot.forEachBallot((member, vote) -> {
+            if (failure[0] != null) {
+                return;
+            }
+            // A vote for a candidate removed since the snapshot opened is left out.
+            Integer index = vote == null ? null : indexes.get(vote);
+            if (index != null) {
+                tallies[index]++;
+            }
+            group.add(member, index == null ? -1 : index);
+            members[0]++;
+            if (group.size == GROUP_SIZE) {
+                try {
+                    group.write(output);
+                } catch (IOException exception) {
+                    failure[0] = exception;
+                }
+            }
+        });
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        group.write(output);
+        output.writeInt(0);
+
+        for (long tally : tallies) {
+            output.writeLong(tally);
+        }
+        for (SnapshotSection section : sections.orderedStream().collect(Collectors.toList())) {
+            output.writeBoolean(true);
+            output.writeUTF(section.getSectionName());
+            ChunkedOutputStream chunks = new ChunkedOutputStream(output);
+            DataOutputStream sectionOutput = new DataOutputStream(chunks);
+            section.writeSection(sectionOutput);
+            sectionOutput.flush();
+            chunks.finish();
+        }
+        output.writeBoolean(false);
+        output.writeLong(members[0]);
+        return members[0];
+    }
+
+    /**
+     * This method will load a snapshot into the poll service, replacing the candidates and adding every member.
+     *
+     * @param path The path of the snapshot file.
+     * @return The journal position the snapshot was taken at, and the number of members loaded.
+     * @throws IOException The error, if the snapshot can't be read.
+     */
+    private long[] read(Path path) throws IOException {
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a poll snapshot: " + path);
+            }
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported poll snapshot version " + version + ": " + path);
+            }
+            long position = input.readLong();
+            input.readLong();
+            boolean pollOpen = input.readBoolean();
+
+            // The snapshot's candidates replace the ones added at startup.
+            int candidateCount = input.readInt();
+            Candidate[] candidates = new Candidate[candidateCount];
+            Set<String> commonNames = new HashSet<>();
+            for (int i = 0; i < candidateCount; i++) {
+                String scientificName = readString(input);
+                String commonName = readString(input);
+                String description = readString(input);
+                if (!pollService.hasCandidate(commonName)) {
+                    pollService.addCandidate(new Candidate(scientificName, commonName, description));
+                }
+                candidates[i] = pollService.getCandidate(commonName);
+                commonNames.add(commonName);
+            }
+            for (Candidate candidate : pollService.getAllCandidates()) {
+                if (!commonNames.contains(candidate.getCommonName())) {
+                    pollService.removeCandidate(candidate.getCommonName());
+                }
+            }
+
+            // The tallies follow from the votes, so they are rebuilt rather than read.
+            long members = 0;
+            MemberGroup group = new MemberGroup();
+            // Regions repeat across members, so share one copy of each.
+            Map<String, String> regions = new HashMap<>();
+            while (group.read(input)) {
+                for (int i = 0; i < group.size; i++) {
+                    String region = group.regions[i] == null ? null
+                            : regions.computeIfAbsent(group.regions[i], key -> key);
+                    pollService.addMember(new Member(group.membershipIds[i], group.names[i], group.ages[i], region));
+                    if (group.votes[i] >= 0) {
+                        pollService.makeVote(group.membershipIds[i], candidates[group.votes[i]]);
+                    }
+                }
+                members += group.size;
+            }
+
+            // The tallies follow from the votes, so skip them to reach the sections.
+            skipFully(input, candidateCount * Long.BYTES);
+            readSections(input);
+
+            pollService.setPollOpen(pollOpen);
+            return new long[]{position, members};
+        }
+    }
+
+    /**
+     * This method will give each section in a snapshot to the bean that wrote it, skipping any without one.
+     *
+     * @param input The snapshot, positioned at the first section.
+     * @throws IOException The error, if a section can't be read.
+     */
+    private void readSections(DataInputStream input) throws IOException {
+        Map<String, SnapshotSection> readers = new HashMap<>();
+        sections.orderedStream().forEach(section -> readers.put(section.getSectionName(), section));
+        while (input.readBoolean()) {
+            String name = input.readUTF();
+            ChunkedInputStream chunks = new ChunkedInputStream(input);
+            SnapshotSection section = readers.get(name);
+            if (section == null) {
+                logger.warn("Skipping snapshot section {}, which nothing reads", name);
+            } else {
+                section.readSection(new DataInputStream(chunks));
+            }
+            chunks.skipRest();
+        }
+    }
+
+    /**
+     * This method will check a snapshot file is complete and undamaged by comparing its checksum.
+     *
+     * @param path The path of the snapshot file.
+     * @return The boolean value true if the snapshot can be loaded.
+     */
+    private boolean isIntact(Path path) {
+        try {
+            long size = Files.size(path);
+            if (size < Long.BYTES) {
+                return false;
+            }
+            CRC32 crc = new CRC32();
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream input = new CheckedInputStream(Files.newInputStream(path), crc)) {
+                long remaining = size - Long.BYTES;
+                while (remaining > 0) {
+                    int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                    if (read < 0) {
+                        return false;
+                    }
+                    remaining -= read;
+                }
+                // Take the checksum before reading the trailer, which the checked stream would add to it.
+                long actual = crc.getValue();
+                return new DataInputStream(input).readLong() == actual;
+            }
+        } catch (IOException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * This method will delete all but the newest snapshots, and the journal segments they no longer need.
+     *
+     * @throws IOException The error, if a file can't be deleted.
+     */
+    private void deleteOldFiles() throws IOException {
+        List<Path> snapshots = listSnapshots();
+        if (snapshots.size() < SNAPSHOTS_KEPT) {
+            return;
+        }
+        for (Path path : snapshots.subList(0, snapshots.size() - SNAPSHOTS_KEPT)) {
+            Files.delete(path);
+        }
+        Path oldestKept = snapshots.get(snapshots.size() - SNAPSHOTS_KEPT);
+        voteJournal.deleteSegmentsBefore(snapshotPosition(oldestKept));
+    }
+
+    /**
+     * This method will list the snapshot files, oldest first.
+     *
+     * @return The paths of the snapshot files.
+     * @throws IOException The error, if the directory can't be listed.
+     */
+    public List<Path> listSnapshots() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static long snapshotPosition(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    private static void skipFully(DataInputStream input, int length) throws IOException {
+        while (length > 0) {
+            int skipped = input.skipBytes(length);
+            if (skipped == 0) {
+                // Either the end of the file, or a stream that only skips what it has buffered.
+                input.readByte();
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        output.writeBoolean(string != null);
+        if (string != null) {
+            output.writeUTF(string);
+        }
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    // Writes a section in chunks, each preceded by its size, so it can be skipped without knowing its layout,
+    // yet written without holding all of it in memory.
+    private static class ChunkedOutputStream extends OutputStream {
+        private final DataOutputStream output;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int size;
+
+        private ChunkedOutputStream(DataOutputStream output) {
+            this.output = output;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (size == buffer.length) {
+                writeChunk();
+            }
+            buffer[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (size == buffer.length) {
+                    writeChunk();
+                }
+                int copied = Math.min(length, buffer.length - size);
+                System.arraycopy(bytes, offset, buffer, size, copied);
+                size += copied;
+                offset += copied;
+                length -= copied;
+            }
+        }
+
+        // Writes what is left and the empty chunk ending the section, leaving the snapshot stream open.
+        private void finish() throws IOException {
+            writeChunk();
+            output.writeInt(0);
+        }
+
+        private void writeChunk() throws IOException {
+            if (size > 0) {
+                output.writeInt(size);
+                output.write(buffer, 0, size);
+                size = 0;
+            }
+        }
+    }
+
+    // Reads a section written by ChunkedOutputStream, ending at its last chunk.
+    private static class ChunkedInputStream extends InputStream {
+        private final DataInputStream input;
+        private int remaining;
+        private boolean ended;
+
+        private ChunkedInputStream(DataInputStream input) {
+            this.input = input;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            remaining--;
+            int b = input.read();
+            if (b < 0) {
+                throw new IOException("Snapshot section ends early");
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!nextChunk()) {
+                return -1;
+            }
+            int read = input.read(bytes, offset, Math.min(length, remaining));
+            if (read < 0) {
+                throw new IOException("Snapshot section ends early");
+            }
+            remaining -= read;
+            return read;
+        }
+
+        // Skips whatever the section's reader left, so the snapshot stream is at the next section.
+        private void skipRest() throws IOException {
+            while (nextChunk()) {
+                skipFully(input, remaining);
+                remaining = 0;
+            }
+        }
+
+        private boolean nextChunk() throws IOException {
+            if (remaining == 0 && !ended) {
+                remaining = input.readInt();
+                ended = remaining == 0;
+            }
+            return !ended;
+        }
+    }
+
+    // A group of members held column by column while being written or read.
+    private static class MemberGroup {
+        private final String[] membershipIds = new String[GROUP_SIZE];
+        private final String[] names = new String[GROUP_SIZE];
+        private final String[] regions = new String[GROUP_SIZE];
+        private final int[] ages = new int[GROUP_SIZE];
+        private final int[] votes = new int[GROUP_SIZE];
+        private int size;
+
+        private void add(Member member, int vote) {
+            membershipIds[size] = member.getMembershipId();
+            names[size] = member.getName();
+            regions[size] = member.getRegionOfScotland();
+            ages[size] = member.getAge();
+            votes[size] = vote;
+            size++;
+        }
+
+        private void write(DataOutputStream output) throws IOException {
+            if (size == 0) {
+                return;
+            }
+            output.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                writeString(output, membershipIds[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                writeString(output, names[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                writeString(output, regions[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                output.writeInt(ages[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                output.writeInt(votes[i]);
+            }
+            size = 0;
+        }
+
+        private boolean read(DataInputStream input) throws IOException {
+            size = input.readInt();
+            if (size == 0) {
+                return false;
+            }
+            for (int i = 0; i < size; i++) {
+                membershipIds[i] = readString(input);
+            }
+            for (int i = 0; i < size; i++) {
+                names[i] = readString(input);
+            }
+            for (int i = 0; i < size; i++) {
+                regions[i] = readString(input);
+            }
+            for (int i = 0; i < size; i++) {
+                ages[i] = input.readInt();
+            }
+            for (int i = 0; i < size; i++) {
+                votes[i] = input.readInt();
+            }
+            return true;
+        }
+    }
+}
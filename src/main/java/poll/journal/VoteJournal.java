@@ -0,0 +1,788 @@
+// An append-only journal of every change to the poll, living in the journal sub-package.
+// Records are written into memory-mapped segment files, and replayed on startup to rebuild the poll.
+// Only created when poll.journal.enabled=true.
+
+package poll.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollListener;
+import poll.service.PollService;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+@Component
+@ConditionalOnProperty(name = "poll.journal.enabled", havingValue = "true")
+public class VoteJournal implements PollListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(VoteJournal.class);
+
+    // Record types, stored as the first byte of each record's body.
+    static final byte CANDIDATE_ADDED = 1;
+    static final byte CANDIDATE_REMOVED = 2;
+    static final byte MEMBER_ADDED = 3;
+    static final byte VOTE = 4;
+    static final byte RETRACT = 5;
+    static final byte POLL_OPENED = 6;
+    static final byte POLL_CLOSED = 7;
+    // The replicated state of the poll, journaled by the vote replicator so it is rebuilt rather than re-stamped.
+    static final byte REPLICA_BALLOT = 8;
+    static final byte REPLICA_COUNTS = 9;
+
+    // The number of string fields, whether there is an int field, and the number of long fields after it,
+    // for each record type.
+    private static final int[] STRING_FIELDS = {0, 3, 1, 3, 2, 1, 0, 0, 3, 2};
+    private static final boolean[] NUMBER_FIELD =
+            {false, false, false, true, false, false, false, false, false, false};
+    private static final int[] LONG_FIELDS = {0, 0, 0, 0, 0, 0, 0, 0, 1, 2};
+
+    // Each record is [int bodyLength][int crc32 of body][byte type][long timestamp][fields...].
+    // The length is written last, so a record only becomes visible once it is complete.
+    private static final int HEADER_SIZE = 8;
+    // Written in place of a length when the rest of a segment is too small for the next record.
+    private static final int END_OF_SEGMENT = -1;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+
+    // Guards the segment being appended to.
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // Held while forcing, so appends waiting for the disk at the same time share one force.
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private final CRC32 checksum = new CRC32();
+
+    // The segment currently being appended to, guarded by appendLock.
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentBase;
+    private int writeOffset;
+
+    // The journal positions appended and forced to disk so far.
+    private volatile long writtenPosition;
+    private volatile long durablePosition;
+
+    // The thread replaying the journal, whose changes must not be appended again.
+    private volatile Thread replayThread;
+    // Given the replicated state as it is replayed, if the poll is replicated.
+    private volatile ReplicaListener replicaListener;
+
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * This constructor will open the journal directory, find the end of the last segment, and start
+     * listening to the poll service for changes to append.
+     *
+     * @param pollService The Poll Service object whose changes are journaled.
+     * @param directory The directory holding the segment files.
+     * @param segmentSize The size in bytes of each new segment file, unless a record needs a larger one.
+     * @param fsyncPolicy When appended records are forced to disk.
+     * @param fsyncIntervalMs The time between forces with the INTERVAL policy.
+     * @throws IOException The error, if the journal can't be opened.
+     */
+    public VoteJournal(PollService pollService,
+                       @Value("${poll.journal.directory:journal}") String directory,
+                       @Value("${poll.journal.segment-size:67108864}") int segmentSize,
+                       @Value("${poll.journal.fsync:interval}") FsyncPolicy fsyncPolicy,
+                       @Value("${poll.journal.fsync-interval-ms:100}") long fsyncIntervalMs) throws IOException {
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+
+        Files.createDirectories(this.directory);
+        openLastSegment();
+        writtenPosition = segmentBase + writeOffset;
+        durablePosition = writtenPosition;
+
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "vote-journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(() -> sync(writtenPosition), fsyncIntervalMs, fsyncIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+
+        pollService.addListener(this);
+    }
+
+    /**
+     * This method will rebuild the poll by applying every record in the journal to the poll service.
+     * Records only describe the state after each change, so applying one that is already reflected
+     * in the poll service does nothing.
+     *
+     * @param pollService The Poll Service object to rebuild.
+     * @return The number of records replayed.
+     * @throws IOException The error, if a segment can't be read.
+     */
+    public long replay(PollService pollService) throws IOException {
+        return replay(pollService, 0);
+    }
+
+    /**
+     * This method will rebuild the poll by applying the records from a journal position onwards.
+     *
+     * @param pollService The Poll Service object to rebuild.
+     * @param fromPosition The journal position to start replaying from.
+     * @return The number of records replayed.
+     * @throws IOException The error, if a segment can't be read.
+     */
+    public long replay(PollService pollService, long fromPosition) throws IOException {
+        return withoutAppending(() -> {
+            long records = 0;
+            for (Path path : listSegments()) {
+                long base = segmentBase(path);
+                try (FileChannel readChannel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    if (base + readChannel.size() <= fromPosition) {
+                        continue;
+                    }
+                    ByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                    long[] replayed = {0};
+                    readRecords(buffer, (offset, type, body) -> {
+                        if (base + offset >= fromPosition) {
+                            apply(pollService, type, body);
+                            replayed[0]++;
+                        }
+                    });
+                    records += replayed[0];
+                }
+            }
+            return records;
+        });
+    }
+
+    /**
+     * This method will run a task that rebuilds the poll, without appending the changes it makes on
+     * this thread to the journal. Changes made by other threads meanwhile are still appended.
+     *
+     * @param task The task to run.
+     * @param <T> The type of the task's result.
+     * @return The task's result.
+     * @throws IOException The error, if the task fails to read what it rebuilds from.
+     */
+    public <T> T withoutAppending(RebuildTask<T> task) throws IOException {
+        replayThread = Thread.currentThread();
+        try {
+            return task.run();
+        } finally {
+            replayThread = null;
+        }
+    }
+
+    /**
+     * This method will determine if the current thread is rebuilding the poll, from the journal or a snapshot.
+     *
+     * @return The boolean value true if the changes made on this thread are being replayed.
+     */
+    public boolean isReplaying() {
+        return replayThread == Thread.currentThread();
+    }
+
+    /**
+     * This method will set the listener given the replicated state journaled with appendReplicaBallot and
+     * appendReplicaCounts, as it is replayed.
+     *
+     * @param listener The listener, which replaces any set before.
+     */
+    public void setReplicaListener(ReplicaListener listener) {
+        replicaListener = listener;
+    }
+
+    /**
+     * This method will append a member's winning replicated ballot.
+     *
+     * @param membershipId The membership identifier of the member.
+     * @param commonName The common name of the candidate voted for, or null for a retraction.
+     * @param nodeId The identifier of the node the ballot was made on.
+     * @param timestamp The hybrid logical timestamp of the ballot.
+     */
+    public void appendReplicaBallot(String membershipId, String commonName, String nodeId, long timestamp) {
+        append(REPLICA_BALLOT, membershipId, commonName, nodeId, 0, timestamp, 0);
+    }
+
+    /**
+     * This method will append a node's counts of a candidate's replicated tally.
+     *
+     * @param commonName The common name of the candidate.
+     * @param nodeId The identifier of the node the counts belong to.
+     * @param increments The node's increments.
+     * @param decrements The node's decrements.
+     */
+    public void appendReplicaCounts(String commonName, String nodeId, long increments, long decrements) {
+        append(REPLICA_COUNTS, commonName, nodeId, null, 0, increments, decrements);
+    }
+
+    /**
+     * This method will get the directory holding the segment files.
+     *
+     * @return The directory.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * This method will delete the segments that only hold records before a journal position,
+     * once they are covered by a snapshot. The segment being appended to is always kept.
+     *
+     * @param position The journal position that replay will start from.
+     * @throws IOException The error, if a segment can't be deleted.
+     */
+    public void deleteSegmentsBefore(long position) throws IOException {
+        List<Path> segments = listSegments();
+        for (Path path : segments.subList(0, Math.max(0, segments.size() - 1))) {
+            if (segmentBase(path) + Files.size(path) <= position) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * This method will get the position just past the last appended record.
+     *
+     * @return The journal position.
+     */
+    public long position() {
+        return writtenPosition;
+    }
+
+    @Override
+    public void onCandidateAdded(Candidate candidate) {
+        append(CANDIDATE_ADDED, candidate.getScientificName(), candidate.getCommonName(), candidate.getDescription(),
+                0, 0, 0);
+    }
+
+    @Override
+    public void onCandidateRemoved(Candidate candidate) {
+        append(CANDIDATE_REMOVED, candidate.getCommonName(), null, null, 0, 0, 0);
+    }
+
+    @Override
+    public void onMemberAdded(Member member) {
+        append(MEMBER_ADDED, member.getMembershipId(), member.getName(), member.getRegionOfScotland(), member.getAge(),
+                0, 0);
+    }
+
+    @Override
+    public void onVote(Member voter, Candidate lastVote, Candidate newVote) {
+        append(VOTE, voter.getMembershipId(), newVote.getCommonName(), null, 0, 0, 0);
+    }
+
+    @Override
+    public void onRetract(Member voter, Candidate lastVote) {
+        append(RETRACT, voter.getMembershipId(), null, null, 0, 0, 0);
+    }
+
+    @Override
+    public void onPollStatusChanged(boolean pollOpen) {
+        append(pollOpen ? POLL_OPENED : POLL_CLOSED, null, null, null, 0, 0, 0);
+    }
+
+    /**
+     * This method will force everything appended so far to disk and stop the background flusher.
+     */
+    @PreDestroy
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        sync(writtenPosition);
+        appendLock.lock();
+        try {
+            channel.close();
+        } catch (IOException exception) {
+            logger.warn("Could not close the vote journal", exception);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * This method will append a record to the journal. Strings are encoded straight into the mapped
+     * segment, so nothing is allocated unless a new segment has to be created.
+     *
+     * @param type The record type, which decides how many of the fields are written.
+     * @param first The first string field.
+     * @param second The second string field.
+     * @param third The third string field.
+     * @param number The int field.
+     * @param firstLong The first long field.
+     * @param secondLong The second long field.
+     */
+    private void append(byte type, String first, String second, String third, int number, long firstLong,
+                        long secondLong) {
+        if (replayThread == Thread.currentThread()) {
+            return;
+        }
+        int fields = STRING_FIELDS[type];
+        int bodyLength = 1 + Long.BYTES
+                + (fields > 0 ? encodedSize(first) : 0)
+                + (fields > 1 ? encodedSize(second) : 0)
+                + (fields > 2 ? encodedSize(third) : 0)
+                + (NUMBER_FIELD[type] ? Integer.BYTES : 0)
+                + LONG_FIELDS[type] * Long.BYTES;
+
+        long end;
+        appendLock.lock();
+        try {
+            if (writeOffset + HEADER_SIZE + bodyLength > segment.capacity()) {
+                roll(HEADER_SIZE + bodyLength);
+            }
+            int start = writeOffset + HEADER_SIZE;
+            int index = start;
+            segment.put(index++, type);
+            segment.putLong(index, System.currentTimeMillis());
+            index += Long.BYTES;
+            if (fields > 0) {
+                index = putString(index, first);
+            }
+            if (fields > 1) {
+                index = putString(index, second);
+            }
+            if (fields > 2) {
+                index = putString(index, third);
+            }
+            if (NUMBER_FIELD[type]) {
+                segment.putInt(index, number);
+                index += Integer.BYTES;
+            }
+            if (LONG_FIELDS[type] > 0) {
+                segment.putLong(index, firstLong);
+                index += Long.BYTES;
+            }
+            if (LONG_FIELDS[type] > 1) {
+                segment.putLong(index, secondLong);
+                index += Long.BYTES;
+            }
+
+            checksum.reset();
+            segment.limit(index).position(start);
+            checksum.update(segment);
+            segment.clear();
+            segment.putInt(writeOffset + Integer.BYTES, (int) checksum.getValue());
+            // Commit the record by writing its length last.
+            segment.putInt(writeOffset, bodyLength);
+
+            writeOffset = index;
+            end = segmentBase + writeOffset;
+            writtenPosition = end;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            appendLock.unlock();
+        }
+
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            sync(end);
+        }
+    }
+
+    /**
+     * This method will force the journal to disk up to at least a given position. Whoever holds the
+     * force lock covers everything appended so far, so threads queued behind them usually return
+     * without forcing again.
+     *
+     * @param position The journal position that must be durable.
+     */
+    private void sync(long position) {
+        if (durablePosition >= position) {
+            return;
+        }
+        forceLock.lock();
+        try {
+            if (durablePosition >= position) {
+                return;
+            }
+            long target;
+            MappedByteBuffer current;
+            appendLock.lock();
+            try {
+                target = segmentBase + writeOffset;
+                current = segment;
+            } finally {
+                appendLock.unlock();
+            }
+            // Earlier segments were forced when they were rolled over.
+            current.force();
+            durablePosition = target;
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**
+     * This method will close the current segment and start a new one. Must hold the append lock.
+     * A record larger than a segment gets a segment of its own size, as by the time it is appended the
+     * change it records has already been made.
+     *
+     * @param recordSize The size of the record that didn't fit.
+     * @throws IOException The error, if the new segment can't be created.
+     */
+    private void roll(int recordSize) throws IOException {
+        if (writeOffset + Integer.BYTES <= segment.capacity()) {
+            segment.putInt(writeOffset, END_OF_SEGMENT);
+        }
+        if (fsyncPolicy != FsyncPolicy.NONE) {
+            segment.force();
+        }
+        channel.close();
+        openSegment(segmentBase + segment.capacity(), Math.max(segmentSize, recordSize));
+    }
+
+    /**
+     * This method will open the newest segment, or create the first one, and find where appending resumes.
+     * A record that was only partly written when the application stopped is wiped.
+     *
+     * @throws IOException The error, if a segment can't be opened.
+     */
+    private void openLastSegment() throws IOException {
+        List<Path> segments = listSegments();
+        if (segments.isEmpty()) {
+            openSegment(0, segmentSize);
+            return;
+        }
+
+        Path last = segments.get(segments.size() - 1);
+        segmentBase = segmentBase(last);
+        channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        writeOffset = readRecords(segment, null);
+
+        if (writeOffset + Integer.BYTES <= segment.capacity() && segment.getInt(writeOffset) == END_OF_SEGMENT) {
+            channel.close();
+            openSegment(segmentBase + segment.capacity(), segmentSize);
+            return;
+        }
+        // Zero anything after the last complete record, so it can't be mistaken for a record later.
+        for (int index = writeOffset; index < segment.capacity(); index++) {
+            if (segment.get(index) != 0) {
+                logger.warn("Discarding a partly written record at journal position {}", segmentBase + writeOffset);
+                for (int wipe = writeOffset; wipe < segment.capacity(); wipe++) {
+                    segment.put(wipe, (byte) 0);
+                }
+                segment.force();
+                break;
+            }
+        }
+    }
+
+    /**
+     * This method will create and map a new, empty segment. Must hold the append lock, or be constructing.
+     *
+     * @param base The journal position of the segment's first byte.
+     * @param size The size in bytes of the segment.
+     * @throws IOException The error, if the segment can't be created.
+     */
+    private void openSegment(long base, int size) throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, base, SEGMENT_SUFFIX));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        segmentBase = base;
+        writeOffset = 0;
+    }
+
+    /**
+     * This method will list the segment files in the order they were written.
+     *
+     * @return The paths of the segment files.
+     * @throws IOException The error, if the directory can't be listed.
+     */
+    public List<Path> listSegments() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }).sorted().collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * This method will get the journal position of a segment's first byte from its file name.
+     *
+     * @param path The path of the segment file.
+     * @return The journal position.
+     */
+    static long segmentBase(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * This method will read the complete, uncorrupted records at the start of a segment.
+     *
+     * @param buffer The segment's contents.
+     * @param handler The handler given each record, or null to only find the end.
+     * @return The offset just past the last valid record.
+     */
+    static int readRecords(ByteBuffer buffer, RecordHandler handler) {
+        CRC32 crc = new CRC32();
+        int offset = 0;
+        while (offset + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_SIZE + length > buffer.capacity()) {
+                break;
+            }
+            ByteBuffer body = buffer.duplicate();
+            body.limit(offset + HEADER_SIZE + length).position(offset + HEADER_SIZE);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(offset + Integer.BYTES)) {
+                break;
+            }
+            if (handler != null) {
+                byte type = body.get();
+                body.getLong();
+                handler.onRecord(offset, type, body);
+            }
+            offset += HEADER_SIZE + length;
+        }
+        return offset;
+    }
+
+    /**
+     * This method will apply a record to the poll service, ignoring anything that no longer applies,
+     * such as a vote for a candidate that has since been removed.
+     *
+     * @param pollService The Poll Service object to rebuild.
+     * @param type The record type.
+     * @param body The record's fields, positioned after the timestamp.
+     */
+    private void apply(PollService pollService, byte type, ByteBuffer body) {
+        switch (type) {
+            case CANDIDATE_ADDED: {
+                String scientificName = getString(body);
+                String commonName = getString(body);
+                String description = getString(body);
+                if (!pollService.hasCandidate(commonName)) {
+                    pollService.addCandidate(new Candidate(scientificName, commonName, description));
+                }
+                break;
+            }
+            case CANDIDATE_REMOVED:
+                pollService.removeCandidate(getString(body));
+                break;
+            case MEMBER_ADDED: {
+                String membershipId = getString(body);
+                String name = getString(body);
+                String regionOfScotland = getString(body);
+                int age = body.getInt();
+                pollService.addMember(new Member(membershipId, name, age, regionOfScotland));
+                break;
+            }
+            case VOTE: {
+                String membershipId = getString(body);
+                Candidate candidate = pollService.getCandidate(getString(body));
+                if (candidate != null && pollService.hasMember(membershipId)) {
+                    pollService.makeVote(membershipId, candidate);
+                }
+                break;
+            }
+            case RETRACT: {
+                String membershipId = getString(body);
+                if (pollService.hasMember(membershipId)) {
+                    pollService.retractVote(membershipId);
+                }
+                break;
+            }
+            case POLL_OPENED:
+                pollService.setPollOpen(true);
+                break;
+            case POLL_CLOSED:
+                pollService.setPollOpen(false);
+                break;
+            case REPLICA_BALLOT: {
+                String membershipId = getString(body);
+                String commonName = getString(body);
+                String nodeId = getString(body);
+                long timestamp = body.getLong();
+                ReplicaListener listener = replicaListener;
+                if (listener != null) {
+                    listener.onBallotReplayed(membershipId, commonName, nodeId, timestamp);
+                }
+                break;
+            }
+            case REPLICA_COUNTS: {
+                String commonName = getString(body);
+                String nodeId = getString(body);
+                long increments = body.getLong();
+                long decrements = body.getLong();
+                ReplicaListener listener = replicaListener;
+                if (listener != null) {
+                    listener.onCountsReplayed(commonName, nodeId, increments, decrements);
+                }
+                break;
+            }
+            default:
+                logger.warn("Skipping journal record of unknown type {}", type);
+        }
+    }
+
+    /**
+     * This method will write a string as a variable-length size, where 0 means null, followed by its UTF-8 bytes.
+     *
+     * @param index The offset in the segment to write at.
+     * @param string The string to write.
+     * @return The offset just past the string.
+     */
+    private int putString(int index, String string) {
+        if (string == null) {
+            segment.put(index, (byte) 0);
+            return index + 1;
+        }
+        index = putVarint(index, utf8Length(string) + 1);
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                segment.put(index++, (byte) c);
+            } else if (c < 0x800) {
+                segment.put(index++, (byte) (0xC0 | (c >> 6)));
+                segment.put(index++, (byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < string.length()
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                segment.put(index++, (byte) (0xF0 | (codePoint >> 18)));
+                segment.put(index++, (byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                segment.put(index++, (byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                segment.put(index++, (byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // An unpaired surrogate can't be encoded, so replace it as the standard encoder would.
+                segment.put(index++, (byte) '?');
+            } else {
+                segment.put(index++, (byte) (0xE0 | (c >> 12)));
+                segment.put(index++, (byte) (0x80 | ((c >> 6) & 0x3F)));
+                segment.put(index++, (byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * This method will write an unsigned variable-length int, seven bits per byte.
+     *
+     * @param index The offset in the segment to write at.
+     * @param value The value to write.
+     * @return The offset just past the value.
+     */
+    private int putVarint(int index, int value) {
+        while ((value & ~0x7F) != 0) {
+            segment.put(index++, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        segment.put(index++, (byte) value);
+        return index;
+    }
+
+    /**
+     * This method will read a string written by putString.
+     *
+     * @param body The record's fields, positioned at the string.
+     * @return The string, or null.
+     */
+    private static String getString(ByteBuffer body) {
+        int size = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = body.get();
+            size |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        if (size == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[size - 1];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * This method will get the number of bytes putString uses for a string.
+     *
+     * @param string The string to measure.
+     * @return The size in bytes.
+     */
+    private static int encodedSize(String string) {
+        if (string == null) {
+            return 1;
+        }
+        int length = utf8Length(string);
+        return varintSize(length + 1) + length;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int utf8Length(String string) {
+        int length = 0;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < string.length()
+                    && Character.isLowSurrogate(string.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    // Receives each record read from a segment.
+    interface RecordHandler {
+        void onRecord(int offset, byte type, ByteBuffer body);
+    }
+
+    // Receives the replicated state of the poll as it is replayed. Journaled states may be older than ones
+    // already restored, such as from a snapshot, so they must be merged rather than applied in turn.
+    public interface ReplicaListener {
+        void onBallotReplayed(String membershipId, String commonName, String nodeId, long timestamp);
+
+        void onCountsReplayed(String commonName, String nodeId, long increments, long decrements);
+    }
+
+    // Rebuilds some of the poll, such as from the journal or a snapshot.
+    public interface RebuildTask<T> {
+        T run() throws IOException;
+    }
+}
@@ -0,0 +1,74 @@
+// Looks up members in the society's registry over HTTP, living in the membership sub-package.
+// Selected with poll.membership.registry=http, which is the default.
+
+package poll.membership;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+@Component
+@ConditionalOnProperty(name = "poll.membership.registry", havingValue = "http", matchIfMissing = true)
+public class HttpMembershipRegistry implements MembershipRegistry {
+
+    private final ObjectMapper objectMapper;
+    private final String url;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    /**
+     * This constructor will set up a client of the registry at a URL.
+     *
+     * @param objectMapper The JSON mapper configured by Spring.
+     * @param url The URL of the registry, which the membership identifier is appended to.
+     * @param timeoutMs The time to wait for the registry to connect, and then to answer.
+     */
+    public HttpMembershipRegistry(ObjectMapper objectMapper,
+                                  @Value("${poll.membership.registry-url:https://pmaier.eu.pythonanywhere.com/sawb/member/}") String url,
+                                  @Value("${poll.membership.timeout-ms:2000}") long timeoutMs) {
+        this.objectMapper = objectMapper;
+        this.url = url;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public String findName(String membershipId) throws IOException {
+        URI uri = URI.create(url + URLEncoder.encode(membershipId, StandardCharsets.UTF_8));
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .GET()
+                .build();
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while looking up a member", exception);
+        }
+
+        try (InputStream body = response.body()) {
+            // The registry answers 200 for members, and a client error for anyone else.
+            if (response.statusCode() >= 400 && response.statusCode() < 500) {
+                return null;
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("The membership registry answered " + response.statusCode());
+            }
+            JsonNode name = objectMapper.readTree(body).path("member").path("name");
+            return name.isTextual() ? name.asText() : null;
+        }
+    }
+}
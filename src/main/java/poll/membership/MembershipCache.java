@@ -0,0 +1,271 @@
+// A bounded cache of membership registry lookups, living in the membership sub-package.
+// Members and non-members are both cached, concurrent lookups of the same member share one call to the
+// registry, and members are refreshed in the background before they expire, so votes rarely wait on it.
+// Lookups queue for a bounded pool, so while the registry is down the backlog can't grow without limit;
+// a lookup that finds the queue full is answered UNAVAILABLE at once.
+
+package poll.membership;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class MembershipCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MembershipCache.class);
+
+    // The outcome of checking a member against the registry.
+    public enum Verdict {
+        REGISTERED,
+        NOT_REGISTERED,
+        UNAVAILABLE
+    }
+
+    private final MembershipRegistry registry;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final long waitMs;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // The members in the order they were first stored, oldest first, for evicting once the cache is full.
+    // A refreshed member keeps their place, so each member is queued once.
+    private final Queue<String> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    // The lookups being made or queued, so concurrent lookups of the same member wait on the same one.
+    private final Map<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService loader;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * This constructor will set up the cache in front of a registry.
+     *
+     * @param registry The membership registry looked up on a miss.
+     * @param maxSize The number of members held, before the oldest are evicted.
+     * @param ttlMs The time a registered member is trusted for.
+     * @param negativeTtlMs The time a member that isn't registered is remembered for.
+     * @param waitMs The time a request waits for the registry before giving up.
+     * @param loaderThreads The number of lookups made at once.
+     * @param loaderQueue The number of lookups that can wait for a loader thread, before more are turned away.
+     */
+    public MembershipCache(MembershipRegistry registry,
+                           @Value("${poll.membership.cache.max-size:100000}") int maxSize,
+                           @Value("${poll.membership.cache.ttl-ms:600000}") long ttlMs,
+                           @Value("${poll.membership.cache.negative-ttl-ms:60000}") long negativeTtlMs,
+                           @Value("${poll.membership.wait-ms:3000}") long waitMs,
+                           @Value("${poll.membership.loader-threads:8}") int loaderThreads,
+                           @Value("${poll.membership.loader-queue:1024}") int loaderQueue) {
+        this.registry = registry;
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMs);
+        this.waitMs = waitMs;
+        this.loader = new ThreadPoolExecutor(loaderThreads, loaderThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(loaderQueue), runnable -> {
+                    Thread thread = new Thread(runnable, "membership-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * This method will check a member is registered under the name they gave, ignoring case.
+     *
+     * @param membershipId The identifier of the member.
+     * @param name The name the member gave.
+     * @return The verdict, which is UNAVAILABLE if the registry couldn't answer in time, or too many lookups are
+     *         already waiting for it.
+     */
+    public Verdict verify(String membershipId, String name) {
+        Entry entry = cached(membershipId);
+        if (entry == null) {
+            misses.increment();
+            try {
+                entry = load(membershipId).get(waitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return Verdict.UNAVAILABLE;
+            } catch (ExecutionException | TimeoutException exception) {
+                return Verdict.UNAVAILABLE;
+            }
+        }
+        return verdict(entry, name);
+    }
+
+    /**
+     * This method will check a member is registered under the name they gave, without waiting for the
+     * registry on the calling thread.
+     *
+     * @param membershipId The identifier of the member.
+     * @param name The name the member gave.
+     * @return The verdict, completed at once from the cache, otherwise once the registry answers or the
+     *         wait runs out, in which case it is UNAVAILABLE.
+     */
+    public CompletableFuture<Verdict> verifyAsync(String membershipId, String name) {
+        Entry entry = cached(membershipId);
+        if (entry != null) {
+            return CompletableFuture.completedFuture(verdict(entry, name));
+        }
+        misses.increment();
+        // Time out a stage of its own, as the lookup itself may be shared with other requests.
+        return load(membershipId)
+                .thenApply(loaded -> verdict(loaded, name))
+                .exceptionally(exception -> Verdict.UNAVAILABLE)
+                .completeOnTimeout(Verdict.UNAVAILABLE, waitMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This method will get the counters of the cache.
+     *
+     * @return The counters so far, and the current size.
+     */
+    public MembershipCacheStats getStats() {
+        return new MembershipCacheStats(size.get(), hits.sum(), negativeHits.sum(), misses.sum(), coalesced.sum(),
+                loads.sum(), loadFailures.sum(), rejections.sum(), loadNanos.sum(), refreshes.sum(), evictions.sum());
+    }
+
+    @PreDestroy
+    public void close() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * This method will find a member's entry in the cache, refreshing it in the background past half its
+     * time to live.
+     *
+     * @param membershipId The identifier of the member.
+     * @return The entry, or null if the member isn't cached or has expired.
+     */
+    private Entry cached(String membershipId) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(membershipId);
+        if (entry == null || now - entry.expiresAt >= 0) {
+            return null;
+        }
+        if (entry.name == null) {
+            negativeHits.increment();
+        } else {
+            hits.increment();
+            // Refresh a member past half their time to live, while still answering from the cache.
+            if (now - entry.refreshAt >= 0 && !inFlight.containsKey(membershipId)) {
+                refreshes.increment();
+                load(membershipId);
+            }
+        }
+        return entry;
+    }
+
+    private static Verdict verdict(Entry entry, String name) {
+        if (entry.name == null || name == null || !entry.name.equalsIgnoreCase(name)) {
+            return Verdict.NOT_REGISTERED;
+        }
+        return Verdict.REGISTERED;
+    }
+
+    /**
+     * This method will start looking up a member in the registry, unless a lookup is already being made.
+     *
+     * @param membershipId The identifier of the member.
+     * @return The lookup, completed with the member's new entry.
+     */
+    private CompletableFuture<Entry> load(String membershipId) {
+        CompletableFuture<Entry> created = new CompletableFuture<>();
+        CompletableFuture<Entry> existing = inFlight.putIfAbsent(membershipId, created);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+
+        try {
+            loader.execute(() -> {
+                long start = System.nanoTime();
+                try {
+                    String name = registry.findName(membershipId);
+                    long now = System.nanoTime();
+                    Entry entry = name == null
+                            ? new Entry(membershipId, null, now + negativeTtlNanos, now + negativeTtlNanos)
+                            : new Entry(membershipId, name, now + ttlNanos, now + ttlNanos / 2);
+                    // Store the entry before the lookup is forgotten, so no lookup is repeated in between.
+                    store(entry);
+                    created.complete(entry);
+                } catch (Exception exception) {
+                    loadFailures.increment();
+                    LOGGER.warn("Membership lookup for {} failed: {}", membershipId, exception.toString());
+                    created.completeExceptionally(exception);
+                } finally {
+                    loads.increment();
+                    loadNanos.add(System.nanoTime() - start);
+                    inFlight.remove(membershipId, created);
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            // The queue is full, most likely because the registry is down, so don't wait behind it.
+            rejections.increment();
+            inFlight.remove(membershipId, created);
+            created.completeExceptionally(exception);
+        }
+        return created;
+    }
+
+    private void store(Entry entry) {
+        if (entries.put(entry.membershipId, entry) == null) {
+            size.incrementAndGet();
+            insertionOrder.add(entry.membershipId);
+        }
+
+        // Evict the oldest members.
+        while (size.get() > maxSize) {
+            String oldest = insertionOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            if (entries.remove(oldest) != null) {
+                size.decrementAndGet();
+                evictions.increment();
+            }
+        }
+    }
+
+    // A member's name from the registry, or null if they aren't registered, and when to stop trusting it.
+    private static class Entry {
+        private final String membershipId;
+        private final String name;
+        private final long expiresAt;
+        private final long refreshAt;
+
+        private Entry(String membershipId, String name, long expiresAt, long refreshAt) {
+            this.membershipId = membershipId;
+            this.name = name;
+            this.expiresAt = expiresAt;
+            this.refreshAt = refreshAt;
+        }
+    }
+}
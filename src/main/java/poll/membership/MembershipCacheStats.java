@@ -0,0 +1,97 @@
+// The counters of the membership cache, living in the membership sub-package.
+
+package poll.membership;
+
+public class MembershipCacheStats {
+
+    private final int size;
+    private final long hits;
+    private final long negativeHits;
+    private final long misses;
+    private final long coalesced;
+    private final long loads;
+    private final long loadFailures;
+    private final long rejections;
+    private final long loadNanos;
+    private final long refreshes;
+    private final long evictions;
+
+    /**
+     * This constructor will create the counters with all the attributes.
+     *
+     * @param size         The number of members in the cache.
+     * @param hits         The lookups answered with a registered member from the cache.
+     * @param negativeHits The lookups answered with a member that isn't registered from the cache.
+     * @param misses       The lookups that had to wait for the registry.
+     * @param coalesced    The lookups that shared a call to the registry already being made.
+     * @param loads        The calls made to the registry.
+     * @param loadFailures The calls to the registry that failed.
+     * @param rejections   The lookups turned away because too many were already waiting for the registry.
+     * @param loadNanos    The total time spent in calls to the registry.
+     * @param refreshes    The members refreshed in the background before they expired.
+     * @param evictions    The members evicted to keep the cache within its size.
+     */
+    public MembershipCacheStats(int size, long hits, long negativeHits, long misses, long coalesced, long loads,
+                                long loadFailures, long rejections, long loadNanos, long refreshes, long evictions) {
+        this.size = size;
+        this.hits = hits;
+        this.negativeHits = negativeHits;
+        this.misses = misses;
+        this.coalesced = coalesced;
+        this.loads = loads;
+        this.loadFailures = loadFailures;
+        this.rejections = rejections;
+        this.loadNanos = loadNanos;
+        this.refreshes = refreshes;
+        this.evictions = evictions;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getNegativeHits() {
+        return negativeHits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getLoads() {
+        return loads;
+    }
+
+    public long getLoadFailures() {
+        return loadFailures;
+    }
+
+    public long getRejections() {
+        return rejections;
+    }
+
+    public double getAverageLoadMs() {
+        return loads == 0 ? 0 : loadNanos / 1e6 / loads;
+    }
+
+    public long getRefreshes() {
+        return refreshes;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public double getHitRatio() {
+        long lookups = hits + negativeHits + misses;
+        return lookups == 0 ? 0 : (double) (hits + negativeHits) / lookups;
+    }
+}
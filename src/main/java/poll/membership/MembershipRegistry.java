@@ -0,0 +1,18 @@
+// A client of the society's membership registry, living in the membership sub-package.
+// Lookups may be slow, so they are made through the MembershipCache rather than on every request.
+
+package poll.membership;
+
+import java.io.IOException;
+
+public interface MembershipRegistry {
+
+    /**
+     * This method will look up the name a member is registered under.
+     *
+     * @param membershipId The identifier of the member to look up.
+     * @return The name the member is registered under, or null if they are not registered.
+     * @throws IOException The error, if the registry can't be reached or gives an unexpected answer.
+     */
+    String findName(String membershipId) throws IOException;
+}
@@ -0,0 +1,81 @@
+// A local stand-in for the membership registry, for tests and running without the real one,
+// living in the membership sub-package. Selected with poll.membership.registry=stub.
+
+package poll.membership;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+@ConditionalOnProperty(name = "poll.membership.registry", havingValue = "stub")
+public class StubMembershipRegistry implements MembershipRegistry {
+
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+    private final long latencyMs;
+    private final LongAdder lookups = new LongAdder();
+
+    /**
+     * This constructor will create a stub registry holding the members from configuration.
+     *
+     * @param members The registered members, as comma separated membershipId:name pairs.
+     * @param latencyMs The time each lookup takes, to act like a remote registry.
+     */
+    public StubMembershipRegistry(@Value("${poll.membership.stub.members:}") String members,
+                                  @Value("${poll.membership.stub.latency-ms:0}") long latencyMs) {
+        this.latencyMs = latencyMs;
+        for (String pair : members.split(",")) {
+            int separator = pair.indexOf(':');
+            if (separator > 0) {
+                register(pair.substring(0, separator).trim(), pair.substring(separator + 1).trim());
+            }
+        }
+    }
+
+    /**
+     * This method will register a member with the stub.
+     *
+     * @param membershipId The identifier of the member.
+     * @param name The name the member is registered under.
+     */
+    public void register(String membershipId, String name) {
+        names.put(membershipId, name);
+    }
+
+    /**
+     * This method will remove a member from the stub.
+     *
+     * @param membershipId The identifier of the member.
+     */
+    public void unregister(String membershipId) {
+        names.remove(membershipId);
+    }
+
+    /**
+     * This method will get the number of lookups made against the stub.
+     *
+     * @return The number of lookups so far.
+     */
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    @Override
+    public String findName(String membershipId) throws IOException {
+        lookups.increment();
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while looking up a member", exception);
+            }
+        }
+        return names.get(membershipId);
+    }
+}
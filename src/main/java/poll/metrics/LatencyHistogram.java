@@ -0,0 +1,112 @@
+// A log-linear latency histogram in the style of HdrHistogram, recording microseconds, living in the metrics
+// sub-package. Values below 2^precision are counted exactly; above that, each power of two is split into
+// 2^(precision - 1) buckets, so every value is kept to within 2^(1 - precision). Recording is a single
+// atomic increment into a fixed array, so it never allocates and is safe from many threads at once.
+
+package poll.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+public class LatencyHistogram {
+
+    // Values are capped at 2^40 microseconds, about twelve days.
+    private static final int MAX_VALUE_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+
+    private final int subBucketBits;
+    private final int subBuckets;
+    private final int halfSubBuckets;
+    private final AtomicLongArray counts;
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * This constructor will create an empty histogram.
+     *
+     * @param precision The number of bits each value is kept to, from 2 to 20. 7 bits keeps values to
+     *                  within 1.6% in 18 KB; 11 bits keeps them to within 0.1% in 270 KB.
+     */
+    public LatencyHistogram(int precision) {
+        if (precision < 2 || precision > 20) {
+            throw new IllegalArgumentException("The precision must be from 2 to 20 bits");
+        }
+        subBucketBits = precision;
+        subBuckets = 1 << precision;
+        halfSubBuckets = subBuckets / 2;
+        counts = new AtomicLongArray(subBuckets + (MAX_VALUE_BITS - subBucketBits) * halfSubBuckets);
+    }
+
+    /**
+     * This method will record a latency.
+     *
+     * @param micros The latency in microseconds, clamped to the range of the histogram.
+     */
+    public void record(long micros) {
+        long value = Math.max(0, Math.min(MAX_VALUE, micros));
+        counts.incrementAndGet(index(value));
+        max.accumulate(value);
+    }
+
+    /**
+     * This method will get the number of latencies recorded.
+     *
+     * @return The number of latencies.
+     */
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * This method will get the highest latency recorded.
+     *
+     * @return The highest latency in microseconds, or 0 if nothing was recorded.
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * This method will find the value at a percentile.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The highest value of the bucket the percentile falls in, or 0 if nothing was recorded.
+     */
+    public long valueAtPercentile(double percentile) {
+        long total = count();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max());
+            }
+        }
+        return max();
+    }
+
+    int index(long value) {
+        if (value < subBuckets) {
+            return (int) value;
+        }
+        // Shift the value so it lands in the upper half of the sub-buckets.
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (subBucketBits - 1);
+        return subBuckets + (shift - 1) * halfSubBuckets + (int) ((value >>> shift) - halfSubBuckets);
+    }
+
+    long highestValue(int index) {
+        if (index < subBuckets) {
+            return index;
+        }
+        int offset = index - subBuckets;
+        int shift = offset / halfSubBuckets + 1;
+        long subBucket = offset % halfSubBuckets + halfSubBuckets;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
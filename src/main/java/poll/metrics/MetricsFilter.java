@@ -0,0 +1,55 @@
+// Times every request, living in the metrics sub-package.
+// Runs ahead of Spring Security, so requests it turns away are timed as well.
+
+package poll.metrics;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MetricsFilter extends OncePerRequestFilter {
+
+    private final PollMetrics pollMetrics;
+
+    /**
+     * This constructor will set up the filter.
+     *
+     * @param pollMetrics The metrics the latencies are recorded in.
+     */
+    public MetricsFilter(PollMetrics pollMetrics) {
+        this.pollMetrics = pollMetrics;
+    }
+
+    /**
+     * This method will serve a request and record how long it took against the handler's pattern, such as
+     * /birds/vote/{membershipId}, rather than the URL. A streamed response is timed until its stream starts.
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            // An exception escaping the chain becomes a server error, whatever status was set so far.
+            int status = failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+            pollMetrics.recordRequest(pattern instanceof String ? (String) pattern : null, request.getMethod(),
+                    System.nanoTime() - start, status);
+        }
+    }
+}
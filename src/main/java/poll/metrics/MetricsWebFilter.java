@@ -0,0 +1,63 @@
+// Times every request on the reactive stack, living in the metrics sub-package.
+// The counterpart of MetricsFilter, running ahead of Spring Security's web filters.
+
+package poll.metrics;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Mono;
+
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MetricsWebFilter implements WebFilter {
+
+    private final PollMetrics pollMetrics;
+
+    /**
+     * This constructor will set up the filter.
+     *
+     * @param pollMetrics The metrics the latencies are recorded in.
+     */
+    public MetricsWebFilter(PollMetrics pollMetrics) {
+        this.pollMetrics = pollMetrics;
+    }
+
+    /**
+     * This method will serve a request and record how long it took against the handler's pattern, once the
+     * response is complete. A streamed response is timed until it ends or the client goes.
+     */
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doOnSuccess(done -> record(exchange, start, null))
+                .doOnError(error -> record(exchange, start, error))
+                .doOnCancel(() -> record(exchange, start, null));
+    }
+
+    private void record(ServerWebExchange exchange, long start, Throwable error) {
+        Object pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        // Errors are turned into responses after the filters, so take their status from the error itself.
+        int status;
+        if (error instanceof ResponseStatusException) {
+            status = ((ResponseStatusException) error).getRawStatusCode();
+        } else if (error != null) {
+            status = HttpStatus.INTERNAL_SERVER_ERROR.value();
+        } else {
+            Integer raw = exchange.getResponse().getRawStatusCode();
+            status = raw == null ? HttpStatus.OK.value() : raw;
+        }
+        pollMetrics.recordRequest(pattern instanceof PathPattern ? ((PathPattern) pattern).getPatternString() : null,
+                exchange.getRequest().getMethodValue(), System.nanoTime() - start, status);
+    }
+}
@@ -0,0 +1,260 @@
+// Counts what the poll service and its endpoints are doing, living in the metrics sub-package.
+// Everything on the request path is a LongAdder increment or a histogram increment into arrays made up
+// front, so recording never allocates; rates are worked out by a sampler once a second instead.
+// Each candidate's votes are counted the same way, into a series of fixed size per candidate.
+// Votes restored from a snapshot or replayed from the journal were counted before the restart, so they aren't
+// counted again.
+
+package poll.metrics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import poll.exception.Error;
+import poll.journal.VoteJournal;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollListener;
+import poll.service.PollService;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+public class PollMetrics implements PollListener {
+
+    // The key of requests that never reached a handler, such as those turned away by Spring Security.
+    static final String UNMATCHED = "unmatched";
+
+    // Endpoint latencies are kept to 7 bits, within 1.6%, in 18 KB per endpoint.
+    private static final int LATENCY_PRECISION = 7;
+    // One sample a second, enough for a rate over the last minute.
+    private static final int SAMPLES = 60;
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+
+    private final PollService pollService;
+    // The journal the poll is restored from, if it is journaled.
+    private final VoteJournal voteJournal;
+
+    private final Counter votes = new Counter();
+    private final Counter changes = new Counter();
+    private final Counter retractions = new Counter();
+    // Error ordinal -> the requests turned away with it.
+    private final LongAdder[] rejections = new LongAdder[Error.values().length];
+    // Handler pattern -> its statistics for each HTTP method. The patterns are fixed by the handler
+    // mappings, so the map stays small however many distinct URLs are requested.
+    private final Map<String, AtomicReferenceArray<EndpointStats>> endpoints = new ConcurrentHashMap<>();
+    // Each candidate's series, keyed by the candidate object so a removed and re-added candidate starts afresh.
+    private final Map<Candidate, VoteRateSeries> seriesByCandidate = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService sampler;
+    // Only touched by the sampler, which takes a minute sample every sixtieth second.
+    private long samplesTaken;
+    private volatile long sampledAt;
+
+    /**
+     * This constructor will set up the counters, start listening to the poll service and start sampling rates.
+     *
+     * @param pollService The Poll Service object whose operations are counted.
+     * @param voteJournal The journal the poll is restored from, if the poll is journaled.
+     */
+    public PollMetrics(PollService pollService, ObjectProvider<VoteJournal> voteJournal) {
+        this.pollService = pollService;
+        this.voteJournal = voteJournal.getIfAvailable();
+        for (int i = 0; i < rejections.length; i++) {
+            rejections[i] = new LongAdder();
+        }
+        for (Candidate candidate : pollService.getAllCandidates()) {
+            onCandidateAdded(candidate);
+        }
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(this::sample, 0, 1, TimeUnit.SECONDS);
+        pollService.addListener(this);
+    }
+
+    @Override
+    public void onCandidateAdded(Candidate candidate) {
+        seriesByCandidate.putIfAbsent(candidate, new VoteRateSeries());
+    }
+
+    @Override
+    public void onCandidateRemoved(Candidate candidate) {
+        seriesByCandidate.remove(candidate);
+    }
+
+    @Override
+    public void onVote(Member voter, Candidate lastVote, Candidate newVote) {
+        if (isReplaying()) {
+            return;
+        }
+        (lastVote == null ? votes : changes).total.increment();
+        // A vote for a candidate that has since been removed has no series left to count in.
+        VoteRateSeries series = seriesByCandidate.get(newVote);
+        if (series != null) {
+            if (lastVote == null) {
+                series.recordVote();
+            } else {
+                series.recordChange();
+            }
+        }
+    }
+
+    @Override
+    public void onRetract(Member voter, Candidate lastVote) {
+        if (isReplaying()) {
+            return;
+        }
+        retractions.total.increment();
+        VoteRateSeries series = seriesByCandidate.get(lastVote);
+        if (series != null) {
+            series.recordRetraction();
+        }
+    }
+
+    /**
+     * This method will count a request turned away with an error.
+     *
+     * @param error The error the request was turned away with.
+     */
+    public void recordRejection(Error error) {
+        rejections[error.ordinal()].increment();
+    }
+
+    /**
+     * This method will record how long a request took.
+     *
+     * @param pattern The pattern of the handler that served the request, or null if none did.
+     * @param method The HTTP method of the request.
+     * @param nanos The time taken to serve the request.
+     * @param status The HTTP status code of the response.
+     */
+    public void recordRequest(String pattern, String method, long nanos, int status) {
+        HttpMethod httpMethod = HttpMethod.resolve(method);
+        if (httpMethod == null) {
+            return;
+        }
+        String key = pattern == null ? UNMATCHED : pattern;
+        AtomicReferenceArray<EndpointStats> byMethod = endpoints.get(key);
+        if (byMethod == null) {
+            byMethod = endpoints.computeIfAbsent(key, unused -> new AtomicReferenceArray<>(METHODS.length));
+        }
+        EndpointStats stats = byMethod.get(httpMethod.ordinal());
+        if (stats == null) {
+            byMethod.compareAndSet(httpMethod.ordinal(), null, new EndpointStats());
+            stats = byMethod.get(httpMethod.ordinal());
+        }
+        stats.latencies.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+        if (status >= 500) {
+            stats.serverErrors.increment();
+        } else if (status >= 400) {
+            stats.clientErrors.increment();
+        }
+    }
+
+    /**
+     * This method will get a report of every counter.
+     *
+     * @return The counters so far, with the latencies of each endpoint.
+     */
+    public PollMetricsReport getReport() {
+        Map<String, Long> rejected = new LinkedHashMap<>();
+        for (Error error : Error.values()) {
+            rejected.put(error.name(), rejections[error.ordinal()].sum());
+        }
+        Map<String, PollMetricsReport.Endpoint> endpointReports = new TreeMap<>();
+        endpoints.forEach((pattern, byMethod) -> {
+            for (HttpMethod method : METHODS) {
+                EndpointStats stats = byMethod.get(method.ordinal());
+                if (stats != null) {
+                    endpointReports.put(method + " " + pattern, stats.report());
+                }
+            }
+        });
+        return new PollMetricsReport(pollService.getMemberCount(), pollService.countCandidates(),
+                votes.report(), changes.report(), retractions.report(), rejected,
+                pollService.getLockContentionCount(), endpointReports);
+    }
+
+    /**
+     * This method will get how fast each candidate gained and lost votes, as of the last sample.
+     *
+     * @return The rates and series of every candidate, in alphabetical order.
+     */
+    public VoteRatesReport getVoteRates() {
+        Map<String, VoteRatesReport.CandidateRates> candidates = new LinkedHashMap<>();
+        for (Candidate candidate : pollService.getAllCandidates()) {
+            VoteRateSeries series = seriesByCandidate.get(candidate);
+            if (series != null) {
+                candidates.put(candidate.getCommonName(), series.report());
+            }
+        }
+        return new VoteRatesReport(sampledAt, candidates);
+    }
+
+    @PreDestroy
+    public void close() {
+        sampler.shutdownNow();
+    }
+
+    private boolean isReplaying() {
+        return voteJournal != null && voteJournal.isReplaying();
+    }
+
+    private void sample() {
+        votes.sample();
+        changes.sample();
+        retractions.sample();
+        boolean minute = samplesTaken++ % VoteRateSeries.SECONDS == 0;
+        for (VoteRateSeries series : seriesByCandidate.values()) {
+            series.sample(minute);
+        }
+        sampledAt = System.currentTimeMillis();
+    }
+
+    // A running total, sampled each second over the last SAMPLES seconds to work out rates from.
+    private static class Counter {
+        private final LongAdder total = new LongAdder();
+        private final SampleRing samples = new SampleRing(SAMPLES);
+
+        private synchronized void sample() {
+            samples.add(total.sum());
+        }
+
+        private synchronized double perSecond(int seconds) {
+            return samples.perInterval(seconds);
+        }
+
+        private PollMetricsReport.Rate report() {
+            return new PollMetricsReport.Rate(total.sum(), perSecond(10), perSecond(60));
+        }
+    }
+
+    // The latencies and failures of one endpoint and HTTP method.
+    private static class EndpointStats {
+        private final LatencyHistogram latencies = new LatencyHistogram(LATENCY_PRECISION);
+        private final LongAdder clientErrors = new LongAdder();
+        private final LongAdder serverErrors = new LongAdder();
+
+        private PollMetricsReport.Endpoint report() {
+            return new PollMetricsReport.Endpoint(latencies.count(), clientErrors.sum(), serverErrors.sum(),
+                    millis(latencies.valueAtPercentile(50)), millis(latencies.valueAtPercentile(90)),
+                    millis(latencies.valueAtPercentile(99)), millis(latencies.valueAtPercentile(99.9)),
+                    millis(latencies.max()));
+        }
+
+        private static double millis(long micros) {
+            return micros / 1000.0;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+// A report of the poll's metrics at one moment, living in the metrics sub-package.
+
+package poll.metrics;
+
+import java.util.Map;
+
+public class PollMetricsReport {
+
+    private final int members;
+    private final int candidates;
+    private final Rate votes;
+    private final Rate changes;
+    private final Rate retractions;
+    private final Map<String, Long> rejections;
+    private final long lockContentions;
+    private final Map<String, Endpoint> endpoints;
+
+    /**
+     * This constructor will create the report with all the attributes.
+     *
+     * @param members         The number of members in the member store.
+     * @param candidates      The number of candidates.
+     * @param votes           The first votes made by members.
+     * @param changes         The votes changed from one candidate to another.
+     * @param retractions     The votes retracted.
+     * @param rejections      The requests turned away, by the name of the error.
+     * @param lockContentions The times a member's lock was already held when a request needed it.
+     * @param endpoints       The latencies of each endpoint, keyed by HTTP method and pattern.
+     */
+    public PollMetricsReport(int members, int candidates, Rate votes, Rate changes, Rate retractions,
+                             Map<String, Long> rejections, long lockContentions, Map<String, Endpoint> endpoints) {
+        this.members = members;
+        this.candidates = candidates;
+        this.votes = votes;
+        this.changes = changes;
+        this.retractions = retractions;
+        this.rejections = rejections;
+        this.lockContentions = lockContentions;
+        this.endpoints = endpoints;
+    }
+
+    public int getMembers() {
+        return members;
+    }
+
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public Rate getVotes() {
+        return votes;
+    }
+
+    public Rate getChanges() {
+        return changes;
+    }
+
+    public Rate getRetractions() {
+        return retractions;
+    }
+
+    public Map<String, Long> getRejections() {
+        return rejections;
+    }
+
+    public long getLockContentions() {
+        return lockContentions;
+    }
+
+    public Map<String, Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    // A running total, and how fast it went up over the last ten seconds and the last minute.
+    public static class Rate {
+        private final long total;
+        private final double perSecond10s;
+        private final double perSecond60s;
+
+        public Rate(long total, double perSecond10s, double perSecond60s) {
+            this.total = total;
+            this.perSecond10s = perSecond10s;
+            this.perSecond60s = perSecond60s;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public double getPerSecond10s() {
+            return perSecond10s;
+        }
+
+        public double getPerSecond60s() {
+            return perSecond60s;
+        }
+    }
+
+    // The requests served by an endpoint since the application started, and their latencies in milliseconds.
+    public static class Endpoint {
+        private final long count;
+        private final long clientErrors;
+        private final long serverErrors;
+        private final double p50Ms;
+        private final double p90Ms;
+        private final double p99Ms;
+        private final double p999Ms;
+        private final double maxMs;
+
+        public Endpoint(long count, long clientErrors, long serverErrors, double p50Ms, double p90Ms, double p99Ms,
+                        double p999Ms, double maxMs) {
+            this.count = count;
+            this.clientErrors = clientErrors;
+            this.serverErrors = serverErrors;
+            this.p50Ms = p50Ms;
+            this.p90Ms = p90Ms;
+            this.p99Ms = p99Ms;
+            this.p999Ms = p999Ms;
+            this.maxMs = maxMs;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getClientErrors() {
+            return clientErrors;
+        }
+
+        public long getServerErrors() {
+            return serverErrors;
+        }
+
+        public double getP50Ms() {
+            return p50Ms;
+        }
+
+        public double getP90Ms() {
+            return p90Ms;
+        }
+
+        public double getP99Ms() {
+            return p99Ms;
+        }
+
+        public double getP999Ms() {
+            return p999Ms;
+        }
+
+        public double getMaxMs() {
+            return maxMs;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+// The last few samples of a running total, in a ring of fixed size, living in the metrics sub-package.
+// The ring is written over in place as it turns, so it takes the same memory however long it is sampled.
+// It isn't thread safe; its owner samples and reads it under its own lock.
+
+package poll.metrics;
+
+final class SampleRing {
+
+    private final long[] samples;
+    private int newest = -1;
+    private int taken;
+
+    /**
+     * This constructor will create an empty ring.
+     *
+     * @param intervals The number of intervals between samples kept, one fewer than the samples.
+     */
+    SampleRing(int intervals) {
+        samples = new long[intervals + 1];
+    }
+
+    /**
+     * This method will add a sample, writing over the oldest once the ring is full.
+     *
+     * @param total The running total at this sample.
+     */
+    void add(long total) {
+        newest = (newest + 1) % samples.length;
+        samples[newest] = total;
+        taken = Math.min(taken + 1, samples.length);
+    }
+
+    /**
+     * This method will work out how fast the total went up.
+     *
+     * @param intervals The number of intervals to average over, cut down to those sampled so far.
+     * @return The average increase per interval, or 0 before the second sample.
+     */
+    double perInterval(int intervals) {
+        int span = Math.min(intervals, taken - 1);
+        if (span <= 0) {
+            return 0;
+        }
+        return (samples[newest] - samples[index(span)]) / (double) span;
+    }
+
+    /**
+     * This method will get the increase over each interval kept.
+     *
+     * @return The increases, oldest first, with 0 for the intervals before the first sample.
+     */
+    long[] increases() {
+        long[] increases = new long[samples.length - 1];
+        for (int back = 1; back < taken; back++) {
+            increases[increases.length - back] = samples[index(back - 1)] - samples[index(back)];
+        }
+        return increases;
+    }
+
+    private int index(int back) {
+        return (newest - back + samples.length) % samples.length;
+    }
+}
@@ -0,0 +1,74 @@
+// How fast one candidate gains and loses votes, living in the metrics sub-package.
+// A vote is a single LongAdder increment, so it never allocates or waits on the sampler. Once a second the
+// sampler copies the running totals into fixed rings, one slot a second for the last minute and one a minute
+// for the last quarter of an hour, so each candidate takes the same memory however long the poll runs.
+
+package poll.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+final class VoteRateSeries {
+
+    // Sampled once a second, with every sixtieth sample also taken as a minute.
+    static final int SECONDS = 60;
+    static final int MINUTES = 15;
+
+    private final Kind votes = new Kind();
+    private final Kind changes = new Kind();
+    private final Kind retractions = new Kind();
+
+    // A first vote for the candidate.
+    void recordVote() {
+        votes.total.increment();
+    }
+
+    // A vote moved to the candidate from another.
+    void recordChange() {
+        changes.total.increment();
+    }
+
+    // A vote for the candidate retracted.
+    void recordRetraction() {
+        retractions.total.increment();
+    }
+
+    /**
+     * This method will sample the running totals.
+     *
+     * @param minute Whether this sample also starts a new minute.
+     */
+    synchronized void sample(boolean minute) {
+        votes.sample(minute);
+        changes.sample(minute);
+        retractions.sample(minute);
+    }
+
+    /**
+     * This method will get the rates and series as of the last sample.
+     *
+     * @return The rates and series of the votes, changes and retractions.
+     */
+    synchronized VoteRatesReport.CandidateRates report() {
+        return new VoteRatesReport.CandidateRates(votes.report(), changes.report(), retractions.report());
+    }
+
+    // A running total with its samples over the last minute and quarter of an hour.
+    private static class Kind {
+        private final LongAdder total = new LongAdder();
+        private final SampleRing seconds = new SampleRing(SECONDS);
+        private final SampleRing minutes = new SampleRing(MINUTES);
+
+        private void sample(boolean minute) {
+            long sum = total.sum();
+            seconds.add(sum);
+            if (minute) {
+                minutes.add(sum);
+            }
+        }
+
+        private VoteRatesReport.Series report() {
+            return new VoteRatesReport.Series(seconds.perInterval(1), seconds.perInterval(SECONDS),
+                    minutes.perInterval(MINUTES) / 60, seconds.increases(), minutes.increases());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+// A report of how fast each candidate gains and loses votes, living in the metrics sub-package.
+// The series are plain arrays of counts, oldest first, so a report for many candidates stays compact.
+
+package poll.metrics;
+
+import java.util.Map;
+
+public class VoteRatesReport {
+
+    private final long sampledAt;
+    private final Map<String, CandidateRates> candidates;
+
+    /**
+     * This constructor will create the report with all the attributes.
+     *
+     * @param sampledAt  The time of the newest sample, in milliseconds since the epoch.
+     * @param candidates The rates and series of each candidate, keyed by common name.
+     */
+    public VoteRatesReport(long sampledAt, Map<String, CandidateRates> candidates) {
+        this.sampledAt = sampledAt;
+        this.candidates = candidates;
+    }
+
+    public long getSampledAt() {
+        return sampledAt;
+    }
+
+    public Map<String, CandidateRates> getCandidates() {
+        return candidates;
+    }
+
+    // The first votes, changed votes and retractions of one candidate.
+    public static class CandidateRates {
+        private final Series votes;
+        private final Series changes;
+        private final Series retractions;
+
+        public CandidateRates(Series votes, Series changes, Series retractions) {
+            this.votes = votes;
+            this.changes = changes;
+            this.retractions = retractions;
+        }
+
+        public Series getVotes() {
+            return votes;
+        }
+
+        public Series getChanges() {
+            return changes;
+        }
+
+        public Series getRetractions() {
+            return retractions;
+        }
+    }
+
+    // How fast something happened over the last second, minute and fifteen minutes, with the counts behind it:
+    // one a second over the last minute, and one a minute over the last fifteen.
+    public static class Series {
+        private final double perSecond1s;
+        private final double perSecond1m;
+        private final double perSecond15m;
+        private final long[] seconds;
+        private final long[] minutes;
+
+        public Series(double perSecond1s, double perSecond1m, double perSecond15m, long[] seconds, long[] minutes) {
+            this.perSecond1s = perSecond1s;
+            this.perSecond1m = perSecond1m;
+            this.perSecond15m = perSecond15m;
+            this.seconds = seconds;
+            this.minutes = minutes;
+        }
+
+        public double getPerSecond1s() {
+            return perSecond1s;
+        }
+
+        public double getPerSecond1m() {
+            return perSecond1m;
+        }
+
+        public double getPerSecond15m() {
+            return perSecond15m;
+        }
+
+        public long[] getSeconds() {
+            return seconds;
+        }
+
+        public long[] getMinutes() {
+            return minutes;
+        }
+    }
+}
@@ -1,14 +1,14 @@
 package poll.model;
 
-import com.fasterxml.jackson.annotation.JsonFilter;
+import java.util.concurrent.atomic.LongAdder;
 
-@JsonFilter("candidateFilter")
 public class Candidate {
 
     private String scientificName;
     private String commonName;
     private String description;
-    private int voteCount;
+    // Striped counter, so concurrent votes for the same candidate don't contend on a single field.
+    private final LongAdder voteCount = new LongAdder();
 
     /**
      * This constructor will create a candidate for the vote.
@@ -21,7 +21,6 @@ public class Candidate {
         this.scientificName = scientificName;
         this.commonName = commonName;
         this.description = description;
-        this.voteCount = 0;
     }
 
     /**
@@ -35,7 +34,6 @@ public class Candidate {
         this.scientificName = candidate.getScientificName();
         this.commonName = candidate.getCommonName();
         this.description = candidate.getDescription();
-        this.voteCount = 0;
     }
 
     /**
@@ -45,7 +43,6 @@ public class Candidate {
         this.scientificName = "";
         this.commonName = "";
         this.description = "";
-        this.voteCount = 0;
     }
 
     public String getScientificName() {
@@ -72,18 +69,38 @@ public class Candidate {
         this.description = description;
     }
 
+    /**
+     * This method will get the number of votes. The striped counter is summed without a lock, so a sum taken
+     * while a member's vote moves between cells can briefly miss the increment but see the later decrement;
+     * such a sum is read as zero rather than below it.
+     *
+     * @return The number of votes, never below zero.
+     */
     public int getVoteCount() {
-        return voteCount;
+        return Math.max(0, voteCount.intValue());
     }
 
     public void incrementVote() {
-        this.voteCount++;
+        voteCount.increment();
+    }
+
+    /**
+     * This method will apply a net change in votes at once, used when a batch of votes is grouped.
+     *
+     * @param delta The number of votes to add, or remove if negative.
+     */
+    public void addVotes(long delta) {
+        voteCount.add(delta);
     }
 
+    /**
+     * This method will remove a vote from the candidate. It must only be called for a vote that was
+     * previously counted with incrementVote(), so the sum never drops below zero. The poll service
+     * guarantees this by moving a member's counters under the member's lock, in the same step as the
+     * member's vote, so a vote is always counted before it can be taken away.
+     */
     public void decrementVote() {
-        if (this.voteCount > 0) {
-            this.voteCount--;
-        }
+        voteCount.decrement();
     }
 
     @Override
@@ -1,12 +1,18 @@
 package poll.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 public class Member {
 
     private String membershipId;
     private String name;
     private int age;
     private String regionOfScotland;
-    private Candidate candidateVotedFor;
+    // Written by the poll service under the member's lock, but read freely by request threads.
+    private volatile Candidate candidateVotedFor;
+    // The poll service's snapshot epoch when this member was added or last changed their vote.
+    @JsonIgnore
+    private volatile long snapshotEpoch;
 
     /**
      * This constructor will create a member with all the attributes.
@@ -88,6 +94,14 @@ public class Member {
         this.candidateVotedFor = candidateVotedFor;
     }
 
+    public long getSnapshotEpoch() {
+        return snapshotEpoch;
+    }
+
+    public void setSnapshotEpoch(long snapshotEpoch) {
+        this.snapshotEpoch = snapshotEpoch;
+    }
+
     @Override
     public String toString() {
         return "Member{" + "membershipId='" + membershipId + '\'' + ", name='" + name + '\'' + ", age=" + age + ", regionOfScotland='" + regionOfScotland + '\'' + ", candidateVotedFor=" + candidateVotedFor + '}';
@@ -0,0 +1,42 @@
+// Applies votes on the request's own thread, living in the pipeline sub-package.
+// The poll service's striped member locks keep concurrent requests apart. The default execution mode.
+
+package poll.pipeline;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import poll.model.Candidate;
+import poll.service.PollService;
+
+import java.util.List;
+
+@Component
+@ConditionalOnProperty(name = "poll.execution-mode", havingValue = "direct", matchIfMissing = true)
+public class DirectVoteExecutor implements VoteExecutor {
+
+    private final PollService pollService;
+
+    /**
+     * This constructor will set up the executor over the poll service.
+     *
+     * @param pollService The Poll Service object the votes are applied to.
+     */
+    public DirectVoteExecutor(PollService pollService) {
+        this.pollService = pollService;
+    }
+
+    @Override
+    public boolean makeVote(String membershipId, Candidate newVote) {
+        return pollService.makeVote(membershipId, newVote);
+    }
+
+    @Override
+    public boolean[] makeVotes(List<String> membershipIds, List<Candidate> newVotes) {
+        return pollService.makeVotes(membershipIds, newVotes);
+    }
+
+    @Override
+    public boolean retractVote(String membershipId) {
+        return pollService.retractVote(membershipId);
+    }
+}
@@ -0,0 +1,49 @@
+// Carries out the vote commands the controller receives, living in the pipeline sub-package.
+// Chosen with poll.execution-mode: direct applies each vote on the request's own thread, while pipeline
+// hands it to a single applier thread through a ring buffer.
+
+package poll.pipeline;
+
+import poll.model.Candidate;
+
+import java.util.List;
+
+public interface VoteExecutor {
+
+    /**
+     * This method will vote for a candidate on behalf of a registered member.
+     *
+     * @param membershipId The membership identifier of the member making the vote.
+     * @param newVote The candidate the member is voting for.
+     * @return The boolean value true if the vote changed, or false if the member already voted for it.
+     */
+    boolean makeVote(String membershipId, Candidate newVote);
+
+    /**
+     * This method will make a batch of votes on behalf of registered members. If a vote fails, the votes before
+     * it stay made, the rest aren't, and the failure is thrown.
+     *
+     * @param membershipIds The membership identifiers of the members making the votes.
+     * @param newVotes The candidates being voted for, in the same order as the members.
+     * @return The boolean values, true for each vote that changed, or false if the member already voted for it.
+     */
+    boolean[] makeVotes(List<String> membershipIds, List<Candidate> newVotes);
+
+    /**
+     * This method will retract a registered member's vote.
+     *
+     * @param membershipId The membership identifier of the member retracting their vote.
+     * @return The boolean value true if a vote was retracted, or false if the member had no vote.
+     */
+    boolean retractVote(String membershipId);
+
+    /**
+     * This method will tell whether the calling thread waits on another thread while a command is applied,
+     * so the reactive stack knows to call it off its event loop.
+     *
+     * @return The boolean value true if the calls block.
+     */
+    default boolean isBlocking() {
+        return false;
+    }
+}
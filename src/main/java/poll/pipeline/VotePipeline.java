@@ -0,0 +1,264 @@
+// Applies every vote on a single applier thread, living in the pipeline sub-package.
+// Request threads claim a slot in a preallocated ring buffer, write their command into it and wait on
+// their ticket; the applier takes the commands in order, a batch at a time, and completes the tickets.
+// As the applier is the only thread changing votes, the poll service's member locks it takes are never
+// contended by another vote, only briefly by readers. A batch of votes is a single command, applied with
+// the poll service's own batch method, so it behaves exactly as it does in the direct mode.
+
+package poll.pipeline;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import poll.model.Candidate;
+import poll.service.PollService;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+@Component
+@ConditionalOnProperty(name = "poll.execution-mode", havingValue = "pipeline")
+public class VotePipeline implements VoteExecutor {
+
+    private static final int VOTE = 0;
+    private static final int RETRACT = 1;
+    private static final int BATCH = 2;
+    // The times a thread checks again before parking, which only helps if another core is doing the work,
+    // and how long the applier parks for at most.
+    private static final int SPINS = Runtime.getRuntime().availableProcessors() > 1 ? 100 : 0;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+
+    private final PollService pollService;
+    private final Slot[] slots;
+    private final int mask;
+    private final int batchSize;
+
+    // The next sequence a request thread claims.
+    private final AtomicLong claimed = new AtomicLong();
+    // Every sequence below this has been applied, so its slot can be reused.
+    private volatile long applied;
+    // Set while the applier is parked, so request threads know to wake it.
+    private volatile boolean sleeping;
+    private volatile boolean running = true;
+
+    private final Thread applier;
+    // Each request thread waits on its own ticket, reused for every command it sends.
+    private final ThreadLocal<Ticket> tickets = ThreadLocal.withInitial(Ticket::new);
+
+    /**
+     * This constructor will set up the ring buffer and start the applier.
+     *
+     * @param pollService The Poll Service object the votes are applied to.
+     * @param capacity The number of slots in the ring buffer, rounded up to a power of two.
+     * @param batchSize The most commands the applier takes before completing their tickets.
+     */
+    public VotePipeline(PollService pollService,
+                        @Value("${poll.pipeline.capacity:4096}") int capacity,
+                        @Value("${poll.pipeline.batch-size:256}") int batchSize) {
+        this.pollService = pollService;
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        mask = size - 1;
+        this.batchSize = Math.max(1, Math.min(batchSize, size));
+
+        applier = new Thread(this::applyCommands, "vote-applier");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    @Override
+    public boolean makeVote(String membershipId, Candidate newVote) {
+        Ticket ticket = tickets.get();
+        ticket.reset();
+        publish(VOTE, membershipId, newVote, null, null, ticket);
+        return ticket.await().changed;
+    }
+
+    @Override
+    public boolean[] makeVotes(List<String> membershipIds, List<Candidate> newVotes) {
+        Ticket ticket = tickets.get();
+        ticket.reset();
+        publish(BATCH, null, null, membershipIds, newVotes, ticket);
+        return ticket.await().batchChanged;
+    }
+
+    @Override
+    public boolean retractVote(String membershipId) {
+        Ticket ticket = tickets.get();
+        ticket.reset();
+        publish(RETRACT, membershipId, null, null, null, ticket);
+        return ticket.await().changed;
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(applier);
+        applier.join();
+    }
+
+    /**
+     * This method will claim the next slot, waiting while the ring buffer is full, and publish a command in it.
+     *
+     * @param type The kind of command, VOTE, RETRACT or BATCH.
+     * @param membershipId The membership identifier of the member, unless it is a batch.
+     * @param candidate The candidate voted for, or null to retract.
+     * @param membershipIds The membership identifiers of the members voting in a batch, otherwise null.
+     * @param candidates The candidates voted for in a batch, otherwise null.
+     * @param ticket The ticket the result is given back on.
+     */
+    private void publish(int type, String membershipId, Candidate candidate, List<String> membershipIds,
+                         List<Candidate> candidates, Ticket ticket) {
+        if (!running) {
+            throw new IllegalStateException("The vote pipeline has been shut down");
+        }
+        long sequence = claimed.getAndIncrement();
+        // The slot is free once the command written a lap earlier has been applied.
+        while (sequence - slots.length >= applied) {
+            LockSupport.parkNanos(1_000);
+        }
+        Slot slot = slots[(int) sequence & mask];
+        slot.type = type;
+        slot.membershipId = membershipId;
+        slot.candidate = candidate;
+        slot.membershipIds = membershipIds;
+        slot.candidates = candidates;
+        slot.ticket = ticket;
+        // Publishing the sequence publishes the fields written above to the applier.
+        slot.sequence = sequence;
+        if (sleeping) {
+            LockSupport.unpark(applier);
+        }
+    }
+
+    /**
+     * This method will apply commands as they are published, in order, until the pipeline is closed.
+     */
+    private void applyCommands() {
+        long next = 0;
+        int idle = 0;
+        while (running || claimed.get() > next) {
+            int count = 0;
+            while (count < batchSize && slots[(int) (next + count) & mask].sequence == next + count) {
+                count++;
+            }
+            if (count == 0) {
+                if (++idle < SPINS) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                sleeping = true;
+                // Check again after announcing the sleep, so a command published in between isn't missed.
+                if (slots[(int) next & mask].sequence != next && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                sleeping = false;
+                idle = 0;
+                continue;
+            }
+
+            for (int i = 0; i < count; i++) {
+                apply(slots[(int) (next + i) & mask]);
+            }
+            next += count;
+            // Free the whole batch of slots at once.
+            applied = next;
+        }
+    }
+
+    private void apply(Slot slot) {
+        Ticket ticket = slot.ticket;
+        try {
+            switch (slot.type) {
+                case VOTE:
+                    ticket.changed = pollService.makeVote(slot.membershipId, slot.candidate);
+                    break;
+                case RETRACT:
+                    ticket.changed = pollService.retractVote(slot.membershipId);
+                    break;
+                default:
+                    ticket.batchChanged = pollService.makeVotes(slot.membershipIds, slot.candidates);
+                    break;
+            }
+        } catch (Throwable exception) {
+            // Errors too, so the applier lives on and the request thread isn't left waiting forever.
+            ticket.failure = exception;
+        }
+        // Drop the references before the slot is reused, so they don't outlive the request.
+        slot.membershipId = null;
+        slot.candidate = null;
+        slot.membershipIds = null;
+        slot.candidates = null;
+        slot.ticket = null;
+        ticket.complete();
+    }
+
+    // A command waiting to be applied. Only the sequence is volatile: it is written last by the request
+    // thread, and read first by the applier.
+    private static class Slot {
+        private volatile long sequence = -1;
+        private int type;
+        private String membershipId;
+        private Candidate candidate;
+        private List<String> membershipIds;
+        private List<Candidate> candidates;
+        private Ticket ticket;
+    }
+
+    // A request thread's completion handle, holding the result of the command it is waiting on. The results
+    // are written by the applier before done, and read by the request thread after it.
+    private static class Ticket {
+        private final Thread waiter = Thread.currentThread();
+        private boolean changed;
+        private boolean[] batchChanged;
+        private Throwable failure;
+        private volatile boolean done;
+
+        private void reset() {
+            batchChanged = null;
+            failure = null;
+            done = false;
+        }
+
+        private void complete() {
+            done = true;
+            LockSupport.unpark(waiter);
+        }
+
+        /**
+         * This method will wait until the command sent with the ticket has been applied.
+         *
+         * @return The ticket, holding the result.
+         */
+        private Ticket await() {
+            for (int spins = 0; !done; spins++) {
+                if (spins < SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.park(this);
+                }
+            }
+            // Thrown again on the request thread, just as the direct mode would throw it.
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            if (failure != null) {
+                throw new IllegalStateException(failure);
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+// Limits how fast each member can vote, living in the ratelimit sub-package.
+// Every member has a token bucket: a burst of requests is admitted at once, then one per interval, and the
+// rest are turned away before they reach the poll service.
+//
+// The buckets live in one AtomicLongArray made up front, so the limiter never grows however many members
+// vote, and a bucket is a single long updated with a compare-and-set, so admitting a request takes no lock.
+// Each bucket is kept as the time it will be full again (the generic cell rate algorithm, which admits the
+// same requests as a token bucket), packed with a tag of the member's hash. A member's bucket is one of a few
+// slots picked by the hash. A bucket that is full again holds nothing worth keeping, so it has expired and its
+// slot can be taken by another member; if none has, the bucket closest to expiring is taken over.
+
+package poll.ratelimit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+@Component
+public class VoteRateLimiter {
+
+    // The slots a member's bucket may be in.
+    private static final int WAYS = 4;
+    // A bucket is the tag in the high bits, and the time it is full again in milliseconds since the limiter
+    // started in the low bits, which lasts for 34 years.
+    private static final int TIME_BITS = 40;
+    private static final long TIME_MASK = (1L << TIME_BITS) - 1;
+    // Tags are never 0, so an empty slot never matches.
+    private static final long EMPTY = 0;
+
+    private final boolean enabled;
+    private final double ratePerSecond;
+    private final int burst;
+    private final long intervalMs;
+    // The furthest ahead of now a bucket can be full again, once it has admitted a burst.
+    private final long burstMs;
+    private final LongSupplier clock;
+    private final long start;
+    // Makes the hashes differ between runs, so membership identifiers can't be picked to share a bucket.
+    private final long seed = ThreadLocalRandom.current().nextLong();
+    private final AtomicLongArray slots;
+    private final int setMask;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * This constructor will create the limiter from configuration.
+     *
+     * @param enabled The boolean value false to admit every request.
+     * @param ratePerSecond The requests each member may make a second, once their burst is spent.
+     * @param burst The requests each member may make at once.
+     * @param slots The number of buckets kept, a power of two.
+     */
+    @Autowired
+    public VoteRateLimiter(@Value("${poll.rate-limit.enabled:true}") boolean enabled,
+                           @Value("${poll.rate-limit.rate-per-second:10}") double ratePerSecond,
+                           @Value("${poll.rate-limit.burst:20}") int burst,
+                           @Value("${poll.rate-limit.slots:65536}") int slots) {
+        this(enabled, ratePerSecond, burst, slots, () -> TimeUnit.NANOSECONDS.toMillis(System.nanoTime()));
+    }
+
+    /**
+     * This constructor will create the limiter following the given clock.
+     *
+     * @param enabled The boolean value false to admit every request.
+     * @param ratePerSecond The requests each member may make a second, up to 1000.
+     * @param burst The requests each member may make at once.
+     * @param slots The number of buckets kept, a power of two of at least 4.
+     * @param clock The source of the time in milliseconds.
+     */
+    VoteRateLimiter(boolean enabled, double ratePerSecond, int burst, int slots, LongSupplier clock) {
+        if (!(ratePerSecond > 0 && ratePerSecond <= 1000) || burst < 1) {
+            throw new IllegalArgumentException("The rate must be above 0 and up to 1000, and the burst at least 1");
+        }
+        if (slots < WAYS || Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("The number of slots must be a power of two, of at least " + WAYS);
+        }
+        this.enabled = enabled;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.intervalMs = Math.round(1000 / ratePerSecond);
+        this.burstMs = intervalMs * burst;
+        this.clock = clock;
+        this.start = clock.getAsLong();
+        this.slots = new AtomicLongArray(slots);
+        this.setMask = slots / WAYS - 1;
+    }
+
+    /**
+     * This method will take a token from a member's bucket, if there is one.
+     *
+     * @param membershipId The membership identifier of the member making the request.
+     * @return The boolean value true if the request is admitted, or false if it should be turned away.
+     */
+    public boolean tryAcquire(String membershipId) {
+        if (!enabled) {
+            return true;
+        }
+        long hash = hash(membershipId);
+        int base = (int) (hash & setMask) * WAYS;
+        long tag = (hash >>> TIME_BITS) | 1;
+        long now = clock.getAsLong() - start;
+
+        while (true) {
+            int oldest = base;
+            long oldestValue = Long.MAX_VALUE;
+            boolean retry = false;
+            for (int slot = base; slot < base + WAYS && !retry; slot++) {
+                long value = slots.get(slot);
+                if (value != EMPTY && value >>> TIME_BITS == tag) {
+                    long full = Math.max(value & TIME_MASK, now) + intervalMs;
+                    if (full - now > burstMs) {
+                        throttled.increment();
+                        return false;
+                    }
+                    if (slots.compareAndSet(slot, value, tag << TIME_BITS | full)) {
+                        admitted.increment();
+                        return true;
+                    }
+                    // Another request for the member got in first, so look again.
+                    retry = true;
+                } else if ((value & TIME_MASK) < (oldestValue & TIME_MASK) || value == EMPTY) {
+                    oldest = slot;
+                    oldestValue = value;
+                }
+            }
+            if (retry) {
+                continue;
+            }
+            // The member has no bucket, so give them one in the slot closest to expiring. Two first requests
+            // racing here may each make one, which at worst admits one request too many.
+            if (slots.compareAndSet(oldest, oldestValue, tag << TIME_BITS | (now + intervalMs))) {
+                if (oldestValue != EMPTY && (oldestValue & TIME_MASK) > now) {
+                    evictions.increment();
+                }
+                admitted.increment();
+                return true;
+            }
+        }
+    }
+
+    // A 64-bit hash of the identifier, mixed with the seed.
+    private long hash(String membershipId) {
+        long hash = seed;
+        for (int i = 0; i < membershipId.length(); i++) {
+            hash = (hash ^ membershipId.charAt(i)) * 0x9E3779B97F4A7C15L;
+        }
+        hash ^= hash >>> 32;
+        hash *= 0xD6E8FEB86659FD93L;
+        return hash ^ hash >>> 32;
+    }
+
+    /**
+     * This method will get the counters of the limiter.
+     *
+     * @return The limits, the buckets in use and the requests admitted and turned away so far.
+     */
+    public VoteRateLimiterStats getStats() {
+        long now = clock.getAsLong() - start;
+        int buckets = 0;
+        for (int slot = 0; slot < slots.length(); slot++) {
+            long value = slots.get(slot);
+            if (value != EMPTY && (value & TIME_MASK) > now) {
+                buckets++;
+            }
+        }
+        return new VoteRateLimiterStats(enabled, ratePerSecond, burst, slots.length(), buckets, admitted.sum(),
+                throttled.sum(), evictions.sum());
+    }
+}
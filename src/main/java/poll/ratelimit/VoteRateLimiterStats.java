@@ -0,0 +1,71 @@
+// The counters of the vote rate limiter, living in the ratelimit sub-package.
+
+package poll.ratelimit;
+
+public class VoteRateLimiterStats {
+
+    private final boolean enabled;
+    private final double ratePerSecond;
+    private final int burst;
+    private final int slots;
+    private final int buckets;
+    private final long admitted;
+    private final long throttled;
+    private final long evictions;
+
+    /**
+     * This constructor will create the counters with all the attributes.
+     *
+     * @param enabled       The boolean value true if requests are being limited.
+     * @param ratePerSecond The requests each member may make a second, once their burst is spent.
+     * @param burst         The requests each member may make at once.
+     * @param slots         The number of buckets that can be kept.
+     * @param buckets       The buckets of members who have made requests recently enough to be limited.
+     * @param admitted      The requests admitted.
+     * @param throttled     The requests turned away.
+     * @param evictions     The buckets taken over by another member before they expired.
+     */
+    public VoteRateLimiterStats(boolean enabled, double ratePerSecond, int burst, int slots, int buckets,
+                                long admitted, long throttled, long evictions) {
+        this.enabled = enabled;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.slots = slots;
+        this.buckets = buckets;
+        this.admitted = admitted;
+        this.throttled = throttled;
+        this.evictions = evictions;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public int getSlots() {
+        return slots;
+    }
+
+    public int getBuckets() {
+        return buckets;
+    }
+
+    public long getAdmitted() {
+        return admitted;
+    }
+
+    public long getThrottled() {
+        return throttled;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,46 @@
+// Serves the admin and voter pages on the reactive stack, living in the reactive sub-package.
+// Takes the place of the view controllers in WebConfiguration, and hands the admin page its CSRF token.
+
+package poll.reactive;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.security.web.server.csrf.CsrfToken;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+@Controller
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactivePageController {
+
+    /**
+     * This method will render the admin page, with the CSRF token its requests must carry.
+     *
+     * @param exchange The request and response.
+     * @param model The attributes the template is rendered with.
+     * @return The name of the template.
+     */
+    @GetMapping("/")
+    public Mono<String> adminPage(ServerWebExchange exchange, Model model) {
+        Mono<CsrfToken> token = exchange.getAttribute(CsrfToken.class.getName());
+        if (token == null) {
+            return Mono.just("admin-client");
+        }
+        return token.map(csrfToken -> {
+            model.addAttribute("_csrf", csrfToken);
+            return "admin-client";
+        });
+    }
+
+    /**
+     * This method will render the voter page.
+     *
+     * @return The name of the template.
+     */
+    @GetMapping("/voter")
+    public String voterPage() {
+        return "voter-client";
+    }
+}
@@ -0,0 +1,526 @@
+// The REST controller of the reactive stack, living in the reactive sub-package.
+// Serves the same endpoints as PollController over the same poll service, on Netty's event loops instead
+// of a servlet thread per request. Only created when the application is started with
+// spring.main.web-application-type=reactive.
+
+package poll.reactive;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import poll.controller.CandidateListCache;
+import poll.controller.VoteValidator;
+import poll.demographics.DemographicBreakdown;
+import poll.demographics.DemographicTally;
+import poll.exception.Error;
+import poll.idempotency.IdempotencyCache;
+import poll.idempotency.IdempotencyStats;
+import poll.membership.MembershipCache;
+import poll.membership.MembershipCacheStats;
+import poll.metrics.PollMetrics;
+import poll.metrics.PollMetricsReport;
+import poll.metrics.VoteRatesReport;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.pipeline.VoteExecutor;
+import poll.ratelimit.VoteRateLimiter;
+import poll.ratelimit.VoteRateLimiterStats;
+import poll.search.CandidateSearchIndex;
+import poll.search.CandidateSearchResults;
+import poll.service.PollService;
+import poll.stream.TallyBroadcaster;
+import poll.view.View;
+import poll.view.ViewWriter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@CrossOrigin
+public class ReactivePollController {
+
+    // Endpoints
+    private final String ROOT_PATH = "/birds";
+    private final String ROOT_PATH_UNRESTRICTED = ROOT_PATH + "-enriched";
+    private final String PAGE_PATH = ROOT_PATH + "/page";
+    private final String RANKED_PATH = ROOT_PATH_UNRESTRICTED + "/ranked";
+    private final String SEARCH_PATH = ROOT_PATH + "/search";
+    private final String VOTE_PATH = ROOT_PATH + "/vote";
+    private final String REMOVE_BIRD_PATH = ROOT_PATH + "/remove";
+    private final String POLL_PATH = "/poll";
+    private final String TALLY_STREAM_PATH = ROOT_PATH_UNRESTRICTED + "/stream";
+    private final String DEMOGRAPHICS_PATH = ROOT_PATH_UNRESTRICTED + "/demographics";
+    private final String MEMBERSHIP_CACHE_PATH = "/membership/cache";
+    private final String METRICS_PATH = "/metrics";
+    private final String VOTE_RATES_PATH = METRICS_PATH + "/candidates";
+    private final String RATE_LIMIT_PATH = "/rate-limit";
+    private final String IDEMPOTENCY_PATH = "/idempotency";
+
+    // Headers
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    // The most candidates returned in one page; larger limits are cut down to it.
+    private static final int MAX_PAGE_SIZE = 1000;
+    // The longest search accepted, so a query can't make the index do unbounded work.
+    private static final int MAX_QUERY_LENGTH = 256;
+
+    private final PollService pollService;
+    private final VoteExecutor voteExecutor;
+    private final JsonFactory jsonFactory;
+    private final CandidateListCache candidateListCache;
+    private final CandidateSearchIndex candidateSearchIndex;
+    private final TallyBroadcaster tallyBroadcaster;
+    private final DemographicTally demographicTally;
+    private final MembershipCache membershipCache;
+    private final VoteRateLimiter voteRateLimiter;
+    private final IdempotencyCache idempotencyCache;
+    private final PollMetrics pollMetrics;
+    // Checks the members and candidates sent, turning requests away as the servlet controller does.
+    private final VoteValidator voteValidator;
+
+    /**
+     * This constructor will set up the PollService that this controller will manipulate.
+     *
+     * @param pollService The Poll Service object that will compute requests.
+     * @param voteExecutor The executor that applies votes and retractions to the poll service.
+     * @param objectMapper The JSON mapper configured by Spring.
+     * @param candidateListCache The cache of the public candidate list.
+     * @param candidateSearchIndex The search index over the candidates.
+     * @param tallyBroadcaster The broadcaster of live tallies.
+     * @param demographicTally The breakdown of the votes by region and age band.
+     * @param membershipCache The cache of membership registry lookups.
+     * @param voteRateLimiter The limiter of how fast each member can vote.
+     * @param idempotencyCache The cache of responses to votes sent with an idempotency key.
+     * @param pollMetrics The metrics of the poll service and its endpoints.
+     */
+    public ReactivePollController(PollService pollService, VoteExecutor voteExecutor, ObjectMapper objectMapper,
+                                  CandidateListCache candidateListCache,
+                                  CandidateSearchIndex candidateSearchIndex, TallyBroadcaster tallyBroadcaster,
+                                  DemographicTally demographicTally, MembershipCache membershipCache,
+                                  VoteRateLimiter voteRateLimiter, IdempotencyCache idempotencyCache,
+                                  PollMetrics pollMetrics) {
+        this.pollService = pollService;
+        this.voteExecutor = voteExecutor;
+        this.jsonFactory = objectMapper.getFactory();
+        this.candidateListCache = candidateListCache;
+        this.candidateSearchIndex = candidateSearchIndex;
+        this.tallyBroadcaster = tallyBroadcaster;
+        this.demographicTally = demographicTally;
+        this.membershipCache = membershipCache;
+        this.voteRateLimiter = voteRateLimiter;
+        this.idempotencyCache = idempotencyCache;
+        this.pollMetrics = pollMetrics;
+        this.voteValidator = new VoteValidator(membershipCache, pollMetrics);
+    }
+
+    /**
+     * This method will get all the candidates with the voteCount attribute redacted, with an entity tag.
+     *
+     * @return The list of candidates without the attribute voteCount.
+     */
+    @GetMapping(ROOT_PATH)
+    public ResponseEntity<byte[]> getAllCandidates() {
+        CandidateListCache.CachedList candidates = candidateListCache.get();
+        // WebFlux answers 304 itself when the request's If-None-Match matches the entity tag.
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(candidates.getETag())
+                .body(candidates.getBody());
+    }
+
+    /**
+     * This method will get all the candidates fully populated if authenticated, otherwise it will provide
+     * a redacted version without the voteCount attribute.
+     *
+     * @param authentication The authentication object to verify an administrator.
+     * @return The list of all candidates, or all redacted candidates if not authenticated.
+     */
+    @GetMapping(ROOT_PATH_UNRESTRICTED)
+    public ResponseEntity<byte[]> getAllCandidates(Authentication authentication) {
+        if (authentication != null && authentication.isAuthenticated()) {
+            return json(View.ADMIN, pollService.getAllCandidates());
+        }
+        return getAllCandidates();
+    }
+
+    /**
+     * This method will get a page of the candidates in alphabetical order, with the voteCount attribute redacted,
+     * the number of candidates in the X-Total-Count header and a Link header to the next page.
+     *
+     * @param after The common name the page starts after, to page with a cursor.
+     * @param offset The number of candidates to skip, to page by position.
+     * @param limit The most candidates to return, up to 1000.
+     * @return The candidates in the page without the attribute voteCount.
+     */
+    @GetMapping(PAGE_PATH)
+    public ResponseEntity<byte[]> getCandidatePage(@RequestParam(required = false) String after,
+                                                   @RequestParam(defaultValue = "0") int offset,
+                                                   @RequestParam(defaultValue = "50") int limit) {
+        int size = pageSize(offset, limit);
+        // Ask for one more than fits, to tell whether there is a next page.
+        List<Candidate> page = pollService.getCandidatePage(after, offset, size + 1);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(pollService.countCandidates()));
+        if (page.size() > size) {
+            page = page.subList(0, size);
+            String cursor = URLEncoder.encode(page.get(size - 1).getCommonName(), StandardCharsets.UTF_8);
+            response.header(HttpHeaders.LINK, nextLink(PAGE_PATH + "?after=" + cursor + "&limit=" + size));
+        }
+        return response.contentType(MediaType.APPLICATION_JSON).body(write(View.PUBLIC, page));
+    }
+
+    /**
+     * This method will search the candidates' names and descriptions, with the voteCount attribute redacted,
+     * the number of matching candidates in the X-Total-Count header and a Link header to the next page.
+     *
+     * @param query The text searched for; each word must match, as a whole word, the start of one, or with a typo.
+     * @param offset The number of matching candidates to skip, from the best match.
+     * @param limit The most candidates to return, up to 1000.
+     * @return The matching candidates in the page, best match first, without the attribute voteCount.
+     */
+    @GetMapping(SEARCH_PATH)
+    public ResponseEntity<byte[]> searchCandidates(@RequestParam("q") String query,
+                                                   @RequestParam(defaultValue = "0") int offset,
+                                                   @RequestParam(defaultValue = "20") int limit) {
+        int size = pageSize(offset, limit);
+        if (query.length() > MAX_QUERY_LENGTH) {
+            throw voteValidator.reject(HttpStatus.BAD_REQUEST, Error.INVALID_SEARCH);
+        }
+        CandidateSearchResults results = candidateSearchIndex.search(query, offset, size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(TOTAL_COUNT_HEADER, String.valueOf(results.getTotal()));
+        if ((long) offset + size < results.getTotal()) {
+            String next = SEARCH_PATH + "?q=" + URLEncoder.encode(query, StandardCharsets.UTF_8)
+                    + "&offset=" + (offset + size) + "&limit=" + size;
+            response.header(HttpHeaders.LINK, nextLink(next));
+        }
+        return response.contentType(MediaType.APPLICATION_JSON).body(write(View.PUBLIC, results.getCandidates()));
+    }
+
+    /**
+     * This method will get a page of the candidates ranked by their votes, most first, with the number of
+     * candidates in the X-Total-Count header and a Link header to the next page.
+     *
+     * @param offset The number of candidates to skip, from the most voted for.
+     * @param limit The most candidates to return, up to 1000.
+     * @return The candidates in the page, with the votes they were ranked by.
+     */
+    @GetMapping(RANKED_PATH)
+    public ResponseEntity<byte[]> getRankedCandidates(@RequestParam(defaultValue = "0") int offset,
+                                                      @RequestParam(defaultValue = "10") int limit) {
+        int size = pageSize(offset, limit);
+        List<Candidate> page = pollService.getRankedCandidates(offset, size);
+        int total = pollService.countCandidates();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().header(TOTAL_COUNT_HEADER, String.valueOf(total));
+        if ((long) offset + size < total) {
+            response.header(HttpHeaders.LINK, nextLink(RANKED_PATH + "?offset=" + (offset + size) + "&limit=" + size));
+        }
+        return response.contentType(MediaType.APPLICATION_JSON).body(write(View.ADMIN, page));
+    }
+
+    /**
+     * This method will stream the tallies to an administrator as Server-Sent Events, a full "tally" first
+     * and then "delta" events holding only the counts that changed.
+     *
+     * @return The stream of events.
+     */
+    @GetMapping(value = TALLY_STREAM_PATH, produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamTallies() {
+        return tallyBroadcaster.subscribeReactive();
+    }
+
+    /**
+     * This method will get each candidate's votes broken down by region and by age band.
+     *
+     * @return The breakdown of the votes.
+     */
+    @GetMapping(DEMOGRAPHICS_PATH)
+    public DemographicBreakdown getDemographics() {
+        return demographicTally.getBreakdown();
+    }
+
+    /**
+     * This method will get the counters of the membership cache.
+     *
+     * @return The hits, misses and registry calls of the cache so far.
+     */
+    @GetMapping(MEMBERSHIP_CACHE_PATH)
+    public MembershipCacheStats getMembershipCacheStats() {
+        return membershipCache.getStats();
+    }
+
+    /**
+     * This method will get the metrics of the poll service and its endpoints.
+     *
+     * @return The vote rates, rejections, store sizes, lock contention and endpoint latencies so far.
+     */
+    @GetMapping(METRICS_PATH)
+    public PollMetricsReport getMetrics() {
+        return pollMetrics.getReport();
+    }
+
+    /**
+     * This method will get how fast each candidate gained and lost votes over the last second, minute and
+     * fifteen minutes, with a count for each second of the last minute and each minute of the last fifteen.
+     *
+     * @return The first votes, changes and retractions of each candidate.
+     */
+    @GetMapping(VOTE_RATES_PATH)
+    public VoteRatesReport getVoteRates() {
+        return pollMetrics.getVoteRates();
+    }
+
+    /**
+     * This method will get the counters of the vote rate limiter.
+     *
+     * @return The limits, the buckets in use and the requests admitted and turned away so far.
+     */
+    @GetMapping(RATE_LIMIT_PATH)
+    public VoteRateLimiterStats getRateLimitStats() {
+        return voteRateLimiter.getStats();
+    }
+
+    /**
+     * This method will get the counters of the idempotency cache.
+     *
+     * @return The keys held, claimed and replayed, and the generations rotated so far.
+     */
+    @GetMapping(IDEMPOTENCY_PATH)
+    public IdempotencyStats getIdempotencyStats() {
+        return idempotencyCache.getStats();
+    }
+
+    /**
+     * This method will set the status of the poll.
+     *
+     * @param status The boolean value, indicating if the poll is open or not.
+     * @return The response object to indicate the status of the request.
+     */
+    @PostMapping(POLL_PATH)
+    public ResponseEntity<Void> setPollStatus(@RequestBody boolean status) {
+        pollService.setPollOpen(status);
+
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * This method will get the vote for a specified membershipId.
+     *
+     * @param membershipId The identifier of the member to get the vote for.
+     * @return The redacted version (no voteCount attribute) of the associated candidate.
+     */
+    @GetMapping(VOTE_PATH + "/{membershipId}")
+    public ResponseEntity<byte[]> getVote(@PathVariable String membershipId) {
+        // Guard Clauses
+        Member member = pollService.getMember(membershipId);
+        voteValidator.checkMember(pollService, member);
+
+        Candidate candidate = member.getCandidateVotedFor();
+        if (candidate == null) {
+            throw voteValidator.reject(HttpStatus.NOT_FOUND, Error.NO_CANDIDATE_VOTE);
+        }
+
+        return json(View.PUBLIC, candidate);
+    }
+
+    /**
+     * This method will store a vote for a specified member and candidate in the poll service. A member sent
+     * for the first time is checked against the membership registry without holding an event loop thread. A vote
+     * sent again with the same idempotency key is answered as the first was, without being applied again or
+     * counted against the member's rate.
+     *
+     * @param signedVote The JSON value with the Candidate commonName as the key, and the Member object as the value.
+     * @param idempotencyKey The key the client identifies the vote by across retries, if any.
+     * @return The response object to indicate the status of the request.
+     */
+    @PutMapping(VOTE_PATH)
+    public Mono<ResponseEntity<Void>> makeVote(@RequestBody Map<String, Member> signedVote,
+                                               @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false)
+                                                       String idempotencyKey) {
+        // Separate the data into parsable variables.
+        String commonName = signedVote.keySet().stream().findFirst().orElse(null);
+        Member member = signedVote.values().stream().findFirst().orElse(null);
+        String membershipId = member == null ? null : member.getMembershipId();
+
+        // Guard Clauses
+        return idempotent(idempotencyKey, membershipId, "vote " + commonName, () -> {
+            checkRate(membershipId);
+            return makeVote(commonName, member);
+        });
+    }
+
+    private Mono<ResponseEntity<Void>> makeVote(String commonName, Member member) {
+        // Guard Clauses
+        voteValidator.checkMember(pollService, member);
+
+        return Mono.fromFuture(membershipCache.verifyAsync(member.getMembershipId(), member.getName()))
+                .flatMap(verdict -> {
+                    voteValidator.admitMember(pollService, member, verdict);
+                    Candidate newVote = voteValidator.getCandidate(pollService, commonName);
+                    return execute(() -> voteExecutor.makeVote(member.getMembershipId(), newVote));
+                })
+                // If the votes are the same, the poll service won't modify.
+                .map(changed -> new ResponseEntity<>(changed ? HttpStatus.ACCEPTED : HttpStatus.NOT_MODIFIED));
+    }
+
+    /**
+     * This method will retract a vote for a specified member. A retraction sent again with the same idempotency
+     * key is answered as the first was, without being applied again or counted against the member's rate.
+     *
+     * @param membershipId The identifier of the member to retract the vote for.
+     * @param idempotencyKey The key the client identifies the retraction by across retries, if any.
+     * @return The response object to indicate the status of the request.
+     */
+    @DeleteMapping(VOTE_PATH)
+    public Mono<ResponseEntity<Void>> retractVote(@RequestBody String membershipId,
+                                                  @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false)
+                                                          String idempotencyKey) {
+        // Guard Clauses
+        return idempotent(idempotencyKey, membershipId, "retract", () -> {
+            checkRate(membershipId);
+            voteValidator.checkMember(pollService, pollService.getMember(membershipId));
+
+            // If there is no vote to retract, the poll service won't modify.
+            return execute(() -> voteExecutor.retractVote(membershipId))
+                    .map(changed -> new ResponseEntity<>(changed ? HttpStatus.NO_CONTENT : HttpStatus.NOT_MODIFIED));
+        });
+    }
+
+    /**
+     * This method will remove a candidate from the poll service.
+     *
+     * @param commonName The common name of the Candidate object to remove.
+     * @return The response object to indicate the status of the request.
+     */
+    @DeleteMapping(REMOVE_BIRD_PATH)
+    public ResponseEntity<Void> removeCandidate(@RequestBody String commonName) {
+        // Guard Clauses
+        voteValidator.checkCommonName(commonName);
+        voteValidator.getCandidate(pollService, commonName);
+
+        pollService.removeCandidate(commonName);
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    /**
+     * This method will turn a request away if the member is voting too fast, before the poll service is touched.
+     *
+     * @param membershipId The membership identifier of the member making the request, which may be null for
+     *                     the caller to reject.
+     */
+    private void checkRate(String membershipId) {
+        if (membershipId != null && !voteRateLimiter.tryAcquire(membershipId)) {
+            throw voteValidator.reject(HttpStatus.TOO_MANY_REQUESTS, Error.RATE_LIMITED);
+        }
+    }
+
+    /**
+     * This method will make a request once per idempotency key, as the servlet controller does, without
+     * holding an event loop thread while a retry waits for the first request.
+     *
+     * @param idempotencyKey The key sent by the client, or null to just make the request.
+     * @param membershipId The membership identifier of the member making the request, whose keys are their own.
+     * @param fingerprint What the request asks for, so a key reused for something else is turned away.
+     * @param request The request to make.
+     * @return The response to the request, or to the first request with the key.
+     */
+    private Mono<ResponseEntity<Void>> idempotent(String idempotencyKey, String membershipId, String fingerprint,
+                                                  Supplier<Mono<ResponseEntity<Void>>> request) {
+        if (idempotencyKey == null || membershipId == null) {
+            return request.get();
+        }
+        if (!IdempotencyCache.isValidKey(idempotencyKey)) {
+            throw voteValidator.reject(HttpStatus.BAD_REQUEST, Error.INVALID_IDEMPOTENCY_KEY);
+        }
+        // Keys are made of visible characters, so the last space ends the membershipId.
+        String key = membershipId + ' ' + idempotencyKey;
+        return Mono.defer(() -> {
+            IdempotencyCache.Request mine = new IdempotencyCache.Request(fingerprint);
+            IdempotencyCache.Request original = idempotencyCache.claim(key, mine);
+            if (original == null) {
+                Mono<ResponseEntity<Void>> response;
+                try {
+                    response = request.get();
+                } catch (RuntimeException exception) {
+                    idempotencyCache.abandon(key, mine);
+                    throw exception;
+                }
+                return response
+                        .doOnNext(entity -> idempotencyCache.complete(mine, entity.getStatusCodeValue()))
+                        .doOnError(exception -> idempotencyCache.abandon(key, mine))
+                        .doOnCancel(() -> idempotencyCache.abandon(key, mine));
+            }
+
+            if (!original.getFingerprint().equals(fingerprint)) {
+                throw voteValidator.reject(HttpStatus.UNPROCESSABLE_ENTITY, Error.IDEMPOTENCY_KEY_REUSED);
+            }
+            return Mono.fromFuture(idempotencyCache.await(original))
+                    .onErrorMap(TimeoutException.class, exception -> voteValidator.reject(HttpStatus.CONFLICT,
+                            Error.REQUEST_IN_PROGRESS))
+                    .map(status -> ResponseEntity.status(status).header(IDEMPOTENT_REPLAYED_HEADER, "true")
+                            .<Void>build())
+                    // The first request failed, so make this one.
+                    .switchIfEmpty(Mono.defer(() -> idempotent(idempotencyKey, membershipId, fingerprint, request)));
+        });
+    }
+
+    /**
+     * This method will apply a command through the vote executor, moving it off the event loop if the
+     * executor makes its callers wait.
+     *
+     * @param command The command to apply.
+     * @return The result of the command.
+     */
+    private Mono<Boolean> execute(Callable<Boolean> command) {
+        Mono<Boolean> result = Mono.fromCallable(command);
+        return voteExecutor.isBlocking() ? result.subscribeOn(Schedulers.boundedElastic()) : result;
+    }
+
+    private ResponseEntity<byte[]> json(View view, Object data) {
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(write(view, data));
+    }
+
+    private byte[] write(View view, Object data) {
+        ByteArrayBuilder body = new ByteArrayBuilder();
+        try (JsonGenerator generator = jsonFactory.createGenerator(body, JsonEncoding.UTF8)) {
+            ViewWriter.write(generator, data, view);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return body.toByteArray();
+    }
+
+    private int pageSize(int offset, int limit) {
+        if (offset < 0 || limit < 1) {
+            throw voteValidator.reject(HttpStatus.BAD_REQUEST, Error.INVALID_PAGE);
+        }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private static String nextLink(String uri) {
+        return "<" + uri + ">; rel=\"next\"";
+    }
+}
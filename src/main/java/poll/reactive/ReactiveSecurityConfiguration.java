@@ -0,0 +1,59 @@
+// The security of the reactive stack, living in the reactive sub-package.
+// Mirrors SecurityConfiguration: the public voting endpoints bypass security altogether, and everything
+// else needs the administrator, over HTTP Basic or the login form, with CSRF protection.
+
+package poll.reactive;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.config.Customizer;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.util.matcher.NegatedServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityConfiguration {
+
+    /**
+     * This method will detail what endpoints require security and how a user can authenticate.
+     *
+     * @param httpSecurity The object that can construct security for the reactive endpoints.
+     * @param userDetailsService The store of the administrator's details.
+     * @return The security filter chain, which only applies outside the public endpoints.
+     */
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity httpSecurity,
+                                                         MapReactiveUserDetailsService userDetailsService) {
+        // Like WebSecurity.ignoring(), the public endpoints and the error page skip the chain entirely.
+        // As on the servlet stack, the manager is given no password service, so the {noop} password is not
+        // upgraded to BCrypt on the first login.
+        return httpSecurity
+                .securityMatcher(new NegatedServerWebExchangeMatcher(ServerWebExchangeMatchers.pathMatchers(
+                        "/birds", "/birds/page", "/birds/search", "/birds/vote", "/birds/vote/batch", "/voter", "/error",
+                        "/polls/*/birds", "/polls/*/birds/vote")))
+                .authenticationManager(new UserDetailsRepositoryReactiveAuthenticationManager(userDetailsService))
+                .httpBasic(Customizer.withDefaults())
+                .authorizeExchange(exchanges -> exchanges.anyExchange().authenticated())
+                .formLogin(Customizer.withDefaults())
+                .build();
+    }
+
+    /**
+     * This method will configure the authentication needed to access the protected endpoints.
+     *
+     * @return The store of the administrator's details.
+     */
+    @Bean
+    public MapReactiveUserDetailsService userDetailsService() {
+        return new MapReactiveUserDetailsService(
+                User.withUsername("username").password("{noop}password").roles("USER").build());
+    }
+}
@@ -0,0 +1,24 @@
+// The web server of the reactive stack, living in the reactive sub-package.
+
+package poll.reactive;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfiguration {
+
+    /**
+     * This method will serve the reactive stack from Netty. Spring Boot would otherwise pick Tomcat, as the
+     * servlet stack keeps it on the classpath, and run the reactive stack over servlet non-blocking IO.
+     *
+     * @return The factory of the Netty server.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
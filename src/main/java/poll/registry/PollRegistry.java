@@ -0,0 +1,141 @@
+// Holds the polls run alongside the main one, living in the registry sub-package.
+// Each poll is a Poll Service of its own, with its own candidates, members, locks and openness, so a busy
+// poll never contends with a quiet one. Polls are kept small while idle: a handful of member locks, and
+// members held as objects, whose map only grows its table once the first member votes.
+
+package poll.registry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import poll.exception.Error;
+import poll.metrics.PollMetrics;
+import poll.model.Candidate;
+import poll.service.ObjectMemberStore;
+import poll.service.PollService;
+import poll.service.PollServiceImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+@Component
+public class PollRegistry {
+
+    private static final Pattern POLL_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    // Key -> pollId, value -> the poll's Poll Service
+    private final ConcurrentHashMap<String, PollService> polls = new ConcurrentHashMap<>();
+    // Counted separately, so the limit holds under concurrent creation.
+    private final AtomicInteger pollCount = new AtomicInteger();
+
+    // Counts the votes of every poll, along with the main one's.
+    private final PollMetrics pollMetrics;
+    private final int maxPolls;
+    private final int lockStripes;
+
+    /**
+     * This constructor will create an empty registry.
+     *
+     * @param pollMetrics The metrics the votes of every poll are counted in.
+     * @param maxPolls The number of polls that can exist at once.
+     * @param lockStripes The number of member locks of each poll, a power of two.
+     */
+    public PollRegistry(PollMetrics pollMetrics,
+                        @Value("${poll.registry.max-polls:50000}") int maxPolls,
+                        @Value("${poll.registry.lock-stripes:16}") int lockStripes) {
+        this.pollMetrics = pollMetrics;
+        this.maxPolls = maxPolls;
+        this.lockStripes = lockStripes;
+    }
+
+    /**
+     * This method will create a closed poll with its own copy of the given candidates.
+     *
+     * @param pollId The identifier of the poll.
+     * @param candidates The candidates of the poll.
+     * @return The new poll's Poll Service.
+     */
+    public PollService create(String pollId, List<Candidate> candidates) {
+        if (!isValidPollId(pollId)) {
+            throw new RuntimeException(Error.INVALID_POLL.toString());
+        }
+        if (polls.containsKey(pollId)) {
+            throw new RuntimeException(Error.POLL_ALREADY_EXISTS.toString());
+        }
+
+        PollService poll = new PollServiceImpl(new ObjectMemberStore(), lockStripes);
+        for (Candidate candidate : candidates) {
+            // Copied, as each poll counts its own votes on its candidates.
+            poll.addCandidate(new Candidate(candidate));
+        }
+        poll.addListener(pollMetrics);
+
+        if (pollCount.incrementAndGet() > maxPolls) {
+            pollCount.decrementAndGet();
+            throw new RuntimeException(Error.POLL_LIMIT_REACHED.toString());
+        }
+        if (polls.putIfAbsent(pollId, poll) != null) {
+            pollCount.decrementAndGet();
+            throw new RuntimeException(Error.POLL_ALREADY_EXISTS.toString());
+        }
+        return poll;
+    }
+
+    /**
+     * This method will get a poll's Poll Service.
+     *
+     * @param pollId The identifier of the poll.
+     * @return The poll's Poll Service, or null if there is no such poll.
+     */
+    public PollService get(String pollId) {
+        return pollId == null ? null : polls.get(pollId);
+    }
+
+    /**
+     * This method will remove a poll, with its members and votes.
+     *
+     * @param pollId The identifier of the poll.
+     * @return The boolean value true if the poll existed.
+     */
+    public boolean remove(String pollId) {
+        if (pollId == null || polls.remove(pollId) == null) {
+            return false;
+        }
+        pollCount.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * This method will get a summary of every poll, in no particular order.
+     *
+     * @return The identifier, openness, and number of candidates and members of each poll.
+     */
+    public List<PollSummary> getSummaries() {
+        List<PollSummary> summaries = new ArrayList<>(polls.size());
+        polls.forEach((pollId, poll) -> summaries.add(new PollSummary(
+                pollId, poll.isPollOpen(), poll.countCandidates(), poll.getMemberCount())));
+        return summaries;
+    }
+
+    /**
+     * This method will get the number of polls.
+     *
+     * @return The number of polls.
+     */
+    public int size() {
+        return pollCount.get();
+    }
+
+    /**
+     * This method will check a poll identifier can be used in a path: up to 64 letters, digits, dashes
+     * and underscores.
+     *
+     * @param pollId The identifier of the poll.
+     * @return The boolean value true if it is valid.
+     */
+    public static boolean isValidPollId(String pollId) {
+        return pollId != null && POLL_ID.matcher(pollId).matches();
+    }
+}
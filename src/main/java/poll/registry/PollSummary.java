@@ -0,0 +1,42 @@
+// A summary of a poll in the poll registry, living in the registry sub-package.
+
+package poll.registry;
+
+public class PollSummary {
+
+    private final String pollId;
+    private final boolean open;
+    private final int candidates;
+    private final int members;
+
+    /**
+     * This constructor will create a summary of a poll.
+     *
+     * @param pollId The identifier of the poll.
+     * @param open The boolean value determining if the poll is open or not.
+     * @param candidates The number of candidates in the poll.
+     * @param members The number of members who have voted in the poll.
+     */
+    public PollSummary(String pollId, boolean open, int candidates, int members) {
+        this.pollId = pollId;
+        this.open = open;
+        this.candidates = candidates;
+        this.members = members;
+    }
+
+    public String getPollId() {
+        return pollId;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public int getMembers() {
+        return members;
+    }
+}
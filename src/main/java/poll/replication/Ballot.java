@@ -0,0 +1,94 @@
+// A member's vote as a last-writer-wins register, living in the replication sub-package.
+// Of two ballots for the same member, the one with the later hybrid logical timestamp wins, and the node's
+// identifier breaks ties, so every node picks the same winner whatever order the ballots arrive in.
+
+package poll.replication;
+
+import poll.model.Member;
+
+public class Ballot {
+
+    private final String membershipId;
+    private final String name;
+    private final int age;
+    private final String regionOfScotland;
+    // The common name of the candidate voted for, or null if the vote was retracted.
+    private final String commonName;
+    private final long timestamp;
+    private final String nodeId;
+
+    /**
+     * This constructor will create a ballot with all the attributes.
+     *
+     * @param membershipId     The membership identifier of the member voting.
+     * @param name             The full name of the member, so other nodes can register them.
+     * @param age              The age of the member.
+     * @param regionOfScotland The region of the member, which may be null.
+     * @param commonName       The common name of the candidate voted for, or null for a retraction.
+     * @param timestamp        The hybrid logical timestamp of the vote.
+     * @param nodeId           The identifier of the node the vote was made on.
+     */
+    public Ballot(String membershipId, String name, int age, String regionOfScotland, String commonName,
+                  long timestamp, String nodeId) {
+        this.membershipId = membershipId;
+        this.name = name;
+        this.age = age;
+        this.regionOfScotland = regionOfScotland;
+        this.commonName = commonName;
+        this.timestamp = timestamp;
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * This method will determine if this ballot wins over another for the same member.
+     *
+     * @param other The other ballot, which may be null.
+     * @return The boolean value true if this ballot is the later one.
+     */
+    public boolean supersedes(Ballot other) {
+        if (other == null) {
+            return true;
+        }
+        if (timestamp != other.timestamp) {
+            return timestamp > other.timestamp;
+        }
+        return nodeId.compareTo(other.nodeId) > 0;
+    }
+
+    /**
+     * This method will create a member from the details carried by the ballot, without a vote.
+     *
+     * @return The member object describing the individual.
+     */
+    public Member toMember() {
+        return new Member(membershipId, name, age, regionOfScotland);
+    }
+
+    public String getMembershipId() {
+        return membershipId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAge() {
+        return age;
+    }
+
+    public String getRegionOfScotland() {
+        return regionOfScotland;
+    }
+
+    public String getCommonName() {
+        return commonName;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+}
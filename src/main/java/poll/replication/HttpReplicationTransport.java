@@ -0,0 +1,79 @@
+// Sends batches of changes to the other nodes over HTTP, living in the replication sub-package.
+// Selected with poll.replication.enabled=true. Each peer is the base URL of another PollApplication, whose
+// /replication endpoint is protected like the administrator's, so batches carry the administrator's credentials.
+
+package poll.replication;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Component
+@ConditionalOnProperty(name = "poll.replication.enabled", havingValue = "true")
+public class HttpReplicationTransport implements ReplicationTransport {
+
+    private final List<String> peers;
+    private final String authorization;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    /**
+     * This constructor will set up a client of the other nodes.
+     *
+     * @param peers The base URLs of the other nodes, separated by commas.
+     * @param user The administrator's username on the other nodes.
+     * @param password The administrator's password on the other nodes.
+     * @param timeoutMs The time to wait for a node to connect, and then to answer.
+     */
+    public HttpReplicationTransport(@Value("${poll.replication.peers:}") String peers,
+                                    @Value("${poll.replication.user:username}") String user,
+                                    @Value("${poll.replication.password:password}") String password,
+                                    @Value("${poll.replication.timeout-ms:2000}") long timeoutMs) {
+        this.peers = Arrays.stream(peers.split(","))
+                .map(String::trim)
+                .filter(peer -> !peer.isEmpty())
+                .map(peer -> peer.endsWith("/") ? peer.substring(0, peer.length() - 1) : peer)
+                .collect(Collectors.toList());
+        this.authorization = "Basic " + Base64.getEncoder().encodeToString(
+                (user + ":" + password).getBytes(StandardCharsets.UTF_8));
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public List<String> getPeers() {
+        return peers;
+    }
+
+    @Override
+    public void send(String peer, byte[] batch) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(peer + "/replication"))
+                .timeout(timeout)
+                .header("Authorization", authorization)
+                .header("Content-Type", "application/octet-stream")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(batch))
+                .build();
+        HttpResponse<Void> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sending a batch to " + peer, exception);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(peer + " answered " + response.statusCode());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+// A hybrid logical clock, living in the replication sub-package.
+// Timestamps are the wall clock in milliseconds, shifted up 16 bits, plus a logical counter in the low bits.
+// They follow the wall clock while it moves forward, never go backwards, and always come after every timestamp
+// seen from another node, so a vote made after seeing another is ordered after it even if the clocks disagree.
+
+package poll.replication;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class HybridLogicalClock {
+
+    private static final int LOGICAL_BITS = 16;
+
+    private final LongSupplier wallClock;
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * This constructor will create a clock following the given wall clock.
+     *
+     * @param wallClock The source of the time in milliseconds.
+     */
+    public HybridLogicalClock(LongSupplier wallClock) {
+        this.wallClock = wallClock;
+    }
+
+    /**
+     * This method will get a timestamp for a change made on this node, after every timestamp given so far.
+     *
+     * @return The timestamp.
+     */
+    public long now() {
+        long physical = wallClock.getAsLong() << LOGICAL_BITS;
+        return last.accumulateAndGet(physical, (previous, wall) -> Math.max(previous + 1, wall));
+    }
+
+    /**
+     * This method will move the clock past a timestamp seen from another node.
+     *
+     * @param remote The timestamp from the other node.
+     */
+    public void update(long remote) {
+        long physical = wallClock.getAsLong() << LOGICAL_BITS;
+        last.accumulateAndGet(Math.max(remote, physical), Math::max);
+    }
+
+    /**
+     * This method will get the newest timestamp given or seen, without moving the clock.
+     *
+     * @return The timestamp.
+     */
+    public long current() {
+        return last.get();
+    }
+}
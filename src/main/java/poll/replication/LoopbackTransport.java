@@ -0,0 +1,91 @@
+// Connects nodes running in the same process, living in the replication sub-package.
+// Used by the tests to replicate between several poll services without a network, and to cut links
+// between nodes to simulate a partition.
+
+package poll.replication;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+public class LoopbackTransport implements ReplicationTransport {
+
+    private final Network network;
+    private final String nodeId;
+
+    private LoopbackTransport(Network network, String nodeId) {
+        this.network = network;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public List<String> getPeers() {
+        List<String> peers = new ArrayList<>(network.receivers.keySet());
+        peers.remove(nodeId);
+        return peers;
+    }
+
+    @Override
+    public void send(String peer, byte[] batch) throws IOException {
+        Consumer<byte[]> receiver = network.receivers.get(peer);
+        if (receiver == null || network.isPartitioned(nodeId, peer)) {
+            throw new IOException(nodeId + " can't reach " + peer);
+        }
+        receiver.accept(batch);
+    }
+
+    // The nodes in the process, and the links between them that are cut.
+    public static class Network {
+
+        // Key -> nodeId, value -> the node's receiver of batches.
+        private final Map<String, Consumer<byte[]>> receivers = new ConcurrentHashMap<>();
+        private final Set<String> cutLinks = ConcurrentHashMap.newKeySet();
+
+        /**
+         * This method will add a node to the network. Every node must be added before any starts sending,
+         * as a transport's peers are the nodes in the network when it asks.
+         *
+         * @param nodeId The identifier of the node.
+         * @param receiver The receiver of the batches sent to the node.
+         * @return The transport the node sends its batches with.
+         */
+        public LoopbackTransport join(String nodeId, Consumer<byte[]> receiver) {
+            receivers.put(nodeId, receiver);
+            return new LoopbackTransport(this, nodeId);
+        }
+
+        /**
+         * This method will cut the links between two groups of nodes, in both directions.
+         *
+         * @param side The nodes on one side of the partition.
+         * @param otherSide The nodes on the other side.
+         */
+        public void partition(List<String> side, List<String> otherSide) {
+            for (String nodeId : side) {
+                for (String otherNodeId : otherSide) {
+                    cutLinks.add(link(nodeId, otherNodeId));
+                    cutLinks.add(link(otherNodeId, nodeId));
+                }
+            }
+        }
+
+        /**
+         * This method will restore every link.
+         */
+        public void heal() {
+            cutLinks.clear();
+        }
+
+        private boolean isPartitioned(String from, String to) {
+            return cutLinks.contains(link(from, to));
+        }
+
+        private static String link(String from, String to) {
+            return from + "->" + to;
+        }
+    }
+}
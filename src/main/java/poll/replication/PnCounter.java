@@ -0,0 +1,88 @@
+// A candidate's tally as a PN-counter, living in the replication sub-package.
+// Every node has a pair of counts that only it changes, and that only grow: its increments and decrements.
+// Other nodes' pairs are merged by taking the larger of each count, so merging is idempotent and order free,
+// and the tally is the sum of every node's increments less its decrements.
+
+package poll.replication;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PnCounter {
+
+    // This node's counts, changed on the vote path.
+    private final LongAdder increments = new LongAdder();
+    private final LongAdder decrements = new LongAdder();
+    // Key -> nodeId, value -> {increments, decrements}, replaced rather than changed in place.
+    private final Map<String, long[]> remote = new ConcurrentHashMap<>();
+
+    public void increment() {
+        increments.increment();
+    }
+
+    public void decrement() {
+        decrements.increment();
+    }
+
+    public long getIncrements() {
+        return increments.sum();
+    }
+
+    public long getDecrements() {
+        return decrements.sum();
+    }
+
+    /**
+     * This method will merge another node's counts.
+     *
+     * @param nodeId The identifier of the other node.
+     * @param nodeIncrements The other node's increments.
+     * @param nodeDecrements The other node's decrements.
+     * @return The boolean value true if either count grew.
+     */
+    public boolean merge(String nodeId, long nodeIncrements, long nodeDecrements) {
+        long[] current = remote.get(nodeId);
+        if (current != null && current[0] >= nodeIncrements && current[1] >= nodeDecrements) {
+            return false;
+        }
+        remote.merge(nodeId, new long[]{nodeIncrements, nodeDecrements}, (previous, seen) -> new long[]{
+                Math.max(previous[0], seen[0]), Math.max(previous[1], seen[1])});
+        return true;
+    }
+
+    /**
+     * This method will bring this node's own counts up to counts it saved before it restarted. Counts it
+     * has already passed are left alone, so saved counts can be restored in any order.
+     *
+     * @param nodeIncrements The saved increments.
+     * @param nodeDecrements The saved decrements.
+     */
+    public void restore(long nodeIncrements, long nodeDecrements) {
+        increments.add(Math.max(0, nodeIncrements - increments.sum()));
+        decrements.add(Math.max(0, nodeDecrements - decrements.sum()));
+    }
+
+    /**
+     * This method will get the counts merged from the other nodes.
+     *
+     * @return The counts, {increments, decrements} by nodeId, which must not be changed.
+     */
+    public Map<String, long[]> getRemoteCounts() {
+        return Collections.unmodifiableMap(remote);
+    }
+
+    /**
+     * This method will get the tally, as far as this node has heard from the others.
+     *
+     * @return The sum of every node's increments less its decrements.
+     */
+    public long value() {
+        long value = increments.sum() - decrements.sum();
+        for (long[] counts : remote.values()) {
+            value += counts[0] - counts[1];
+        }
+        return value;
+    }
+}
@@ -0,0 +1,152 @@
+// A batch of changes sent from one node to another, living in the replication sub-package.
+// It holds the sender's clock, its own counts of every candidate's PN-counter, and the latest ballots it made
+// that the receiver hasn't acknowledged. Ballots are only ever sent by the node that made them, so they don't
+// carry the node's identifier. The batch is written in a compact binary form, compressed with Deflater.
+
+package poll.replication;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+public class ReplicationBatch {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final String nodeId;
+    private final long clock;
+    // Key -> commonName, value -> {increments, decrements} of the sender.
+    private final Map<String, long[]> counts;
+    private final List<Ballot> ballots;
+    // The size of the batch before it was compressed, once encoded.
+    private long encodedSize;
+
+    /**
+     * This constructor will create a batch with all the attributes.
+     *
+     * @param nodeId  The identifier of the sending node.
+     * @param clock   The sender's hybrid logical clock when the batch was made.
+     * @param counts  The sender's increments and decrements of each candidate, by common name.
+     * @param ballots The ballots made on the sending node.
+     */
+    public ReplicationBatch(String nodeId, long clock, Map<String, long[]> counts, List<Ballot> ballots) {
+        this.nodeId = nodeId;
+        this.clock = clock;
+        this.counts = counts;
+        this.ballots = ballots;
+    }
+
+    /**
+     * This method will write the batch in its binary form and compress it.
+     *
+     * @return The compressed batch.
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes, deflater))) {
+            out.writeByte(FORMAT_VERSION);
+            out.writeUTF(nodeId);
+            out.writeLong(clock);
+            out.writeInt(counts.size());
+            for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue()[0]);
+                out.writeLong(entry.getValue()[1]);
+            }
+            out.writeInt(ballots.size());
+            for (Ballot ballot : ballots) {
+                out.writeUTF(ballot.getMembershipId());
+                writeNullable(out, ballot.getName());
+                out.writeInt(ballot.getAge());
+                writeNullable(out, ballot.getRegionOfScotland());
+                writeNullable(out, ballot.getCommonName());
+                out.writeLong(ballot.getTimestamp());
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        } finally {
+            encodedSize = deflater.getBytesRead();
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * This method will read a batch written by encode.
+     *
+     * @param compressed The compressed batch.
+     * @return The batch.
+     * @throws IOException If the batch is malformed or written in another version of the format.
+     */
+    public static ReplicationBatch decode(byte[] compressed) throws IOException {
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(compressed)))) {
+            if (in.readUnsignedByte() != FORMAT_VERSION) {
+                throw new IOException("Unknown replication batch format");
+            }
+            String nodeId = in.readUTF();
+            long clock = in.readLong();
+            int countSize = in.readInt();
+            Map<String, long[]> counts = new LinkedHashMap<>();
+            for (int i = 0; i < countSize; i++) {
+                counts.put(in.readUTF(), new long[]{in.readLong(), in.readLong()});
+            }
+            int ballotSize = in.readInt();
+            if (countSize < 0 || ballotSize < 0) {
+                throw new IOException("Negative replication batch size");
+            }
+            List<Ballot> ballots = new ArrayList<>(Math.min(ballotSize, 1 << 16));
+            for (int i = 0; i < ballotSize; i++) {
+                String membershipId = in.readUTF();
+                String name = readNullable(in);
+                int age = in.readInt();
+                String region = readNullable(in);
+                String commonName = readNullable(in);
+                long timestamp = in.readLong();
+                ballots.add(new Ballot(membershipId, name, age, region, commonName, timestamp, nodeId));
+            }
+            return new ReplicationBatch(nodeId, clock, counts, ballots);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getClock() {
+        return clock;
+    }
+
+    public Map<String, long[]> getCounts() {
+        return counts;
+    }
+
+    public List<Ballot> getBallots() {
+        return ballots;
+    }
+
+    public long getEncodedSize() {
+        return encodedSize;
+    }
+}
@@ -0,0 +1,102 @@
+// The counters of the vote replication, living in the replication sub-package.
+
+package poll.replication;
+
+import java.util.Map;
+
+public class ReplicationStats {
+
+    private final String nodeId;
+    private final long clock;
+    private final int ballots;
+    private final int queuedBallots;
+    private final long batchesSent;
+    private final long sendFailures;
+    private final long ballotsSent;
+    private final long bytesBeforeCompression;
+    private final long bytesSent;
+    private final long batchesReceived;
+    private final long ballotsReceived;
+    private final Map<String, Long> tallies;
+
+    /**
+     * This constructor will create the counters with all the attributes.
+     *
+     * @param nodeId                 The identifier of this node.
+     * @param clock                  The newest hybrid logical timestamp given or seen.
+     * @param ballots                The number of members with a ballot.
+     * @param queuedBallots          The ballots waiting to be sent, summed over the peers.
+     * @param batchesSent            The batches delivered to peers.
+     * @param sendFailures           The batches that couldn't be delivered, and were queued again.
+     * @param ballotsSent            The ballots delivered to peers.
+     * @param bytesBeforeCompression The size of the delivered batches before compression.
+     * @param bytesSent              The size of the delivered batches.
+     * @param batchesReceived        The batches received from peers.
+     * @param ballotsReceived        The ballots received from peers, whether or not they won.
+     * @param tallies                The replicated tally of each candidate, by common name.
+     */
+    public ReplicationStats(String nodeId, long clock, int ballots, int queuedBallots, long batchesSent,
+                            long sendFailures, long ballotsSent, long bytesBeforeCompression, long bytesSent,
+                            long batchesReceived, long ballotsReceived, Map<String, Long> tallies) {
+        this.nodeId = nodeId;
+        this.clock = clock;
+        this.ballots = ballots;
+        this.queuedBallots = queuedBallots;
+        this.batchesSent = batchesSent;
+        this.sendFailures = sendFailures;
+        this.ballotsSent = ballotsSent;
+        this.bytesBeforeCompression = bytesBeforeCompression;
+        this.bytesSent = bytesSent;
+        this.batchesReceived = batchesReceived;
+        this.ballotsReceived = ballotsReceived;
+        this.tallies = tallies;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getClock() {
+        return clock;
+    }
+
+    public int getBallots() {
+        return ballots;
+    }
+
+    public int getQueuedBallots() {
+        return queuedBallots;
+    }
+
+    public long getBatchesSent() {
+        return batchesSent;
+    }
+
+    public long getSendFailures() {
+        return sendFailures;
+    }
+
+    public long getBallotsSent() {
+        return ballotsSent;
+    }
+
+    public long getBytesBeforeCompression() {
+        return bytesBeforeCompression;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getBatchesReceived() {
+        return batchesReceived;
+    }
+
+    public long getBallotsReceived() {
+        return ballotsReceived;
+    }
+
+    public Map<String, Long> getTallies() {
+        return tallies;
+    }
+}
@@ -0,0 +1,27 @@
+// How a node sends batches of changes to its peers, living in the replication sub-package.
+// A transport only has to deliver a batch or fail; a batch that fails is kept and its ballots sent again.
+// Whatever receives batches on the other side hands them to that node's VoteReplicator.
+
+package poll.replication;
+
+import java.io.IOException;
+import java.util.List;
+
+public interface ReplicationTransport {
+
+    /**
+     * This method will get the peers this node sends its changes to.
+     *
+     * @return The addresses of the peers, in the transport's own terms.
+     */
+    List<String> getPeers();
+
+    /**
+     * This method will deliver a batch to a peer.
+     *
+     * @param peer The address of the peer, one of getPeers().
+     * @param batch The compressed batch.
+     * @throws IOException If the peer can't be reached or turned the batch away.
+     */
+    void send(String peer, byte[] batch) throws IOException;
+}
@@ -0,0 +1,525 @@
+// Replicates the votes of the poll between nodes that all accept votes, living in the replication sub-package.
+// Selected with poll.replication.enabled=true.
+//
+// Every member's vote is a last-writer-wins Ballot, stamped by a hybrid logical clock, and every candidate's
+// tally a PnCounter. A node only counts the ballots it made that are still winning: it increments when it
+// makes one, and decrements once it sees one of its own lose, to a later vote here or on another node. Once
+// every node has seen every ballot, the counts add up to the winning ballots, the same on every node.
+//
+// The ballots made here are queued for each peer, keeping only a member's latest, and sent in compressed
+// batches along with this node's counts. A batch that can't be delivered is queued again, so a partitioned
+// node catches up once the partition heals. Ballots from other nodes are applied to the poll service like
+// any vote, so the tallies, streams and journal of every node follow them.
+//
+// With the vote journal enabled, the winning ballots and every node's counts are journaled and saved in each
+// snapshot too. A restarted node rebuilds them as they were, under the node identifier it had, instead of
+// taking the votes it replays for new ones.
+
+package poll.replication;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import poll.journal.SnapshotSection;
+import poll.journal.VoteJournal;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollListener;
+import poll.service.PollService;
+
+import javax.annotation.PreDestroy;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+@Component
+@ConditionalOnProperty(name = "poll.replication.enabled", havingValue = "true")
+public class VoteReplicator implements PollListener, VoteJournal.ReplicaListener, SnapshotSection {
+
+    // The file in the journal directory holding the node identifier made up for this node.
+    private static final String NODE_ID_FILE = "node-id";
+
+    private final PollService pollService;
+    private final ReplicationTransport transport;
+    // The journal the replicated state is kept in, or null if the poll isn't journaled.
+    private final VoteJournal voteJournal;
+    private final String nodeId;
+    private final HybridLogicalClock clock = new HybridLogicalClock(System::currentTimeMillis);
+    private final int batchSize;
+
+    // Key -> membershipId, value -> the winning ballot.
+    private final Map<String, Ballot> ballots = new ConcurrentHashMap<>();
+    // Key -> commonName, value -> the candidate's tally.
+    private final Map<String, PnCounter> tallies = new ConcurrentHashMap<>();
+    // Key -> peer, value -> the ballots made here that the peer hasn't received, by membershipId.
+    private final Map<String, Map<String, Ballot>> pending = new ConcurrentHashMap<>();
+    // Bumped whenever this node's counts change, and the version each peer last received.
+    private final AtomicLong countsVersion = new AtomicLong();
+    private final Map<String, Long> sentCountsVersions = new ConcurrentHashMap<>();
+    // Set while a ballot from another node is applied, so the listener doesn't take it for a vote made here.
+    private final ThreadLocal<Boolean> applyingRemote = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final LongAdder batchesSent = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private final LongAdder batchesReceived = new LongAdder();
+    private final LongAdder ballotsSent = new LongAdder();
+    private final LongAdder ballotsReceived = new LongAdder();
+    private final LongAdder bytesEncoded = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * This constructor will start replicating the poll service's votes to the transport's peers.
+     *
+     * @param pollService The Poll Service object whose votes are replicated.
+     * @param transport The transport the batches are sent with.
+     * @param voteJournal The journal the replicated state is kept in, if the poll is journaled.
+     * @param nodeId The identifier of this node, unique among the nodes, or blank to make one up. One made up
+     *               for a journaled poll is kept in the journal directory, so the node keeps it when restarted.
+     * @param flushMs The time between batches, or 0 to only send them when flush() is called.
+     * @param batchSize The largest number of ballots in a batch.
+     */
+    public VoteReplicator(PollService pollService, ReplicationTransport transport,
+                          ObjectProvider<VoteJournal> voteJournal,
+                          @Value("${poll.replication.node-id:}") String nodeId,
+                          @Value("${poll.replication.flush-ms:100}") long flushMs,
+                          @Value("${poll.replication.batch-size:4096}") int batchSize) {
+        this.pollService = pollService;
+        this.transport = transport;
+        this.voteJournal = voteJournal.getIfAvailable();
+        if (!nodeId.isBlank()) {
+            this.nodeId = nodeId;
+        } else if (this.voteJournal != null) {
+            this.nodeId = journaledNodeId(this.voteJournal.getDirectory());
+        } else {
+            this.nodeId = newNodeId();
+        }
+        this.batchSize = batchSize;
+
+        if (flushMs > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "replication-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flush, flushMs, flushMs, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+        if (this.voteJournal != null) {
+            this.voteJournal.setReplicaListener(this);
+        }
+        pollService.addListener(this);
+    }
+
+    // Votes replayed from the journal or a snapshot were stamped when they were first made, and their ballots
+    // are rebuilt from what was journaled with them, so they aren't taken for new votes.
+    @Override
+    public void onVote(Member voter, Candidate lastVote, Candidate newVote) {
+        if (!applyingRemote.get() && !isReplaying()) {
+            record(voter, newVote.getCommonName());
+        }
+    }
+
+    @Override
+    public void onRetract(Member voter, Candidate lastVote) {
+        if (!applyingRemote.get() && !isReplaying()) {
+            record(voter, null);
+        }
+    }
+
+    /**
+     * This method will make a ballot for a vote made on this node. Called under the member's lock.
+     *
+     * @param voter The member voting.
+     * @param commonName The common name of the candidate voted for, or null for a retraction.
+     */
+    private void record(Member voter, String commonName) {
+        Ballot ballot = new Ballot(voter.getMembershipId(), voter.getName(), voter.getAge(),
+                voter.getRegionOfScotland(), commonName, clock.now(), nodeId);
+        Ballot previous = ballots.put(voter.getMembershipId(), ballot);
+        boolean superseded = supersede(previous);
+        if (commonName != null) {
+            tally(commonName).increment();
+        }
+        if (voteJournal != null) {
+            voteJournal.appendReplicaBallot(ballot.getMembershipId(), commonName, nodeId, ballot.getTimestamp());
+            if (superseded) {
+                journalOwnCounts(previous.getCommonName());
+            }
+            if (commonName != null) {
+                journalOwnCounts(commonName);
+            }
+        }
+        countsVersion.incrementAndGet();
+        for (String peer : transport.getPeers()) {
+            queue(peer).put(ballot.getMembershipId(), ballot);
+        }
+    }
+
+    /**
+     * This method will merge a batch sent by another node.
+     *
+     * @param compressed The compressed batch.
+     * @throws IOException If the batch is malformed.
+     */
+    public void receive(byte[] compressed) throws IOException {
+        ReplicationBatch batch = ReplicationBatch.decode(compressed);
+        batchesReceived.increment();
+        clock.update(batch.getClock());
+        batch.getCounts().forEach((commonName, counts) -> {
+            if (tally(commonName).merge(batch.getNodeId(), counts[0], counts[1]) && voteJournal != null) {
+                voteJournal.appendReplicaCounts(commonName, batch.getNodeId(), counts[0], counts[1]);
+            }
+        });
+        for (Ballot ballot : batch.getBallots()) {
+            ballotsReceived.increment();
+            pollService.runWithMemberLock(ballot.getMembershipId(), () -> merge(ballot));
+        }
+    }
+
+    /**
+     * This method will apply a ballot from another node, if it wins over the member's current one.
+     * Called under the member's lock, so a vote made here can't slip in between.
+     *
+     * @param ballot The ballot from the other node.
+     */
+    private void merge(Ballot ballot) {
+        String membershipId = ballot.getMembershipId();
+        Ballot current = ballots.get(membershipId);
+        if (!ballot.supersedes(current)) {
+            return;
+        }
+        ballots.put(membershipId, ballot);
+        boolean superseded = supersede(current);
+        if (superseded) {
+            countsVersion.incrementAndGet();
+        }
+        if (voteJournal != null) {
+            voteJournal.appendReplicaBallot(membershipId, ballot.getCommonName(), ballot.getNodeId(),
+                    ballot.getTimestamp());
+            if (superseded) {
+                journalOwnCounts(current.getCommonName());
+            }
+        }
+
+        applyingRemote.set(Boolean.TRUE);
+        try {
+            if (!pollService.hasMember(membershipId)) {
+                pollService.addMember(ballot.toMember());
+            }
+            // A ballot for a candidate this node doesn't have leaves the member without a vote here.
+            Candidate newVote = ballot.getCommonName() == null ? null : pollService.getCandidate(ballot.getCommonName());
+            if (newVote == null) {
+                pollService.retractVote(membershipId);
+            } else {
+                pollService.makeVote(membershipId, newVote);
+            }
+        } finally {
+            applyingRemote.set(Boolean.FALSE);
+        }
+    }
+
+    /**
+     * This method will stop counting a ballot that lost, if it was made on this node.
+     *
+     * @param previous The ballot that lost, which may be null.
+     * @return The boolean value true if this node's counts changed.
+     */
+    private boolean supersede(Ballot previous) {
+        if (previous == null || previous.getCommonName() == null || !previous.getNodeId().equals(nodeId)) {
+            return false;
+        }
+        tally(previous.getCommonName()).decrement();
+        return true;
+    }
+
+    /**
+     * This method will journal this node's counts of a candidate, after they changed.
+     *
+     * @param commonName The common name of the candidate.
+     */
+    private void journalOwnCounts(String commonName) {
+        PnCounter tally = tally(commonName);
+        voteJournal.appendReplicaCounts(commonName, nodeId, tally.getIncrements(), tally.getDecrements());
+    }
+
+    @Override
+    public void onBallotReplayed(String membershipId, String commonName, String nodeId, long timestamp) {
+        restoreBallot(membershipId, commonName, nodeId, timestamp);
+    }
+
+    @Override
+    public void onCountsReplayed(String commonName, String nodeId, long increments, long decrements) {
+        restoreCounts(commonName, nodeId, increments, decrements);
+    }
+
+    @Override
+    public String getSectionName() {
+        return "replication";
+    }
+
+    /**
+     * This method will save the clock, every node's counts and the winning ballots in a snapshot. They are
+     * read while votes go on, so some may be newer than the snapshot; replaying them again changes nothing.
+     *
+     * @param output The stream to write to.
+     * @throws IOException The error, if the stream can't be written.
+     */
+    @Override
+    public void writeSection(DataOutputStream output) throws IOException {
+        output.writeLong(clock.current());
+        for (Map.Entry<String, PnCounter> entry : tallies.entrySet()) {
+            PnCounter tally = entry.getValue();
+            output.writeBoolean(true);
+            output.writeUTF(entry.getKey());
+            output.writeLong(tally.getIncrements());
+            output.writeLong(tally.getDecrements());
+            for (Map.Entry<String, long[]> remote : tally.getRemoteCounts().entrySet()) {
+                output.writeBoolean(true);
+                output.writeUTF(remote.getKey());
+                output.writeLong(remote.getValue()[0]);
+                output.writeLong(remote.getValue()[1]);
+            }
+            output.writeBoolean(false);
+        }
+        output.writeBoolean(false);
+        for (Ballot ballot : ballots.values()) {
+            output.writeBoolean(true);
+            output.writeUTF(ballot.getMembershipId());
+            output.writeBoolean(ballot.getCommonName() != null);
+            if (ballot.getCommonName() != null) {
+                output.writeUTF(ballot.getCommonName());
+            }
+            output.writeUTF(ballot.getNodeId());
+            output.writeLong(ballot.getTimestamp());
+        }
+        output.writeBoolean(false);
+    }
+
+    /**
+     * This method will restore what writeSection saved, once the snapshot's members are restored.
+     *
+     * @param input The stream to read from.
+     * @throws IOException The error, if the stream can't be read.
+     */
+    @Override
+    public void readSection(DataInputStream input) throws IOException {
+        clock.update(input.readLong());
+        while (input.readBoolean()) {
+            String commonName = input.readUTF();
+            restoreCounts(commonName, nodeId, input.readLong(), input.readLong());
+            while (input.readBoolean()) {
+                restoreCounts(commonName, input.readUTF(), input.readLong(), input.readLong());
+            }
+        }
+        while (input.readBoolean()) {
+            String membershipId = input.readUTF();
+            String commonName = input.readBoolean() ? input.readUTF() : null;
+            restoreBallot(membershipId, commonName, input.readUTF(), input.readLong());
+        }
+    }
+
+    /**
+     * This method will restore a ballot saved before a restart, if it wins over the member's current one.
+     *
+     * @param membershipId The membership identifier of the member, who must already be restored.
+     * @param commonName The common name of the candidate voted for, or null for a retraction.
+     * @param ballotNodeId The identifier of the node the ballot was made on.
+     * @param timestamp The hybrid logical timestamp of the ballot.
+     */
+    private void restoreBallot(String membershipId, String commonName, String ballotNodeId, long timestamp) {
+        clock.update(timestamp);
+        Member member = pollService.getMember(membershipId);
+        if (member == null) {
+            return;
+        }
+        Ballot ballot = new Ballot(membershipId, member.getName(), member.getAge(), member.getRegionOfScotland(),
+                commonName, timestamp, ballotNodeId);
+        if (!ballot.supersedes(ballots.get(membershipId))) {
+            return;
+        }
+        ballots.put(membershipId, ballot);
+        // Ballots made here may not have reached every peer before the restart, and a repeat changes nothing.
+        if (ballotNodeId.equals(nodeId)) {
+            for (String peer : transport.getPeers()) {
+                queue(peer).put(membershipId, ballot);
+            }
+        }
+    }
+
+    /**
+     * This method will restore a node's counts of a candidate saved before a restart. Counts only grow, so
+     * the largest saved are kept whatever order they are restored in.
+     *
+     * @param commonName The common name of the candidate.
+     * @param countsNodeId The identifier of the node the counts belong to.
+     * @param increments The node's increments.
+     * @param decrements The node's decrements.
+     */
+    private void restoreCounts(String commonName, String countsNodeId, long increments, long decrements) {
+        if (countsNodeId.equals(nodeId)) {
+            tally(commonName).restore(increments, decrements);
+        } else {
+            tally(commonName).merge(countsNodeId, increments, decrements);
+        }
+        countsVersion.incrementAndGet();
+    }
+
+    private boolean isReplaying() {
+        return voteJournal != null && voteJournal.isReplaying();
+    }
+
+    /**
+     * This method will read the node identifier kept in the journal directory, making one up the first time.
+     *
+     * @param directory The journal directory.
+     * @return The node identifier.
+     */
+    private static String journaledNodeId(Path directory) {
+        Path path = directory.resolve(NODE_ID_FILE);
+        try {
+            if (Files.exists(path)) {
+                return Files.readString(path, StandardCharsets.UTF_8).trim();
+            }
+            String nodeId = newNodeId();
+            Files.writeString(path, nodeId, StandardCharsets.UTF_8);
+            return nodeId;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private static String newNodeId() {
+        return UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * This method will send each peer the ballots queued for it, and this node's counts if they changed,
+     * in batches. A peer that can't be reached keeps its queue until the next flush.
+     */
+    public synchronized void flush() {
+        for (String peer : transport.getPeers()) {
+            Map<String, Ballot> queue = queue(peer);
+            long version = countsVersion.get();
+            boolean countsChanged = version != sentCountsVersions.getOrDefault(peer, -1L);
+            while (countsChanged || !queue.isEmpty()) {
+                List<Ballot> batchBallots = take(queue);
+                ReplicationBatch batch = new ReplicationBatch(nodeId, clock.current(), ownCounts(), batchBallots);
+                byte[] compressed = batch.encode();
+                try {
+                    transport.send(peer, compressed);
+                } catch (IOException | RuntimeException exception) {
+                    sendFailures.increment();
+                    // Put the ballots back, unless the member has voted again since.
+                    for (Ballot ballot : batchBallots) {
+                        queue.putIfAbsent(ballot.getMembershipId(), ballot);
+                    }
+                    break;
+                }
+                sentCountsVersions.put(peer, version);
+                countsChanged = false;
+                batchesSent.increment();
+                ballotsSent.add(batchBallots.size());
+                bytesEncoded.add(batch.getEncodedSize());
+                bytesSent.add(compressed.length);
+            }
+        }
+    }
+
+    private List<Ballot> take(Map<String, Ballot> queue) {
+        List<Ballot> taken = new ArrayList<>(Math.min(queue.size(), batchSize));
+        Iterator<Map.Entry<String, Ballot>> entries = queue.entrySet().iterator();
+        while (taken.size() < batchSize && entries.hasNext()) {
+            Map.Entry<String, Ballot> entry = entries.next();
+            // Only take the ballot if it is still the member's latest.
+            if (queue.remove(entry.getKey(), entry.getValue())) {
+                taken.add(entry.getValue());
+            }
+        }
+        return taken;
+    }
+
+    private Map<String, long[]> ownCounts() {
+        Map<String, long[]> counts = new LinkedHashMap<>();
+        tallies.forEach((commonName, tally) ->
+                counts.put(commonName, new long[]{tally.getIncrements(), tally.getDecrements()}));
+        return counts;
+    }
+
+    private PnCounter tally(String commonName) {
+        return tallies.computeIfAbsent(commonName, name -> new PnCounter());
+    }
+
+    private Map<String, Ballot> queue(String peer) {
+        return pending.computeIfAbsent(peer, key -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * This method will get the replicated tally of every candidate, as far as this node has heard.
+     *
+     * @return The tallies, by common name.
+     */
+    public Map<String, Long> getTallies() {
+        Map<String, Long> values = new TreeMap<>();
+        tallies.forEach((commonName, tally) -> values.put(commonName, tally.value()));
+        return values;
+    }
+
+    /**
+     * This method will get the winning ballot of a member.
+     *
+     * @param membershipId The membership identifier for the specified member.
+     * @return The ballot, or null if the member has never voted.
+     */
+    public Ballot getBallot(String membershipId) {
+        return ballots.get(membershipId);
+    }
+
+    /**
+     * This method will get the counters of the replication.
+     *
+     * @return The clock, ballots, queued ballots, batches and bytes sent and received so far, and the tallies.
+     */
+    public ReplicationStats getStats() {
+        int queued = 0;
+        for (Map<String, Ballot> queue : pending.values()) {
+            queued += queue.size();
+        }
+        return new ReplicationStats(nodeId, clock.current(), ballots.size(), queued, batchesSent.sum(),
+                sendFailures.sum(), ballotsSent.sum(), bytesEncoded.sum(), bytesSent.sum(), batchesReceived.sum(),
+                ballotsReceived.sum(), getTallies());
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        // Try to hand the last changes over before stopping.
+        flush();
+    }
+}
@@ -0,0 +1,447 @@
+// An in-memory search index over the candidates' names and descriptions, living in the search sub-package.
+// Text is folded to lower case without accents and split into terms, and each term maps to the candidates
+// holding it. The terms are kept sorted, so every term starting with a prefix sits together. For typo tolerance,
+// each term is also filed under the variants of it with one character deleted (the symmetric delete method), so
+// the terms a single edit away from a query token are found with a few lookups instead of a scan of every term.
+// The index is updated as candidates are added and removed.
+
+package poll.search;
+
+import org.springframework.stereotype.Component;
+import poll.model.Candidate;
+import poll.service.PollListener;
+import poll.service.PollService;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+@Component
+public class CandidateSearchIndex implements PollListener {
+
+    // How much a term counts for, by the field it is found in.
+    private static final int COMMON_NAME_WEIGHT = 4;
+    private static final int SCIENTIFIC_NAME_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // How much a query token counts for, by how it matched a term.
+    private static final float EXACT_MATCH = 1.0f;
+    private static final float PREFIX_MATCH = 0.75f;
+    private static final float TYPO_MATCH = 0.5f;
+
+    // The shortest query token corrected for typos, as one edit to a shorter word matches too many others.
+    private static final int MIN_TYPO_LENGTH = 4;
+    // The most terms a prefix is expanded to, so a query of a letter or two stays quick.
+    private static final int MAX_PREFIX_TERMS = 128;
+    // The most tokens of a query that are searched for.
+    private static final int MAX_QUERY_TOKENS = 8;
+
+    // Best score first, then alphabetical by common name.
+    private static final Comparator<Match> BEST_FIRST = Comparator.<Match>comparingDouble(match -> -match.score)
+            .thenComparing(match -> match.document.name)
+            .thenComparing(match -> match.document.candidate.getCommonName());
+
+    // Key -> term, value -> the candidates holding it, with the weight of the best field it is in.
+    private final ConcurrentSkipListMap<String, Map<Document, Integer>> postings = new ConcurrentSkipListMap<>();
+    // Key -> a term with one character deleted, value -> the terms it was deleted from.
+    private final Map<String, Set<String>> deletes = new ConcurrentHashMap<>();
+    // Key -> Candidate (by identity, as candidates don't override equals), value -> its indexed terms.
+    private final Map<Candidate, Document> documents = new ConcurrentHashMap<>();
+
+    /**
+     * This constructor will index the candidates and start listening to the poll service for changes.
+     *
+     * @param pollService The Poll Service object whose candidates are searched.
+     */
+    public CandidateSearchIndex(PollService pollService) {
+        for (Candidate candidate : pollService.getAllCandidates()) {
+            onCandidateAdded(candidate);
+        }
+        pollService.addListener(this);
+    }
+
+    @Override
+    public synchronized void onCandidateAdded(Candidate candidate) {
+        if (documents.containsKey(candidate)) {
+            return;
+        }
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, candidate.getCommonName(), COMMON_NAME_WEIGHT);
+        addTerms(terms, candidate.getScientificName(), SCIENTIFIC_NAME_WEIGHT);
+        addTerms(terms, candidate.getDescription(), DESCRIPTION_WEIGHT);
+        Document document = new Document(candidate, terms);
+        documents.put(candidate, document);
+
+        terms.forEach((term, weight) -> {
+            Map<Document, Integer> holders = postings.get(term);
+            if (holders == null) {
+                holders = new ConcurrentHashMap<>();
+                postings.put(term, holders);
+                if (term.length() >= MIN_TYPO_LENGTH) {
+                    for (String delete : deletesOf(term)) {
+                        deletes.computeIfAbsent(delete, key -> ConcurrentHashMap.newKeySet()).add(term);
+                    }
+                }
+            }
+            holders.put(document, weight);
+        });
+    }
+
+    @Override
+    public synchronized void onCandidateRemoved(Candidate candidate) {
+        Document document = documents.remove(candidate);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms.keySet()) {
+            Map<Document, Integer> holders = postings.get(term);
+            holders.remove(document);
+            if (!holders.isEmpty()) {
+                continue;
+            }
+            postings.remove(term);
+            if (term.length() >= MIN_TYPO_LENGTH) {
+                for (String delete : deletesOf(term)) {
+                    Set<String> terms = deletes.get(delete);
+                    terms.remove(term);
+                    if (terms.isEmpty()) {
+                        deletes.remove(delete);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * This method will find the candidates matching every token of a query, in any of their names or their
+     * description. A token matches a term that is the same, starts with it, or is one typo away from it,
+     * and matches in the common name count for more than in the scientific name, and those for more than
+     * in the description.
+     *
+     * @param query The text searched for.
+     * @param offset The number of matching candidates to skip, from the best match.
+     * @param limit The most candidates to return.
+     * @return The number of matching candidates, and the page of them asked for.
+     */
+    public CandidateSearchResults search(String query, int offset, int limit) {
+        List<String> tokens = tokens(fold(query), 1);
+        if (tokens.isEmpty()) {
+            return new CandidateSearchResults(0, List.of());
+        }
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(tokens));
+
+        // Expand each token to the terms it matches, and start from the one held by the fewest candidates.
+        List<Map<String, Float>> expansions = new ArrayList<>();
+        int seed = 0;
+        long seedSize = Long.MAX_VALUE;
+        for (String token : distinct.subList(0, Math.min(distinct.size(), MAX_QUERY_TOKENS))) {
+            Map<String, Float> expansion = expand(token);
+            if (expansion.isEmpty()) {
+                return new CandidateSearchResults(0, List.of());
+            }
+            long size = 0;
+            for (String term : expansion.keySet()) {
+                Map<Document, Integer> holders = postings.get(term);
+                size += holders == null ? 0 : holders.size();
+            }
+            if (size < seedSize) {
+                seed = expansions.size();
+                seedSize = size;
+            }
+            expansions.add(expansion);
+        }
+
+        Map<Document, Match> matches = new HashMap<>();
+        expansions.get(seed).forEach((term, kind) -> {
+            Map<Document, Integer> holders = postings.get(term);
+            if (holders == null) {
+                return;
+            }
+            holders.forEach((document, weight) -> {
+                Match match = matches.computeIfAbsent(document, Match::new);
+                match.score = Math.max(match.score, weight * kind);
+            });
+        });
+        // The other tokens are checked against each remaining candidate's own terms.
+        for (int i = 0; i < expansions.size(); i++) {
+            if (i == seed) {
+                continue;
+            }
+            Map<String, Float> expansion = expansions.get(i);
+            matches.values().removeIf(match -> {
+                float score = bestScore(match.document, expansion);
+                match.score += score;
+                return score == 0;
+            });
+        }
+
+        return new CandidateSearchResults(matches.size(), page(matches.values(), offset, limit));
+    }
+
+    /**
+     * This method will fold text for searching, i.e. to lower case, with accents and other marks taken off
+     * letters, and the letters that don't decompose into one without marks spelt out.
+     *
+     * @param text The text to fold.
+     * @return The folded text.
+     */
+    static String fold(String text) {
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        String decomposed = ascii ? text : Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (c < 0x80) {
+                folded.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+                continue;
+            }
+            int type = Character.getType(c);
+            if (type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                    || type == Character.ENCLOSING_MARK) {
+                continue;
+            }
+            switch (c) {
+                case 'ß':
+                    folded.append("ss");
+                    break;
+                case 'æ':
+                case 'Æ':
+                    folded.append("ae");
+                    break;
+                case 'œ':
+                case 'Œ':
+                    folded.append("oe");
+                    break;
+                case 'þ':
+                case 'Þ':
+                    folded.append("th");
+                    break;
+                case 'ø':
+                case 'Ø':
+                    folded.append('o');
+                    break;
+                case 'ł':
+                case 'Ł':
+                    folded.append('l');
+                    break;
+                case 'đ':
+                case 'Đ':
+                    folded.append('d');
+                    break;
+                case 'ı':
+                    folded.append('i');
+                    break;
+                default:
+                    folded.append(Character.toLowerCase(c));
+            }
+        }
+        return folded.toString();
+    }
+
+    /**
+     * This method will split folded text into tokens of letters and digits.
+     *
+     * @param folded The folded text.
+     * @param minLength The shortest token kept.
+     * @return The tokens, in the order they appear.
+     */
+    static List<String> tokens(String folded, int minLength) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean inToken = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (inToken && start < 0) {
+                start = i;
+            } else if (!inToken && start >= 0) {
+                if (i - start >= minLength) {
+                    tokens.add(folded.substring(start, i));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * This method will check whether two different terms are one edit apart: a character inserted, deleted,
+     * changed, or swapped with the next.
+     *
+     * @param a The first term.
+     * @param b The second term.
+     * @return The boolean value true if they are one edit apart, otherwise it will return false.
+     */
+    static boolean isOneEditApart(String a, String b) {
+        if (a.length() > b.length()) {
+            return isOneEditApart(b, a);
+        }
+        if (b.length() - a.length() > 1) {
+            return false;
+        }
+        int first = 0;
+        while (first < a.length() && a.charAt(first) == b.charAt(first)) {
+            first++;
+        }
+        if (a.length() < b.length()) {
+            return a.regionMatches(first, b, first + 1, a.length() - first);
+        }
+        if (first == a.length()) {
+            return false;
+        }
+        if (a.regionMatches(first + 1, b, first + 1, a.length() - first - 1)) {
+            return true;
+        }
+        return first + 1 < a.length() && a.charAt(first) == b.charAt(first + 1)
+                && a.charAt(first + 1) == b.charAt(first)
+                && a.regionMatches(first + 2, b, first + 2, a.length() - first - 2);
+    }
+
+    /**
+     * This method will find the terms a query token matches, and how it matches each.
+     *
+     * @param token The folded query token.
+     * @return Key -> term, value -> how much the match counts for.
+     */
+    private Map<String, Float> expand(String token) {
+        Map<String, Float> expansion = new HashMap<>();
+        if (postings.containsKey(token)) {
+            expansion.put(token, EXACT_MATCH);
+        }
+        int prefixed = 0;
+        for (String term : postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+            if (prefixed++ == MAX_PREFIX_TERMS) {
+                break;
+            }
+            expansion.put(term, PREFIX_MATCH);
+        }
+
+        if (token.length() >= MIN_TYPO_LENGTH) {
+            // Terms with a character more, then terms with a character fewer or one changed or swapped.
+            List<String> near = new ArrayList<>(deletes.getOrDefault(token, Collections.emptySet()));
+            for (String delete : deletesOf(token)) {
+                if (postings.containsKey(delete)) {
+                    near.add(delete);
+                }
+                near.addAll(deletes.getOrDefault(delete, Collections.emptySet()));
+            }
+            for (String term : near) {
+                if (!expansion.containsKey(term) && isOneEditApart(token, term)) {
+                    expansion.put(term, TYPO_MATCH);
+                }
+            }
+        }
+        return expansion;
+    }
+
+    private static float bestScore(Document document, Map<String, Float> expansion) {
+        float best = 0;
+        // Look up whichever side is smaller in the other.
+        if (expansion.size() <= document.terms.size()) {
+            for (Map.Entry<String, Float> entry : expansion.entrySet()) {
+                Integer weight = document.terms.get(entry.getKey());
+                if (weight != null) {
+                    best = Math.max(best, weight * entry.getValue());
+                }
+            }
+        } else {
+            for (Map.Entry<String, Integer> entry : document.terms.entrySet()) {
+                Float kind = expansion.get(entry.getKey());
+                if (kind != null) {
+                    best = Math.max(best, entry.getValue() * kind);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * This method will pick a page of the best matches, keeping only as many as it needs in a heap rather
+     * than sorting every match.
+     *
+     * @param matches The matches.
+     * @param offset The number of best matches to skip.
+     * @param limit The most matches to return.
+     * @return The candidates in the page, best match first.
+     */
+    private static List<Candidate> page(Iterable<Match> matches, int offset, int limit) {
+        int wanted = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        if (wanted <= 0) {
+            return List.of();
+        }
+        // The worst match kept is at the head, to be replaced by a better one.
+        PriorityQueue<Match> best = new PriorityQueue<>(BEST_FIRST.reversed());
+        for (Match match : matches) {
+            if (best.size() < wanted) {
+                best.add(match);
+            } else if (BEST_FIRST.compare(match, best.peek()) < 0) {
+                best.poll();
+                best.add(match);
+            }
+        }
+        List<Candidate> page = new ArrayList<>(Math.max(0, best.size() - offset));
+        while (best.size() > offset) {
+            page.add(best.poll().document.candidate);
+        }
+        Collections.reverse(page);
+        return page;
+    }
+
+    private static void addTerms(Map<String, Integer> terms, String text, int weight) {
+        if (text == null) {
+            return;
+        }
+        // Single letters are left out, as every prefix query finds them.
+        for (String term : tokens(fold(text), 2)) {
+            terms.merge(term, weight, Math::max);
+        }
+    }
+
+    // The distinct strings left by deleting one character of a term.
+    private static List<String> deletesOf(String term) {
+        List<String> deletes = new ArrayList<>(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            // Deleting either of two equal neighbours leaves the same string.
+            if (i > 0 && term.charAt(i) == term.charAt(i - 1)) {
+                continue;
+            }
+            deletes.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return deletes;
+    }
+
+    // A candidate and the terms it is indexed under.
+    private static final class Document {
+        private final Candidate candidate;
+        // The folded common name, to order matches with the same score.
+        private final String name;
+        // Key -> term, value -> the weight of the best field it is in.
+        private final Map<String, Integer> terms;
+
+        private Document(Candidate candidate, Map<String, Integer> terms) {
+            this.candidate = candidate;
+            this.name = candidate.getCommonName() == null ? "" : fold(candidate.getCommonName());
+            this.terms = terms;
+        }
+    }
+
+    // A candidate matching a query so far, and its score.
+    private static final class Match {
+        private final Document document;
+        private float score;
+
+        private Match(Document document) {
+            this.document = document;
+        }
+    }
+}
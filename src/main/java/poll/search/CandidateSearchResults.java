@@ -0,0 +1,32 @@
+// A page of the candidates matching a search, living in the search sub-package.
+
+package poll.search;
+
+import poll.model.Candidate;
+
+import java.util.List;
+
+public class CandidateSearchResults {
+
+    private final int total;
+    private final List<Candidate> candidates;
+
+    /**
+     * This constructor will create a page of search results.
+     *
+     * @param total The number of candidates matching the search, in every page.
+     * @param candidates The candidates in this page, best match first.
+     */
+    public CandidateSearchResults(int total, List<Candidate> candidates) {
+        this.total = total;
+        this.candidates = candidates;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public List<Candidate> getCandidates() {
+        return candidates;
+    }
+}
@@ -0,0 +1,128 @@
+// The candidates ranked by their votes, living in the service sub-package.
+// A vote only marks the candidates whose counts it changed, with one flag and a queue offer whatever the number
+// of candidates. The next read moves just the marked candidates, each by one removal from the ordered set and
+// one insertion, so the ranking is kept up to date incrementally and never sorted whole.
+
+package poll.service;
+
+import poll.model.Candidate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+final class CandidateRanking {
+
+    // Alphabetical by common name ignoring case, as voters read the list, with case only breaking ties.
+    static final Comparator<String> NAME_ORDER =
+            String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    // Most votes first, then alphabetical, so candidates with the same votes keep a stable order.
+    private static final Comparator<Entry> RANK_ORDER = Comparator.<Entry>comparingLong(entry -> -entry.votes)
+            .thenComparing(entry -> entry.candidate.getCommonName(), NAME_ORDER);
+
+    // Key -> Candidate (by identity, as candidates don't override equals), value -> its place in the ranking.
+    private final Map<Candidate, Entry> entries = new ConcurrentHashMap<>();
+    // Candidates whose counts changed since the ranking was last read, each queued once.
+    private final Queue<Entry> changed = new ConcurrentLinkedQueue<>();
+    // Guarded by this. An entry's votes only change while it is out of the set.
+    private final TreeSet<Entry> ranked = new TreeSet<>(RANK_ORDER);
+
+    /**
+     * This method will rank a candidate added to the poll.
+     *
+     * @param candidate The candidate added.
+     */
+    synchronized void add(Candidate candidate) {
+        Entry entry = new Entry(candidate);
+        entries.put(candidate, entry);
+        ranked.add(entry);
+    }
+
+    /**
+     * This method will drop a candidate removed from the poll from the ranking.
+     *
+     * @param candidate The candidate removed.
+     */
+    synchronized void remove(Candidate candidate) {
+        Entry entry = entries.remove(candidate);
+        if (entry != null) {
+            ranked.remove(entry);
+            entry.removed = true;
+        }
+    }
+
+    /**
+     * This method will mark a candidate whose count changed, to be moved to its new place when the ranking is
+     * next read. Must be called after the count changed.
+     *
+     * @param candidate The candidate, which may be null or no longer in the poll.
+     */
+    void changed(Candidate candidate) {
+        Entry entry = candidate == null ? null : entries.get(candidate);
+        if (entry != null && !entry.dirty.get() && entry.dirty.compareAndSet(false, true)) {
+            changed.offer(entry);
+        }
+    }
+
+    /**
+     * This method will get a page of the ranking. The candidates are copies holding the votes they were ranked
+     * by, so the counts read always agree with the order.
+     *
+     * @param offset The number of candidates to skip, from the most voted for.
+     * @param limit The most candidates to return.
+     * @return The candidates, most votes first.
+     */
+    synchronized List<Candidate> page(int offset, int limit) {
+        catchUp();
+        List<Candidate> page = new ArrayList<>(Math.min(limit, ranked.size()));
+        Iterator<Entry> iterator = ranked.iterator();
+        for (int skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+        while (page.size() < limit && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            Candidate copy = new Candidate(entry.candidate);
+            copy.addVotes(entry.votes);
+            page.add(copy);
+        }
+        return page;
+    }
+
+    // Moves each candidate marked since the last read to its place for its current count.
+    private void catchUp() {
+        for (Entry entry = changed.poll(); entry != null; entry = changed.poll()) {
+            // Cleared before the count is read, so a vote counted after the read marks the candidate again.
+            entry.dirty.set(false);
+            if (entry.removed) {
+                continue;
+            }
+            long votes = entry.candidate.getVoteCount();
+            if (votes != entry.votes) {
+                ranked.remove(entry);
+                entry.votes = votes;
+                ranked.add(entry);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Candidate candidate;
+        private final AtomicBoolean dirty = new AtomicBoolean();
+        // The votes the candidate is ranked by, guarded by the ranking.
+        private long votes;
+        private boolean removed;
+
+        private Entry(Candidate candidate) {
+            this.candidate = candidate;
+            this.votes = candidate.getVoteCount();
+        }
+    }
+}
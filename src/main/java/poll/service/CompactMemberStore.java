@@ -0,0 +1,456 @@
+// Keeps members in primitive columns instead of objects, living in the service sub-package.
+// Selected with poll.member-store=compact, for electorates of millions where a Member object and map entry
+// per member would take gigabytes of heap and long collections.
+//
+// Each member has a dense index. An open addressing table maps the membershipId's hash to that index, and
+// the member's vote is kept as a candidate ordinal. Their membershipId and name are packed into byte chunks,
+// which may live off the heap; each region's name is kept once and referred to by a code.
+
+package poll.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import poll.exception.Error;
+import poll.model.Candidate;
+import poll.model.Member;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+
+@Component
+@ConditionalOnProperty(name = "poll.member-store", havingValue = "compact")
+public class CompactMemberStore implements MemberStore {
+
+    // The columns are allocated a page of members at a time, so growing never copies them.
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    // Offsets into the byte chunks are the chunk's number, then the position within it, in 32 bits.
+    private static final int CHUNK_BITS = 22;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_CHUNKS = 1 << (Integer.SIZE - CHUNK_BITS);
+
+    private static final int INITIAL_TABLE_SIZE = 1 << 10;
+
+    // Votes are kept as the candidate's ordinal plus one, so 0 is no vote.
+    private static final int NO_VOTE = 0;
+    private static final int MAX_CANDIDATES = 0xFFFF - 1;
+
+    // Region code 0 is no region. Once the codes run out, regions are packed with the member's name instead.
+    private static final int NO_REGION = 0;
+    private static final int REGION_IN_RECORD = 0xFFFF;
+
+    // Ages are kept in a byte, so they are clamped to this range.
+    private static final int MIN_AGE = -1;
+    private static final int MAX_AGE = 254;
+
+    private final boolean offHeap;
+    // Guards adding members, candidates and regions. Finding members takes no lock.
+    private final Object writeLock = new Object();
+
+    // Slot -> index of the member plus one, or 0 if empty. Replaced with a larger table as members are added.
+    private volatile AtomicIntegerArray table = new AtomicIntegerArray(INITIAL_TABLE_SIZE);
+    private volatile Page[] pages = new Page[0];
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    // The position the next record is written at in the newest chunk.
+    private int chunkPosition = CHUNK_SIZE;
+    private volatile int size;
+
+    // Code -> region name, and back.
+    private volatile String[] regionNames = {null};
+    private final Map<String, Integer> regionCodes = new HashMap<>();
+
+    // Ordinal -> candidate, and back. Removed candidates keep their ordinal, as members may still hold them.
+    private volatile Candidate[] candidates = new Candidate[0];
+    private final Map<Candidate, Integer> ordinals = new ConcurrentHashMap<>();
+
+    /**
+     * This constructor will create an empty store.
+     *
+     * @param offHeap The boolean value true to keep membershipIds and names in direct memory, off the heap.
+     */
+    public CompactMemberStore(@Value("${poll.member-store.off-heap:false}") boolean offHeap) {
+        this.offHeap = offHeap;
+    }
+
+    @Override
+    public boolean add(Member member, long snapshotEpoch) {
+        String membershipId = member.getMembershipId();
+        int hash = hash(membershipId);
+        synchronized (writeLock) {
+            if (find(membershipId, hash) >= 0) {
+                return false;
+            }
+            int index = size;
+            String region = member.getRegionOfScotland();
+            int regionCode = regionCode(region);
+            int offset = writeRecord(membershipId, member.getName(), regionCode == REGION_IN_RECORD ? region : null);
+
+            Page page = page(index);
+            int column = index & PAGE_MASK;
+            page.hashes[column] = hash;
+            page.offsets[column] = offset;
+            page.epochs[column] = (int) snapshotEpoch;
+            page.regions[column] = (short) regionCode;
+            page.ages[column] = (byte) (Math.max(MIN_AGE, Math.min(MAX_AGE, member.getAge())) - MIN_AGE);
+
+            // Keep the table at most two thirds full, so probes stay short.
+            if ((index + 1) * 3L > table.length() * 2L) {
+                resize();
+            }
+            // Publishing the slot publishes the columns and record written above to lock-free readers.
+            insert(table, hash, index);
+            size = index + 1;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(String membershipId) {
+        return find(membershipId, hash(membershipId)) >= 0;
+    }
+
+    @Override
+    public Member get(String membershipId) {
+        int index = find(membershipId, hash(membershipId));
+        if (index < 0) {
+            return null;
+        }
+        Page page = pages[index >>> PAGE_BITS];
+        int column = index & PAGE_MASK;
+
+        int offset = page.offsets[column];
+        ByteBuffer chunk = chunks[offset >>> CHUNK_BITS];
+        int position = skipString(chunk, offset & CHUNK_MASK);
+        String name = readString(chunk, position);
+        int regionCode = page.regions[column] & 0xFFFF;
+        String region = regionCode == REGION_IN_RECORD
+                ? readString(chunk, skipString(chunk, position))
+                : regionNames[regionCode];
+        int age = (page.ages[column] & 0xFF) + MIN_AGE;
+
+        Member member = new Member(membershipId, name, age, region);
+        int vote = page.votes[column] & 0xFFFF;
+        member.setCandidateVotedFor(vote == NO_VOTE ? null : candidates[vote - 1]);
+        member.setSnapshotEpoch(page.epochs[column]);
+        return member;
+    }
+
+    @Override
+    public void setVote(Member voter, Candidate vote) {
+        int index = find(voter.getMembershipId(), hash(voter.getMembershipId()));
+        if (index < 0) {
+            return;
+        }
+        short ordinal = (short) (vote == null ? NO_VOTE : ordinal(vote) + 1);
+        pages[index >>> PAGE_BITS].votes[index & PAGE_MASK] = ordinal;
+        voter.setCandidateVotedFor(vote);
+    }
+
+    @Override
+    public void setSnapshotEpoch(Member voter, long snapshotEpoch) {
+        int index = find(voter.getMembershipId(), hash(voter.getMembershipId()));
+        if (index < 0) {
+            return;
+        }
+        pages[index >>> PAGE_BITS].epochs[index & PAGE_MASK] = (int) snapshotEpoch;
+        voter.setSnapshotEpoch(snapshotEpoch);
+    }
+
+    @Override
+    public void forEachMembershipId(Consumer<String> consumer) {
+        int count = size;
+        Page[] pages = this.pages;
+        ByteBuffer[] chunks = this.chunks;
+        for (int index = 0; index < count; index++) {
+            int offset = pages[index >>> PAGE_BITS].offsets[index & PAGE_MASK];
+            consumer.accept(readString(chunks[offset >>> CHUNK_BITS], offset & CHUNK_MASK));
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This method will find a member's index by probing the table from their hash.
+     *
+     * @param membershipId The membership identifier for the specified member.
+     * @param hash The hash of the membership identifier.
+     * @return The member's index, or -1 if they don't exist.
+     */
+    private int find(String membershipId, int hash) {
+        AtomicIntegerArray slots = table;
+        int mask = slots.length() - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots.get(slot);
+            if (entry == 0) {
+                return -1;
+            }
+            int index = entry - 1;
+            Page page = pages[index >>> PAGE_BITS];
+            int column = index & PAGE_MASK;
+            if (page.hashes[column] == hash && idEquals(page.offsets[column], membershipId)) {
+                return index;
+            }
+        }
+    }
+
+    private static void insert(AtomicIntegerArray slots, int hash, int index) {
+        int mask = slots.length() - 1;
+        int slot = hash & mask;
+        while (slots.get(slot) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots.set(slot, index + 1);
+    }
+
+    /**
+     * This method will double the table. Readers still probing the old table find every member added before it
+     * was replaced. Must hold the write lock.
+     */
+    private void resize() {
+        AtomicIntegerArray resized = new AtomicIntegerArray(table.length() * 2);
+        for (int index = 0; index < size; index++) {
+            insert(resized, pages[index >>> PAGE_BITS].hashes[index & PAGE_MASK], index);
+        }
+        table = resized;
+    }
+
+    /**
+     * This method will get the page holding a member's columns, adding it if it is the next one.
+     * Must hold the write lock.
+     *
+     * @param index The member's index.
+     * @return The page holding the member.
+     */
+    private Page page(int index) {
+        int number = index >>> PAGE_BITS;
+        if (number == pages.length) {
+            Page[] updated = Arrays.copyOf(pages, number + 1);
+            updated[number] = new Page();
+            pages = updated;
+        }
+        return pages[number];
+    }
+
+    /**
+     * This method will get the code of a region, giving it the next one if it hasn't been seen.
+     * Must hold the write lock.
+     *
+     * @param region The region of Scotland that the member resides.
+     * @return The region's code.
+     */
+    private int regionCode(String region) {
+        if (region == null) {
+            return NO_REGION;
+        }
+        Integer code = regionCodes.get(region);
+        if (code != null) {
+            return code;
+        }
+        if (regionNames.length == REGION_IN_RECORD) {
+            return REGION_IN_RECORD;
+        }
+        String[] updated = Arrays.copyOf(regionNames, regionNames.length + 1);
+        updated[regionNames.length] = region;
+        regionNames = updated;
+        regionCodes.put(region, regionNames.length - 1);
+        return regionNames.length - 1;
+    }
+
+    /**
+     * This method will get the ordinal of a candidate, giving it the next one if it hasn't been voted for.
+     *
+     * @param candidate The candidate being voted for.
+     * @return The candidate's ordinal.
+     */
+    private int ordinal(Candidate candidate) {
+        Integer ordinal = ordinals.get(candidate);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        synchronized (writeLock) {
+            ordinal = ordinals.get(candidate);
+            if (ordinal != null) {
+                return ordinal;
+            }
+            if (candidates.length == MAX_CANDIDATES) {
+                throw new IllegalStateException("The compact member store holds at most " + MAX_CANDIDATES
+                        + " candidates");
+            }
+            Candidate[] updated = Arrays.copyOf(candidates, candidates.length + 1);
+            updated[candidates.length] = candidate;
+            // Publish the candidate before its ordinal, so any vote holding the ordinal can find it.
+            candidates = updated;
+            ordinals.put(candidate, candidates.length - 1);
+            return candidates.length - 1;
+        }
+    }
+
+    /**
+     * This method will pack a member's strings into the newest chunk, starting a new one if they don't fit.
+     * Must hold the write lock.
+     *
+     * @param membershipId The membership identifier for the specified member.
+     * @param name The full name of the specified member.
+     * @param region The region, only when it has no code.
+     * @return The offset of the record.
+     */
+    private int writeRecord(String membershipId, String name, String region) {
+        byte[] idBytes = membershipId.getBytes(StandardCharsets.UTF_8);
+        byte[] nameBytes = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+        byte[] regionBytes = region == null ? null : region.getBytes(StandardCharsets.UTF_8);
+        int length = stringSize(idBytes) + stringSize(nameBytes) + (region == null ? 0 : stringSize(regionBytes));
+        if (length > CHUNK_SIZE) {
+            throw new RuntimeException(Error.INVALID_MEMBER.toString());
+        }
+
+        if (chunkPosition + length > CHUNK_SIZE) {
+            if (chunks.length == MAX_CHUNKS) {
+                throw new IllegalStateException("The compact member store is full");
+            }
+            ByteBuffer[] updated = Arrays.copyOf(chunks, chunks.length + 1);
+            updated[chunks.length] = offHeap ? ByteBuffer.allocateDirect(CHUNK_SIZE) : ByteBuffer.allocate(CHUNK_SIZE);
+            chunks = updated;
+            chunkPosition = 0;
+        }
+        ByteBuffer chunk = chunks[chunks.length - 1];
+        int offset = ((chunks.length - 1) << CHUNK_BITS) | chunkPosition;
+        int position = writeString(chunk, chunkPosition, idBytes);
+        position = writeString(chunk, position, nameBytes);
+        if (region != null) {
+            position = writeString(chunk, position, regionBytes);
+        }
+        chunkPosition = position;
+        return offset;
+    }
+
+    // Strings are packed as their length plus one, so 0 is null, as a varint, then their UTF-8 bytes.
+
+    private static int stringSize(byte[] bytes) {
+        int length = bytes == null ? 0 : bytes.length + 1;
+        return varintSize(length) + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static int writeString(ByteBuffer chunk, int position, byte[] bytes) {
+        int length = bytes == null ? 0 : bytes.length + 1;
+        while ((length & ~0x7F) != 0) {
+            chunk.put(position++, (byte) ((length & 0x7F) | 0x80));
+            length >>>= 7;
+        }
+        chunk.put(position++, (byte) length);
+        if (bytes != null) {
+            for (byte b : bytes) {
+                chunk.put(position++, b);
+            }
+        }
+        return position;
+    }
+
+    private static String readString(ByteBuffer chunk, int position) {
+        int length = readVarint(chunk, position);
+        if (length == 0) {
+            return null;
+        }
+        position += varintSize(length);
+        byte[] bytes = new byte[length - 1];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = chunk.get(position + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int skipString(ByteBuffer chunk, int position) {
+        int length = readVarint(chunk, position);
+        return position + varintSize(length) + Math.max(0, length - 1);
+    }
+
+    /**
+     * This method will compare a packed membershipId with one being looked up, without decoding it.
+     *
+     * @param offset The offset of the member's record.
+     * @param membershipId The membership identifier being looked up.
+     * @return The boolean value true if they are the same.
+     */
+    private boolean idEquals(int offset, String membershipId) {
+        ByteBuffer chunk = chunks[offset >>> CHUNK_BITS];
+        int position = offset & CHUNK_MASK;
+        int length = readVarint(chunk, position) - 1;
+        position += varintSize(length + 1);
+
+        // Most identifiers are ASCII, where each char is one byte.
+        int chars = membershipId.length();
+        if (length == chars) {
+            int i = 0;
+            for (; i < chars; i++) {
+                char c = membershipId.charAt(i);
+                if (c >= 0x80) {
+                    break;
+                }
+                if (chunk.get(position + i) != (byte) c) {
+                    return false;
+                }
+            }
+            if (i == chars) {
+                return true;
+            }
+        }
+        byte[] bytes = membershipId.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (chunk.get(position + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int readVarint(ByteBuffer chunk, int position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = chunk.get(position++);
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int hash(String membershipId) {
+        // Spread the bits, as linear probing suffers from clustered hashes.
+        int hash = membershipId.hashCode() * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    // The columns of a page of members. Votes and epochs are only read or written under the member's lock.
+    private static class Page {
+        private final int[] hashes = new int[PAGE_SIZE];
+        private final int[] offsets = new int[PAGE_SIZE];
+        private final short[] votes = new short[PAGE_SIZE];
+        private final int[] epochs = new int[PAGE_SIZE];
+        private final short[] regions = new short[PAGE_SIZE];
+        private final byte[] ages = new byte[PAGE_SIZE];
+    }
+}
@@ -0,0 +1,71 @@
+// Where the poll service keeps its members and their votes, living in the service sub-package.
+// The poll service holds a member's lock around every call that reads or changes their vote,
+// so a store only has to make adding and finding members safe to do concurrently.
+
+package poll.service;
+
+import poll.model.Candidate;
+import poll.model.Member;
+
+import java.util.function.Consumer;
+
+public interface MemberStore {
+
+    /**
+     * This method will add a member without a vote, unless a member with the same identifier exists.
+     *
+     * @param member The member object describing the individual.
+     * @param snapshotEpoch The poll service's snapshot epoch when the member was added.
+     * @return The boolean value true if the member was added.
+     */
+    boolean add(Member member, long snapshotEpoch);
+
+    /**
+     * This method will determine if a member exists in the store.
+     *
+     * @param membershipId The membership identifier for the specified member.
+     * @return The boolean value if the member exists.
+     */
+    boolean contains(String membershipId);
+
+    /**
+     * This method will get a member, with their vote and snapshot epoch. A store may give back a copy
+     * of the member, which is only kept up to date by setVote and setSnapshotEpoch.
+     *
+     * @param membershipId The membership identifier for the specified member.
+     * @return The member object describing the individual, or null if they don't exist.
+     */
+    Member get(String membershipId);
+
+    /**
+     * This method will change a member's vote. A vote the store can't hold is refused with an exception before
+     * anything is changed.
+     *
+     * @param voter The member, as given by get.
+     * @param vote The member's new vote, which may be null.
+     */
+    void setVote(Member voter, Candidate vote);
+
+    /**
+     * This method will change the snapshot epoch a member was last changed in.
+     *
+     * @param voter The member, as given by get.
+     * @param snapshotEpoch The poll service's snapshot epoch.
+     */
+    void setSnapshotEpoch(Member voter, long snapshotEpoch);
+
+    /**
+     * This method will give the identifier of every member to a consumer, in no particular order.
+     * Members added during the call may be left out.
+     *
+     * @param consumer The consumer of each membership identifier.
+     */
+    void forEachMembershipId(Consumer<String> consumer);
+
+    /**
+     * This method will get the number of members in the store.
+     *
+     * @return The number of members.
+     */
+    int size();
+}
@@ -0,0 +1,58 @@
+// Keeps each member as a Member object in a concurrent map, living in the service sub-package.
+// Selected with poll.member-store=object, which is the default.
+
+package poll.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import poll.model.Candidate;
+import poll.model.Member;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+@Component
+@ConditionalOnProperty(name = "poll.member-store", havingValue = "object", matchIfMissing = true)
+public class ObjectMemberStore implements MemberStore {
+
+    // Key -> membershipId, value -> Member
+    private final Map<String, Member> memberDb = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean add(Member member, long snapshotEpoch) {
+        member.setSnapshotEpoch(snapshotEpoch);
+        return memberDb.putIfAbsent(member.getMembershipId(), member) == null;
+    }
+
+    @Override
+    public boolean contains(String membershipId) {
+        return memberDb.containsKey(membershipId);
+    }
+
+    @Override
+    public Member get(String membershipId) {
+        return memberDb.get(membershipId);
+    }
+
+    @Override
+    public void setVote(Member voter, Candidate vote) {
+        // The stored member is the one given out, so it is changed in place.
+        voter.setCandidateVotedFor(vote);
+    }
+
+    @Override
+    public void setSnapshotEpoch(Member voter, long snapshotEpoch) {
+        voter.setSnapshotEpoch(snapshotEpoch);
+    }
+
+    @Override
+    public void forEachMembershipId(Consumer<String> consumer) {
+        memberDb.keySet().forEach(consumer);
+    }
+
+    @Override
+    public int size() {
+        return memberDb.size();
+    }
+}
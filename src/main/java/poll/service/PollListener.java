@@ -0,0 +1,42 @@
+// A listener to the changes made by the poll service, living in the service sub-package.
+// Listeners are called on the thread that made the change, so they must be quick.
+
+package poll.service;
+
+import poll.model.Candidate;
+import poll.model.Member;
+
+public interface PollListener {
+
+    // CANDIDATE SECTION
+
+    // Called while a candidate is added to the database, under the candidate lock and before the candidate
+    // can be voted for, so every listener hears about it before any vote for it.
+    default void onCandidateAdded(Candidate candidate) {
+    }
+
+    // Called after a candidate is removed from the database, under the candidate lock.
+    default void onCandidateRemoved(Candidate candidate) {
+    }
+
+    // MEMBER SECTION
+
+    // Called after a member is added to the database.
+    default void onMemberAdded(Member member) {
+    }
+
+    // Called after a member's vote changes, while the member's lock is still held,
+    // so each member's changes are seen in the order they were made. lastVote may be null.
+    default void onVote(Member voter, Candidate lastVote, Candidate newVote) {
+    }
+
+    // Called after a member's vote is retracted, while the member's lock is still held.
+    default void onRetract(Member voter, Candidate lastVote) {
+    }
+
+    // POLL SECTION
+
+    // Called after the poll is opened or closed.
+    default void onPollStatusChanged(boolean pollOpen) {
+    }
+}
@@ -20,35 +20,67 @@ public interface PollService {
     // Returns a candidate count.
     Integer getCandidateCount(String commonName);
 
-    // Returns a list of all candidates in the database.
+    // Returns a list of all candidates in the database, in alphabetical order.
     List<Candidate> getAllCandidates();
 
+    // Returns a page of the candidates in alphabetical order, starting after a common name and an offset.
+    List<Candidate> getCandidatePage(String after, int offset, int limit);
+
+    // Returns a page of the candidates ranked by their votes, most first.
+    List<Candidate> getRankedCandidates(int offset, int limit);
+
+    // Returns the number of candidates in the database.
+    int countCandidates();
+
     // Removes the candidate from the database.
     void removeCandidate(String commonName);
 
     // Checks if a candidate exists.
     boolean hasCandidate(String commonName);
 
-    // Vote for a specific candidate.
-    void makeVote(Member voter, Candidate lastVote, Candidate newVote);
+    // Returns a number that changes whenever a candidate is added or removed.
+    long getCatalogVersion();
+
+    // Vote for a specific candidate, returning false if the member already voted for it.
+    boolean makeVote(String membershipId, Candidate newVote);
+
+    // Votes for many candidates at once, returning which of the votes changed.
+    boolean[] makeVotes(List<String> membershipIds, List<Candidate> newVotes);
 
     // MEMBER SECTION
 
-    // Adds a member to the database.
-    void addMember(Member member);
+    // Adds a member to the database, returning false if a member with the same identifier exists.
+    boolean addMember(Member member);
 
     // Checks if a member exists in the database.
     boolean hasMember(String membershipId);
 
-    // Removes a vote from a candidate and member.
-    void retractVote(Member voter, Candidate lastVote);
+    // Removes a vote from a candidate and member, returning false if there was no vote.
+    boolean retractVote(String membershipId);
 
     // Gets a member from the database.
     Member getMember(String membershipId);
 
+    // Returns the number of members in the database.
+    int getMemberCount();
+
     // Checks if the poll is currently open.
     boolean isPollOpen();
 
     // Sets the status of the poll's openness.
     void setPollOpen(boolean pollOpen);
+
+    // Returns the number of times a member's lock was already held when it was needed.
+    long getLockContentionCount();
+
+    // Runs an action holding a member's lock, so it can read and change their vote without a vote slipping in.
+    void runWithMemberLock(String membershipId, Runnable action);
+
+    // Opens a point-in-time view of every member's vote, without pausing voting. Must be closed.
+    PollSnapshot openSnapshot();
+
+    // LISTENER SECTION
+
+    // Registers a listener to be told about every change to the poll.
+    void addListener(PollListener listener);
 }
@@ -3,36 +3,97 @@
 
 package poll.service;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import poll.exception.Error;
 import poll.model.Candidate;
 import poll.model.Member;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Component
 public class PollServiceImpl implements PollService {
 
     // Poll Service status, for the admin to toggle.
-    private boolean isPollOpen = false;
+    private volatile boolean isPollOpen = false;
 
     // Databases for the candidates and members.
     // Key -> commonName, value -> Candidate
     private final Map<String, Candidate> candidateDb;
-    // Key -> membershipId, value -> Member
-    private final Map<String, Member> memberDb;
+    // The candidates in alphabetical order, kept alongside the map so listing them never sorts.
+    // Changed together with candidateDb while holding its lock.
+    private final ConcurrentNavigableMap<String, Candidate> candidateIndex =
+            new ConcurrentSkipListMap<>(CandidateRanking.NAME_ORDER);
+    // The candidates ordered by their votes.
+    private final CandidateRanking candidateRanking = new CandidateRanking();
+    // Key -> membershipId, value -> Member, kept however the member store chooses.
+    private final MemberStore memberDb;
+
+    // Bumped after every change to the candidates, so cached lists of them can tell they are stale.
+    private final AtomicLong catalogVersion = new AtomicLong();
+
+    // Striped locks guarding each member's vote transitions. A member always maps to the same
+    // stripe, so their transitions are linearizable, while different members rarely share one.
+    private static final int MEMBER_LOCK_STRIPES = 1024;
+    private final ReentrantLock[] memberLocks;
+    // The times a member's lock was already held by another request when it was needed.
+    private final LongAdder lockContentions = new LongAdder();
+
+    // Listeners to every change, copied on write so the vote path can iterate without allocating.
+    private volatile PollListener[] listeners = new PollListener[0];
+
+    // Snapshots currently open, and the epoch of the newest one. Both change together in openSnapshot().
+    private volatile PollSnapshot[] openSnapshots = new PollSnapshot[0];
+    private volatile long snapshotEpoch = 0;
 
     /**
-     * This constructor will create a Poll Service that stores the Candidate as
-     * the key, and the Integer as the value, which represents the number of votes
-     * that the candidate has received.
+     * This constructor will create a Poll Service that stores the members as objects in a concurrent map.
      */
     public PollServiceImpl() {
-        candidateDb = new HashMap<>();
-        memberDb = new HashMap<>();
+        this(new ObjectMemberStore());
+    }
+
+    /**
+     * This constructor will create a Poll Service that stores the candidates in a concurrent map and the
+     * members in a member store, so that requests on different Tomcat threads can safely share them.
+     * Each candidate keeps its own striped vote counter.
+     *
+     * @param memberStore The store to keep the members and their votes in.
+     */
+    @Autowired
+    public PollServiceImpl(MemberStore memberStore) {
+        this(memberStore, MEMBER_LOCK_STRIPES);
+    }
+
+    /**
+     * This constructor will create a Poll Service with fewer member locks, for a poll in the poll registry,
+     * where an idle poll must stay small.
+     *
+     * @param memberStore The store to keep the members and their votes in.
+     * @param lockStripes The number of member locks, a power of two.
+     */
+    public PollServiceImpl(MemberStore memberStore, int lockStripes) {
+        if (lockStripes <= 0 || Integer.bitCount(lockStripes) != 1) {
+            throw new IllegalArgumentException("The number of lock stripes must be a power of two");
+        }
+        candidateDb = new ConcurrentHashMap<>();
+        memberDb = memberStore;
+        memberLocks = new ReentrantLock[lockStripes];
+        for (int i = 0; i < lockStripes; i++) {
+            memberLocks[i] = new ReentrantLock();
+        }
     }
 
     /**
@@ -43,37 +104,133 @@ public class PollServiceImpl implements PollService {
      */
     @Override
     public boolean hasCandidate(String commonName) {
-        return candidateDb.containsKey(commonName);
+        // The concurrent map doesn't accept null keys, so answer for them here.
+        return commonName != null && candidateDb.containsKey(commonName);
     }
 
     /**
      * This method will vote for a specified candidate and update the voter object to store
-     * their current vote.
+     * their current vote. The member's last vote is read and replaced while holding the member's
+     * lock, so concurrent requests for the same member cannot double count.
      *
-     * @param voter The member who made the vote.
-     * @param lastVote The member's last vote.
+     * @param membershipId The membership identifier of the member making the vote.
      * @param newVote The member's vote they are trying to make.
+     * @return The boolean value true if the vote changed, or false if the member already voted for it.
      */
     @Override
-    public void makeVote(Member voter, Candidate lastVote, Candidate newVote) {
-        if (lastVote != null) {
-            lastVote.decrementVote();
+    public boolean makeVote(String membershipId, Candidate newVote) {
+        ReentrantLock lock = memberLock(membershipId);
+        acquire(lock);
+        try {
+            Member voter = getExistingMember(membershipId);
+            Candidate lastVote = voter.getCandidateVotedFor();
+            // If the votes are the same, don't modify.
+            if (newVote.equals(lastVote)) {
+                return false;
+            }
+            preserveForSnapshots(voter);
+            // The store may refuse the vote, so it goes first, before any counter has moved.
+            memberDb.setVote(voter, newVote);
+            if (lastVote != null) {
+                lastVote.decrementVote();
+            }
+            newVote.incrementVote();
+            candidateRanking.changed(lastVote);
+            candidateRanking.changed(newVote);
+            for (PollListener listener : listeners) {
+                listener.onVote(voter, lastVote, newVote);
+            }
+            return true;
+        } finally {
+            lock.unlock();
         }
-        voter.setCandidateVotedFor(newVote);
-        newVote.incrementVote();
+    }
+
+    /**
+     * This method will make a batch of votes. Each member's transition and the counters it moves are changed
+     * together under the member's own lock, as in makeVote, so a concurrent vote or retraction for the same
+     * member always finds the counters matching the member's vote. Only the ranking, which is caught up when
+     * read, is told about each changed candidate once at the end of the batch.
+     *
+     * @param membershipIds The membership identifiers of the members making the votes.
+     * @param newVotes The candidates being voted for, in the same order as the members.
+     * @return The boolean values, true for each vote that changed, or false if the member already voted for it.
+     */
+    @Override
+    public boolean[] makeVotes(List<String> membershipIds, List<Candidate> newVotes) {
+        boolean[] changed = new boolean[membershipIds.size()];
+        // The candidates whose counters moved, so the ranking is told once for each.
+        Set<Candidate> changedCandidates = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        try {
+            for (int i = 0; i < changed.length; i++) {
+                String membershipId = membershipIds.get(i);
+                Candidate newVote = newVotes.get(i);
+
+                ReentrantLock lock = memberLock(membershipId);
+                acquire(lock);
+                try {
+                    Member voter = getExistingMember(membershipId);
+                    Candidate lastVote = voter.getCandidateVotedFor();
+                    // If the votes are the same, don't modify.
+                    if (newVote.equals(lastVote)) {
+                        continue;
+                    }
+                    preserveForSnapshots(voter);
+                    // The store may refuse the vote, so it goes first, before any counter has moved.
+                    memberDb.setVote(voter, newVote);
+                    if (lastVote != null) {
+                        lastVote.decrementVote();
+                        changedCandidates.add(lastVote);
+                    }
+                    newVote.incrementVote();
+                    changedCandidates.add(newVote);
+                    changed[i] = true;
+                    for (PollListener listener : listeners) {
+                        listener.onVote(voter, lastVote, newVote);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            // Even if a vote fails part way, the ranking must catch up with the counters moved so far.
+            for (Candidate candidate : changedCandidates) {
+                candidateRanking.changed(candidate);
+            }
+        }
+        return changed;
     }
 
     /**
      * This method will retract the vote for a specified candidate and update the voter object to remove
-     * their current vote.
+     * their current vote, while holding the member's lock.
      *
-     * @param voter The member who made the vote.
-     * @param lastVote The member's last vote.
+     * @param membershipId The membership identifier of the member retracting their vote.
+     * @return The boolean value true if a vote was retracted, or false if the member had no vote.
      */
     @Override
-    public void retractVote(Member voter, Candidate lastVote) {
-        lastVote.decrementVote();
-        voter.setCandidateVotedFor(null);
+    public boolean retractVote(String membershipId) {
+        ReentrantLock lock = memberLock(membershipId);
+        acquire(lock);
+        try {
+            Member voter = getExistingMember(membershipId);
+            Candidate lastVote = voter.getCandidateVotedFor();
+            // If there is no vote to retract, don't modify.
+            if (lastVote == null) {
+                return false;
+            }
+            preserveForSnapshots(voter);
+            lastVote.decrementVote();
+            candidateRanking.changed(lastVote);
+            memberDb.setVote(voter, null);
+            for (PollListener listener : listeners) {
+                listener.onRetract(voter, lastVote);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
 
@@ -88,12 +245,22 @@ public class PollServiceImpl implements PollService {
         if (candidate == null) {
             throw new RuntimeException(Error.INVALID_CANDIDATE.toString());
         }
-        if (hasCandidate(candidate.getCommonName())) {
-            throw new RuntimeException(Error.CANDIDATE_ALREADY_EXISTS.toString());
-        }
 
-        // Add the candidate to the database.
-        candidateDb.put(candidate.getCommonName(), candidate);
+        // Add the candidate to the database, atomically checking it doesn't already exist. Listeners hear
+        // about it under the lock, so the journal records adds and removes in the order they were made, and
+        // before the candidate goes into candidateDb, where votes find it, so before any vote for it.
+        synchronized (candidateDb) {
+            if (candidateDb.containsKey(candidate.getCommonName())) {
+                throw new RuntimeException(Error.CANDIDATE_ALREADY_EXISTS.toString());
+            }
+            candidateIndex.put(candidate.getCommonName(), candidate);
+            candidateRanking.add(candidate);
+            catalogVersion.incrementAndGet();
+            for (PollListener listener : listeners) {
+                listener.onCandidateAdded(candidate);
+            }
+            candidateDb.put(candidate.getCommonName(), candidate);
+        }
     }
 
     /**
@@ -104,18 +271,65 @@ public class PollServiceImpl implements PollService {
      */
     @Override
     public Candidate getCandidate(String commonName) {
-        return candidateDb.get(commonName);
+        return commonName == null ? null : candidateDb.get(commonName);
     }
 
 
     /**
      * This method will get all the candidates in the database.
      *
-     * @return The list of all candidates in the database.
+     * @return The list of all candidates in the database, in alphabetical order of their common names.
      */
     @Override
     public List<Candidate> getAllCandidates() {
-        return new ArrayList<>(candidateDb.values());
+        return new ArrayList<>(candidateIndex.values());
+    }
+
+    /**
+     * This method will get a page of the candidates in alphabetical order of their common names.
+     *
+     * @param after The common name the page starts after, or null to start from the first candidate.
+     * @param offset The number of candidates to skip after that.
+     * @param limit The most candidates to return.
+     * @return The candidates in the page.
+     */
+    @Override
+    public List<Candidate> getCandidatePage(String after, int offset, int limit) {
+        Map<String, Candidate> candidates = after == null ? candidateIndex : candidateIndex.tailMap(after, false);
+        List<Candidate> page = new ArrayList<>(Math.min(limit, candidateDb.size()));
+        for (Candidate candidate : candidates.values()) {
+            if (offset > 0) {
+                offset--;
+            } else if (page.size() < limit) {
+                page.add(candidate);
+            } else {
+                break;
+            }
+        }
+        return page;
+    }
+
+    /**
+     * This method will get a page of the candidates ranked by their votes, most first, with candidates
+     * with the same votes in alphabetical order.
+     *
+     * @param offset The number of candidates to skip, from the most voted for.
+     * @param limit The most candidates to return, so an offset of 0 gives the top candidates.
+     * @return Copies of the candidates in the page, holding the votes they were ranked by.
+     */
+    @Override
+    public List<Candidate> getRankedCandidates(int offset, int limit) {
+        return candidateRanking.page(offset, limit);
+    }
+
+    /**
+     * This method will get the number of candidates in the database.
+     *
+     * @return The number of candidates.
+     */
+    @Override
+    public int countCandidates() {
+        return candidateDb.size();
     }
 
     /**
@@ -125,7 +339,29 @@ public class PollServiceImpl implements PollService {
      */
     @Override
     public void removeCandidate(String commonName) {
-        candidateDb.remove(commonName);
+        // Listeners hear about the removal under the lock, in order with any re-adding of the same name.
+        synchronized (candidateDb) {
+            Candidate candidate = candidateDb.remove(commonName);
+            if (candidate == null) {
+                return;
+            }
+            candidateIndex.remove(commonName);
+            candidateRanking.remove(candidate);
+            catalogVersion.incrementAndGet();
+            for (PollListener listener : listeners) {
+                listener.onCandidateRemoved(candidate);
+            }
+        }
+    }
+
+    /**
+     * This method will get the version of the candidates, which changes whenever one is added or removed.
+     *
+     * @return The catalog version.
+     */
+    @Override
+    public long getCatalogVersion() {
+        return catalogVersion.get();
     }
 
     /**
@@ -141,13 +377,29 @@ public class PollServiceImpl implements PollService {
 
 
     /**
-     * This will add a member to the database.
+     * This will add a member to the database, unless a member with the same identifier was
+     * registered first by a concurrent request.
      *
      * @param member The member object describing the individual.
+     * @return The boolean value true if the member was added.
      */
     @Override
-    public void addMember(Member member) {
-        memberDb.put(member.getMembershipId(), member);
+    public boolean addMember(Member member) {
+        // Hold the member's lock, so listeners hear about the member before any of their votes.
+        ReentrantLock lock = memberLock(member.getMembershipId());
+        acquire(lock);
+        try {
+            // Members added while a snapshot is open are left out of it.
+            if (!memberDb.add(member, snapshotEpoch)) {
+                return false;
+            }
+            for (PollListener listener : listeners) {
+                listener.onMemberAdded(member);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
     }
 
     /**
@@ -158,18 +410,192 @@ public class PollServiceImpl implements PollService {
      */
     @Override
     public boolean hasMember(String membershipId) {
-        return memberDb.containsKey(membershipId);
+        return membershipId != null && memberDb.contains(membershipId);
     }
 
     /**
      * This method will get the member from the database with the specified membership identifier.
+     * The member's lock is held while reading, so their vote is current.
      *
      * @param membershipId The membership identifier for the specified member.
      * @return The member object describing the individual.
      */
     @Override
     public Member getMember(String membershipId) {
-        return memberDb.get(membershipId);
+        if (membershipId == null) {
+            return null;
+        }
+        ReentrantLock lock = memberLock(membershipId);
+        acquire(lock);
+        try {
+            return memberDb.get(membershipId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This method will get the number of members in the database.
+     *
+     * @return The number of members.
+     */
+    @Override
+    public int getMemberCount() {
+        return memberDb.size();
+    }
+
+    /**
+     * This method will get the number of times a member's lock was already held by another request
+     * when it was needed, a measure of how often requests for members sharing a stripe collide.
+     *
+     * @return The number of contended lock acquisitions.
+     */
+    @Override
+    public long getLockContentionCount() {
+        return lockContentions.sum();
+    }
+
+    /**
+     * This method will run an action while holding a member's lock. The lock is reentrant, so the action
+     * can vote, retract or add the member itself, and the member's listeners still hear about it in order.
+     *
+     * @param membershipId The membership identifier for the specified member.
+     * @param action The action to run.
+     */
+    @Override
+    public void runWithMemberLock(String membershipId, Runnable action) {
+        ReentrantLock lock = memberLock(membershipId);
+        acquire(lock);
+        try {
+            action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * This method will open a point-in-time view of the candidates and every member's vote. Voting isn't
+     * paused; instead, members changing their vote while the snapshot is open first copy their previous
+     * vote into it. The snapshot must be closed once it has been read.
+     *
+     * @return The open snapshot.
+     */
+    @Override
+    public synchronized PollSnapshot openSnapshot() {
+        PollSnapshot snapshot = new PollSnapshot(snapshotEpoch + 1, isPollOpen, getAllCandidates(), this);
+        PollSnapshot[] updated = Arrays.copyOf(openSnapshots, openSnapshots.length + 1);
+        updated[openSnapshots.length] = snapshot;
+        // Publish the snapshot before its epoch, so a vote that sees the new epoch also sees the snapshot.
+        openSnapshots = updated;
+        snapshotEpoch = snapshot.getEpoch();
+        return snapshot;
+    }
+
+    /**
+     * This method will count the snapshots still open, each of which every vote change has to preserve into.
+     *
+     * @return The number of open snapshots.
+     */
+    public int countOpenSnapshots() {
+        return openSnapshots.length;
+    }
+
+    /**
+     * This method will stop preserving votes for a snapshot.
+     *
+     * @param snapshot The snapshot to close.
+     */
+    synchronized void closeSnapshot(PollSnapshot snapshot) {
+        openSnapshots = Arrays.stream(openSnapshots).filter(open -> open != snapshot).toArray(PollSnapshot[]::new);
+    }
+
+    /**
+     * This method will visit every member that existed when a snapshot was opened, with their vote at that time.
+     *
+     * @param snapshot The snapshot being read.
+     * @param consumer The consumer of each member and their vote.
+     */
+    void scanSnapshot(PollSnapshot snapshot, PollSnapshot.BallotConsumer consumer) {
+        memberDb.forEachMembershipId(membershipId -> {
+            Member member;
+            Candidate vote;
+            ReentrantLock lock = memberLock(membershipId);
+            acquire(lock);
+            try {
+                member = memberDb.get(membershipId);
+                if (snapshot.isPreserved(membershipId)) {
+                    vote = snapshot.preservedVote(membershipId, null);
+                } else if (member.getSnapshotEpoch() >= snapshot.getEpoch()) {
+                    // Added after the snapshot was opened.
+                    return;
+                } else {
+                    vote = member.getCandidateVotedFor();
+                }
+            } finally {
+                lock.unlock();
+            }
+            consumer.accept(member, vote);
+        });
+    }
+
+    /**
+     * This method will copy a member's vote into each open snapshot that hasn't seen them change yet.
+     * Must hold the member's lock, and be called before their vote changes.
+     *
+     * @param voter The member about to change their vote.
+     */
+    private void preserveForSnapshots(Member voter) {
+        // Read the epoch first, so the snapshots read afterwards include every snapshot up to it.
+        long epoch = snapshotEpoch;
+        PollSnapshot[] snapshots = openSnapshots;
+        if (snapshots.length == 0) {
+            return;
+        }
+        for (PollSnapshot snapshot : snapshots) {
+            if (voter.getSnapshotEpoch() < snapshot.getEpoch()) {
+                snapshot.preserve(voter.getMembershipId(), voter.getCandidateVotedFor());
+            }
+        }
+        memberDb.setSnapshotEpoch(voter, epoch);
+    }
+
+    /**
+     * This method will get a member that must already be registered. Must hold the member's lock.
+     *
+     * @param membershipId The membership identifier for the specified member.
+     * @return The member object describing the individual.
+     */
+    private Member getExistingMember(String membershipId) {
+        Member member = membershipId == null ? null : memberDb.get(membershipId);
+        if (member == null) {
+            throw new RuntimeException(Error.MEMBER_NON_EXISTENT.toString());
+        }
+        return member;
+    }
+
+    /**
+     * This method will get the lock stripe that guards a member's vote transitions.
+     *
+     * @param membershipId The membership identifier for the specified member.
+     * @return The lock shared by every member hashing to the same stripe.
+     */
+    private ReentrantLock memberLock(String membershipId) {
+        // A null identifier is turned away once its lock is held, by getExistingMember.
+        int hash = membershipId == null ? 0 : membershipId.hashCode();
+        hash ^= hash >>> 16;
+        return memberLocks[hash & (memberLocks.length - 1)];
+    }
+
+    /**
+     * This method will take a member's lock, counting the times it has to wait for another request.
+     *
+     * @param lock The member's lock stripe.
+     */
+    private void acquire(ReentrantLock lock) {
+        if (!lock.tryLock()) {
+            lockContentions.increment();
+            lock.lock();
+        }
     }
 
     /**
@@ -188,5 +614,20 @@ public class PollServiceImpl implements PollService {
      */
     public void setPollOpen(boolean pollOpen) {
         isPollOpen = pollOpen;
+        for (PollListener listener : listeners) {
+            listener.onPollStatusChanged(pollOpen);
+        }
+    }
+
+    /**
+     * This method will register a listener to be told about every change to the poll.
+     *
+     * @param listener The listener to add.
+     */
+    @Override
+    public synchronized void addListener(PollListener listener) {
+        PollListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
     }
 }
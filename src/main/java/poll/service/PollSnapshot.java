@@ -0,0 +1,105 @@
+// A point-in-time view of the poll, living in the service sub-package.
+// Voting carries on while a snapshot is open: the first time a member changes their vote
+// after the snapshot was opened, their previous vote is copied into the snapshot.
+
+package poll.service;
+
+import poll.model.Candidate;
+import poll.model.Member;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class PollSnapshot implements AutoCloseable {
+
+    // Stands in for "no vote" among the preserved votes, as the concurrent map can't hold null.
+    private static final Candidate NO_VOTE = new Candidate();
+
+    private final long epoch;
+    private final boolean pollOpen;
+    private final List<Candidate> candidates;
+    private final PollServiceImpl pollService;
+
+    // Key -> membershipId, value -> the member's vote when the snapshot was opened.
+    private final Map<String, Candidate> preservedVotes = new ConcurrentHashMap<>();
+
+    /**
+     * This constructor will create a snapshot. Only the poll service opens snapshots.
+     *
+     * @param epoch The snapshot epoch; members added or changed at or after it are preserved or skipped.
+     * @param pollOpen The boolean value determining if the poll was open.
+     * @param candidates The candidates in the poll when the snapshot was opened.
+     * @param pollService The Poll Service object being viewed.
+     */
+    PollSnapshot(long epoch, boolean pollOpen, List<Candidate> candidates, PollServiceImpl pollService) {
+        this.epoch = epoch;
+        this.pollOpen = pollOpen;
+        this.candidates = candidates;
+        this.pollService = pollService;
+    }
+
+    public boolean isPollOpen() {
+        return pollOpen;
+    }
+
+    public List<Candidate> getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * This method will give every member in the snapshot, with their vote when the snapshot was opened,
+     * to a consumer. Members are visited in no particular order.
+     *
+     * @param consumer The consumer of each member and their vote, which may be null.
+     */
+    public void forEachBallot(BallotConsumer consumer) {
+        pollService.scanSnapshot(this, consumer);
+    }
+
+    /**
+     * This method will close the snapshot, so voting stops preserving votes for it.
+     */
+    @Override
+    public void close() {
+        pollService.closeSnapshot(this);
+    }
+
+    long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * This method will keep a member's vote from before their first change since the snapshot was opened.
+     *
+     * @param membershipId The membership identifier for the specified member.
+     * @param vote The member's vote before the change, which may be null.
+     */
+    void preserve(String membershipId, Candidate vote) {
+        preservedVotes.putIfAbsent(membershipId, vote == null ? NO_VOTE : vote);
+    }
+
+    /**
+     * This method will get a member's preserved vote.
+     *
+     * @param membershipId The membership identifier for the specified member.
+     * @param current The member's current vote, returned if nothing was preserved.
+     * @return The member's vote when the snapshot was opened.
+     */
+    Candidate preservedVote(String membershipId, Candidate current) {
+        Candidate vote = preservedVotes.get(membershipId);
+        if (vote == null) {
+            return current;
+        }
+        return vote == NO_VOTE ? null : vote;
+    }
+
+    boolean isPreserved(String membershipId) {
+        return preservedVotes.containsKey(membershipId);
+    }
+
+    // Receives each member and their vote from a snapshot.
+    public interface BallotConsumer {
+        void accept(Member member, Candidate vote);
+    }
+}
@@ -0,0 +1,429 @@
+// Pushes live tallies to subscribed administrators as Server-Sent Events, living in the stream sub-package.
+// Votes only mark the tallies as changed; a ticker then sends one frame per tick with the counts that
+// changed, so a burst of votes costs each subscriber a single frame. Clients of both the servlet and the
+// reactive stack are served by the same ticker and senders. A servlet client whose write blocks for longer
+// than the write timeout is dropped, and a sender thread stands in for the one stuck writing to it.
+
+package poll.stream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollListener;
+import poll.service.PollService;
+import reactor.core.publisher.Flux;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class TallyBroadcaster implements PollListener {
+
+    // The SSE event names: a full tally of every candidate, or only the candidates whose count changed.
+    static final String FULL_EVENT = "tally";
+    static final String DELTA_EVENT = "delta";
+
+    private final PollService pollService;
+    private final JsonFactory jsonFactory;
+    private final int bufferedFrames;
+    private final long emitterTimeoutMs;
+    private final long writeTimeoutNanos;
+    private final int senderThreads;
+
+    // Set by the vote path and cleared by the ticker. Only written when it changes, to keep votes cheap.
+    private volatile boolean dirty;
+
+    // The counts as of the last tick, which a subscriber's full tally is built from.
+    private volatile Tally published;
+
+    private final Map<Subscriber, Boolean> subscribers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService ticker;
+    private final ThreadPoolExecutor senders;
+    // The sender threads stuck writing to dropped subscribers, which the pool has grown by to make up for them.
+    private int stuckSenders;
+
+    /**
+     * This constructor will set up the broadcaster and start its ticker.
+     *
+     * @param pollService The Poll Service object whose tallies are streamed.
+     * @param objectMapper The JSON mapper configured by Spring.
+     * @param tickMs The time between frames.
+     * @param bufferedFrames The number of frames a slow subscriber can fall behind before they are dropped
+     *                       and replaced by a full tally.
+     * @param senderThreads The number of threads writing frames to subscribers.
+     * @param emitterTimeoutMs The time before a subscription ends and the client reconnects.
+     * @param writeTimeoutMs The time a frame can take to write before the subscriber is dropped.
+     */
+    public TallyBroadcaster(PollService pollService, ObjectMapper objectMapper,
+                            @Value("${poll.stream.tick-ms:100}") long tickMs,
+                            @Value("${poll.stream.buffered-frames:16}") int bufferedFrames,
+                            @Value("${poll.stream.sender-threads:4}") int senderThreads,
+                            @Value("${poll.stream.timeout-ms:1800000}") long emitterTimeoutMs,
+                            @Value("${poll.stream.write-timeout-ms:5000}") long writeTimeoutMs) {
+        this.pollService = pollService;
+        this.jsonFactory = objectMapper.getFactory();
+        this.bufferedFrames = bufferedFrames;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeoutMs);
+        this.senderThreads = senderThreads;
+
+        // Start from the candidates already in the poll, so a subscriber doesn't see an empty tally until a vote.
+        published = new Tally(0, currentCounts());
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> daemon(runnable, "tally-ticker"));
+        senders = new ThreadPoolExecutor(senderThreads, senderThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> daemon(runnable, "tally-sender"));
+        ticker.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+
+        pollService.addListener(this);
+    }
+
+    /**
+     * This method will subscribe a client to the tallies. Their first frame is a full tally.
+     *
+     * @return The emitter that holds the client's connection open.
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = connect(new Connection() {
+            @Override
+            public void send(String event, String frame) throws IOException {
+                emitter.send(SseEmitter.event().name(event).data(frame, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void fail(Throwable error) {
+                emitter.completeWithError(error);
+            }
+
+            @Override
+            public void complete() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    /**
+     * This method will subscribe a client of the reactive stack to the tallies. Their first frame is a full
+     * tally. A client that stops reading for more than the buffered frames is disconnected, and gets a
+     * full tally again when their EventSource reconnects.
+     *
+     * @return The stream of events, which ends once the subscription times out.
+     */
+    public Flux<ServerSentEvent<String>> subscribeReactive() {
+        Flux<ServerSentEvent<String>> events = Flux.create(sink -> {
+            Subscriber subscriber = connect(new Connection() {
+                @Override
+                public void send(String event, String frame) throws IOException {
+                    if (sink.isCancelled()) {
+                        throw new IOException("The client has gone");
+                    }
+                    sink.next(ServerSentEvent.builder(frame).event(event).build());
+                }
+
+                @Override
+                public void fail(Throwable error) {
+                    sink.error(error);
+                }
+
+                @Override
+                public void complete() {
+                    sink.complete();
+                }
+            });
+            sink.onDispose(() -> subscribers.remove(subscriber));
+        });
+        return events.onBackpressureBuffer(bufferedFrames).take(Duration.ofMillis(emitterTimeoutMs));
+    }
+
+    /**
+     * This method will subscribe a client's connection to the tallies, starting with a full tally.
+     *
+     * @param connection The connection to send the client's frames down.
+     * @return The subscriber, which is removed once the connection fails.
+     */
+    Subscriber connect(Connection connection) {
+        Subscriber subscriber = new Subscriber(connection, bufferedFrames);
+        subscribers.put(subscriber, Boolean.TRUE);
+        subscriber.resync.set(true);
+        schedule(subscriber);
+        return subscriber;
+    }
+
+    @Override
+    public void onVote(Member voter, Candidate lastVote, Candidate newVote) {
+        markDirty();
+    }
+
+    @Override
+    public void onRetract(Member voter, Candidate lastVote) {
+        markDirty();
+    }
+
+    @Override
+    public void onCandidateAdded(Candidate candidate) {
+        markDirty();
+    }
+
+    @Override
+    public void onCandidateRemoved(Candidate candidate) {
+        markDirty();
+    }
+
+    @PreDestroy
+    public void close() {
+        ticker.shutdownNow();
+        senders.shutdownNow();
+        subscribers.keySet().forEach(subscriber -> subscriber.connection.complete());
+    }
+
+    private void markDirty() {
+        if (!dirty) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * This method will send every subscriber the counts that changed since the last tick, if any did.
+     */
+    private void tick() {
+        dropStalled();
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+
+        Tally previous = published;
+        Tally current = new Tally(previous.sequence + 1, currentCounts());
+        Map<String, Integer> changes = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : current.counts.entrySet()) {
+            if (!entry.getValue().equals(previous.counts.get(entry.getKey()))) {
+                changes.put(entry.getKey(), entry.getValue());
+            }
+        }
+        // Removed candidates are sent as null.
+        for (String commonName : previous.counts.keySet()) {
+            if (!current.counts.containsKey(commonName)) {
+                changes.put(commonName, null);
+            }
+        }
+        published = current;
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        Frame frame = new Frame(current.sequence, toJson(changes));
+        for (Subscriber subscriber : subscribers.keySet()) {
+            if (!subscriber.frames.offer(frame)) {
+                // Too far behind: drop what they haven't been sent, and send them a full tally instead.
+                subscriber.frames.clear();
+                subscriber.resync.set(true);
+            }
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * This method will drop the subscribers whose current write has taken longer than the write timeout. A
+     * blocked write can't be interrupted, so each one dropped lends the senders a thread until it returns.
+     */
+    private void dropStalled() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers.keySet()) {
+            if (subscriber.state.get() == SENDING && now - subscriber.sendStartedAt > writeTimeoutNanos
+                    && subscriber.state.compareAndSet(SENDING, STALLED)) {
+                subscribers.remove(subscriber);
+                resizeSenders(1);
+            }
+        }
+    }
+
+    private synchronized void resizeSenders(int change) {
+        stuckSenders += change;
+        int size = senderThreads + stuckSenders;
+        // The core size can't go above the maximum, so grow the maximum first and shrink it last.
+        if (change > 0) {
+            senders.setMaximumPoolSize(size);
+            senders.setCorePoolSize(size);
+        } else {
+            senders.setCorePoolSize(size);
+            senders.setMaximumPoolSize(size);
+        }
+    }
+
+    /**
+     * This method will make sure a sender is draining a subscriber's frames, without two senders
+     * writing to the same subscriber at once.
+     *
+     * @param subscriber The subscriber with frames to send.
+     */
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            while (true) {
+                if (subscriber.resync.getAndSet(false)) {
+                    Tally tally = published;
+                    send(subscriber, FULL_EVENT, toJson(tally.counts));
+                    subscriber.sentSequence = tally.sequence;
+                }
+                Frame frame = subscriber.frames.poll();
+                if (frame == null) {
+                    break;
+                }
+                // Skip frames already covered by a full tally.
+                if (frame.sequence > subscriber.sentSequence) {
+                    send(subscriber, DELTA_EVENT, frame.json);
+                    subscriber.sentSequence = frame.sequence;
+                }
+            }
+        } catch (IOException | IllegalStateException exception) {
+            // The client has gone; the connection's callbacks remove them too.
+            subscribers.remove(subscriber);
+            subscriber.connection.fail(exception);
+            return;
+        } finally {
+            subscriber.draining.set(false);
+        }
+        // A frame may have arrived after the queue was found empty, but before draining was cleared.
+        if (!subscriber.frames.isEmpty() || subscriber.resync.get()) {
+            schedule(subscriber);
+        }
+    }
+
+    private void send(Subscriber subscriber, String event, String frame) throws IOException {
+        subscriber.sendStartedAt = System.nanoTime();
+        subscriber.state.set(SENDING);
+        boolean stalled;
+        try {
+            subscriber.connection.send(event, frame);
+        } finally {
+            stalled = !subscriber.state.compareAndSet(SENDING, IDLE);
+            if (stalled) {
+                // The subscriber was dropped while this write was stuck, and the thread lent for it is given back.
+                resizeSenders(-1);
+            }
+        }
+        if (stalled) {
+            throw new IOException("Writing to the client timed out");
+        }
+    }
+
+    private String toJson(Map<String, Integer> counts) {
+        ByteArrayBuilder bytes = new ByteArrayBuilder();
+        try (JsonGenerator generator = jsonFactory.createGenerator(bytes, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+                generator.writeFieldName(entry.getKey());
+                if (entry.getValue() == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeNumber(entry.getValue());
+                }
+            }
+            generator.writeEndObject();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private Map<String, Integer> currentCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Candidate candidate : pollService.getAllCandidates()) {
+            counts.put(candidate.getCommonName(), candidate.getVoteCount());
+        }
+        return counts;
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    // The counts of every candidate as of a tick.
+    private static class Tally {
+        private final long sequence;
+        private final Map<String, Integer> counts;
+
+        private Tally(long sequence, Map<String, Integer> counts) {
+            this.sequence = sequence;
+            this.counts = counts;
+        }
+    }
+
+    // The changed counts of a tick, serialized once for every subscriber.
+    private static class Frame {
+        private final long sequence;
+        private final String json;
+
+        private Frame(long sequence, String json) {
+            this.sequence = sequence;
+            this.json = json;
+        }
+    }
+
+    // A client's connection, held open by either the servlet or the reactive stack.
+    interface Connection {
+        void send(String event, String frame) throws IOException;
+
+        void fail(Throwable error);
+
+        void complete();
+    }
+
+    // Whether a subscriber is being written to, and whether they were dropped for taking too long.
+    private static final int IDLE = 0;
+    private static final int SENDING = 1;
+    private static final int STALLED = 2;
+
+    // A subscribed client, with the frames waiting to be sent to them.
+    private static class Subscriber {
+        private final Connection connection;
+        private final Queue<Frame> frames;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean resync = new AtomicBoolean();
+        private final AtomicInteger state = new AtomicInteger(IDLE);
+        // When the current write started, set before the state says it is sending.
+        private volatile long sendStartedAt;
+        // The tick the client is up to date with, only touched by the sender draining them.
+        private long sentSequence;
+
+        private Subscriber(Connection connection, int bufferedFrames) {
+            this.connection = connection;
+            this.frames = new ArrayBlockingQueue<>(bufferedFrames);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package poll.view;
+
+public enum View {
+    // What anyone can see: candidates without their voteCount, and members without their personal details.
+    PUBLIC,
+    // What an authenticated administrator can see: every attribute.
+    ADMIN
+}
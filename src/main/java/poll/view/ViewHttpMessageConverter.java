@@ -0,0 +1,52 @@
+// Writes a ViewResponse as JSON straight into the response's output buffer, living in the view sub-package.
+// Registered by the WebConfiguration ahead of the default Jackson converter.
+
+package poll.view;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+public class ViewHttpMessageConverter extends AbstractHttpMessageConverter<ViewResponse> {
+
+    private final JsonFactory jsonFactory;
+
+    /**
+     * This constructor will create a converter that writes JSON with a shared factory.
+     *
+     * @param jsonFactory The factory of the JSON mapper configured by Spring.
+     */
+    public ViewHttpMessageConverter(JsonFactory jsonFactory) {
+        super(MediaType.APPLICATION_JSON);
+        this.jsonFactory = jsonFactory;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ViewResponse.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected ViewResponse readInternal(Class<? extends ViewResponse> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("View responses are only written.", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(ViewResponse viewResponse, HttpOutputMessage outputMessage) throws IOException {
+        try (JsonGenerator generator = jsonFactory.createGenerator(outputMessage.getBody(), JsonEncoding.UTF8)) {
+            ViewWriter.write(generator, viewResponse.getData(), viewResponse.getView());
+        }
+    }
+}
@@ -0,0 +1,29 @@
+// A response body paired with the view it should be written in, living in the view sub-package.
+// Returned by the controller and written by the ViewHttpMessageConverter.
+
+package poll.view;
+
+public class ViewResponse {
+
+    private final View view;
+    private final Object data;
+
+    /**
+     * This constructor will pair a response body with a view.
+     *
+     * @param view The view to write the data in.
+     * @param data A Candidate, Member, or collection of them.
+     */
+    public ViewResponse(View view, Object data) {
+        this.view = view;
+        this.data = data;
+    }
+
+    public View getView() {
+        return view;
+    }
+
+    public Object getData() {
+        return data;
+    }
+}
@@ -0,0 +1,110 @@
+// Hand-written JSON writers for the public and admin views of the models, living in the view sub-package.
+// Field names are encoded once up front, and nothing is looked up by reflection while writing.
+
+package poll.view;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import poll.model.Candidate;
+import poll.model.Member;
+
+import java.io.IOException;
+import java.util.Collection;
+
+public final class ViewWriter {
+
+    private static final SerializableString SCIENTIFIC_NAME = new SerializedString("scientificName");
+    private static final SerializableString COMMON_NAME = new SerializedString("commonName");
+    private static final SerializableString DESCRIPTION = new SerializedString("description");
+    private static final SerializableString VOTE_COUNT = new SerializedString("voteCount");
+
+    private static final SerializableString MEMBERSHIP_ID = new SerializedString("membershipId");
+    private static final SerializableString NAME = new SerializedString("name");
+    private static final SerializableString AGE = new SerializedString("age");
+    private static final SerializableString REGION_OF_SCOTLAND = new SerializedString("regionOfScotland");
+    private static final SerializableString CANDIDATE_VOTED_FOR = new SerializedString("candidateVotedFor");
+
+    private ViewWriter() {
+    }
+
+    /**
+     * This method will write a Candidate, Member, or collection of them in a view.
+     *
+     * @param generator The generator writing to the response.
+     * @param data The data to write.
+     * @param view The view to write the data in.
+     * @throws IOException The error, if the response can't be written.
+     */
+    public static void write(JsonGenerator generator, Object data, View view) throws IOException {
+        if (data instanceof Candidate) {
+            writeCandidate(generator, (Candidate) data, view);
+        } else if (data instanceof Member) {
+            writeMember(generator, (Member) data, view);
+        } else if (data instanceof Collection) {
+            generator.writeStartArray();
+            for (Object element : (Collection<?>) data) {
+                write(generator, element, view);
+            }
+            generator.writeEndArray();
+        } else if (data == null) {
+            generator.writeNull();
+        } else {
+            throw new IllegalArgumentException("No view writer for " + data.getClass().getName());
+        }
+    }
+
+    /**
+     * This method will write a candidate, leaving out voteCount in the public view.
+     *
+     * @param generator The generator writing to the response.
+     * @param candidate The candidate to write.
+     * @param view The view to write the candidate in.
+     * @throws IOException The error, if the response can't be written.
+     */
+    public static void writeCandidate(JsonGenerator generator, Candidate candidate, View view) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(SCIENTIFIC_NAME);
+        generator.writeString(candidate.getScientificName());
+        generator.writeFieldName(COMMON_NAME);
+        generator.writeString(candidate.getCommonName());
+        generator.writeFieldName(DESCRIPTION);
+        generator.writeString(candidate.getDescription());
+        if (view == View.ADMIN) {
+            generator.writeFieldName(VOTE_COUNT);
+            generator.writeNumber(candidate.getVoteCount());
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * This method will write a member, leaving out their age, region and vote in the public view.
+     * The vote is written as a nested candidate in the same view, as Jackson wrote it before these writers.
+     *
+     * @param generator The generator writing to the response.
+     * @param member The member to write.
+     * @param view The view to write the member in.
+     * @throws IOException The error, if the response can't be written.
+     */
+    public static void writeMember(JsonGenerator generator, Member member, View view) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName(MEMBERSHIP_ID);
+        generator.writeString(member.getMembershipId());
+        generator.writeFieldName(NAME);
+        generator.writeString(member.getName());
+        if (view == View.ADMIN) {
+            generator.writeFieldName(AGE);
+            generator.writeNumber(member.getAge());
+            generator.writeFieldName(REGION_OF_SCOTLAND);
+            generator.writeString(member.getRegionOfScotland());
+            generator.writeFieldName(CANDIDATE_VOTED_FOR);
+            Candidate vote = member.getCandidateVotedFor();
+            if (vote == null) {
+                generator.writeNull();
+            } else {
+                writeCandidate(generator, vote, view);
+            }
+        }
+        generator.writeEndObject();
+    }
+}
@@ -40,7 +40,8 @@ async function tallyVotes() {
     let header = document.querySelector('meta[name="_csrf_header"]').getAttribute('content');
 
     const output = document.getElementById("talliedVotes");
-    const url = "http://localhost:8080/birds-enriched";
+    // The candidates ranked by their votes, most first.
+    const url = "http://localhost:8080/birds-enriched/ranked?limit=1000";
 
     try {
         const response = await fetch(url, {
@@ -62,4 +63,38 @@ async function tallyVotes() {
     } catch (error) {
         output.innerText = error.message;
     }
+}
+
+let tallyStream = null;
+
+function watchTallies() {
+    const output = document.getElementById("talliedVotes");
+    if (tallyStream !== null) {
+        tallyStream.close();
+    }
+
+    // The first event holds every candidate's count, and each later one only the counts that changed.
+    const tallies = {};
+    tallyStream = new EventSource("http://localhost:8080/birds-enriched/stream");
+    tallyStream.addEventListener("tally", event => {
+        for (const commonName of Object.keys(tallies)) {
+            delete tallies[commonName];
+        }
+        Object.assign(tallies, JSON.parse(event.data));
+        output.innerText = `Live\n${JSON.stringify(tallies, null, 4)}`;
+    });
+    tallyStream.addEventListener("delta", event => {
+        const changes = JSON.parse(event.data);
+        for (const [commonName, voteCount] of Object.entries(changes)) {
+            if (voteCount === null) {
+                delete tallies[commonName];
+            } else {
+                tallies[commonName] = voteCount;
+            }
+        }
+        output.innerText = `Live\n${JSON.stringify(tallies, null, 4)}`;
+    });
+    tallyStream.onerror = () => {
+        output.innerText = `Reconnecting...\n${JSON.stringify(tallies, null, 4)}`;
+    };
 }
\ No newline at end of file
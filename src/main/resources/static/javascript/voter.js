@@ -30,21 +30,8 @@ function populateOptions(options) {
     // Reset options
     select.innerHTML = "";
 
-    // Sort the candidates into alphabetical order.
-    let alphabeticalBirds = options.sort((bird1, bird2) => {
-        let bird1Name = bird1.commonName.toLowerCase();
-        let bird2Name = bird2.commonName.toLowerCase();
-
-        if (bird1Name < bird2Name) {
-            return -1;
-        } else if (bird2Name < bird1Name) {
-            return 1;
-        }
-        return 0;
-    });
-
-    // Populate the select with each candidate.
-    alphabeticalBirds.forEach(bird =>
+    // Populate the select with each candidate, already in alphabetical order from the server.
+    options.forEach(bird =>
         select.add(new Option(bird.commonName, bird.commonName))
     );
 }
@@ -64,18 +51,6 @@ function listCandidates() {
         .catch(error => output.innerHTML = error);
 }
 
-async function validateMember(member) {
-    const url = "https://pmaier.eu.pythonanywhere.com/sawb/member/" + member.membershipId;
-
-    try {
-        const response = await fetch(url);
-        const jsonObject = await response.json();
-        return response.status === 200 && jsonObject.member.name.toLowerCase() === member.name.toLowerCase();
-    } catch (error) {
-        return false;
-    }
-}
-
 async function voteForCandidate() {
     const {value: candidate} = document.getElementById("candidates");
     const output = document.getElementById("voteResponse");
@@ -83,11 +58,6 @@ async function voteForCandidate() {
     const member = createMemberObject();
     const payload = {[candidate]: member};
 
-    if (!await validateMember(member)) {
-        output.innerText = "The member provided is not valid!";
-        return;
-    }
-
     try {
         const response = await fetch(url, {
             method: 'PUT',
@@ -110,11 +80,6 @@ async function retractVote() {
     const member = createMemberObject();
     const payload = member.membershipId;
 
-    if (!await validateMember(member)) {
-        output.innerText = "The member provided is not valid!";
-        return;
-    }
-
     try {
         const response = await fetch(url, {
             method: 'DELETE',
@@ -137,12 +102,6 @@ async function showVote() {
     const payload = member.membershipId;
     const url = "http://localhost:8080/birds/vote/" + payload;
 
-
-    if (!await validateMember(member)) {
-        output.innerText = "The member provided is not valid!";
-        return;
-    }
-
     try {
         const response = await fetch(url);
         let message = "No response message...";
@@ -0,0 +1,66 @@
+package poll;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import poll.electorate.ElectorateImporter;
+import poll.journal.FsyncPolicy;
+import poll.journal.SnapshotSection;
+import poll.journal.TallySnapshotter;
+import poll.journal.VoteJournal;
+import poll.service.PollServiceImpl;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PollApplicationTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void removedInitialCandidateStaysRemovedAfterRestarts() throws Exception {
+        PollServiceImpl pollService = new PollServiceImpl();
+        VoteJournal journal = start(pollService);
+        assertTrue(pollService.hasCandidate("Osprey"));
+        long seeded = journal.position();
+        pollService.removeCandidate("Osprey");
+        journal.close();
+
+        PollServiceImpl restarted = new PollServiceImpl();
+        VoteJournal reopened = start(restarted);
+        assertFalse(restarted.hasCandidate("Osprey"));
+        assertEquals(2, restarted.countCandidates());
+        // Restarting journals nothing, so the journal only holds the removal.
+        assertEquals(0, seeded);
+        reopened.close();
+
+        PollServiceImpl again = new PollServiceImpl();
+        VoteJournal last = start(again);
+        assertFalse(again.hasCandidate("Osprey"));
+        last.close();
+    }
+
+    // Runs the startup of the application against a journal in the test's directory.
+    private VoteJournal start(PollServiceImpl pollService) throws Exception {
+        VoteJournal journal = new VoteJournal(pollService, directory.toString(), 1 << 20, FsyncPolicy.NONE, 100);
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("voteJournal", journal);
+        beans.addBean("tallySnapshotter",
+                new TallySnapshotter(pollService, journal, noSections(), directory.toString()));
+        ElectorateImporter importer = new ElectorateImporter(pollService, new ObjectMapper(), 1, 1 << 20, "");
+
+        new PollApplication().initDB(pollService, beans.getBeanProvider(VoteJournal.class),
+                beans.getBeanProvider(TallySnapshotter.class), importer).run();
+        return journal;
+    }
+
+    private static ObjectProvider<SnapshotSection> noSections() {
+        return new StaticListableBeanFactory().getBeanProvider(SnapshotSection.class);
+    }
+}
@@ -0,0 +1,145 @@
+package poll.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import poll.membership.StubMembershipRegistry;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollService;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"poll.membership.registry=stub", "poll.membership.stub.latency-ms=100",
+        "poll.rate-limit.rate-per-second=0.1", "poll.rate-limit.burst=3"})
+@AutoConfigureMockMvc
+class PollControllerTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private PollService pollService;
+
+    @Autowired
+    private StubMembershipRegistry registry;
+
+    @Test
+    void candidateListIsRevalidatedWithItsEntityTag() throws Exception {
+        pollService.addCandidate(new Candidate("Charadrius morinellus", "Dotterel", null));
+        pollService.addMember(new Member("etag-1", "Ada Lovelace"));
+        String eTag = mvc.perform(get("/birds"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"commonName\":\"Dotterel\"")))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // The public list hides the counts, so a vote doesn't change it.
+        pollService.makeVote("etag-1", pollService.getCandidate("Dotterel"));
+        mvc.perform(get("/birds").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        pollService.removeCandidate("Dotterel");
+        String changed = mvc.perform(get("/birds").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk())
+                .andExpect(content().string(not(containsString("Dotterel"))))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(eTag, changed);
+    }
+
+    @Test
+    void batchVerifiesItsMembersTogether() throws Exception {
+        pollService.addCandidate(new Candidate("Tetrao urogallus", "Capercaillie", null));
+        pollService.setPollOpen(true);
+        int members = 40;
+        StringBuilder batch = new StringBuilder("[");
+        StringBuilder expected = new StringBuilder("[");
+        for (int i = 0; i < members; i++) {
+            registry.register("batch-" + i, "Member " + i);
+            batch.append(signedVote("Capercaillie", "batch-" + i, "Member " + i)).append(',');
+            expected.append("202,");
+        }
+        batch.append(signedVote("Dodo", "batch-0", "Member 0")).append(',')
+                .append(signedVote("Capercaillie", "batch-stranger", "Stranger")).append(',')
+                .append(signedVote("Capercaillie", "batch-0", "Member 0")).append(']');
+        expected.append("404,403,304]");
+
+        long start = System.nanoTime();
+        putBatch(batch.toString())
+                .andExpect(status().isOk())
+                .andExpect(content().json(expected.toString(), true));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(members, pollService.getCandidateCount("Capercaillie"));
+        // One at a time, the lookups would take 100ms each.
+        assertTrue(elapsedMs < members * 100 / 2, elapsedMs + "ms");
+    }
+
+    @Test
+    void malformedBatchReportsTheVotesAppliedBeforeIt() throws Exception {
+        pollService.addCandidate(new Candidate("Milvus milvus", "Red Kite", null));
+        pollService.setPollOpen(true);
+        registry.register("kite-1", "Ada Lovelace");
+        registry.register("kite-2", "Charles Babbage");
+        String first = signedVote("Red Kite", "kite-1", "Ada Lovelace");
+        String second = signedVote("Red Kite", "kite-2", "Charles Babbage");
+
+        // An element that isn't a signed vote doesn't quietly end the batch.
+        putBatch("[" + first + ", 42, " + second + "]")
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("[202]", true));
+        assertEquals(1, pollService.getCandidateCount("Red Kite"));
+
+        putBatch("[" + second + ", {\"Red Kite\": ")
+                .andExpect(status().isBadRequest())
+                .andExpect(content().json("[202]", true));
+        assertEquals(2, pollService.getCandidateCount("Red Kite"));
+    }
+
+    @Test
+    void retriesOfAnsweredVotesAreNotRateLimited() throws Exception {
+        pollService.addCandidate(new Candidate("Crex crex", "Corncrake", null));
+        pollService.setPollOpen(true);
+        registry.register("retry-1", "Ada Lovelace");
+        String signedVote = signedVote("Corncrake", "retry-1", "Ada Lovelace");
+
+        putVote(signedVote, "first").andExpect(status().isAccepted());
+        // More retries than the member's burst, all answered from the idempotency cache.
+        for (int i = 0; i < 5; i++) {
+            putVote(signedVote, "first")
+                    .andExpect(status().isAccepted())
+                    .andExpect(header().string("Idempotent-Replayed", "true"));
+        }
+        putVote(signedVote, "second").andExpect(status().isNotModified());
+        putVote(signedVote, "third").andExpect(status().isNotModified());
+        putVote(signedVote, "fourth").andExpect(status().isTooManyRequests());
+        putVote(signedVote, "first").andExpect(status().isAccepted());
+        assertEquals(1, pollService.getCandidateCount("Corncrake"));
+    }
+
+    private ResultActions putVote(String signedVote, String idempotencyKey) throws Exception {
+        return mvc.perform(put("/birds/vote").contentType(MediaType.APPLICATION_JSON).content(signedVote)
+                .header("Idempotency-Key", idempotencyKey));
+    }
+
+    private ResultActions putBatch(String body) throws Exception {
+        return mvc.perform(put("/birds/vote/batch").contentType(MediaType.APPLICATION_JSON).content(body));
+    }
+
+    private static String signedVote(String commonName, String membershipId, String name) {
+        return "{\"" + commonName + "\":{\"membershipId\":\"" + membershipId + "\",\"name\":\"" + name + "\"}}";
+    }
+}
@@ -0,0 +1,69 @@
+package poll.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import poll.exception.Error;
+import poll.journal.VoteJournal;
+import poll.membership.MembershipCache;
+import poll.membership.StubMembershipRegistry;
+import poll.metrics.PollMetrics;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.registry.PollRegistry;
+import poll.service.PollService;
+import poll.service.PollServiceImpl;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoteValidatorTests {
+
+    @Test
+    void mainPollAndRegistryPollsTurnVotesAwayAlike() {
+        StubMembershipRegistry registry = new StubMembershipRegistry("", 0);
+        registry.register("member-1", "Ada Lovelace");
+        MembershipCache membershipCache = new MembershipCache(registry, 16, 3_600_000, 60_000, 5_000, 1, 16);
+        PollServiceImpl mainPoll = new PollServiceImpl();
+        PollMetrics metrics = new PollMetrics(mainPoll,
+                new StaticListableBeanFactory().getBeanProvider(VoteJournal.class));
+        List<Candidate> candidates = List.of(new Candidate("Pandion haliaetus", "Osprey", ""));
+        mainPoll.addCandidate(candidates.get(0));
+        PollService registryPoll = new PollRegistry(metrics, 10, 16).create("highlands", candidates);
+        VoteValidator validator = new VoteValidator(membershipCache, metrics);
+
+        for (PollService poll : List.of(mainPoll, registryPoll)) {
+            assertRejected(HttpStatus.FORBIDDEN, () -> validator.checkMember(poll, new Member("member-1", "Ada")));
+            poll.setPollOpen(true);
+            assertRejected(HttpStatus.BAD_REQUEST, () -> validator.checkMember(poll, null));
+            assertRejected(HttpStatus.BAD_REQUEST, () -> validator.checkMember(poll, new Member(" ", "Ada")));
+            assertRejected(HttpStatus.NOT_FOUND, () -> validator.validateMember(poll,
+                    new Member("member-1", "Ada Lovelace"), false));
+            assertRejected(HttpStatus.FORBIDDEN, () -> validator.validateMember(poll,
+                    new Member("member-2", "Alan Turing"), true));
+            validator.validateMember(poll, new Member("member-1", "Ada Lovelace"), true);
+            assertTrue(poll.hasMember("member-1"));
+            assertRejected(HttpStatus.BAD_REQUEST, () -> validator.checkCommonName(""));
+            assertRejected(HttpStatus.NOT_FOUND, () -> validator.getCandidate(poll, "Dodo"));
+            assertEquals("Osprey", validator.getCandidate(poll, "Osprey").getCommonName());
+        }
+
+        // Counted under the same errors for both polls.
+        assertEquals(2, metrics.getReport().getRejections().get(Error.POLL_CLOSED.name()));
+        assertEquals(2, metrics.getReport().getRejections().get(Error.INVALID_MEMBER.name()));
+        assertEquals(4, metrics.getReport().getRejections().get(Error.MEMBER_NON_EXISTENT.name()));
+        assertEquals(2, metrics.getReport().getRejections().get(Error.MEMBER_NOT_REGISTERED.name()));
+        assertEquals(2, metrics.getReport().getRejections().get(Error.CANDIDATE_NON_EXISTENT.name()));
+        membershipCache.close();
+        metrics.close();
+    }
+
+    private static void assertRejected(HttpStatus status, Runnable check) {
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, check::run);
+        assertEquals(status, exception.getStatus());
+    }
+}
@@ -0,0 +1,70 @@
+package poll.demographics;
+
+import org.junit.jupiter.api.Test;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollServiceImpl;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DemographicTallyTests {
+
+    @Test
+    void votesAreCountedByRegionAndAgeBandAsTheyMove() {
+        PollServiceImpl pollService = new PollServiceImpl();
+        Candidate osprey = new Candidate("Pandion haliaetus", "Osprey", null);
+        Candidate kite = new Candidate("Milvus milvus", "Red Kite", null);
+        pollService.addCandidate(osprey);
+        pollService.addCandidate(kite);
+        // Room for Unknown and two more regions, after which regions are counted as Other.
+        DemographicTally tally = new DemographicTally(pollService, 3);
+        pollService.addMember(new Member("member-1", "Ada Lovelace", 36, "Fife"));
+        pollService.addMember(new Member("member-2", "Alan Turing", 41, "Highland"));
+        pollService.addMember(new Member("member-3", "Grace Hopper", 85, "Orkney"));
+        pollService.addMember(new Member("member-4", "No Region", 17, " "));
+
+        pollService.makeVote("member-1", osprey);
+        pollService.makeVote("member-2", osprey);
+        pollService.makeVote("member-3", osprey);
+        pollService.makeVote("member-4", kite);
+        pollService.makeVote("member-1", kite);
+        pollService.retractVote("member-3");
+
+        DemographicBreakdown breakdown = tally.getBreakdown();
+        assertEquals(List.of("Fife", "Highland", "Other", "Unknown"), breakdown.getRegions());
+        assertEquals(Map.of("Fife", 0L, "Highland", 1L, "Other", 0L, "Unknown", 0L),
+                breakdown.getByRegion().get("Osprey"));
+        assertEquals(Map.of("Fife", 1L, "Highland", 0L, "Other", 0L, "Unknown", 1L),
+                breakdown.getByRegion().get("Red Kite"));
+        assertEquals(1L, breakdown.getByAgeBand().get("Red Kite").get(AgeBand.of(36).toString()));
+        assertEquals(1L, breakdown.getByAgeBand().get("Red Kite").get(AgeBand.of(17).toString()));
+        assertEquals(0L, breakdown.getByAgeBand().get("Osprey").get(AgeBand.of(85).toString()));
+    }
+
+    @Test
+    void votesMadeBeforeTheBreakdownStartedAreCountedInIt() {
+        PollServiceImpl pollService = new PollServiceImpl();
+        Candidate osprey = new Candidate("Pandion haliaetus", "Osprey", null);
+        Candidate kite = new Candidate("Milvus milvus", "Red Kite", null);
+        pollService.addCandidate(osprey);
+        pollService.addCandidate(kite);
+        pollService.addMember(new Member("member-1", "Ada Lovelace", 36, "Fife"));
+        pollService.addMember(new Member("member-2", "Alan Turing", 41, "Fife"));
+        pollService.makeVote("member-1", osprey);
+        pollService.makeVote("member-2", osprey);
+
+        DemographicTally tally = new DemographicTally(pollService, 64);
+        assertEquals(2L, tally.getBreakdown().getByRegion().get("Osprey").get("Fife"));
+        pollService.makeVote("member-1", kite);
+        pollService.retractVote("member-2");
+
+        // The votes counted at the start are taken away as they move, so no cell goes below zero.
+        DemographicBreakdown breakdown = tally.getBreakdown();
+        assertEquals(0L, breakdown.getByRegion().get("Osprey").get("Fife"));
+        assertEquals(1L, breakdown.getByRegion().get("Red Kite").get("Fife"));
+        assertEquals(0L, breakdown.getByAgeBand().get("Osprey").get(AgeBand.of(41).toString()));
+    }
+}
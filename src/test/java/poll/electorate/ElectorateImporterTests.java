@@ -0,0 +1,98 @@
+package poll.electorate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import poll.model.Member;
+import poll.service.PollServiceImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ElectorateImporterTests {
+
+    @Test
+    void importsCsvAcrossChunksSkippingDuplicatesAndBadRows() {
+        PollServiceImpl pollService = new PollServiceImpl();
+        pollService.addMember(new Member("member-0", "Already Voted"));
+        // Chunks of 64 bytes, so most rows straddle two reads.
+        ElectorateImporter importer = new ElectorateImporter(pollService, new ObjectMapper(), 3, 64, "");
+
+        StringBuilder csv = new StringBuilder("membershipId,name,age,regionOfScotland\r\n");
+        for (int i = 0; i < 1_000; i++) {
+            csv.append("member-").append(i).append(",\"Surname, Forename ").append(i).append("\",")
+                    .append(18 + i % 70).append(',').append(i % 2 == 0 ? "Fife" : "").append("\r\n");
+        }
+        csv.append("member-5,Duplicate,40,Fife\n");
+        csv.append("member-x,Bad Age,forty,Fife\n");
+        csv.append("member-y,\"Unterminated\n");
+        csv.append(",No Identifier\n");
+        csv.append("\n");
+        csv.append("member-last,\"Said \"\"Hello\"\"\"");
+
+        ElectorateImport electorateImport = importer.importStream(stream(csv.toString()), ImportFormat.CSV, "test", -1);
+        ElectorateImportReport report = electorateImport.report();
+        assertEquals(ElectorateImport.Status.COMPLETED, report.getStatus());
+        assertEquals(1_002, report.getRows());
+        assertEquals(1_000, report.getAdded());
+        assertEquals(2, report.getDuplicates());
+        assertEquals(3, report.getRejected());
+        assertEquals(List.of("Line 1003: The age isn't a number", "Line 1004: Unterminated quoted field",
+                "Line 1005: The membershipId and name are required"), report.getErrors());
+
+        assertEquals(1_001, pollService.getMemberCount());
+        Member member = pollService.getMember("member-7");
+        assertEquals("Surname, Forename 7", member.getName());
+        assertEquals(25, member.getAge());
+        assertNull(member.getRegionOfScotland());
+        assertEquals("Fife", pollService.getMember("member-8").getRegionOfScotland());
+        assertEquals("Said \"Hello\"", pollService.getMember("member-last").getName());
+        assertEquals("Already Voted", pollService.getMember("member-0").getName());
+    }
+
+    @Test
+    void streamsNdjsonInParallel() {
+        PollServiceImpl pollService = new PollServiceImpl();
+        ElectorateImporter importer = new ElectorateImporter(pollService, new ObjectMapper(), 4, 4_096, "");
+
+        // Generated as it is read, so the whole source is never in memory at once.
+        int rows = 200_000;
+        InputStream ndjson = new SequenceInputStream(Collections.enumeration(IntStream.range(0, rows)
+                .mapToObj(i -> stream("{\"membershipId\":\"member-" + (i % (rows / 2)) + "\",\"name\":\"Member " + i
+                        + "\",\"age\":" + (18 + i % 70) + ",\"regionOfScotland\":\"Highland\"}\n"))
+                .collect(Collectors.toList())));
+
+        ElectorateImportReport report = importer.importStream(ndjson, ImportFormat.NDJSON, "test", -1).report();
+        assertEquals(ElectorateImport.Status.COMPLETED, report.getStatus());
+        assertEquals(rows, report.getRows());
+        assertEquals(rows / 2, report.getAdded());
+        assertEquals(rows / 2, report.getDuplicates());
+        assertEquals(rows / 2, pollService.getMemberCount());
+        assertEquals(1, importer.getImports().size());
+    }
+
+    @Test
+    void failsOnRowsLongerThanAChunk() {
+        PollServiceImpl pollService = new PollServiceImpl();
+        ElectorateImporter importer = new ElectorateImporter(pollService, new ObjectMapper(), 2, 32, "");
+
+        String csv = "member-1,Short\nmember-2," + "Long".repeat(20) + "\nmember-3,Never Read\n";
+        ElectorateImportReport report = importer.importStream(stream(csv), ImportFormat.CSV, "test", -1).report();
+        assertEquals(ElectorateImport.Status.FAILED, report.getStatus());
+        assertTrue(report.getErrors().get(0).startsWith("Line 2 is longer than 32 bytes"), report.getErrors().get(0));
+        assertEquals(1, pollService.getMemberCount());
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
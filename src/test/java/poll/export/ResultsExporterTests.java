@@ -0,0 +1,102 @@
+package poll.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import poll.journal.TallySnapshotter;
+import poll.journal.VoteJournal;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollServiceImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResultsExporterTests {
+
+    @Test
+    void exportsBallotsAndTalliesAsCsv() throws IOException {
+        PollServiceImpl pollService = new PollServiceImpl();
+        Candidate osprey = new Candidate("Pandion haliaetus", "Osprey", "");
+        Candidate kite = new Candidate("Milvus milvus", "Red Kite, \"Gled\"", "");
+        pollService.addCandidate(osprey);
+        pollService.addCandidate(kite);
+        pollService.addMember(new Member("member-1", "Ada Lovelace", 36, "Fife"));
+        pollService.addMember(new Member("member-2", "Alan Turing", 41, null));
+        pollService.addMember(new Member("member-3", "No Vote", 20, "Highland"));
+        pollService.makeVote("member-1", osprey);
+        pollService.makeVote("member-2", kite);
+        ResultsExporter exporter = exporter(pollService);
+
+        ByteArrayOutputStream ballots = new ByteArrayOutputStream();
+        assertEquals(2, exporter.exportBallots(ballots, ExportFormat.CSV));
+        List<String> rows = List.of(ballots.toString(StandardCharsets.UTF_8).split("\r\n"));
+        assertEquals("membershipId,candidate,regionOfScotland,age", rows.get(0));
+        assertEquals(3, rows.size());
+        assertTrue(rows.contains("member-1,Osprey,Fife,36"));
+        assertTrue(rows.contains("member-2,\"Red Kite, \"\"Gled\"\"\",,41"));
+
+        ByteArrayOutputStream tallies = new ByteArrayOutputStream();
+        exporter.exportTallies(tallies, ExportFormat.NDJSON);
+        assertEquals("{\"scientificName\":\"Pandion haliaetus\",\"commonName\":\"Osprey\",\"votes\":1}\n"
+                        + "{\"scientificName\":\"Milvus milvus\",\"commonName\":\"Red Kite, \\\"Gled\\\"\",\"votes\":1}\n",
+                tallies.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void votesMadeDuringAnExportAreNotSeen() throws IOException {
+        PollServiceImpl pollService = new PollServiceImpl();
+        Candidate osprey = new Candidate("Pandion haliaetus", "Osprey", "");
+        Candidate kite = new Candidate("Milvus milvus", "Red Kite", "");
+        pollService.addCandidate(osprey);
+        pollService.addCandidate(kite);
+        int members = 20_000;
+        for (int i = 0; i < members; i++) {
+            pollService.addMember(new Member("member-" + i, "Member " + i, 30, "Fife"));
+            pollService.makeVote("member-" + i, osprey);
+        }
+        ResultsExporter exporter = exporter(pollService);
+
+        // Every member changes their vote once the first rows reach the client, by which time the snapshot has
+        // been closed, so a slow client doesn't keep every change being preserved.
+        ByteArrayOutputStream ballots = new ByteArrayOutputStream();
+        boolean[] changed = {false};
+        int[] openSnapshots = {-1};
+        exporter.exportBallots(new FilterOutputStream(ballots) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                if (!changed[0]) {
+                    changed[0] = true;
+                    openSnapshots[0] = pollService.countOpenSnapshots();
+                    for (int i = 0; i < members; i++) {
+                        pollService.makeVote("member-" + i, kite);
+                    }
+                    pollService.addMember(new Member("member-late", "Late", 30, "Fife"));
+                    pollService.makeVote("member-late", kite);
+                }
+                out.write(bytes, offset, length);
+            }
+        }, ExportFormat.NDJSON);
+
+        assertTrue(changed[0]);
+        assertEquals(0, openSnapshots[0]);
+        String[] rows = ballots.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(members, rows.length);
+        for (String row : rows) {
+            assertTrue(row.contains("\"candidate\":\"Osprey\""), row);
+        }
+        assertEquals(members + 1, kite.getVoteCount());
+    }
+
+    private static ResultsExporter exporter(PollServiceImpl pollService) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        return new ResultsExporter(pollService, new ObjectMapper(), beanFactory.getBeanProvider(VoteJournal.class),
+                beanFactory.getBeanProvider(TallySnapshotter.class));
+    }
+}
@@ -0,0 +1,110 @@
+package poll.idempotency;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotencyCacheTests {
+
+    @Test
+    void retriesGetTheFirstResponseUntilTheKeyExpires() throws Exception {
+        AtomicLong clock = new AtomicLong();
+        IdempotencyCache cache = new IdempotencyCache(1_000, 100, 50, clock::get);
+
+        IdempotencyCache.Request first = new IdempotencyCache.Request("vote Osprey");
+        assertNull(cache.claim("member-1 key-1", first));
+        // A retry while the first is still being made waits, then gives up.
+        IdempotencyCache.Request original = cache.claim("member-1 key-1", new IdempotencyCache.Request("vote Osprey"));
+        assertSame(first, original);
+        ExecutionException timeout = assertThrows(ExecutionException.class, () -> cache.await(original).get());
+        assertInstanceOf(TimeoutException.class, timeout.getCause());
+
+        cache.complete(first, 202);
+        assertEquals(202, cache.await(cache.claim("member-1 key-1", new IdempotencyCache.Request("x"))).get());
+
+        // The key is kept through one rotation, and forgotten after the next.
+        clock.addAndGet(1_500);
+        assertSame(first, cache.claim("member-1 key-1", new IdempotencyCache.Request("vote Osprey")));
+        clock.addAndGet(1_000);
+        assertNull(cache.claim("member-1 key-1", new IdempotencyCache.Request("vote Osprey")));
+    }
+
+    @Test
+    void failedRequestsAreForgotten() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(1_000, 100, 1_000, () -> 0);
+
+        IdempotencyCache.Request first = new IdempotencyCache.Request("retract");
+        assertNull(cache.claim("member-1 key-1", first));
+        IdempotencyCache.Request original = cache.claim("member-1 key-1", new IdempotencyCache.Request("retract"));
+        cache.abandon("member-1 key-1", first);
+        // Those waiting are told to try again, and the next request claims the key.
+        assertNull(cache.await(original).get());
+        IdempotencyCache.Request second = new IdempotencyCache.Request("retract");
+        assertNull(cache.claim("member-1 key-1", second));
+
+        // Abandoning a request that completed keeps it.
+        cache.complete(second, 204);
+        cache.abandon("member-1 key-1", second);
+        assertSame(second, cache.claim("member-1 key-1", new IdempotencyCache.Request("retract")));
+    }
+
+    @Test
+    void staysBoundedUnderManyKeys() {
+        IdempotencyCache cache = new IdempotencyCache(60_000, 1_000, 1_000, () -> 0);
+        for (int i = 0; i < 1_000_000; i++) {
+            IdempotencyCache.Request request = new IdempotencyCache.Request("vote Osprey");
+            assertNull(cache.claim("member-" + i + " key", request));
+            cache.complete(request, 202);
+            assertTrue(cache.getStats().getKeys() <= 2_000);
+        }
+        // The most recent keys are still remembered.
+        assertNotNull(cache.claim("member-999999 key", new IdempotencyCache.Request("vote Osprey")));
+        assertEquals(1_000, cache.getStats().getEarlyRotations());
+    }
+
+    @Test
+    void concurrentRetriesClaimOnce() throws InterruptedException {
+        IdempotencyCache cache = new IdempotencyCache(60_000, 100_000, 1_000, () -> 0);
+        LongAdder claimed = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException exception) {
+                    return;
+                }
+                for (int i = 0; i < 10_000; i++) {
+                    if (cache.claim("member-" + i + " key", new IdempotencyCache.Request("vote Osprey")) == null) {
+                        claimed.increment();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(10_000, claimed.sum());
+        assertFalse(IdempotencyCache.isValidKey("has space"));
+        assertTrue(IdempotencyCache.isValidKey("f81d4fae-7dec-11d0-a765-00a0c91e6bf6"));
+    }
+}
@@ -0,0 +1,77 @@
+package poll.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollServiceImpl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TallySnapshotterTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restoresFromASnapshotAndTheJournalAfterIt() throws IOException {
+        PollServiceImpl pollService = new PollServiceImpl();
+        VoteJournal journal = journal(pollService);
+        TallySnapshotter snapshotter = new TallySnapshotter(pollService, journal, noSections(), directory.toString());
+        // More candidates than a short can index, with votes for the last ones.
+        int candidates = Short.MAX_VALUE + 100;
+        for (int i = 0; i < candidates; i++) {
+            pollService.addCandidate(new Candidate("Avis " + i, name(i), null));
+        }
+        for (int i = 0; i < 1000; i++) {
+            pollService.addMember(new Member("member-" + i, "Member " + i, 30, "Fife"));
+            pollService.makeVote("member-" + i, pollService.getCandidate(name(candidates - 1 - i % 200)));
+        }
+        pollService.addMember(new Member("member-none", "No Vote", 30, null));
+        snapshotter.writeSnapshot();
+        // Journaled after the snapshot, so replayed on top of it.
+        pollService.makeVote("member-0", pollService.getCandidate(name(0)));
+        pollService.retractVote("member-1");
+        pollService.addMember(new Member("member-late", "Late", 40, "Highland"));
+        pollService.makeVote("member-late", pollService.getCandidate(name(0)));
+        journal.close();
+
+        PollServiceImpl restored = new PollServiceImpl();
+        VoteJournal reopened = journal(restored);
+        TallySnapshotter restorer = new TallySnapshotter(restored, reopened, noSections(), directory.toString());
+        assertEquals(1001, restorer.restore());
+
+        assertEquals(candidates, restored.countCandidates());
+        assertEquals(1002, restored.getMemberCount());
+        for (int i = 0; i < candidates; i++) {
+            String commonName = name(i);
+            assertEquals(pollService.getCandidateCount(commonName), restored.getCandidateCount(commonName), commonName);
+        }
+        assertEquals(2, restored.getCandidateCount(name(0)));
+        assertEquals(4, restored.getCandidateCount(name(candidates - 1)));
+        assertNull(restored.getMember("member-1").getCandidateVotedFor());
+        assertNull(restored.getMember("member-none").getCandidateVotedFor());
+        assertFalse(restored.isPollOpen());
+        reopened.close();
+    }
+
+    // Zero padded, so the alphabetical order the snapshot indexes candidates in is numeric order.
+    private static String name(int i) {
+        return String.format("Bird %05d", i);
+    }
+
+    private static ObjectProvider<SnapshotSection> noSections() {
+        return new StaticListableBeanFactory().getBeanProvider(SnapshotSection.class);
+    }
+
+    private VoteJournal journal(PollServiceImpl pollService) throws IOException {
+        return new VoteJournal(pollService, directory.toString(), 1 << 20, FsyncPolicy.NONE, 100);
+    }
+}
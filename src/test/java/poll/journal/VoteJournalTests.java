@@ -0,0 +1,115 @@
+package poll.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollListener;
+import poll.service.PollServiceImpl;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoteJournalTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replayRebuildsThePollAcrossSegments() throws IOException {
+        PollServiceImpl pollService = new PollServiceImpl();
+        // Small segments, so the journal rolls over several times.
+        VoteJournal journal = journal(pollService);
+        pollService.addCandidate(new Candidate("Pandion haliaetus", "Osprey", "A fish-eating bird of prey."));
+        pollService.addCandidate(new Candidate("Milvus milvus", "Red Kite", null));
+        pollService.setPollOpen(true);
+        for (int i = 0; i < 200; i++) {
+            pollService.addMember(new Member("member-" + i, "Member " + i, 20 + i % 50, i % 2 == 0 ? "Fife" : null));
+            pollService.makeVote("member-" + i, pollService.getCandidate(i % 3 == 0 ? "Red Kite" : "Osprey"));
+        }
+        pollService.retractVote("member-1");
+        // Votes for a candidate that is removed are dropped; votes after it is added again count.
+        pollService.removeCandidate("Red Kite");
+        pollService.addCandidate(new Candidate("Milvus milvus", "Red Kite", "Back again."));
+        pollService.makeVote("member-3", pollService.getCandidate("Red Kite"));
+        pollService.makeVote("member-4", pollService.getCandidate("Red Kite"));
+        journal.close();
+        assertTrue(journal.listSegments().size() > 1);
+
+        PollServiceImpl restored = new PollServiceImpl();
+        VoteJournal reopened = journal(restored);
+        assertTrue(reopened.replay(restored) > 400);
+
+        assertTrue(restored.isPollOpen());
+        assertEquals(200, restored.getMemberCount());
+        assertEquals("Back again.", restored.getCandidate("Red Kite").getDescription());
+        assertEquals(2, restored.getCandidateCount("Red Kite"));
+        assertEquals(pollService.getCandidateCount("Osprey"), restored.getCandidateCount("Osprey"));
+        assertNull(restored.getMember("member-1").getCandidateVotedFor());
+        assertEquals("Red Kite", restored.getMember("member-3").getCandidateVotedFor().getCommonName());
+        assertEquals("Fife", restored.getMember("member-2").getRegionOfScotland());
+        reopened.close();
+    }
+
+    @Test
+    void candidatesAreJournaledBeforeTheyCanBeVotedFor() throws IOException {
+        PollServiceImpl pollService = new PollServiceImpl();
+        VoteJournal journal = journal(pollService);
+        List<Boolean> votable = new ArrayList<>();
+        pollService.addListener(new PollListener() {
+            @Override
+            public void onCandidateAdded(Candidate candidate) {
+                votable.add(pollService.getCandidate(candidate.getCommonName()) != null);
+            }
+        });
+
+        pollService.addCandidate(new Candidate("Pandion haliaetus", "Osprey", null));
+        assertEquals(List.of(false), votable);
+        pollService.addMember(new Member("member-1", "Ada Lovelace", 36, "Fife"));
+        pollService.makeVote("member-1", pollService.getCandidate("Osprey"));
+        journal.close();
+
+        PollServiceImpl restored = new PollServiceImpl();
+        VoteJournal reopened = journal(restored);
+        reopened.replay(restored);
+        assertEquals(1, restored.getCandidateCount("Osprey"));
+        reopened.close();
+    }
+
+    @Test
+    void recordLargerThanASegmentIsJournaled() throws IOException {
+        PollServiceImpl pollService = new PollServiceImpl();
+        VoteJournal journal = journal(pollService);
+        pollService.addCandidate(new Candidate("Pandion haliaetus", "Osprey", null));
+        // Several times the 4096 byte segments, and already added to the poll by the time it is appended.
+        String name = "Ada Lovelace ".repeat(1000);
+        pollService.addMember(new Member("member-1", name, 36, "Fife"));
+        pollService.makeVote("member-1", pollService.getCandidate("Osprey"));
+        journal.close();
+
+        PollServiceImpl restored = new PollServiceImpl();
+        VoteJournal reopened = journal(restored);
+        reopened.replay(restored);
+        assertEquals(name, restored.getMember("member-1").getName());
+        assertEquals(1, restored.getCandidateCount("Osprey"));
+        // Appending carries on after the large record.
+        restored.addMember(new Member("member-2", "Alan Turing", 41, "Highland"));
+        reopened.close();
+
+        PollServiceImpl again = new PollServiceImpl();
+        VoteJournal last = journal(again);
+        last.replay(again);
+        assertEquals(2, again.getMemberCount());
+        last.close();
+    }
+
+    private VoteJournal journal(PollServiceImpl pollService) throws IOException {
+        return new VoteJournal(pollService, directory.toString(), 4096, FsyncPolicy.NONE, 100);
+    }
+}
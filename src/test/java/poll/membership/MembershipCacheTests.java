@@ -0,0 +1,94 @@
+package poll.membership;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MembershipCacheTests {
+
+    @Test
+    void concurrentLookupsShareOneRegistryCall() throws Exception {
+        StubMembershipRegistry registry = new StubMembershipRegistry("member-1:Ada Lovelace", 200);
+        MembershipCache cache = new MembershipCache(registry, 100, 60_000, 60_000, 5_000, 4, 1024);
+
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MembershipCache.Verdict>> verdicts = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            verdicts.add(executor.submit(() -> {
+                start.await();
+                return cache.verify("member-1", "ada lovelace");
+            }));
+        }
+        start.countDown();
+        for (Future<MembershipCache.Verdict> verdict : verdicts) {
+            assertEquals(MembershipCache.Verdict.REGISTERED, verdict.get());
+        }
+        executor.shutdown();
+
+        assertEquals(1, registry.getLookupCount());
+        assertEquals(MembershipCache.Verdict.REGISTERED, cache.verify("member-1", "Ada Lovelace"));
+        assertEquals(1, registry.getLookupCount());
+        cache.close();
+    }
+
+    @Test
+    void unregisteredMembersAndWrongNamesAreRejected() {
+        StubMembershipRegistry registry = new StubMembershipRegistry("member-1:Ada Lovelace", 0);
+        MembershipCache cache = new MembershipCache(registry, 100, 60_000, 60_000, 5_000, 1, 1024);
+
+        assertEquals(MembershipCache.Verdict.NOT_REGISTERED, cache.verify("member-2", "Ada Lovelace"));
+        assertEquals(MembershipCache.Verdict.NOT_REGISTERED, cache.verify("member-2", "Ada Lovelace"));
+        // The second lookup of the non-member is answered from the cache.
+        assertEquals(1, registry.getLookupCount());
+        assertEquals(MembershipCache.Verdict.NOT_REGISTERED, cache.verify("member-1", "Charles Babbage"));
+        cache.close();
+    }
+
+    @Test
+    void oldestMembersAreEvictedOnceFull() {
+        StubMembershipRegistry registry = new StubMembershipRegistry("a:A,b:B,c:C", 0);
+        MembershipCache cache = new MembershipCache(registry, 2, 60_000, 60_000, 5_000, 1, 1024);
+
+        cache.verify("a", "A");
+        cache.verify("b", "B");
+        cache.verify("c", "C");
+        assertEquals(2, cache.getStats().getSize());
+        assertEquals(1, cache.getStats().getEvictions());
+
+        // The oldest member has to be looked up again.
+        cache.verify("a", "A");
+        assertEquals(4, registry.getLookupCount());
+        cache.close();
+    }
+
+    @Test
+    void lookupsPastTheQueueAreAnsweredUnavailableAtOnce() throws Exception {
+        StubMembershipRegistry registry = new StubMembershipRegistry("a:A,b:B,c:C", 300);
+        // One lookup made and one waiting, so a third finds no room.
+        MembershipCache cache = new MembershipCache(registry, 100, 60_000, 60_000, 5_000, 1, 1);
+
+        CompletableFuture<MembershipCache.Verdict> first = cache.verifyAsync("a", "A");
+        CompletableFuture<MembershipCache.Verdict> second = cache.verifyAsync("b", "B");
+        CompletableFuture<MembershipCache.Verdict> third = cache.verifyAsync("c", "C");
+        assertTrue(third.isDone());
+        assertEquals(MembershipCache.Verdict.UNAVAILABLE, third.get());
+        assertEquals(1, cache.getStats().getRejections());
+
+        assertEquals(MembershipCache.Verdict.REGISTERED, first.get());
+        assertEquals(MembershipCache.Verdict.REGISTERED, second.get());
+        // Once the queue has drained, the member turned away is looked up as usual.
+        assertEquals(MembershipCache.Verdict.REGISTERED, cache.verify("c", "C"));
+        cache.close();
+    }
+}
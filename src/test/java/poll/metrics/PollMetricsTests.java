@@ -0,0 +1,160 @@
+package poll.metrics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import poll.exception.Error;
+import poll.journal.FsyncPolicy;
+import poll.journal.VoteJournal;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollServiceImpl;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PollMetricsTests {
+
+    @Test
+    void histogramKeepsPercentilesWithinItsPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram(7);
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.record(micros);
+        }
+
+        assertEquals(100_000, histogram.count());
+        assertEquals(100_000, histogram.max());
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            double expected = percentile * 1000;
+            double error = Math.abs(histogram.valueAtPercentile(percentile) - expected) / expected;
+            assertTrue(error < 0.016, percentile + "th percentile is off by " + error);
+        }
+    }
+
+    @Test
+    void votesRejectionsAndRequestsAreCounted() {
+        PollServiceImpl pollService = new PollServiceImpl();
+        PollMetrics metrics = new PollMetrics(pollService, noJournal());
+        Candidate osprey = new Candidate("Pandion haliaetus", "Osprey", "");
+        Candidate kite = new Candidate("Elanus leucurus", "White-tailed Kite", "");
+        pollService.addCandidate(osprey);
+        pollService.addCandidate(kite);
+        pollService.addMember(new Member("member-1", "Ada Lovelace", 36, "Fife"));
+
+        pollService.makeVote("member-1", osprey);
+        pollService.makeVote("member-1", kite);
+        pollService.retractVote("member-1");
+        metrics.recordRejection(Error.POLL_CLOSED);
+        metrics.recordRequest("/birds/vote/{membershipId}", "GET", TimeUnit.MILLISECONDS.toNanos(3), 404);
+        metrics.recordRequest(null, "POST", TimeUnit.MILLISECONDS.toNanos(1), 401);
+
+        PollMetricsReport report = metrics.getReport();
+        assertEquals(1, report.getMembers());
+        assertEquals(2, report.getCandidates());
+        assertEquals(1, report.getVotes().getTotal());
+        assertEquals(1, report.getChanges().getTotal());
+        assertEquals(1, report.getRetractions().getTotal());
+        assertEquals(1, report.getRejections().get("POLL_CLOSED"));
+        assertEquals(0, report.getRejections().get("INVALID_MEMBER"));
+
+        PollMetricsReport.Endpoint vote = report.getEndpoints().get("GET /birds/vote/{membershipId}");
+        assertEquals(1, vote.getCount());
+        assertEquals(1, vote.getClientErrors());
+        assertEquals(3, vote.getMaxMs(), 0.05);
+        assertEquals(1, report.getEndpoints().get("POST " + PollMetrics.UNMATCHED).getCount());
+        metrics.close();
+    }
+
+    @Test
+    void candidateSeriesSlideOverFixedRings() {
+        VoteRateSeries series = new VoteRateSeries();
+        series.sample(true);
+        // Two hours of one vote a second, and a surge of 30 in the last second.
+        for (int second = 1; second <= 7200; second++) {
+            series.recordVote();
+            if (second == 7200) {
+                for (int i = 0; i < 30; i++) {
+                    series.recordVote();
+                }
+                series.recordChange();
+            }
+            series.sample(second % VoteRateSeries.SECONDS == 0);
+        }
+
+        VoteRatesReport.Series votes = series.report().getVotes();
+        assertEquals(31, votes.getPerSecond1s());
+        assertEquals(1.5, votes.getPerSecond1m());
+        assertEquals((15 * 60 + 30) / 900.0, votes.getPerSecond15m(), 1e-9);
+        assertEquals(VoteRateSeries.SECONDS, votes.getSeconds().length);
+        assertEquals(1, votes.getSeconds()[0]);
+        assertEquals(31, votes.getSeconds()[VoteRateSeries.SECONDS - 1]);
+        assertEquals(VoteRateSeries.MINUTES, votes.getMinutes().length);
+        assertEquals(60, votes.getMinutes()[0]);
+        assertEquals(90, votes.getMinutes()[VoteRateSeries.MINUTES - 1]);
+        assertEquals(1, series.report().getChanges().getPerSecond1s());
+        assertEquals(0, series.report().getRetractions().getPerSecond1m());
+    }
+
+    @Test
+    void eachCandidateHasItsOwnSeries() {
+        PollServiceImpl pollService = new PollServiceImpl();
+        Candidate osprey = new Candidate("Pandion haliaetus", "Osprey", "");
+        pollService.addCandidate(osprey);
+        PollMetrics metrics = new PollMetrics(pollService, noJournal());
+        Candidate kite = new Candidate("Elanus leucurus", "White-tailed Kite", "");
+        pollService.addCandidate(kite);
+        pollService.addMember(new Member("member-1", "Ada Lovelace", 36, "Fife"));
+        pollService.makeVote("member-1", osprey);
+
+        assertEquals(List.of("Osprey", "White-tailed Kite"), List.copyOf(metrics.getVoteRates().getCandidates()
+                .keySet()));
+        pollService.removeCandidate("Osprey");
+        assertEquals(List.of("White-tailed Kite"), List.copyOf(metrics.getVoteRates().getCandidates().keySet()));
+        metrics.close();
+    }
+
+    @Test
+    void restoredVotesAreNotCountedAgain(@TempDir Path directory) throws Exception {
+        PollServiceImpl pollService = new PollServiceImpl();
+        VoteJournal journal = new VoteJournal(pollService, directory.toString(), 1 << 20, FsyncPolicy.NONE, 100);
+        pollService.addCandidate(new Candidate("Pandion haliaetus", "Osprey", ""));
+        for (int i = 0; i < 100; i++) {
+            pollService.addMember(new Member("member-" + i, "Member " + i, 36, "Fife"));
+            pollService.makeVote("member-" + i, pollService.getCandidate("Osprey"));
+        }
+        pollService.retractVote("member-0");
+        journal.close();
+
+        PollServiceImpl restored = new PollServiceImpl();
+        VoteJournal reopened = new VoteJournal(restored, directory.toString(), 1 << 20, FsyncPolicy.NONE, 100);
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("voteJournal", reopened);
+        PollMetrics metrics = new PollMetrics(restored, beans.getBeanProvider(VoteJournal.class));
+        reopened.replay(restored);
+        // Let the sampler take at least one sample after the replay.
+        Thread.sleep(1_500);
+
+        assertEquals(99, restored.getCandidateCount("Osprey"));
+        PollMetricsReport report = metrics.getReport();
+        assertEquals(0, report.getVotes().getTotal());
+        assertEquals(0, report.getRetractions().getTotal());
+        VoteRatesReport.Series series = metrics.getVoteRates().getCandidates().get("Osprey").getVotes();
+        assertEquals(0, Arrays.stream(series.getSeconds()).sum());
+
+        // Votes made once the poll is restored are counted.
+        restored.makeVote("member-0", restored.getCandidate("Osprey"));
+        assertEquals(1, metrics.getReport().getVotes().getTotal());
+        metrics.close();
+        reopened.close();
+    }
+
+    private static ObjectProvider<VoteJournal> noJournal() {
+        return new StaticListableBeanFactory().getBeanProvider(VoteJournal.class);
+    }
+}
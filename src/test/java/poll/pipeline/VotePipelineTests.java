@@ -0,0 +1,133 @@
+package poll.pipeline;
+
+import org.junit.jupiter.api.Test;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollListener;
+import poll.service.PollServiceImpl;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VotePipelineTests {
+
+    @Test
+    void concurrentVotesThroughASmallRingAreAllApplied() throws Exception {
+        PollServiceImpl pollService = new PollServiceImpl();
+        Candidate osprey = new Candidate("Pandion haliaetus", "Osprey", "");
+        Candidate kite = new Candidate("Elanus leucurus", "White-tailed Kite", "");
+        pollService.addCandidate(osprey);
+        pollService.addCandidate(kite);
+        int members = 2_000;
+        for (int i = 0; i < members; i++) {
+            pollService.addMember(new Member("member-" + i, "Member " + i));
+        }
+        // A ring smaller than the number of threads, so request threads wait for slots.
+        VotePipeline pipeline = new VotePipeline(pollService, 8, 4);
+
+        int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> changes = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            changes.add(executor.submit(() -> {
+                int changed = 0;
+                for (int i = thread; i < members; i += threads) {
+                    changed += pipeline.makeVote("member-" + i, i % 2 == 0 ? osprey : kite) ? 1 : 0;
+                    // Voting again for the same candidate changes nothing.
+                    changed += pipeline.makeVote("member-" + i, i % 2 == 0 ? osprey : kite) ? 1 : 0;
+                }
+                return changed;
+            }));
+        }
+        int total = 0;
+        for (Future<Integer> changed : changes) {
+            total += changed.get();
+        }
+        executor.shutdown();
+
+        assertEquals(members, total);
+        assertEquals(members / 2, osprey.getVoteCount());
+        assertEquals(members / 2, kite.getVoteCount());
+
+        assertTrue(pipeline.retractVote("member-0"));
+        assertFalse(pipeline.retractVote("member-0"));
+        assertArrayEquals(new boolean[]{true, false, true},
+                pipeline.makeVotes(Arrays.asList("member-0", "member-1", "member-2"), Arrays.asList(kite, kite, kite)));
+        assertEquals(members / 2 - 2, osprey.getVoteCount());
+        assertEquals(members / 2 + 2, kite.getVoteCount());
+        pipeline.close();
+    }
+
+    @Test
+    void failuresAreThrownOnTheRequestThread() throws Exception {
+        PollServiceImpl pollService = new PollServiceImpl();
+        Candidate osprey = new Candidate("Pandion haliaetus", "Osprey", "");
+        pollService.addCandidate(osprey);
+        VotePipeline pipeline = new VotePipeline(pollService, 16, 16);
+
+        assertThrows(RuntimeException.class, () -> pipeline.makeVote("nobody", osprey));
+        pollService.addMember(new Member("member-1", "Ada Lovelace"));
+        assertTrue(pipeline.makeVote("member-1", osprey));
+        pipeline.close();
+    }
+
+    @Test
+    void batchesStopAtTheFirstFailureInEitherMode() throws Exception {
+        for (boolean pipelined : new boolean[]{false, true}) {
+            PollServiceImpl pollService = new PollServiceImpl();
+            Candidate osprey = new Candidate("Pandion haliaetus", "Osprey", "");
+            pollService.addCandidate(osprey);
+            pollService.addMember(new Member("member-1", "Ada Lovelace"));
+            pollService.addMember(new Member("member-2", "Charles Babbage"));
+            VotePipeline pipeline = pipelined ? new VotePipeline(pollService, 16, 16) : null;
+            VoteExecutor executor = pipelined ? pipeline : new DirectVoteExecutor(pollService);
+
+            assertThrows(RuntimeException.class, () -> executor.makeVotes(
+                    Arrays.asList("member-1", "nobody", "member-2"), Arrays.asList(osprey, osprey, osprey)));
+            assertEquals(1, osprey.getVoteCount());
+            assertEquals(osprey, pollService.getMember("member-1").getCandidateVotedFor());
+            assertNull(pollService.getMember("member-2").getCandidateVotedFor());
+            if (pipeline != null) {
+                pipeline.close();
+            }
+        }
+    }
+
+    @Test
+    void errorsAreThrownOnTheRequestThreadWithoutStoppingTheApplier() throws Exception {
+        PollServiceImpl pollService = new PollServiceImpl();
+        Candidate osprey = new Candidate("Pandion haliaetus", "Osprey", "");
+        pollService.addCandidate(osprey);
+        pollService.addMember(new Member("member-1", "Ada Lovelace"));
+        pollService.addMember(new Member("member-2", "Charles Babbage"));
+        pollService.addListener(new PollListener() {
+            @Override
+            public void onVote(Member voter, Candidate lastVote, Candidate newVote) {
+                if (voter.getMembershipId().equals("member-2")) {
+                    throw new StackOverflowError();
+                }
+            }
+        });
+        VotePipeline pipeline = new VotePipeline(pollService, 16, 16);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThrows(StackOverflowError.class, () -> pipeline.makeVote("member-2", osprey));
+            assertTrue(pipeline.makeVote("member-1", osprey));
+        });
+        pipeline.close();
+    }
+}
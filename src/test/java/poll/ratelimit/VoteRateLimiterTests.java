@@ -0,0 +1,103 @@
+package poll.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoteRateLimiterTests {
+
+    @Test
+    void admitsBurstThenOnePerInterval() {
+        AtomicLong clock = new AtomicLong(1_000);
+        VoteRateLimiter limiter = new VoteRateLimiter(true, 10, 3, 64, clock::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire("member-1"));
+        }
+        assertFalse(limiter.tryAcquire("member-1"));
+        // Other members have buckets of their own.
+        assertTrue(limiter.tryAcquire("member-2"));
+
+        clock.addAndGet(99);
+        assertFalse(limiter.tryAcquire("member-1"));
+        clock.addAndGet(1);
+        assertTrue(limiter.tryAcquire("member-1"));
+        assertFalse(limiter.tryAcquire("member-1"));
+
+        // Once the bucket is full again, the whole burst is admitted.
+        clock.addAndGet(10_000);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire("member-1"));
+        }
+        assertFalse(limiter.tryAcquire("member-1"));
+
+        VoteRateLimiterStats stats = limiter.getStats();
+        assertEquals(8, stats.getAdmitted());
+        assertEquals(4, stats.getThrottled());
+        assertEquals(1, stats.getBuckets());
+    }
+
+    @Test
+    void staysWithinItsSlotsAsBucketsExpire() {
+        AtomicLong clock = new AtomicLong();
+        VoteRateLimiter limiter = new VoteRateLimiter(true, 1, 1, 16, clock::get);
+
+        // Far more members than slots, each coming back after their bucket has expired.
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 1_000; i++) {
+                assertTrue(limiter.tryAcquire("member-" + i));
+            }
+            clock.addAndGet(1_000);
+        }
+        VoteRateLimiterStats stats = limiter.getStats();
+        assertEquals(16, stats.getSlots());
+        assertEquals(0, stats.getBuckets());
+        assertEquals(3_000, stats.getAdmitted());
+        assertTrue(stats.getEvictions() > 0);
+
+        // A member flooding keeps their bucket while others come and go.
+        assertTrue(limiter.tryAcquire("member-1"));
+        assertFalse(limiter.tryAcquire("member-1"));
+    }
+
+    @Test
+    void concurrentRequestsForOneMemberShareTheBurst() throws InterruptedException {
+        VoteRateLimiter limiter = new VoteRateLimiter(true, 1, 50, 1024, () -> 0);
+        // Make the member's bucket first, as two first requests racing may each make one.
+        assertTrue(limiter.tryAcquire("member-1"));
+
+        LongAdder admitted = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException exception) {
+                    return;
+                }
+                for (int i = 0; i < 10_000; i++) {
+                    if (limiter.tryAcquire("member-1")) {
+                        admitted.increment();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(49, admitted.sum());
+        assertEquals(40_000 - 49, limiter.getStats().getThrottled());
+    }
+}
@@ -0,0 +1,35 @@
+package poll.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.main.web-application-type=reactive")
+class ReactivePollControllerTests {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Test
+    void publicEndpointsBypassSecurity() {
+        client.get().uri("/birds").exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists("ETag");
+        client.get().uri("/birds-enriched").exchange()
+                .expectStatus().isUnauthorized();
+        client.get().uri("/birds-enriched").headers(headers -> headers.setBasicAuth("username", "password"))
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void votingWhileClosedIsForbidden() {
+        client.put().uri("/birds/vote").contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"Osprey\":{\"membershipId\":\"m1\",\"name\":\"Ada Lovelace\"}}")
+                .exchange()
+                .expectStatus().isForbidden();
+    }
+}
@@ -0,0 +1,78 @@
+package poll.registry;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import poll.exception.Error;
+import poll.journal.VoteJournal;
+import poll.metrics.PollMetrics;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollService;
+import poll.service.PollServiceImpl;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PollRegistryTests {
+
+    private static final List<Candidate> CANDIDATES = List.of(
+            new Candidate("Pandion haliaetus", "Osprey", ""),
+            new Candidate("Elanus leucurus", "White-tailed Kite", ""));
+
+    @Test
+    void pollsKeepTheirOwnCandidatesMembersAndOpenness() {
+        PollMetrics metrics = new PollMetrics(new PollServiceImpl(), noJournal());
+        PollRegistry registry = new PollRegistry(metrics, 10, 16);
+        PollService highlands = registry.create("highlands", CANDIDATES);
+        PollService lowlands = registry.create("lowlands", CANDIDATES);
+
+        highlands.setPollOpen(true);
+        highlands.addMember(new Member("member-1", "Ada Lovelace"));
+        highlands.makeVote("member-1", highlands.getCandidate("Osprey"));
+
+        assertTrue(highlands.isPollOpen());
+        assertFalse(lowlands.isPollOpen());
+        assertEquals(1, highlands.getCandidateCount("Osprey"));
+        assertEquals(0, lowlands.getCandidateCount("Osprey"));
+        assertEquals(0, CANDIDATES.get(0).getVoteCount());
+        assertFalse(lowlands.hasMember("member-1"));
+        assertEquals(1, metrics.getReport().getVotes().getTotal());
+
+        assertTrue(registry.remove("highlands"));
+        assertNull(registry.get("highlands"));
+        assertEquals(1, registry.size());
+        metrics.close();
+    }
+
+    @Test
+    void identifiersAreUniqueAndTheLimitHolds() {
+        PollMetrics metrics = new PollMetrics(new PollServiceImpl(), noJournal());
+        PollRegistry registry = new PollRegistry(metrics, 2, 16);
+        registry.create("poll-1", CANDIDATES);
+
+        RuntimeException duplicate = assertThrows(RuntimeException.class, () -> registry.create("poll-1", CANDIDATES));
+        assertEquals(Error.POLL_ALREADY_EXISTS.toString(), duplicate.getMessage());
+        RuntimeException invalid = assertThrows(RuntimeException.class, () -> registry.create("poll 2", CANDIDATES));
+        assertEquals(Error.INVALID_POLL.toString(), invalid.getMessage());
+
+        registry.create("poll-2", CANDIDATES);
+        RuntimeException full = assertThrows(RuntimeException.class, () -> registry.create("poll-3", CANDIDATES));
+        assertEquals(Error.POLL_LIMIT_REACHED.toString(), full.getMessage());
+        assertEquals(2, registry.size());
+
+        registry.remove("poll-1");
+        registry.create("poll-3", CANDIDATES);
+        assertEquals(2, registry.getSummaries().size());
+        metrics.close();
+    }
+
+    private static ObjectProvider<VoteJournal> noJournal() {
+        return new StaticListableBeanFactory().getBeanProvider(VoteJournal.class);
+    }
+}
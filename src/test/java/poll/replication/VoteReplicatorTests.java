@@ -0,0 +1,264 @@
+package poll.replication;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import poll.journal.FsyncPolicy;
+import poll.journal.SnapshotSection;
+import poll.journal.TallySnapshotter;
+import poll.journal.VoteJournal;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollServiceImpl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VoteReplicatorTests {
+
+    private static final String[] CANDIDATES = {"Osprey", "White-tailed Kite", "Golden Eagle"};
+    private static final int MEMBERS = 200;
+
+    @Test
+    void nodesConvergeAfterPartitionedConcurrentVoting() throws Exception {
+        LoopbackTransport.Network network = new LoopbackTransport.Network();
+        List<Node> nodes = new ArrayList<>();
+        for (String nodeId : new String[]{"node-1", "node-2", "node-3"}) {
+            nodes.add(new Node(network, nodeId));
+        }
+        network.partition(List.of("node-1"), List.of("node-2", "node-3"));
+
+        // Every node takes votes for the same members at once, while batches flow within each side.
+        AtomicBoolean voting = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (voting.get()) {
+                nodes.forEach(node -> node.replicator.flush());
+            }
+        });
+        flusher.start();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> voters = new ArrayList<>();
+        for (int n = 0; n < nodes.size(); n++) {
+            Node node = nodes.get(n);
+            SplittableRandom random = new SplittableRandom(n);
+            Thread voter = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException exception) {
+                    return;
+                }
+                for (int i = 0; i < 5_000; i++) {
+                    node.vote("member-" + random.nextInt(MEMBERS), random.nextInt(CANDIDATES.length + 1));
+                }
+            });
+            voter.start();
+            voters.add(voter);
+        }
+        start.countDown();
+        for (Thread voter : voters) {
+            voter.join();
+        }
+        voting.set(false);
+        flusher.join();
+
+        // While partitioned, the sides disagree.
+        settle(nodes);
+        assertTrue(nodes.get(0).replicator.getStats().getQueuedBallots() > 0);
+
+        network.heal();
+        settle(nodes);
+
+        Node first = nodes.get(0);
+        for (Node node : nodes) {
+            assertEquals(first.counts(), node.counts(), node.replicator.getNodeId());
+            assertEquals(first.counts(), node.replicator.getTallies(), node.replicator.getNodeId());
+            assertEquals(0, node.replicator.getStats().getQueuedBallots());
+            for (int m = 0; m < MEMBERS; m++) {
+                String membershipId = "member-" + m;
+                Ballot winner = first.replicator.getBallot(membershipId);
+                Ballot ballot = node.replicator.getBallot(membershipId);
+                assertEquals(winner.getTimestamp(), ballot.getTimestamp());
+                assertEquals(winner.getNodeId(), ballot.getNodeId());
+                Candidate vote = node.service.getMember(membershipId).getCandidateVotedFor();
+                assertEquals(winner.getCommonName(), vote == null ? null : vote.getCommonName());
+            }
+        }
+        long votes = first.counts().values().stream().mapToLong(Long::longValue).sum();
+        assertTrue(votes > 0 && votes <= MEMBERS);
+    }
+
+    @Test
+    void restartedNodeRebuildsItsBallotsInsteadOfRestampingThem(@TempDir Path directory) throws Exception {
+        LoopbackTransport.Network network = new LoopbackTransport.Network();
+        Node journaled = new Node(network, "", directory);
+        Node other = new Node(network, "node-2", null);
+        String nodeId = journaled.replicator.getNodeId();
+        List<Node> nodes = List.of(journaled, other);
+        for (int m = 0; m < MEMBERS; m++) {
+            journaled.vote("member-" + m, m % CANDIDATES.length);
+        }
+        settle(nodes);
+        journaled.snapshotter.writeSnapshot();
+        // Journaled after the snapshot: changed votes, which the node's own counts must remember.
+        for (int m = 0; m < MEMBERS; m += 2) {
+            journaled.vote("member-" + m, (m + 1) % CANDIDATES.length);
+        }
+        settle(nodes);
+
+        // The node stops, and the others go on voting for some of the same members meanwhile.
+        network.partition(List.of(nodeId), List.of("node-2"));
+        journaled.journal.close();
+        for (int m = 0; m < MEMBERS; m += 5) {
+            other.vote("member-" + m, CANDIDATES.length);
+        }
+        Node restarted = new Node(network, "", directory);
+        restarted.snapshotter.restore();
+        assertEquals(nodeId, restarted.replicator.getNodeId());
+        for (int m = 0; m < MEMBERS; m++) {
+            Ballot before = journaled.replicator.getBallot("member-" + m);
+            Ballot after = restarted.replicator.getBallot("member-" + m);
+            assertEquals(before.getTimestamp(), after.getTimestamp());
+            assertEquals(before.getNodeId(), after.getNodeId());
+        }
+        assertEquals(journaled.replicator.getTallies(), restarted.replicator.getTallies());
+
+        network.heal();
+        nodes = List.of(restarted, other);
+        settle(nodes);
+        assertEquals(other.counts(), restarted.counts());
+        assertEquals(other.counts(), restarted.replicator.getTallies());
+        assertEquals(other.counts(), other.replicator.getTallies());
+        // The votes made while the node was down are later than every vote it replayed, so they win.
+        assertEquals(MEMBERS - MEMBERS / 5, other.counts().values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(null, restarted.service.getMember("member-5").getCandidateVotedFor());
+        restarted.journal.close();
+    }
+
+    @Test
+    void batchesRoundTripCompressed() throws IOException {
+        List<Ballot> ballots = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            ballots.add(new Ballot("member-" + i, "Member " + i, 40, i % 2 == 0 ? "Fife" : null,
+                    i % 10 == 0 ? null : CANDIDATES[i % 3], 1_000_000L << 16 | i, "node-1"));
+        }
+        ReplicationBatch batch = new ReplicationBatch("node-1", 42, Map.of("Osprey", new long[]{7, 2}), ballots);
+        byte[] compressed = batch.encode();
+        assertTrue(compressed.length * 3 < batch.getEncodedSize(), compressed.length + " of " + batch.getEncodedSize());
+
+        ReplicationBatch decoded = ReplicationBatch.decode(compressed);
+        assertEquals("node-1", decoded.getNodeId());
+        assertEquals(42, decoded.getClock());
+        assertEquals(7, decoded.getCounts().get("Osprey")[0]);
+        assertEquals(2, decoded.getCounts().get("Osprey")[1]);
+        assertEquals(1_000, decoded.getBallots().size());
+        Ballot last = decoded.getBallots().get(999);
+        assertEquals("member-999", last.getMembershipId());
+        assertEquals(CANDIDATES[0], last.getCommonName());
+        assertEquals(null, last.getRegionOfScotland());
+        assertEquals(1_000_000L << 16 | 999, last.getTimestamp());
+        assertEquals(null, decoded.getBallots().get(990).getCommonName());
+    }
+
+    // Flushes every node until none has anything left to send that can be delivered.
+    private static void settle(List<Node> nodes) {
+        long sent;
+        do {
+            sent = batchesSent(nodes);
+            nodes.forEach(node -> node.replicator.flush());
+        } while (batchesSent(nodes) != sent);
+    }
+
+    private static long batchesSent(List<Node> nodes) {
+        return nodes.stream().mapToLong(node -> node.replicator.getStats().getBatchesSent()).sum();
+    }
+
+    // A poll service and its replicator, joined to the loopback network, and journaled if given a directory.
+    private static class Node {
+        private final PollServiceImpl service = new PollServiceImpl();
+        private final StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        private final VoteReplicator replicator;
+        private final VoteJournal journal;
+        private final TallySnapshotter snapshotter;
+
+        private Node(LoopbackTransport.Network network, String nodeId) throws IOException {
+            this(network, nodeId, null);
+        }
+
+        private Node(LoopbackTransport.Network network, String nodeId, Path directory) throws IOException {
+            if (directory != null) {
+                journal = new VoteJournal(service, directory.toString(), 1 << 20, FsyncPolicy.NONE, 100);
+                beans.addBean("voteJournal", journal);
+            } else {
+                journal = null;
+            }
+            for (String commonName : CANDIDATES) {
+                service.addCandidate(new Candidate("", commonName, ""));
+            }
+            service.setPollOpen(true);
+            VoteReplicator[] self = new VoteReplicator[1];
+            Consumer<byte[]> receiver = batch -> {
+                try {
+                    self[0].receive(batch);
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            };
+            // A blank node identifier is only known once the replicator has made one up or read it back.
+            JoiningTransport transport = new JoiningTransport();
+            replicator = new VoteReplicator(service, transport, beans.getBeanProvider(VoteJournal.class), nodeId,
+                    0, 64);
+            transport.joined = network.join(replicator.getNodeId(), receiver);
+            self[0] = replicator;
+            beans.addBean("voteReplicator", replicator);
+            snapshotter = directory == null ? null : new TallySnapshotter(service, journal,
+                    beans.getBeanProvider(SnapshotSection.class), directory.toString());
+        }
+
+        // Votes for a candidate, or retracts the vote if the choice is past the last candidate.
+        private void vote(String membershipId, int choice) {
+            if (!service.hasMember(membershipId)) {
+                service.addMember(new Member(membershipId, "Name of " + membershipId));
+            }
+            if (choice == CANDIDATES.length) {
+                service.retractVote(membershipId);
+            } else {
+                service.makeVote(membershipId, service.getCandidate(CANDIDATES[choice]));
+            }
+        }
+
+        private Map<String, Long> counts() {
+            Map<String, Long> counts = new TreeMap<>();
+            for (String commonName : CANDIDATES) {
+                counts.put(commonName, (long) service.getCandidateCount(commonName));
+            }
+            return counts;
+        }
+    }
+
+    // Sends through the loopback network once the node has joined it.
+    private static class JoiningTransport implements ReplicationTransport {
+        private LoopbackTransport joined;
+
+        @Override
+        public List<String> getPeers() {
+            return joined.getPeers();
+        }
+
+        @Override
+        public void send(String peer, byte[] batch) throws IOException {
+            joined.send(peer, batch);
+        }
+    }
+}
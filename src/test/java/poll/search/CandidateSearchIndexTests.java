@@ -0,0 +1,93 @@
+package poll.search;
+
+import org.junit.jupiter.api.Test;
+import poll.model.Candidate;
+import poll.service.PollServiceImpl;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CandidateSearchIndexTests {
+
+    @Test
+    void foldsCaseAndAccentsAndAllowsOneTypo() {
+        assertEquals("goldcrest oiseau strasse aero", CandidateSearchIndex.fold("GoldCrest Oiseáu Straße Ærø"));
+        assertEquals(List.of("red", "kite", "milvus"), CandidateSearchIndex.tokens("red-kite (milvus)", 2));
+
+        assertTrue(CandidateSearchIndex.isOneEditApart("osprey", "ospray"));
+        assertTrue(CandidateSearchIndex.isOneEditApart("osprey", "opsrey"));
+        assertTrue(CandidateSearchIndex.isOneEditApart("osprey", "sprey"));
+        assertTrue(CandidateSearchIndex.isOneEditApart("osprey", "ospreys"));
+        assertFalse(CandidateSearchIndex.isOneEditApart("osprey", "osprey"));
+        assertFalse(CandidateSearchIndex.isOneEditApart("osprey", "psorey"));
+        assertFalse(CandidateSearchIndex.isOneEditApart("osprey", "spry"));
+    }
+
+    @Test
+    void searchesNamesAndDescriptionsIncrementally() {
+        PollServiceImpl pollService = new PollServiceImpl();
+        pollService.addCandidate(new Candidate("Pandion haliaetus", "Osprey",
+                "A fish-eating bird of prey, also called the sea hawk."));
+        pollService.addCandidate(new Candidate("Aquila chrysaetos", "Golden Eagle",
+                "A bird of prey living in the Northern Hemisphere."));
+        CandidateSearchIndex index = new CandidateSearchIndex(pollService);
+        // Added after the index was built, so it is indexed as it arrives.
+        pollService.addCandidate(new Candidate("Accipiter nisus", "Sparrowhawk", "A small hawk of woodland."));
+        pollService.addCandidate(new Candidate("Tichodroma muraria", "Wallcreeper", "Grimpereau des murailles, "
+                + "or Mauerläufer."));
+        pollService.addCandidate(new Candidate("Surnia ulula", "Northern Hawk Owl", "An owl that hunts by day."));
+
+        // Matches in the common name rank above those in a description, then alphabetically.
+        assertEquals(List.of("Northern Hawk Owl", "Osprey", "Sparrowhawk"), names(index.search("hawk", 0, 10)));
+        assertEquals(List.of("Golden Eagle", "Osprey"), names(index.search("bird of prey", 0, 10)));
+        assertEquals(List.of("Golden Eagle"), names(index.search("gold", 0, 10)));
+        assertEquals(List.of("Golden Eagle"), names(index.search("AQUILA", 0, 10)));
+        assertEquals(List.of("Wallcreeper"), names(index.search("mauerlaufer", 0, 10)));
+        assertEquals(List.of("Wallcreeper"), names(index.search("grimpéreau", 0, 10)));
+        assertEquals(List.of("Osprey"), names(index.search("ospery", 0, 10)));
+        assertEquals(List.of("Osprey"), names(index.search("sea hwak", 0, 10)));
+        assertEquals(List.of(), names(index.search("bird of preyed woodland", 0, 10)));
+        assertEquals(List.of(), names(index.search("  --  ", 0, 10)));
+
+        CandidateSearchResults page = index.search("a", 1, 2);
+        assertEquals(4, page.getTotal());
+        assertEquals(2, page.getCandidates().size());
+
+        pollService.removeCandidate("Osprey");
+        assertEquals(List.of("Northern Hawk Owl", "Sparrowhawk"), names(index.search("hawk", 0, 10)));
+        assertEquals(List.of(), names(index.search("ospery", 0, 10)));
+    }
+
+    @Test
+    void findsCandidatesAmongManyThousands() {
+        PollServiceImpl pollService = new PollServiceImpl();
+        String[] words = {"red", "grey", "little", "great", "spotted", "crested", "marsh", "wood", "sea", "rock"};
+        String[] birds = {"warbler", "finch", "plover", "owl", "heron", "tern", "gull", "pipit", "wren", "lark"};
+        for (int i = 0; i < 100_000; i++) {
+            String commonName = words[i % 10] + " " + birds[(i / 10) % 10] + " " + i;
+            pollService.addCandidate(new Candidate("Avis " + i, commonName, "Seen near " + words[(i / 100) % 10]
+                    + " water, number " + Integer.toString(i, 36) + "."));
+        }
+        CandidateSearchIndex index = new CandidateSearchIndex(pollService);
+
+        // Numbers one edit away match too, below the exact match.
+        CandidateSearchResults plover = index.search("4224 plover", 0, 10);
+        assertEquals("spotted plover 4224", plover.getCandidates().get(0).getCommonName());
+        assertTrue(plover.getCandidates().stream().allMatch(candidate -> candidate.getCommonName().contains("plover")));
+        CandidateSearchResults crested = index.search("crestd wren", 0, 5);
+        // Descriptions of wrens seen near crested water match too, below the crested wrens themselves.
+        assertTrue(crested.getTotal() > 1_000);
+        assertEquals(5, crested.getCandidates().size());
+        assertTrue(crested.getCandidates().stream().allMatch(candidate -> candidate.getCommonName()
+                .startsWith("crested wren")));
+        assertEquals("grey finch 12311", index.search("avis 12311", 0, 10).getCandidates().get(0).getCommonName());
+    }
+
+    private static List<String> names(CandidateSearchResults results) {
+        return results.getCandidates().stream().map(Candidate::getCommonName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,58 @@
+package poll.service;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import poll.model.Candidate;
+import poll.model.Member;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactMemberStoreTests {
+
+    // Enough members to fill several pages and resize the table many times.
+    private static final int MEMBERS = 200_000;
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void membersAndVotesRoundTrip(boolean offHeap) {
+        CompactMemberStore store = new CompactMemberStore(offHeap);
+        Candidate osprey = new Candidate("Pandion haliaetus", "Osprey", "");
+        String[] regions = {"Highlands", "Fife", "Orkney Islands", null};
+
+        for (int i = 0; i < MEMBERS; i++) {
+            assertTrue(store.add(new Member("member-" + i, "Member " + i, i % 120, regions[i % regions.length]), 1));
+        }
+        assertFalse(store.add(new Member("member-7", "Someone Else", 30, "Fife"), 1));
+        assertTrue(store.add(new Member("membré-ü", null, -1, null), 2));
+        assertEquals(MEMBERS + 1, store.size());
+
+        Member voter = store.get("member-12345");
+        store.setVote(voter, osprey);
+        store.setSnapshotEpoch(voter, 5);
+        Member member = store.get("member-12345");
+        assertEquals("Member 12345", member.getName());
+        assertEquals(12345 % 120, member.getAge());
+        assertEquals(regions[12345 % regions.length], member.getRegionOfScotland());
+        assertSame(osprey, member.getCandidateVotedFor());
+        assertEquals(5, member.getSnapshotEpoch());
+
+        Member unicode = store.get("membré-ü");
+        assertNull(unicode.getName());
+        assertNull(unicode.getRegionOfScotland());
+        assertEquals(-1, unicode.getAge());
+        assertNull(unicode.getCandidateVotedFor());
+        assertNull(store.get("member-" + MEMBERS));
+
+        Set<String> seen = new HashSet<>();
+        store.forEachMembershipId(seen::add);
+        assertEquals(MEMBERS + 1, seen.size());
+        assertTrue(seen.contains("membré-ü"));
+    }
+}
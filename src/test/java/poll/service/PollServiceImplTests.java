@@ -0,0 +1,265 @@
+package poll.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import poll.model.Candidate;
+import poll.model.Member;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PollServiceImplTests {
+
+    private static final String[] CANDIDATES = {"Osprey", "White-tailed Kite", "Golden Eagle"};
+    private static final int MEMBERS = 64;
+    private static final int THREADS = 16;
+    private static final int OPERATIONS_PER_THREAD = 50_000;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"object", "compact"})
+    void concurrentTransitionsKeepTalliesConsistent(String store) throws InterruptedException {
+        PollServiceImpl pollService = new PollServiceImpl(memberStore(store));
+        for (String commonName : CANDIDATES) {
+            pollService.addCandidate(new Candidate("", commonName, ""));
+        }
+        for (int i = 0; i < MEMBERS; i++) {
+            pollService.addMember(new Member("member-" + i, "Member " + i));
+        }
+
+        // A small pool of members, so that many threads fight over the same member's vote.
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    String membershipId = "member-" + random.nextInt(MEMBERS);
+                    int operation = random.nextInt(8);
+                    if (operation < 2) {
+                        pollService.retractVote(membershipId);
+                    } else if (operation == 2) {
+                        // A small batch, racing the single votes and retractions for the same members.
+                        List<String> membershipIds = new ArrayList<>();
+                        List<Candidate> candidates = new ArrayList<>();
+                        for (int j = 0; j < 4; j++) {
+                            membershipIds.add("member-" + random.nextInt(MEMBERS));
+                            candidates.add(pollService.getCandidate(CANDIDATES[random.nextInt(CANDIDATES.length)]));
+                        }
+                        pollService.makeVotes(membershipIds, candidates);
+                    } else {
+                        Candidate candidate = pollService.getCandidate(CANDIDATES[random.nextInt(CANDIDATES.length)]);
+                        pollService.makeVote(membershipId, candidate);
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        // Every candidate's count must equal the members currently holding a vote for it.
+        int totalVotes = 0;
+        int membersWithVote = 0;
+        for (String commonName : CANDIDATES) {
+            Candidate candidate = pollService.getCandidate(commonName);
+            int holders = 0;
+            for (int i = 0; i < MEMBERS; i++) {
+                if (candidate.equals(pollService.getMember("member-" + i).getCandidateVotedFor())) {
+                    holders++;
+                }
+            }
+            assertEquals(holders, pollService.getCandidateCount(commonName));
+            totalVotes += pollService.getCandidateCount(commonName);
+            membersWithVote += holders;
+        }
+        assertEquals(membersWithVote, totalVotes);
+
+        // The ranking has caught up with every count, and is in order of them.
+        List<Candidate> ranked = pollService.getRankedCandidates(0, CANDIDATES.length);
+        assertEquals(CANDIDATES.length, ranked.size());
+        for (int i = 0; i < ranked.size(); i++) {
+            assertEquals(pollService.getCandidateCount(ranked.get(i).getCommonName()), ranked.get(i).getVoteCount());
+            assertTrue(i == 0 || ranked.get(i - 1).getVoteCount() >= ranked.get(i).getVoteCount());
+        }
+    }
+
+    @Test
+    void concurrentVotesAndCatalogChangesAreAllCounted() throws Exception {
+        PollServiceImpl pollService = new PollServiceImpl();
+        Candidate osprey = new Candidate("Pandion haliaetus", "Osprey", "");
+        pollService.addCandidate(osprey);
+
+        // Every thread registers its own members and votes for the same candidate, while another thread adds,
+        // lists and removes other candidates.
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        int membersPerThread = 2_000;
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            tasks.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < membersPerThread; i++) {
+                    String membershipId = "member-" + thread + "-" + i;
+                    pollService.addMember(new Member(membershipId, "Member " + i));
+                    assertTrue(pollService.makeVote(membershipId, osprey));
+                }
+                return null;
+            }));
+        }
+        tasks.add(executor.submit(() -> {
+            start.await();
+            for (int i = 0; i < 2_000; i++) {
+                pollService.addCandidate(new Candidate("", "Bird " + i, ""));
+                assertTrue(pollService.getAllCandidates().size() >= 2);
+                pollService.removeCandidate("Bird " + i);
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(THREADS * membersPerThread, pollService.getMemberCount());
+        assertEquals(THREADS * membersPerThread, osprey.getVoteCount());
+        assertEquals(List.of("Osprey"), names(pollService.getAllCandidates()));
+    }
+
+    @Test
+    void candidatesAreListedAlphabeticallyAndRankedByVotes() {
+        PollServiceImpl pollService = new PollServiceImpl();
+        for (String commonName : new String[]{"osprey", "Golden Eagle", "Barn Owl", "Osprey", "Red Kite"}) {
+            pollService.addCandidate(new Candidate("", commonName, ""));
+        }
+        for (int i = 0; i < 6; i++) {
+            pollService.addMember(new Member("member-" + i, "Member " + i));
+        }
+
+        assertEquals(List.of("Barn Owl", "Golden Eagle", "Osprey", "osprey", "Red Kite"),
+                names(pollService.getAllCandidates()));
+        assertEquals(List.of("Golden Eagle", "Osprey"), names(pollService.getCandidatePage(null, 1, 2)));
+        assertEquals(List.of("osprey", "Red Kite"), names(pollService.getCandidatePage("Osprey", 0, 10)));
+        assertEquals(List.of("Red Kite"), names(pollService.getCandidatePage("Osprey", 1, 10)));
+
+        // With no votes, the ranking is alphabetical.
+        assertEquals(names(pollService.getAllCandidates()), names(pollService.getRankedCandidates(0, 10)));
+
+        Candidate kite = pollService.getCandidate("Red Kite");
+        Candidate owl = pollService.getCandidate("Barn Owl");
+        pollService.makeVote("member-0", kite);
+        pollService.makeVotes(List.of("member-1", "member-2", "member-3"), List.of(owl, owl, kite));
+        // Candidates with the same votes stay in alphabetical order.
+        assertEquals(List.of("Barn Owl", "Red Kite", "Golden Eagle"), names(pollService.getRankedCandidates(0, 3)));
+        assertEquals(2, pollService.getRankedCandidates(0, 1).get(0).getVoteCount());
+
+        // A change of vote moves both candidates, and the ranking can be paged.
+        pollService.makeVote("member-0", owl);
+        pollService.retractVote("member-3");
+        assertEquals(List.of("Barn Owl", "Golden Eagle"), names(pollService.getRankedCandidates(0, 2)));
+        assertEquals(List.of("Osprey", "osprey", "Red Kite"), names(pollService.getRankedCandidates(2, 10)));
+        assertEquals(3, pollService.getRankedCandidates(0, 1).get(0).getVoteCount());
+
+        pollService.removeCandidate("Barn Owl");
+        assertEquals(4, pollService.countCandidates());
+        assertEquals("Golden Eagle", pollService.getRankedCandidates(0, 1).get(0).getCommonName());
+        assertEquals(List.of("Golden Eagle", "Osprey", "osprey", "Red Kite"), names(pollService.getAllCandidates()));
+    }
+
+    @Test
+    void repeatedVoteIsNotModified() {
+        PollServiceImpl pollService = new PollServiceImpl();
+        pollService.addCandidate(new Candidate("", "Osprey", ""));
+        pollService.addMember(new Member("1", "Member"));
+        Candidate osprey = pollService.getCandidate("Osprey");
+
+        assertTrue(pollService.makeVote("1", osprey));
+        assertFalse(pollService.makeVote("1", osprey));
+        assertTrue(pollService.retractVote("1"));
+        assertFalse(pollService.retractVote("1"));
+        assertEquals(0, pollService.getCandidateCount("Osprey"));
+    }
+
+    private static List<String> names(List<Candidate> candidates) {
+        return candidates.stream().map(Candidate::getCommonName).collect(Collectors.toList());
+    }
+
+    @Test
+    void batchMovesTheCountersWithEachVote() {
+        PollServiceImpl pollService = new PollServiceImpl();
+        Candidate osprey = new Candidate("Pandion haliaetus", "Osprey", null);
+        Candidate kite = new Candidate("Milvus milvus", "Red Kite", null);
+        pollService.addCandidate(osprey);
+        pollService.addCandidate(kite);
+        pollService.addMember(new Member("member-1", "Ada Lovelace"));
+        pollService.addMember(new Member("member-2", "Charles Babbage"));
+        pollService.makeVote("member-1", osprey);
+        List<Integer> seen = new ArrayList<>();
+        pollService.addListener(new PollListener() {
+            @Override
+            public void onVote(Member voter, Candidate lastVote, Candidate newVote) {
+                if (voter.getMembershipId().equals("member-2")) {
+                    // By now the batch has moved member-1, whose vote is taken back before the batch ends.
+                    seen.add(osprey.getVoteCount());
+                    seen.add(kite.getVoteCount());
+                    pollService.retractVote("member-1");
+                    seen.add(kite.getVoteCount());
+                }
+            }
+        });
+
+        pollService.makeVotes(List.of("member-1", "member-2"), List.of(kite, kite));
+
+        assertEquals(List.of(0, 2, 1), seen);
+        assertEquals(0, osprey.getVoteCount());
+        assertEquals(1, kite.getVoteCount());
+    }
+
+    @Test
+    void votesTheStoreRefusesLeaveTheTalliesAlone() {
+        PollServiceImpl pollService = new PollServiceImpl(new CompactMemberStore(false));
+        pollService.addMember(new Member("member-1", "Ada Lovelace"));
+        pollService.addMember(new Member("member-2", "Charles Babbage"));
+        // Vote for one more candidate than the compact store can give ordinals to.
+        int candidates = 0xFFFF - 1;
+        for (int i = 0; i < candidates; i++) {
+            pollService.addCandidate(new Candidate("Avis " + i, "Bird " + i, null));
+            pollService.makeVote("member-1", pollService.getCandidate("Bird " + i));
+        }
+        Candidate last = pollService.getCandidate("Bird " + (candidates - 1));
+        Candidate oneTooMany = new Candidate("Avis nimia", "One Too Many", null);
+        pollService.addCandidate(oneTooMany);
+
+        assertThrows(IllegalStateException.class, () -> pollService.makeVote("member-1", oneTooMany));
+        assertThrows(IllegalStateException.class, () -> pollService.makeVotes(List.of("member-2", "member-1"),
+                List.of(last, oneTooMany)));
+        assertEquals(2, last.getVoteCount());
+        assertEquals(0, oneTooMany.getVoteCount());
+        assertEquals(last, pollService.getMember("member-1").getCandidateVotedFor());
+        assertEquals(last, pollService.getMember("member-2").getCandidateVotedFor());
+    }
+
+    private static MemberStore memberStore(String store) {
+        return store.equals("compact") ? new CompactMemberStore(false) : new ObjectMemberStore();
+    }
+}
@@ -0,0 +1,119 @@
+package poll.stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import poll.model.Candidate;
+import poll.model.Member;
+import poll.service.PollServiceImpl;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TallyBroadcasterTests {
+
+    @Test
+    void burstOfVotesIsCoalescedIntoFewFrames() throws Exception {
+        PollServiceImpl pollService = new PollServiceImpl();
+        pollService.addCandidate(new Candidate("Pandion haliaetus", "Osprey", null));
+        pollService.addCandidate(new Candidate("Milvus milvus", "Red Kite", null));
+        TallyBroadcaster broadcaster = new TallyBroadcaster(pollService, new ObjectMapper(), 50, 16, 1, 60_000, 5_000);
+        RecordingConnection client = new RecordingConnection();
+        broadcaster.connect(client);
+        String tally = client.next();
+        assertTrue(tally.startsWith("tally {") && tally.contains("\"Osprey\":0") && tally.contains("\"Red Kite\":0"),
+                tally);
+
+        for (int i = 0; i < 500; i++) {
+            pollService.addMember(new Member("member-" + i, "Member " + i, 30, null));
+            pollService.makeVote("member-" + i, pollService.getCandidate("Osprey"));
+        }
+
+        // Only the candidate that changed is sent, once per tick rather than once per vote.
+        List<String> deltas = new ArrayList<>();
+        String frame;
+        do {
+            frame = client.next();
+            deltas.add(frame);
+        } while (!frame.equals("delta {\"Osprey\":500}"));
+        assertTrue(deltas.size() < 10, deltas.toString());
+        assertTrue(deltas.stream().allMatch(delta -> delta.startsWith("delta {\"Osprey\":")), deltas.toString());
+        broadcaster.close();
+    }
+
+    @Test
+    void stalledSubscriberIsDroppedWithoutHoldingUpOthers() throws Exception {
+        PollServiceImpl pollService = new PollServiceImpl();
+        pollService.addCandidate(new Candidate("Pandion haliaetus", "Osprey", null));
+        pollService.addMember(new Member("member-1", "Ada Lovelace", 36, null));
+        // One sender thread, which the stalled client takes up with its first frame.
+        TallyBroadcaster broadcaster = new TallyBroadcaster(pollService, new ObjectMapper(), 20, 16, 1, 60_000, 200);
+        CountDownLatch unblock = new CountDownLatch(1);
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        broadcaster.connect(new TallyBroadcaster.Connection() {
+            @Override
+            public void send(String event, String frame) {
+                try {
+                    unblock.await();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void fail(Throwable error) {
+                failure.complete(error);
+            }
+
+            @Override
+            public void complete() {
+            }
+        });
+        RecordingConnection client = new RecordingConnection();
+        broadcaster.connect(client);
+
+        assertEquals("tally {\"Osprey\":0}", client.next());
+        pollService.makeVote("member-1", pollService.getCandidate("Osprey"));
+        assertEquals("delta {\"Osprey\":1}", client.next());
+        assertFalse(failure.isDone());
+
+        // Once its write returns, the stalled client is disconnected.
+        unblock.countDown();
+        assertTrue(failure.get(5, TimeUnit.SECONDS) instanceof IOException);
+        broadcaster.close();
+    }
+
+    // A client that records the frames sent to it.
+    private static class RecordingConnection implements TallyBroadcaster.Connection {
+        private final BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(String event, String frame) {
+            frames.add(event + " " + frame);
+        }
+
+        @Override
+        public void fail(Throwable error) {
+        }
+
+        @Override
+        public void complete() {
+        }
+
+        private String next() throws InterruptedException {
+            String frame = frames.poll(5, TimeUnit.SECONDS);
+            assertNotNull(frame);
+            return frame;
+        }
+    }
+}
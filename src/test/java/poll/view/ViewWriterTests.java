@@ -0,0 +1,63 @@
+package poll.view;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import poll.model.Candidate;
+import poll.model.Member;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ViewWriterTests {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Test
+    void publicViewLeavesOutCountsAndPersonalDetails() throws IOException {
+        Candidate osprey = new Candidate("Pandion haliaetus", "Osprey", "A \"fish hawk\".");
+        osprey.addVotes(3);
+        Member member = new Member("member-1", "Ada Lovelace", 36, "Fife");
+        member.setCandidateVotedFor(osprey);
+
+        assertEquals("{\"scientificName\":\"Pandion haliaetus\",\"commonName\":\"Osprey\","
+                + "\"description\":\"A \\\"fish hawk\\\".\"}", write(osprey, View.PUBLIC));
+        assertEquals("{\"scientificName\":\"Pandion haliaetus\",\"commonName\":\"Osprey\","
+                + "\"description\":\"A \\\"fish hawk\\\".\",\"voteCount\":3}", write(osprey, View.ADMIN));
+        assertEquals("{\"membershipId\":\"member-1\",\"name\":\"Ada Lovelace\"}", write(member, View.PUBLIC));
+        // The vote is a nested candidate, in the format Jackson wrote before the view writers.
+        assertEquals("{\"membershipId\":\"member-1\",\"name\":\"Ada Lovelace\",\"age\":36,"
+                + "\"regionOfScotland\":\"Fife\",\"candidateVotedFor\":{\"scientificName\":\"Pandion haliaetus\","
+                + "\"commonName\":\"Osprey\",\"description\":\"A \\\"fish hawk\\\".\",\"voteCount\":3}}",
+                write(member, View.ADMIN));
+        assertEquals(new ObjectMapper().writeValueAsString(member), write(member, View.ADMIN));
+    }
+
+    @Test
+    void collectionsAndMissingValuesAreWrittenInTheSameView() throws IOException {
+        Candidate kite = new Candidate("Milvus milvus", "Red Kite", null);
+        Member member = new Member("member-2", "Alan Turing");
+
+        assertEquals("[{\"scientificName\":\"Milvus milvus\",\"commonName\":\"Red Kite\",\"description\":null,"
+                + "\"voteCount\":0},null]", write(Arrays.asList(kite, null), View.ADMIN));
+        assertEquals("[{\"membershipId\":\"member-2\",\"name\":\"Alan Turing\"}]",
+                write(List.of(member), View.PUBLIC));
+        assertThrows(IllegalArgumentException.class, () -> write("Osprey", View.PUBLIC));
+    }
+
+    private String write(Object data, View view) throws IOException {
+        ByteArrayBuilder bytes = new ByteArrayBuilder();
+        try (JsonGenerator generator = jsonFactory.createGenerator(bytes, JsonEncoding.UTF8)) {
+            ViewWriter.write(generator, data, view);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+}